@@ -0,0 +1,187 @@
+package org.snpeff.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Exon;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Transcript;
+import org.snpeff.interval.Variant;
+import org.snpeff.interval.Variant.VariantType;
+import org.snpeff.snpEffect.Config;
+import org.snpeff.snpEffect.SnpEffectPredictor;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryRand;
+import org.snpeff.util.GprSeq;
+
+/**
+ * A synthetic genome (random genes, transcripts and sequence) used in benchmarks.
+ * Genomes are reproducible: The same seed always creates the same genome and variants.
+ *
+ * Note: Genome 'testCase' must be defined in the configuration file
+ *
+ * @author pcingola
+ */
+public class BenchmarkGenome {
+
+	public static final String GENOME = "testCase";
+	public static final long RAND_SEED = 20181020;
+
+	public static final int NUM_GENES = 200;
+	public static final int MAX_GENE_LEN = 10 * 1000;
+	public static final int MAX_TRANSCRIPTS = 5;
+	public static final int MAX_EXONS = 10;
+	public static final int MAX_INDEL_LEN = 10;
+	public static final int MAX_SV_LEN = 20 * 1000;
+
+	/**
+	 * Variant mixes used in benchmarks
+	 */
+	public enum VariantMix {
+		SNP, INDEL, SV, MIX
+	}
+
+	Random rand;
+	Config config;
+	Genome genome;
+	Chromosome chromosome;
+	String chromoSequence;
+	SnpEffectPredictor snpEffectPredictor;
+
+	public BenchmarkGenome() {
+		this(RAND_SEED, true);
+	}
+
+	/**
+	 * @param buildForest : Build interval forest (the forest adds markers, such as
+	 * 						upstream and downstream, that are not saved to database files)
+	 */
+	public BenchmarkGenome(long seed, boolean buildForest) {
+		rand = new Random(seed);
+		create();
+		if (buildForest) snpEffectPredictor.buildForest();
+	}
+
+	/**
+	 * Create genome, predictor and genomic sequences
+	 */
+	void create() {
+		config = new Config(GENOME, Config.DEFAULT_CONFIG_FILE);
+
+		SnpEffPredictorFactoryRand sepf = new SnpEffPredictorFactoryRand(config, rand, MAX_GENE_LEN, MAX_TRANSCRIPTS, MAX_EXONS);
+		sepf.setNumGenes(NUM_GENES);
+		sepf.setAddUtrs(true);
+		snpEffectPredictor = sepf.create();
+		config.setSnpEffectPredictor(snpEffectPredictor);
+
+		genome = config.getGenome();
+		chromosome = sepf.getChromo();
+		chromoSequence = sepf.getChromoSequence();
+		genome.getGenomicSequences().clear();
+		genome.getGenomicSequences().addGeneSequences(chromosome.getId(), chromoSequence);
+	}
+
+	/**
+	 * Effects of random coding variants (SNPs in exons)
+	 */
+	public List<VariantEffect> codingVariantEffects(int num) {
+		List<Transcript> transcripts = new ArrayList<>();
+		for (Gene gene : genome.getGenes())
+			for (Transcript tr : gene)
+				if (tr.isProteinCoding() && !tr.subIntervals().isEmpty()) transcripts.add(tr);
+
+		List<VariantEffect> veffs = new ArrayList<>();
+		while (veffs.size() < num) {
+			Transcript tr = transcripts.get(rand.nextInt(transcripts.size()));
+			List<Exon> exons = new ArrayList<>(tr.subIntervals());
+			Exon exon = exons.get(rand.nextInt(exons.size()));
+
+			int pos = exon.getStart() + rand.nextInt(exon.size());
+			for (VariantEffect veff : snpEffectPredictor.variantEffect(snp(pos)))
+				if (veff.isExon() && veff.getTranscript() != null) veffs.add(veff);
+		}
+
+		return veffs.subList(0, num);
+	}
+
+	public Config getConfig() {
+		return config;
+	}
+
+	public Genome getGenome() {
+		return genome;
+	}
+
+	public Random getRand() {
+		return rand;
+	}
+
+	public SnpEffectPredictor getSnpEffectPredictor() {
+		return snpEffectPredictor;
+	}
+
+	/**
+	 * Random position in the chromosome
+	 */
+	public int randPos() {
+		return rand.nextInt(chromoSequence.length() - MAX_INDEL_LEN);
+	}
+
+	/**
+	 * Random variant
+	 */
+	public Variant randVariant(VariantMix mix) {
+		int pos = randPos();
+		switch (mix) {
+		case SNP:
+			return snp(pos);
+
+		case INDEL:
+			int len = 1 + rand.nextInt(MAX_INDEL_LEN);
+			String ref = chromoSequence.substring(pos, pos + len + 1).toUpperCase();
+			if (rand.nextBoolean()) return new Variant(chromosome, pos, ref, ref.substring(0, 1), ""); // Deletion
+			return new Variant(chromosome, pos, ref.substring(0, 1), ref.substring(0, 1) + GprSeq.randSequence(rand, len).toUpperCase(), ""); // Insertion
+
+		case SV:
+			int end = Math.min(pos + MAX_INDEL_LEN + rand.nextInt(MAX_SV_LEN), chromosome.getEnd());
+			Variant sv = new Variant(chromosome, pos, end, "");
+			VariantType svTypes[] = { VariantType.DEL, VariantType.DUP, VariantType.INV };
+			sv.setVariantType(svTypes[rand.nextInt(svTypes.length)]);
+			return sv;
+
+		case MIX:
+			// Mostly SNPs, some indels, a few structural variants
+			int r = rand.nextInt(100);
+			if (r < 80) return randVariant(VariantMix.SNP);
+			if (r < 98) return randVariant(VariantMix.INDEL);
+			return randVariant(VariantMix.SV);
+
+		default:
+			throw new RuntimeException("Unknown variant mix '" + mix + "'");
+		}
+	}
+
+	/**
+	 * Random variants
+	 */
+	public Variant[] randVariants(VariantMix mix, int num) {
+		Variant variants[] = new Variant[num];
+		for (int i = 0; i < num; i++)
+			variants[i] = randVariant(mix);
+		return variants;
+	}
+
+	/**
+	 * A SNP at position 'pos'
+	 */
+	public Variant snp(int pos) {
+		String ref = chromoSequence.substring(pos, pos + 1).toUpperCase();
+		int altIdx = rand.nextInt(3);
+		String alt = "ACGT".replace(ref, "").substring(altIdx, altIdx + 1);
+		return new Variant(chromosome, pos, ref, alt, "");
+	}
+
+}
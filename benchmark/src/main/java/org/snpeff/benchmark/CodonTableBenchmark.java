@@ -0,0 +1,71 @@
+package org.snpeff.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snpeff.codons.CodonTable;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Transcript;
+import org.snpeff.util.GprSeq;
+
+/**
+ * Benchmark: Codon translation (single codons and full coding sequences)
+ *
+ * @author pcingola
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodonTableBenchmark {
+
+	public static final int NUM_CODONS = 1024; // Power of two
+
+	CodonTable codonTable;
+	String codons[];
+	List<String> cdss;
+	int next;
+
+	@Benchmark
+	public String aaCds() {
+		return codonTable.aa(cdss.get(next++ % cdss.size()));
+	}
+
+	@Benchmark
+	public String aaCodon() {
+		return codonTable.aa(codons[next++ & (NUM_CODONS - 1)]);
+	}
+
+	@Setup
+	public void setup() {
+		BenchmarkGenome bg = new BenchmarkGenome();
+		codonTable = bg.getGenome().codonTable();
+
+		// Random codons
+		Random rand = bg.getRand();
+		codons = new String[NUM_CODONS];
+		for (int i = 0; i < NUM_CODONS; i++)
+			codons[i] = GprSeq.randSequence(rand, 3).toUpperCase();
+
+		// Coding sequences
+		cdss = new ArrayList<>();
+		for (Gene gene : bg.getGenome().getGenes())
+			for (Transcript tr : gene)
+				if (tr.isProteinCoding()) cdss.add(tr.cds());
+	}
+
+}
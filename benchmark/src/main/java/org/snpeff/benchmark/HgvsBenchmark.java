@@ -0,0 +1,55 @@
+package org.snpeff.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snpeff.snpEffect.HgvsDna;
+import org.snpeff.snpEffect.HgvsProtein;
+import org.snpeff.snpEffect.VariantEffect;
+
+/**
+ * Benchmark: HGVS notation (DNA and protein level) of coding variants
+ *
+ * @author pcingola
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HgvsBenchmark {
+
+	public static final int NUM_EFFECTS = 1024; // Power of two
+
+	List<VariantEffect> variantEffects;
+	int next;
+
+	@Benchmark
+	public String hgvsDna() {
+		return new HgvsDna(variantEffects.get(next++ & (NUM_EFFECTS - 1))).toString();
+	}
+
+	@Benchmark
+	public String hgvsProtein() {
+		return new HgvsProtein(variantEffects.get(next++ & (NUM_EFFECTS - 1))).toString();
+	}
+
+	@Setup
+	public void setup() {
+		BenchmarkGenome bg = new BenchmarkGenome();
+		bg.getConfig().setUseHgvs(true);
+		variantEffects = bg.codingVariantEffects(NUM_EFFECTS);
+	}
+
+}
@@ -0,0 +1,55 @@
+package org.snpeff.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snpeff.benchmark.BenchmarkGenome.VariantMix;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.Variant;
+import org.snpeff.interval.tree.IntervalForest;
+
+/**
+ * Benchmark: Interval forest queries (SNPs and larger intervals)
+ *
+ * @author pcingola
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntervalForestBenchmark {
+
+	public static final int NUM_QUERIES = 1024; // Power of two
+
+	@Param({ "SNP", "SV", "MIX" })
+	VariantMix variantMix;
+
+	IntervalForest intervalForest;
+	Variant queries[];
+	int next;
+
+	@Benchmark
+	public Markers query() {
+		return intervalForest.query(queries[next++ & (NUM_QUERIES - 1)]);
+	}
+
+	@Setup
+	public void setup() {
+		BenchmarkGenome bg = new BenchmarkGenome();
+		intervalForest = bg.getSnpEffectPredictor().getIntervalForest();
+		queries = bg.randVariants(variantMix, NUM_QUERIES);
+	}
+
+}
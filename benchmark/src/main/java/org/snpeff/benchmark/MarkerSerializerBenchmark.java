@@ -0,0 +1,63 @@
+package org.snpeff.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snpeff.interval.Markers;
+import org.snpeff.serializer.MarkerSerializer;
+import org.snpeff.serializer.MarkerSerializerMmap;
+import org.snpeff.snpEffect.SnpEffectPredictor;
+
+/**
+ * Benchmark: Load a database (serialized markers), using either
+ * the (gzipped) text format or the memory mapped format
+ *
+ * @author pcingola
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MarkerSerializerBenchmark {
+
+	@Param({ "TEXT", "MMAP" })
+	String format;
+
+	File file;
+
+	@Benchmark
+	public Markers load() {
+		if (format.equals("MMAP")) return new MarkerSerializerMmap().load(file.getPath());
+		return new MarkerSerializer().load(file.getPath());
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		SnpEffectPredictor sep = new BenchmarkGenome(BenchmarkGenome.RAND_SEED, false).getSnpEffectPredictor();
+		file = File.createTempFile("snpEffectPredictor", ".bin");
+
+		if (format.equals("MMAP")) sep.saveMmap(file.getPath());
+		else sep.save(file.getPath());
+	}
+
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+}
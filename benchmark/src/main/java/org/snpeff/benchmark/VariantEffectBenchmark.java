@@ -0,0 +1,55 @@
+package org.snpeff.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snpeff.benchmark.BenchmarkGenome.VariantMix;
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.SnpEffectPredictor;
+import org.snpeff.snpEffect.VariantEffects;
+
+/**
+ * Benchmark: Calculate variant effects (SNPs, indels, structural variants and a mix of them)
+ *
+ * @author pcingola
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantEffectBenchmark {
+
+	public static final int NUM_VARIANTS = 1024; // Power of two
+
+	@Param({ "SNP", "INDEL", "SV", "MIX" })
+	VariantMix variantMix;
+
+	SnpEffectPredictor snpEffectPredictor;
+	Variant variants[];
+	int next;
+
+	@Setup
+	public void setup() {
+		BenchmarkGenome bg = new BenchmarkGenome();
+		snpEffectPredictor = bg.getSnpEffectPredictor();
+		variants = bg.randVariants(variantMix, NUM_VARIANTS);
+	}
+
+	@Benchmark
+	public VariantEffects variantEffect() {
+		return snpEffectPredictor.variantEffect(variants[next++ & (NUM_VARIANTS - 1)]);
+	}
+
+}
@@ -0,0 +1,51 @@
+package org.snpeff.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.vcf.EffFormatVersion;
+import org.snpeff.vcf.VcfEffect;
+
+/**
+ * Benchmark: Format variant effects as VCF annotations ('ANN' field), including HGVS
+ *
+ * @author pcingola
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VcfEffectBenchmark {
+
+	public static final int NUM_EFFECTS = 1024; // Power of two
+
+	List<VariantEffect> variantEffects;
+	int next;
+
+	@Setup
+	public void setup() {
+		BenchmarkGenome bg = new BenchmarkGenome();
+		bg.getConfig().setUseHgvs(true);
+		variantEffects = bg.codingVariantEffects(NUM_EFFECTS);
+	}
+
+	@Benchmark
+	public String toStringAnn() {
+		VariantEffect variantEffect = variantEffects.get(next++ & (NUM_EFFECTS - 1));
+		return new VcfEffect(variantEffect, EffFormatVersion.FORMAT_ANN_1, true, false).toString();
+	}
+
+}
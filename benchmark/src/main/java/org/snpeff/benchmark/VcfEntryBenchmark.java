@@ -0,0 +1,104 @@
+package org.snpeff.benchmark;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snpeff.benchmark.BenchmarkGenome.VariantMix;
+import org.snpeff.fileIterator.VcfFileIterator;
+import org.snpeff.interval.Variant;
+import org.snpeff.vcf.VcfEntry;
+
+/**
+ * Benchmark: Parse VCF lines and write VCF entries (different number of samples)
+ *
+ * @author pcingola
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VcfEntryBenchmark {
+
+	public static final int NUM_LINES = 256; // Power of two
+	public static final String ANN = "C|missense_variant|MODERATE|geneName1|geneId1|transcript|transcript_0|protein_coding|1/5|c.10A>C|p.Lys4Gln|10/300|10/300|4/100||";
+
+	@Param({ "0", "100", "2000" })
+	int numSamples;
+
+	VcfFileIterator vcfFileIterator;
+	String lines[];
+	VcfEntry vcfEntries[];
+	int next;
+
+	/**
+	 * Create a VCF line (genotypes are random)
+	 */
+	String line(Variant variant, Random rand) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(variant.getChromosomeName() + "\t" + (variant.getStart() + 1) + "\trs" + rand.nextInt(1000 * 1000) //
+				+ "\t" + variant.getReference() + "\t" + variant.getAlt() //
+				+ "\t" + rand.nextInt(1000) + "\tPASS" //
+				+ "\tAC=" + rand.nextInt(2 * numSamples + 1) + ";AF=0." + rand.nextInt(1000) + ";AN=" + (2 * numSamples) + ";DP=" + rand.nextInt(10000) + ";DB;MQ=60" //
+		);
+
+		if (numSamples > 0) {
+			sb.append("\tGT:AD:DP:GQ:PL");
+			for (int i = 0; i < numSamples; i++) {
+				int dp = rand.nextInt(100);
+				sb.append("\t" + rand.nextInt(2) + "/" + rand.nextInt(2) + ":" + (dp / 2) + "," + (dp - dp / 2) + ":" + dp + ":99:0,30,300");
+			}
+		}
+
+		return sb.toString();
+	}
+
+	@Benchmark
+	public VcfEntry parse() {
+		return new VcfEntry(vcfFileIterator, lines[next++ & (NUM_LINES - 1)], next, true);
+	}
+
+	@Benchmark
+	public String parseInfo() {
+		VcfEntry ve = new VcfEntry(vcfFileIterator, lines[next++ & (NUM_LINES - 1)], next, true);
+		return ve.getInfo("DP");
+	}
+
+	@Setup
+	public void setup() {
+		BenchmarkGenome bg = new BenchmarkGenome();
+		vcfFileIterator = new VcfFileIterator(new BufferedReader(new StringReader("")), bg.getGenome());
+
+		lines = new String[NUM_LINES];
+		vcfEntries = new VcfEntry[NUM_LINES];
+		for (int i = 0; i < NUM_LINES; i++) {
+			lines[i] = line(bg.randVariant(VariantMix.SNP), bg.getRand());
+			vcfEntries[i] = new VcfEntry(vcfFileIterator, lines[i], i, true);
+		}
+	}
+
+	/**
+	 * Add an annotation and create output line
+	 */
+	@Benchmark
+	public String toStringAnn() {
+		VcfEntry ve = vcfEntries[next++ & (NUM_LINES - 1)];
+		ve.addInfo("ANN", ANN);
+		return ve.toString();
+	}
+
+}
@@ -0,0 +1,225 @@
+package net.sf.samtools.tabix;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.snpeff.util.BgzfOutputStream;
+import org.snpeff.util.Gpr;
+
+/**
+ * Create a tabix index ('*.tbi' file) for a VCF file while it is being
+ * written (see BgzfOutputStream).
+ *
+ * Lines are added using uncompressed file positions, which are converted
+ * to virtual file offsets when the index is written (i.e. after all
+ * blocks have been compressed).
+ *
+ * Note: The file must be sorted by chromosome and position, otherwise an
+ *       index cannot be created (see 'isSorted')
+ */
+public class TabixIndexWriter {
+
+	public static final int PRESET_VCF = 2;
+	public static final int COL_SEQ = 1, COL_BEG = 2, COL_END = 0; // Columns used by VCF preset
+	public static final char META_CHAR = '#';
+
+	/**
+	 * Index for one sequence (chromosome)
+	 */
+	class SequenceIndex {
+		TreeMap<Integer, List<long[]>> chunksByBin = new TreeMap<>(); // Chunks for each bin: [start, end) uncompressed positions
+		long linearIndex[] = new long[0]; // Uncompressed position of the first record overlapping each 16KB window (-1 if none)
+		int linearIndexLen; // Number of windows used
+
+		void add(int beg, int end, long start, long stop) {
+			// Binning index: Extend last chunk if the previous record was in the same bin
+			List<long[]> chunks = chunksByBin.computeIfAbsent(reg2bin(beg, end), k -> new ArrayList<>());
+			long last[] = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+			if ((last != null) && (last[1] == start)) last[1] = stop;
+			else chunks.add(new long[] { start, stop });
+
+			// Linear index
+			int wbeg = beg >> TabixIndex.TAD_LIDX_SHIFT;
+			int wend = (end - 1) >> TabixIndex.TAD_LIDX_SHIFT;
+			if (wend >= linearIndex.length) {
+				int len = linearIndex.length;
+				linearIndex = Arrays.copyOf(linearIndex, Math.max(wend + 1, 2 * len));
+				Arrays.fill(linearIndex, len, linearIndex.length, -1);
+			}
+			for (int w = wbeg; w <= wend; w++)
+				if (linearIndex[w] < 0) linearIndex[w] = start;
+			linearIndexLen = Math.max(linearIndexLen, wend + 1);
+		}
+	}
+
+	List<String> sequenceNames;
+	Map<String, Integer> tidByName;
+	List<SequenceIndex> sequenceIndexes;
+	int tidPrev = -1, begPrev = -1;
+	String unsortedMessage; // Why the file is not sorted (null if sorted)
+
+	/**
+	 * Bin number for interval [beg, end) (zero-based, half open)
+	 */
+	public static int reg2bin(int beg, int end) {
+		--end;
+		if (beg >> 14 == end >> 14) return ((1 << 15) - 1) / 7 + (beg >> 14);
+		if (beg >> 17 == end >> 17) return ((1 << 12) - 1) / 7 + (beg >> 17);
+		if (beg >> 20 == end >> 20) return ((1 << 9) - 1) / 7 + (beg >> 20);
+		if (beg >> 23 == end >> 23) return ((1 << 6) - 1) / 7 + (beg >> 23);
+		if (beg >> 26 == end >> 26) return ((1 << 3) - 1) / 7 + (beg >> 26);
+		return 0;
+	}
+
+	static void writeInt(OutputStream out, int value) throws IOException {
+		out.write(value);
+		out.write(value >> 8);
+		out.write(value >> 16);
+		out.write(value >> 24);
+	}
+
+	static void writeLong(OutputStream out, long value) throws IOException {
+		writeInt(out, (int) value);
+		writeInt(out, (int) (value >> 32));
+	}
+
+	public TabixIndexWriter() {
+		sequenceNames = new ArrayList<>();
+		tidByName = new HashMap<>();
+		sequenceIndexes = new ArrayList<>();
+	}
+
+	/**
+	 * Add a VCF line, written at uncompressed positions [start, stop)
+	 * Note: Header lines and empty lines are ignored
+	 */
+	public void add(String line, long start, long stop) {
+		if (line.isEmpty() || (line.charAt(0) == META_CHAR)) return;
+		if (unsortedMessage != null) return; // Cannot create index, no need to process lines
+
+		// Parse chromosome, start (POS - 1) and end (POS - 1 + length(REF), or INFO's 'END')
+		String chr = null;
+		int beg = 0, end = 0;
+		for (int col = 1, idx = 0; (idx >= 0) && (col <= 8); col++) {
+			int next = line.indexOf('\t', idx);
+			String field = (next >= 0 ? line.substring(idx, next) : line.substring(idx));
+
+			switch (col) {
+			case 1:
+				chr = field;
+				break;
+
+			case 2:
+				beg = Math.max(0, Gpr.parseIntSafe(field) - 1);
+				end = beg + 1;
+				break;
+
+			case 4:
+				if (!field.isEmpty()) end = beg + field.length();
+				break;
+
+			case 8:
+				// INFO field: Use 'END' if available
+				int endIdx = -1;
+				if (field.startsWith("END=")) endIdx = 4;
+				else if (field.indexOf(";END=") >= 0) endIdx = field.indexOf(";END=") + 5;
+				if (endIdx > 0) {
+					int endEnd = field.indexOf(';', endIdx);
+					end = Gpr.parseIntSafe(endEnd > 0 ? field.substring(endIdx, endEnd) : field.substring(endIdx));
+				}
+				break;
+
+			default:
+				break;
+			}
+
+			idx = (next >= 0 ? next + 1 : -1);
+		}
+		if (end <= beg) end = beg + 1;
+
+		// Check that the file is sorted
+		Integer tid = tidByName.get(chr);
+		if (tid == null) {
+			tid = sequenceNames.size();
+			sequenceNames.add(chr);
+			tidByName.put(chr, tid);
+			sequenceIndexes.add(new SequenceIndex());
+		} else if (tid != tidPrev) {
+			unsortedMessage = "Chromosome '" + chr + "' is not contiguous";
+			return;
+		} else if (beg < begPrev) {
+			unsortedMessage = "Position " + chr + ":" + (beg + 1) + " is after position " + chr + ":" + (begPrev + 1);
+			return;
+		}
+		tidPrev = tid;
+		begPrev = beg;
+
+		sequenceIndexes.get(tid).add(beg, end, start, stop);
+	}
+
+	public String getUnsortedMessage() {
+		return unsortedMessage;
+	}
+
+	public boolean isSorted() {
+		return unsortedMessage == null;
+	}
+
+	/**
+	 * Write index file. Positions are converted to virtual file offsets
+	 * using the (closed) BGZF stream the data was written to.
+	 */
+	public void write(String fileName, BgzfOutputStream data) throws IOException {
+		if (!isSorted()) throw new RuntimeException("Cannot create tabix index, file is not sorted: " + unsortedMessage);
+
+		try (BgzfOutputStream out = new BgzfOutputStream(fileName, 1)) {
+			// Header
+			out.write(new byte[] { 'T', 'B', 'I', 1 });
+			writeInt(out, sequenceNames.size());
+			writeInt(out, PRESET_VCF);
+			writeInt(out, COL_SEQ);
+			writeInt(out, COL_BEG);
+			writeInt(out, COL_END);
+			writeInt(out, META_CHAR);
+			writeInt(out, 0); // Lines to skip
+
+			// Sequence names ('\0' terminated)
+			StringBuilder names = new StringBuilder();
+			for (String name : sequenceNames)
+				names.append(name).append('\0');
+			byte namesBytes[] = names.toString().getBytes();
+			writeInt(out, namesBytes.length);
+			out.write(namesBytes);
+
+			// Index for each sequence
+			for (SequenceIndex seqIdx : sequenceIndexes) {
+				// Binning index
+				writeInt(out, seqIdx.chunksByBin.size());
+				for (Integer bin : seqIdx.chunksByBin.keySet()) {
+					List<long[]> chunks = seqIdx.chunksByBin.get(bin);
+					writeInt(out, bin);
+					writeInt(out, chunks.size());
+					for (long chunk[] : chunks) {
+						writeLong(out, data.virtualOffset(chunk[0]));
+						writeLong(out, data.virtualOffset(chunk[1]));
+					}
+				}
+
+				// Linear index: Empty windows use the previous offset
+				writeInt(out, seqIdx.linearIndexLen);
+				long prev = 0;
+				for (int i = 0; i < seqIdx.linearIndexLen; i++) {
+					if (seqIdx.linearIndex[i] >= 0) prev = data.virtualOffset(seqIdx.linearIndex[i]);
+					writeLong(out, prev);
+				}
+			}
+		}
+	}
+
+}
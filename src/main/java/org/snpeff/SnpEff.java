@@ -44,6 +44,7 @@ import org.snpeff.snpEffect.commandLine.SnpEffCmdLen;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdPdb;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdProtein;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdSeq;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdServer;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdShow;
 import org.snpeff.snpEffect.commandLine.SnpEffCmdTranslocationsReport;
 import org.snpeff.spliceSites.SnpEffCmdSpliceAnalysis;
@@ -154,6 +155,7 @@ public class SnpEff implements CommandLine {
 	protected ArrayList<String> customIntervalFiles; // Custom interval files (bed)
 	protected ArrayList<String> filterIntervalFiles;// Files used for filter intervals
 	protected HashSet<String> regulationTracks = new HashSet<>();
+	protected Set<String> chromosomesToLoad; // Only load genes (and other markers) in these chromosomes. Default is 'null' which means 'all chromosomes'
 	protected Map<String, String> configOverride = new HashMap<>();
 
 	/**
@@ -305,6 +307,9 @@ public class SnpEff implements CommandLine {
 		case "seq":
 			return new SnpEffCmdSeq();
 
+		case "server":
+			return new SnpEffCmdServer();
+
 		case "show":
 			return new SnpEffCmdShow();
 
@@ -352,7 +357,7 @@ public class SnpEff implements CommandLine {
 	/**
 	 * Copy values to a new command
 	 */
-	void copyValues(SnpEff cmd) {
+	protected void copyValues(SnpEff cmd) {
 		cmd.canonical = canonical;
 		cmd.canonicalFile = canonicalFile;
 		cmd.configFile = configFile;
@@ -424,6 +429,10 @@ public class SnpEff implements CommandLine {
 		return configFile;
 	}
 
+	public String getGenomeVer() {
+		return genomeVer;
+	}
+
 	public String getOutput() {
 		return output.toString();
 	}
@@ -511,6 +520,7 @@ public class SnpEff implements CommandLine {
 		} else {
 			// Read
 			if (verbose) Timer.showStdErr("Reading database for genome version '" + genomeVer + "' from file '" + config.getFileSnpEffectPredictor() + "' (this might take a while)");
+			if (verbose && (chromosomesToLoad != null)) Timer.showStdErr("Only loading chromosomes " + chromosomesToLoad);
 
 			// Try to download database if it doesn't exists?
 			if (download && !Gpr.canRead(config.getFileSnpEffectPredictor())) {
@@ -524,7 +534,7 @@ public class SnpEff implements CommandLine {
 				else if (verbose) Timer.showStdErr("Database installed.");
 			}
 
-			config.loadSnpEffectPredictor(); // Read snpEffect predictor
+			config.loadSnpEffectPredictor(chromosomesToLoad); // Read snpEffect predictor
 			genome = config.getSnpEffectPredictor().getGenome();
 			if (verbose) Timer.showStdErr("done");
 		}
@@ -924,6 +934,7 @@ public class SnpEff implements CommandLine {
 				|| args[0].equalsIgnoreCase("pdb") //
 				|| args[0].equalsIgnoreCase("protein") //
 				|| args[0].equalsIgnoreCase("seq") //
+				|| args[0].equalsIgnoreCase("server") //
 				|| args[0].equalsIgnoreCase("show") //
 				|| args[0].equalsIgnoreCase("test") //
 				|| args[0].equalsIgnoreCase("translocreport") //
@@ -1112,8 +1123,9 @@ public class SnpEff implements CommandLine {
 					break;
 
 				case "-t":
-					usage("Multi-threaded opton not supported in this version!");
 					multiThreaded = true;
+					// Optional argument: Number of threads
+					if (((i + 1) < args.length) && (Gpr.parseIntSafe(args[i + 1]) > 0)) numWorkers = Gpr.parseIntSafe(args[++i]);
 					break;
 
 				case "-treatallasproteincoding":
@@ -1318,6 +1330,7 @@ public class SnpEff implements CommandLine {
 		System.err.println("\tpdb                          : Build interaction database (based on PDB data).");
 		System.err.println("\tprotein                      : Compare protein sequences calculated form a SnpEff database to the one in a FASTA file. Used for checking databases correctness.");
 		System.err.println("\tseq                          : Show sequence (from command line) translation.");
+		System.err.println("\tserver                       : Annotation server: Load databases once and annotate VCF files using local HTTP requests.");
 		System.err.println("\tshow                         : Show a text representation of genes or transcripts coordiantes, DNA sequence and protein sequence.");
 		System.err.println("\ttranslocReport               : Create a translocations report (from VCF file).");
 		// System.err.println("\tspliceAnalysis : Perform an analysis of splice sites.
@@ -1370,7 +1383,7 @@ public class SnpEff implements CommandLine {
 		System.err.println("\t-nodownload                  : Do not download a SnpEff database, if not available locally.");
 		System.err.println("\t-h , -help                   : Show this help and exit");
 		System.err.println("\t-noLog                       : Do not report usage statistics to server");
-		// System.err.println("\t-t                           : Use multiple threads (implies '-noStats'). Default 'off'");
+		System.err.println("\t-t [num_threads]             : Use multiple threads. Default number of threads: " + Gpr.NUM_CORES);
 		System.err.println("\t-q , -quiet                  : Quiet mode (do not show any messages or errors)");
 		System.err.println("\t-v , -verbose                : Verbose mode");
 		System.err.println("\t-version                     : Show version number and exit");
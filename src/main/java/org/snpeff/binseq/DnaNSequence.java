@@ -62,25 +62,24 @@ public class DnaNSequence extends DnaSequence {
 	}
 
 	/**
-	 * Get a few bases from this sequence
+	 * Copy 'len' bases starting at 'index' into 'bases[offset]'
 	 */
 	@Override
-	public String getBases(int index, int len) {
-		char bases[] = new char[len];
-		int j = index / coder.basesPerWord();
-		int k = coder.lastBaseinWord() - (index % coder.basesPerWord());
-		for (int i = 0, idx = index; i < len; i++, idx++) {
-			// Is it an 'N'?
-			if (hasN.fastGet(idx)) bases[i] = 'N'; // It's an 'N'
-			else bases[i] = coder.toBase(codes[j], k); // Decode base
-
-			k--;
-			if (k < 0) {
-				k = coder.lastBaseinWord();
-				j++;
-			}
-		}
-		return new String(bases);
+	public void getBases(int index, int len, char bases[], int offset) {
+		super.getBases(index, len, bases, offset);
+		for (int i = 0, idx = index; i < len; i++, idx++)
+			if (hasN.fastGet(idx)) bases[offset + i] = 'N'; // It's an 'N'
+	}
+
+	/**
+	 * Copy the reverse Watson-Crick complement of 'len' bases
+	 * starting at 'index' into 'bases[offset]'
+	 */
+	@Override
+	public void getBasesReverseWc(int index, int len, char bases[], int offset) {
+		super.getBasesReverseWc(index, len, bases, offset);
+		for (int i = 0, idx = index + len - 1; i < len; i++, idx--)
+			if (hasN.fastGet(idx)) bases[offset + i] = 'N'; // 'N' complement is 'N'
 	}
 
 	/**
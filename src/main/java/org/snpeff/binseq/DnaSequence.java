@@ -87,7 +87,7 @@ public class DnaSequence extends BinarySequence {
 		// This is exactly the same as "getCoder().toBase(getCode(index));"
 		int idx = index / coder.basesPerWord();
 		int pos = coder.lastBaseinWord() - (index % coder.basesPerWord());
-		int code = (int) ((codes[idx] & coder.MASK_BASE[pos]) >>> (pos << 1));
+		int code = (int) ((getWord(idx) & coder.MASK_BASE[pos]) >>> (pos << 1));
 		return coder.toBase(code);
 	}
 
@@ -96,17 +96,48 @@ public class DnaSequence extends BinarySequence {
 	 */
 	public String getBases(int index, int len) {
 		char bases[] = new char[len];
+		getBases(index, len, bases, 0);
+		return new String(bases);
+	}
+
+	/**
+	 * Copy 'len' bases starting at 'index' into 'bases[offset]'
+	 * Note: Bases are decoded directly into the buffer (no objects are created)
+	 */
+	public void getBases(int index, int len, char bases[], int offset) {
 		int j = index / coder.basesPerWord();
 		int k = coder.lastBaseinWord() - (index % coder.basesPerWord());
-		for (int i = 0; i < len; i++) {
-			bases[i] = coder.toBase(codes[j], k);
+		long word = (len > 0 ? getWord(j) : 0);
+		for (int i = offset; i < offset + len; i++) {
+			bases[i] = coder.toBase(word, k);
 			k--;
 			if (k < 0) {
 				k = coder.lastBaseinWord();
 				j++;
+				if (i + 1 < offset + len) word = getWord(j);
+			}
+		}
+	}
+
+	/**
+	 * Copy the reverse Watson-Crick complement of 'len' bases
+	 * starting at 'index' into 'bases[offset]'
+	 * I.e. 'bases[offset]' is the complement of base 'index + len - 1'
+	 */
+	public void getBasesReverseWc(int index, int len, char bases[], int offset) {
+		int idxLast = index + len - 1;
+		int j = idxLast / coder.basesPerWord();
+		int k = coder.lastBaseinWord() - (idxLast % coder.basesPerWord());
+		long word = (len > 0 ? getWord(j) : 0);
+		for (int i = offset; i < offset + len; i++) {
+			bases[i] = coder.toBase(0x03 & ~coder.decodeWord(word, k)); // WC complement
+			k++;
+			if (k > coder.lastBaseinWord()) {
+				k = 0;
+				j--;
+				if (i + 1 < offset + len) word = getWord(j);
 			}
 		}
-		return new String(bases);
 	}
 
 	/**
@@ -117,7 +148,7 @@ public class DnaSequence extends BinarySequence {
 		if ((index < 0) || (index > length)) throw new IndexOutOfBoundsException("Index requested " + index + ", sequence length is " + length);
 		int idx = index / coder.basesPerWord();
 		int off = coder.lastBaseinWord() - (index % coder.basesPerWord());
-		return coder.decodeWord(codes[idx], off);
+		return coder.decodeWord(getWord(idx), off);
 	}
 
 	@Override
@@ -134,6 +165,13 @@ public class DnaSequence extends BinarySequence {
 		return getBases(0, length);
 	}
 
+	/**
+	 * Get a word (encoded bases) from 'codes'
+	 */
+	protected long getWord(int idx) {
+		return codes[idx];
+	}
+
 	@Override
 	public int hashCode() {
 		long hash = 0;
@@ -0,0 +1,150 @@
+package org.snpeff.binseq;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Binary packed DNA sequence backed by a (memory mapped) buffer
+ *
+ * Notes:
+ * 		- Bases are encoded exactly as in DnaSequence (2 bits per base, 32 bases per 'long' word)
+ * 		- Words are not copied to the heap, they are read from the buffer on each access
+ * 		- 'N' bases are stored as a sorted list of runs [nStart, nEnd)
+ * 		- This sequence is read-only
+ *
+ * @author pcingola
+ */
+public class DnaSequenceMmap extends DnaSequence {
+
+	private static final long serialVersionUID = -2853196315485519227L;
+
+	transient ByteBuffer buffer;
+	int pos; // Position of the first word in 'buffer'
+	int nStart[], nEnd[]; // Runs of 'N' bases: [nStart, nEnd)
+
+	public DnaSequenceMmap(ByteBuffer buffer, int pos, int length, int nStart[], int nEnd[]) {
+		super(length, null);
+		this.buffer = buffer;
+		this.pos = pos;
+		this.nStart = nStart;
+		this.nEnd = nEnd;
+	}
+
+	@Override
+	public int compareTo(BinarySequence o) {
+		return toDnaSequence().compareTo(o instanceof DnaSequenceMmap ? ((DnaSequenceMmap) o).toDnaSequence() : o);
+	}
+
+	/**
+	 * Index of the first 'N' run ending after 'index'
+	 */
+	int firstRun(int index) {
+		int idx = Arrays.binarySearch(nEnd, index);
+		return idx >= 0 ? idx + 1 : -(idx + 1);
+	}
+
+	@Override
+	public char getBase(int index) {
+		if (isN(index)) return 'N';
+		return super.getBase(index);
+	}
+
+	@Override
+	public void getBases(int index, int len, char bases[], int offset) {
+		super.getBases(index, len, bases, offset);
+
+		// Overwrite 'N' runs
+		int end = index + len;
+		for (int r = firstRun(index); r < nStart.length && nStart[r] < end; r++) {
+			int s = Math.max(nStart[r], index), e = Math.min(nEnd[r], end);
+			Arrays.fill(bases, offset + s - index, offset + e - index, 'N');
+		}
+	}
+
+	@Override
+	public void getBasesReverseWc(int index, int len, char bases[], int offset) {
+		super.getBasesReverseWc(index, len, bases, offset);
+
+		// Overwrite 'N' runs. Base 'i' is at 'offset + (index + len - 1 - i)'
+		int end = index + len;
+		for (int r = firstRun(index); r < nStart.length && nStart[r] < end; r++) {
+			int s = Math.max(nStart[r], index), e = Math.min(nEnd[r], end);
+			Arrays.fill(bases, offset + end - e, offset + end - s, 'N');
+		}
+	}
+
+	/**
+	 * Copy all words to an array
+	 */
+	@Override
+	public long[] getCodes() {
+		long codes[] = new long[coder.length2words(length)];
+		for (int i = 0; i < codes.length; i++)
+			codes[i] = getWord(i);
+		return codes;
+	}
+
+	@Override
+	protected long getWord(int idx) {
+		return buffer.getLong(pos + idx * 8);
+	}
+
+	@Override
+	public int hashCode() {
+		long hash = 0;
+		int numWords = coder.length2words(length);
+		for (int i = 0; i < numWords; i++)
+			hash = hash * 33 + getWord(i);
+
+		return (int) hash;
+	}
+
+	/**
+	 * Is base at 'index' an 'N'?
+	 */
+	public boolean isN(int index) {
+		int r = firstRun(index);
+		return r < nStart.length && nStart[r] <= index;
+	}
+
+	@Override
+	public BinarySequence overlap(BinarySequence sequence, int start) {
+		return toDnaSequence().overlap(sequence, start);
+	}
+
+	@Override
+	public BinarySequence reverseWc() {
+		return toDnaSequence().reverseWc();
+	}
+
+	@Override
+	public void set(String seqStr, boolean ignoreErrors) {
+		throw new RuntimeException("Cannot modify a memory mapped sequence");
+	}
+
+	@Override
+	public void setBase(int index, char base) {
+		throw new RuntimeException("Cannot modify a memory mapped sequence");
+	}
+
+	/**
+	 * Create a (heap) copy of this sequence
+	 */
+	public DnaSequence toDnaSequence() {
+		if (nStart.length == 0) return new DnaSequence(length, getCodes());
+
+		DnaNSequence seq = new DnaNSequence(length, getCodes());
+		for (int r = 0; r < nStart.length; r++)
+			for (int i = nStart[r]; i < nEnd[r]; i++)
+				seq.setBase(i, 'N');
+		return seq;
+	}
+
+	@Override
+	public void write(DataOutputStream dataOutStream) throws IOException {
+		toDnaSequence().write(dataOutStream);
+	}
+
+}
@@ -1,11 +1,20 @@
 package org.snpeff.binseq;
 
+import java.io.File;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Exon;
@@ -16,7 +25,9 @@ import org.snpeff.interval.MarkerSeq;
 import org.snpeff.interval.Markers;
 import org.snpeff.interval.Transcript;
 import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.interval.tree.IntervalTreeFlat;
 import org.snpeff.interval.tree.Itree;
+import org.snpeff.serializer.MarkerSeqSerializerMmap;
 import org.snpeff.snpEffect.Config;
 import org.snpeff.util.Gpr;
 import org.snpeff.util.GprSeq;
@@ -43,12 +54,21 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 	boolean verbose = false;
 	boolean allSmallLoaded; // Have all "small" chromosomes been loaded? (i.e. have we already loaded 'sequence.bin' file?)
 	boolean disableLoad = false; // Do not load sequences from disk. Used minly for test cases
+	int numThreads = 1; // Number of threads used to save chromosome sequence files
 	Genome genome; // Reference genome
 	IntervalForest intervalForest; // This is an interval forest of 'MarkerSeq' (genomic markers that have sequences)
+	ConcurrentHashMap<String, Itree> treeByChr; // Loaded (and built) trees, by chromosome name. Read without locking
+	ConcurrentHashMap<String, ReentrantLock> loadLockByChr; // Locks used when trees have to be loaded, by chromosome name
+	AtomicLong countContention; // Number of times a thread had to wait for another thread to load sequences
+	AtomicLong countLoads; // Number of sequence files loaded
 
 	public GenomicSequences(Genome genome) {
 		this.genome = genome;
 		intervalForest = new IntervalForest();
+		treeByChr = new ConcurrentHashMap<>();
+		loadLockByChr = new ConcurrentHashMap<>();
+		countContention = new AtomicLong();
+		countLoads = new AtomicLong();
 	}
 
 	/**
@@ -76,7 +96,7 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 
 		// Build tree
 		if (verbose) Timer.showStdErr("Building sequence tree for chromosome '" + chr + "'");
-		build();
+		tree.build();
 		if (verbose) Timer.showStdErr("Done. Loaded " + tree.getIntervals().size() + " sequences.");
 
 		return !tree.isEmpty();
@@ -84,9 +104,13 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 
 	/**
 	 * Add sequences for each gene in the genome
+	 *
+	 * Note: Sequences from different chromosomes can be added concurrently
+	 *       (e.g. when building a database using several threads)
 	 */
-	public int addGeneSequences(String chr, String chrSeq) {
+	public int addGeneSequences(String chr, CharSequence chrSeq) {
 		int seqsAdded = 0;
+		List<MarkerSeq> markerSeqs = new ArrayList<>();
 
 		// Get all genes in this chromosome
 		Markers markers = genesMarkers(chr, chrSeq.length());
@@ -105,13 +129,13 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 				System.err.println("Ignoring gene outside chromosome range (chromo length: " + chrSeq.length() + "). Sequence (merged genes): " + genes.toStr());
 			} else {
 				try {
-					String seq = chrSeq.substring(ssStart, ssEnd).toUpperCase();
+					String seq = chrSeq.subSequence(ssStart, ssEnd).toString().toUpperCase();
 					seqsAdded++;
 
 					// Create a marker sequence and add it to interval forest
 					MarkerSeq m = new MarkerSeq(genes.getChromosome(), genes.getStart(), genes.getEnd(), false, genes.getChromosomeName() + ":" + genes.getStart() + "-" + genes.getEnd());
 					m.setSequence(seq);
-					intervalForest.add(m);
+					markerSeqs.add(m);
 				} catch (Throwable t) {
 					t.printStackTrace();
 					throw new RuntimeException("Error trying to add sequence for gene:\n\tChromosome sequence length: " + chrSeq.length() + "\n\tGene: " + genes.toStr());
@@ -119,7 +143,13 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 			}
 		}
 
-		build();
+		// Add to interval forest
+		synchronized (this) {
+			for (MarkerSeq m : markerSeqs)
+				intervalForest.add(m);
+			build();
+		}
+
 		return seqsAdded;
 	}
 
@@ -129,11 +159,13 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 	public void build() {
 		if (verbose) Timer.showStdErr("Building sequence tree for genome sequences");
 		intervalForest.build();
+		treeByChr.clear(); // Trees may have changed
 		if (verbose) Timer.showStdErr("Done.");
 	}
 
 	public void clear() {
 		intervalForest = new IntervalForest();
+		treeByChr.clear();
 	}
 
 	/**
@@ -235,17 +267,17 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		if (allSmallLoaded) return false;
 
 		// File does not exists?  Cannot load...
-		String fileName = Config.get().getFileNameSequence();
-		if (!Gpr.exists(fileName)) {
-			if (Config.get().isDebug()) Timer.showStdErr("Attempting to load sequences from file '" + fileName + "' failed, nothing done.");
+		Config config = genome.getConfig();
+		String fileName = config.getFileNameSequence();
+		String fileNameMmap = config.getFileNameSequenceMmap();
+		if (!Gpr.exists(fileName) && !Gpr.exists(fileNameMmap)) {
+			if (config.isDebug()) Timer.showStdErr("Attempting to load sequences from file '" + fileName + "' failed, nothing done.");
 			return false;
 		}
 
 		// Load markers
-		if (verbose) Timer.showStdErr("Loading sequences from file '" + fileName + "'");
-		Markers markers = new Markers();
+		Markers markers = loadMarkers(fileName, fileNameMmap);
 		Set<Itree> toBuild = new HashSet<>();
-		markers.load(fileName, genome);
 		for (Marker m : markers) {
 			if (m instanceof Genome || m instanceof Chromosome) continue;
 			Itree tree = intervalForest.getOrCreateTreeChromo(m.getChromosomeName());
@@ -266,42 +298,147 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 
 	/**
 	 * Load sequences for a single chromosome (from "sequence.chr.bin" file)
+	 *
+	 * Note: Only one thread loads each chromosome, but different
+	 *       chromosomes can be loaded concurrently
 	 */
-	public synchronized boolean load(String chr) {
-		// Already loaded?
-		if (hasChromosome(chr)) return true;
-		if (disableLoad) return false; // Loading form database disabled?
+	public boolean load(String chr) {
+		ReentrantLock loadLock = loadLock(chr);
+		try {
+			// Already loaded?
+			synchronized (this) {
+				if (hasChromosome(chr)) return true;
+				if (disableLoad) return false; // Loading form database disabled?
+			}
 
-		// File does not exists?  Cannot load...
-		String fileName = Config.get().getFileNameSequence(chr);
-		if (!Gpr.exists(fileName)) {
-			if (Config.get().isDebug()) Timer.showStdErr("Attempting to load sequences for chromosome '" + chr + "' from file '" + fileName + "' failed, nothing done.");
-			return false;
+			// File does not exists?  Cannot load...
+			Config config = genome.getConfig();
+			String fileName = config.getFileNameSequence(chr);
+			String fileNameMmap = config.getFileNameSequenceMmap(chr);
+			if (!Gpr.exists(fileName) && !Gpr.exists(fileNameMmap)) {
+				if (config.isDebug()) Timer.showStdErr("Attempting to load sequences for chromosome '" + chr + "' from file '" + fileName + "' failed, nothing done.");
+				return false;
+			}
+
+			// Load markers (without holding the global lock). Make sure the
+			// chromosome exists, so loading does not need to modify the genome
+			synchronized (this) {
+				genome.getOrCreateChromosome(chr);
+			}
+			Markers markers = loadMarkers(fileName, fileNameMmap);
+
+			synchronized (this) {
+				Itree tree = intervalForest.getOrCreateTreeChromo(chr);
+				tree.add(markers);
+				if (verbose) Timer.showStdErr("Building sequence tree for chromosome '" + chr + "'");
+				tree.build();
+				if (verbose) Timer.showStdErr("Done. Loaded " + tree.getIntervals().size() + " sequences.");
+				return !tree.isEmpty();
+			}
+		} finally {
+			loadLock.unlock();
 		}
+	}
 
-		// Load markers
-		if (verbose) Timer.showStdErr("Loading sequences for chromosome '" + chr + "' from file '" + fileName + "'");
-		Itree tree = intervalForest.getOrCreateTreeChromo(chr);
-		tree.load(fileName, genome);
-		if (verbose) Timer.showStdErr("Building sequence tree for chromosome '" + chr + "'");
-		tree.build();
-		if (verbose) Timer.showStdErr("Done. Loaded " + tree.getIntervals().size() + " sequences.");
-		return !tree.isEmpty();
+	/**
+	 * Acquire the lock used to load chromosome 'chr' (count contention)
+	 * Note: The caller must unlock it
+	 */
+	ReentrantLock loadLock(String chr) {
+		ReentrantLock loadLock = loadLockByChr.computeIfAbsent(chr, c -> new ReentrantLock());
+		if (!loadLock.tryLock()) {
+			countContention.incrementAndGet();
+			loadLock.lock();
+		}
+		return loadLock;
 	}
 
 	/**
-	 * Load sequences from genomic sequence file or (if not file is available) generate some sequences from exons.
+	 * Load sequence markers, prefer memory mapped file if available
+	 * Note: A memory mapped file older than 'fileName' is stale (e.g.
+	 * the database was re-downloaded), so it is ignored
+	 *
+	 * Note: Parsing a (non memory mapped) sequence file also updates the
+	 * genome's chromosomes, so it is done holding the global lock
 	 */
-	public synchronized boolean loadOrCreateFromGenome(String chr) {
-		if (hasChromosome(chr)) return true;
+	Markers loadMarkers(String fileName, String fileNameMmap) {
+		countLoads.incrementAndGet();
+		if (Gpr.isNewer(fileNameMmap, fileName)) {
+			if (verbose) Timer.showStdErr("Loading sequences from memory mapped file '" + fileNameMmap + "'");
+			return new MarkerSeqSerializerMmap(genome).load(fileNameMmap);
+		}
 
+		if (verbose) Timer.showStdErr("Loading sequences from file '" + fileName + "'");
+		Markers markers = new Markers();
+		synchronized (this) {
+			markers.load(fileName, genome);
+		}
+		return markers;
+	}
+
+	/**
+	 * Load sequences from genomic sequence file or (if not file is available) generate some sequences from exons.
+	 */
+	public boolean loadOrCreateFromGenome(String chr) {
 		if (load(chr)) return true; // Loaded form 'separate' file
-		else {
+
+		synchronized (this) {
 			// Try loading form bundled file (small chromosomes)
+			if (hasChromosome(chr)) return true;
 			load();
+			if (hasChromosome(chr)) return true;
+
+			return addExonSequences(chr);
 		}
+	}
 
-		return addExonSequences(chr);
+	public long getCountContention() {
+		return countContention.get();
+	}
+
+	public long getCountLoads() {
+		return countLoads.get();
+	}
+
+	/**
+	 * Get the (built) interval tree for chromosome 'chr'
+	 * Could trigger loading sequences form database
+	 *
+	 * Once a tree has been loaded, it is never modified, so it
+	 * can be read by many threads without locking.
+	 */
+	Itree getTree(String chr) {
+		Itree tree = treeByChr.get(chr);
+		if (tree != null) return tree;
+
+		// Not loaded yet: Only one thread loads each chromosome (threads
+		// querying other chromosomes are not blocked)
+		ReentrantLock loadLock = loadLock(chr);
+		try {
+			// Already loaded by another thread?
+			tree = treeByChr.get(chr);
+			if (tree != null) return tree;
+
+			// Get or load interval tree
+			synchronized (this) {
+				tree = intervalForest.getTreeChromo(chr);
+			}
+			if (tree == null) {
+				loadOrCreateFromGenome(chr);
+				synchronized (this) {
+					tree = intervalForest.getTreeChromo(chr);
+				}
+			}
+			if (tree == null) {
+				tree = new IntervalTreeFlat(); // Nothing available, use an empty tree
+				tree.build();
+			}
+
+			treeByChr.put(chr, tree); // Publish tree
+			return tree;
+		} finally {
+			loadLock.unlock();
+		}
 	}
 
 	/**
@@ -310,15 +447,11 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 	 *
 	 * @return A markerSeq containing 'marker' or null if nothing is found
 	 */
-	public synchronized MarkerSeq queryMarkerSequence(Marker marker) {
-		String chr = marker.getChromosomeName();
-
-		// Get or load interval tree
-		if (!intervalForest.hasTree(chr)) loadOrCreateFromGenome(chr);
-		Itree tree = intervalForest.getTreeChromo(chr);
+	public MarkerSeq queryMarkerSequence(Marker marker) {
+		Itree tree = getTree(marker.getChromosomeName());
 
 		// Nothing available
-		if (tree == null || tree.isEmpty()) return null;
+		if (tree.isEmpty()) return null;
 
 		// Find marker sequence
 		Markers res = tree.query(marker);
@@ -342,24 +475,51 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		MarkerSeq ms = queryMarkerSequence(marker);
 		if (ms == null) return null;
 
-		// Calculate start and end coordiantes
+		// Calculate start coordinate
 		int sstart = marker.getStart() - ms.getStart();
-		int ssend = marker.size() + sstart;
-		String seq = ms.getSequence().substring(sstart, ssend);
+		char bases[] = new char[marker.size()];
 
-		// Return sequence in same direction as 'marker'
-		if (marker.isStrandMinus()) seq = GprSeq.reverseWc(seq);
-		return seq;
+		// Decode sequence in same direction as 'marker'
+		DnaSequence dnaSeq = ms.getDnaSequence();
+		if (marker.isStrandMinus()) dnaSeq.getBasesReverseWc(sstart, bases.length, bases, 0);
+		else dnaSeq.getBases(sstart, bases.length, bases, 0);
+		return new String(bases);
 	}
 
 	public void reset() {
 		intervalForest = new IntervalForest();
+		treeByChr.clear();
+	}
+
+	/**
+	 * Remove memory mapped sequence files (e.g. old files that should not be used)
+	 */
+	public void deleteMmap(Config config) {
+		ArrayList<String> fileNames = new ArrayList<String>();
+		fileNames.add(config.getFileNameSequenceMmap());
+		for (String chrName : intervalForest.keySet())
+			fileNames.add(config.getFileNameSequenceMmap(chrName));
+
+		for (String fileName : fileNames) {
+			if (Gpr.exists(fileName)) {
+				if (verbose) Timer.showStdErr("Removing old memory mapped sequence file '" + fileName + "'");
+				(new File(fileName)).delete();
+			}
+		}
 	}
 
 	/**
 	 * Save genomic sequence into separate files (per chromosome)
 	 */
 	public void save(Config config) {
+		save(config, false);
+	}
+
+	/**
+	 * Save genomic sequence into separate files (per chromosome)
+	 * If 'mmap' is set, the memory mappable (binary) format is used
+	 */
+	void save(Config config, boolean mmap) {
 		if (isEmpty()) return; // Nothing to do
 
 		// Sort chromomse names
@@ -370,11 +530,13 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		// Save 'long' chromsomes in separate files
 		Genome genome = config.getGenome();
 		ArrayList<String> toSaveOneFile = new ArrayList<String>();
+		ArrayList<String> toSaveSeparate = new ArrayList<String>();
 		for (String chrName : chrNames) {
 			int seqLen = sequenceLen(chrName);
-			if (seqLen >= CHR_LEN_SEPARATE_FILE) save(chrName); // Save in separate file
+			if (seqLen >= CHR_LEN_SEPARATE_FILE) toSaveSeparate.add(chrName); // Save in separate file
 			else toSaveOneFile.add(chrName); // Save all small chromosomes in one file
 		}
+		save(config, toSaveSeparate, mmap);
 
 		// Save all remaining ones in one file
 		if (!toSaveOneFile.isEmpty()) {
@@ -389,16 +551,51 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 			}
 
 			// Save to file
-			String fileName = Config.get().getFileNameSequence();
+			String fileName = mmap ? config.getFileNameSequenceMmap() : config.getFileNameSequence();
 			if (verbose) Timer.showStdErr("Saving sequences for small chromosmes to file '" + fileName + "'");
-			markers.save(fileName);
+			if (mmap) new MarkerSeqSerializerMmap(genome).save(fileName, markers);
+			else markers.save(fileName);
+		}
+	}
+
+	/**
+	 * Save genomic sequence in memory mappable (binary) files
+	 */
+	public void saveMmap(Config config) {
+		save(config, true);
+	}
+
+	/**
+	 * Save sequences from each chromosome in 'chrNames' to a separate file.
+	 * Files are written in parallel if numThreads > 1 (file contents do not
+	 * depend on the number of threads)
+	 */
+	void save(Config config, List<String> chrNames, boolean mmap) {
+		if (numThreads <= 1 || chrNames.size() <= 1) {
+			for (String chrName : chrNames)
+				save(config, chrName, mmap);
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<?>> tasks = new ArrayList<>();
+			for (String chrName : chrNames)
+				tasks.add(executor.submit(() -> save(config, chrName, mmap)));
+
+			for (Future<?> task : tasks)
+				task.get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Error saving sequences", e);
+		} finally {
+			executor.shutdown();
 		}
 	}
 
 	/**
 	 * Save sequences from chromosome 'chr' to a binary file
 	 */
-	void save(String chr) {
+	void save(Config config, String chr, boolean mmap) {
 		if (!intervalForest.hasTree(chr)) {
 			if (verbose) Timer.showStdErr("No tree found for chromosome '" + chr + "'");
 			return;
@@ -406,9 +603,10 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 
 		// OK, there is something to save => Save markers to file
 		Itree tree = intervalForest.getTreeChromo(chr);
-		String fileName = Config.get().getFileNameSequence(chr);
+		String fileName = mmap ? config.getFileNameSequenceMmap(chr) : config.getFileNameSequence(chr);
 		if (verbose) Timer.showStdErr("Saving sequences for chromosome '" + chr + "' to file '" + fileName + "'");
-		tree.getIntervals().save(fileName, chr);
+		if (mmap) new MarkerSeqSerializerMmap(genome).save(fileName, tree.getIntervals());
+		else tree.getIntervals().save(fileName, chr);
 	}
 
 	/**
@@ -422,7 +620,7 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		for (Marker m : tree.getIntervals()) {
 			if (m instanceof MarkerSeq) {
 				MarkerSeq ms = (MarkerSeq) m;
-				size += ms.getSequence().length();
+				size += ms.sequenceLength();
 			}
 		}
 
@@ -433,6 +631,10 @@ public class GenomicSequences implements Iterable<MarkerSeq>, Serializable {
 		this.disableLoad = disableLoad;
 	}
 
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
 	public void setVerbose(boolean verbose) {
 		this.verbose = verbose;
 	}
@@ -1,6 +1,7 @@
 package org.snpeff.codons;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -9,12 +10,21 @@ import org.snpeff.binseq.coder.DnaCoder;
 
 /**
  * A codon translation table
+ *
+ * Codons are translated using a 64 entry array indexed by the 2-bit
+ * codes of the three bases (same codes as DnaCoder: {a,c,g,t} <-> {0,1,2,3}),
+ * so translating does not require creating codon strings.
+ *
  * @author pcingola
  */
 public class CodonTable {
 
 	public static final String TERMINATION_CODON = "Ter";
 	public static final String TERMINATION_CODON_1 = "*";
+	public static final char UNKNOWN_AA = '?';
+	public static final int NUM_CODONS = 64;
+
+	private static final byte BASE_CODE[]; // 2-bit code for each (ASCII) base, -1 if not a valid base
 
 	private static HashMap<String, String> aa3letter;
 
@@ -30,6 +40,13 @@ public class CodonTable {
 	public static final String DEFAULT_START_CODON = "M";
 
 	static {
+		BASE_CODE = new byte[128];
+		Arrays.fill(BASE_CODE, (byte) -1);
+		for (byte code = 0; code < DnaCoder.TO_BASE.length; code++) {
+			char base = DnaCoder.TO_BASE[code];
+			BASE_CODE[base] = BASE_CODE[Character.toUpperCase(base)] = code;
+		}
+
 		aa3letter = new HashMap<>();
 		aa3letter.put("A", "Ala");
 		aa3letter.put("B", "Asx");
@@ -63,7 +80,30 @@ public class CodonTable {
 	HashMap<String, String> aa2codon;
 	HashSet<String> startCodons;
 	HashSet<String> stopCodons;
-	HashMap<String, Integer> degeneracy;
+	boolean indexed; // Can all codons be translated using 'codonIdx2aa' array? (i.e. all codons are 'ACGT' and amino acids are one letter)
+	char codonIdx2aa[]; // Amino acid, indexed by codon
+	boolean codonIdxStart[], codonIdxStop[]; // Start and stop codons, indexed by codon
+	int degeneracy[]; // Degeneracy, indexed by 'codonIdx * 3 + pos'
+
+	/**
+	 * Codon index: 2-bit codes of each base, e.g. 'ACG' => 0b000110
+	 * @return Codon index or -1 if any base is not 'ACGT' (upper or lower case)
+	 */
+	public static int codonIndex(char base1, char base2, char base3) {
+		if ((base1 | base2 | base3) >= BASE_CODE.length) return -1;
+		int b1 = BASE_CODE[base1], b2 = BASE_CODE[base2], b3 = BASE_CODE[base3];
+		if ((b1 | b2 | b3) < 0) return -1;
+		return (b1 << 4) | (b2 << 2) | b3;
+	}
+
+	/**
+	 * Codon index of a three bases codon
+	 * @return Codon index or -1 if the codon is not three 'ACGT' bases
+	 */
+	public static int codonIndex(String codon) {
+		if (codon.length() != 3) return -1;
+		return codonIndex(codon.charAt(0), codon.charAt(1), codon.charAt(2));
+	}
 
 	public CodonTable(String name, String table) {
 		this.name = name;
@@ -75,6 +115,13 @@ public class CodonTable {
 		calcDegeneracy();
 	}
 
+	/**
+	 * Translate a codon (see 'codonIndex')
+	 */
+	public char aa(int codonIdx) {
+		return codonIdx2aa[codonIdx];
+	}
+
 	/**
 	 * Translate codons to an amino acid sequence
 	 */
@@ -84,7 +131,42 @@ public class CodonTable {
 
 	public String aa(String codons, boolean fullProteinSequence) {
 		if (codons.isEmpty()) return "";
+		if (!indexed) return aaMap(codons, fullProteinSequence);
+
+		char bases[] = codons.toCharArray();
+		char aas[] = new char[(bases.length + 2) / 3];
+		int len = aa(bases, 0, bases.length, aas, 0, fullProteinSequence);
+		return new String(aas, 0, len);
+	}
+
+	/**
+	 * Translate 'length' bases (starting at 'start') into 'aas' (starting at 'aasStart').
+	 * Incomplete codons and codons having unknown bases are translated as '?'
+	 *
+	 * Note: Only available if all codons and amino acids in this table can be indexed
+	 *
+	 * @return Number of amino acids added to 'aas'
+	 */
+	public int aa(char bases[], int start, int length, char aas[], int aasStart, boolean fullProteinSequence) {
+		if (!indexed) throw new RuntimeException("Codon table '" + name + "' cannot be indexed");
+
+		int end = start + length;
+		int j = aasStart;
+		for (int i = start; i < end; i += 3, j++) {
+			int codonIdx = (i + 2 < end) ? codonIndex(bases[i], bases[i + 1], bases[i + 2]) : -1;
+			if (codonIdx < 0) aas[j] = UNKNOWN_AA;
+			else if (fullProteinSequence && (j == aasStart) && codonIdxStart[codonIdx]) aas[j] = DEFAULT_START_CODON.charAt(0); // Start codons are always translated as 'M'
+			else aas[j] = codonIdx2aa[codonIdx];
+		}
 
+		return j - aasStart;
+	}
+
+	/**
+	 * Translate codons to an amino acid sequence using hash lookups
+	 * (for codon tables that cannot be indexed)
+	 */
+	String aaMap(String codons, boolean fullProteinSequence) {
 		char bases[] = codons.toCharArray();
 		StringBuilder aas = new StringBuilder();
 
@@ -143,7 +225,7 @@ public class CodonTable {
 	 * Calculate degeneracy table
 	 */
 	void calcDegeneracy() {
-		degeneracy = new HashMap<>();
+		degeneracy = new int[NUM_CODONS * 3];
 
 		for (char base1 : DnaCoder.TO_BASE)
 			for (char base2 : DnaCoder.TO_BASE)
@@ -164,8 +246,7 @@ public class CodonTable {
 							if (aaOld.equals(aaNew)) count++; // Same AA after changing base[pos]? => count (it's a degenerate)
 						}
 
-						String key = codonStrOld.toUpperCase() + "_" + pos;
-						degeneracy.put(key, count);
+						degeneracy[codonIndex(codonStrOld) * 3 + pos] = count;
 					}
 				}
 	}
@@ -199,21 +280,31 @@ public class CodonTable {
 	 * @return Degenracy level, or '-1' if not available
 	 */
 	public int degenerate(String codon, int pos) {
-		// if( codon.length() != 3 ) throw new RuntimeException("Error: Codon does not have three bases '" + codon + "'");
-		String key = codon.toUpperCase() + "_" + pos;
-		Integer degLevel = degeneracy.get(key);
-		return degLevel != null ? degLevel : -1; // Return '-1'
+		int codonIdx = codonIndex(codon);
+		if ((codonIdx < 0) || (pos < 0) || (pos >= 3)) return -1;
+		return degeneracy[codonIdx * 3 + pos];
 	}
 
 	public String getName() {
 		return name;
 	}
 
+	/**
+	 * Can all codons be translated using codon indexes?
+	 */
+	public boolean isIndexed() {
+		return indexed;
+	}
+
 	/**
 	 * Is 'codon' a start codon in this table?
 	 */
 	public boolean isStart(String codon) {
-		if (codon.length() == 3) return startCodons.contains(codon.toUpperCase());
+		if (codon.length() == 3) {
+			int codonIdx = codonIndex(codon);
+			if (indexed) return (codonIdx >= 0) && codonIdxStart[codonIdx];
+			return startCodons.contains(codon.toUpperCase());
+		}
 
 		for (int i = 0; i < codon.length(); i += 3) {
 			int max = Math.min(codon.length(), i + 3);
@@ -236,7 +327,11 @@ public class CodonTable {
 	 * Is 'codon' a stop codon in this table?
 	 */
 	public boolean isStop(String codon) {
-		if (codon.length() == 3) return stopCodons.contains(codon.toUpperCase());
+		if (codon.length() == 3) {
+			int codonIdx = codonIndex(codon);
+			if (indexed) return (codonIdx >= 0) && codonIdxStop[codonIdx];
+			return stopCodons.contains(codon.toUpperCase());
+		}
 
 		for (int i = 0; i < codon.length(); i += 3) {
 			int max = Math.min(codon.length(), i + 3);
@@ -288,6 +383,32 @@ public class CodonTable {
 				} else throw new RuntimeException("Error reading codon table. Cannot parse entry: '" + entry + "'\n\tTable: '" + table + "'");
 			}
 		}
+
+		parseIndex();
+	}
+
+	/**
+	 * Create codon indexed arrays
+	 */
+	void parseIndex() {
+		codonIdx2aa = new char[NUM_CODONS];
+		codonIdxStart = new boolean[NUM_CODONS];
+		codonIdxStop = new boolean[NUM_CODONS];
+		Arrays.fill(codonIdx2aa, UNKNOWN_AA);
+
+		indexed = true;
+		for (String codon : codon2aa.keySet()) {
+			int codonIdx = codonIndex(codon);
+			String aa = codon2aa.get(codon);
+			if ((codonIdx < 0) || (aa.length() != 1)) {
+				indexed = false; // Cannot be indexed, use hash lookups
+				continue;
+			}
+
+			codonIdx2aa[codonIdx] = aa.charAt(0);
+			codonIdxStart[codonIdx] = startCodons.contains(codon);
+			codonIdxStop[codonIdx] = stopCodons.contains(codon);
+		}
 	}
 
 	@Override
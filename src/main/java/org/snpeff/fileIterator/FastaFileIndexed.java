@@ -0,0 +1,331 @@
+package org.snpeff.fileIterator;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.snpeff.interval.Chromosome;
+import org.snpeff.util.Gpr;
+
+/**
+ * Random access to sequences in a FASTA file, using a 'faidx' index
+ * (see "samtools faidx"). The index is created if the '.fai' file is missing
+ * or stale (i.e. older than the FASTA file or inconsistent with its size).
+ *
+ * Sequences are memory mapped, so they are not loaded into the heap: Each
+ * region query only reads the bytes it needs. Queries are thread safe.
+ *
+ * Index format (one line per sequence, tab separated):
+ * 		name, sequence length, offset of first base, bases per line, bytes per line
+ *
+ * Note: Compressed FASTA files cannot be memory mapped (see 'isIndexable')
+ *
+ * @author pcingola
+ */
+public class FastaFileIndexed {
+
+	public static final String FAIDX_EXTENSION = ".fai";
+
+	/**
+	 * An index entry
+	 */
+	class Entry {
+		String name; // Sequence name, as it appears in the FASTA header
+		long length; // Sequence length in bases
+		long offset; // File offset of the first base
+		int lineBases; // Number of bases per line
+		int lineWidth; // Number of bytes per line (including new line characters)
+
+		long bytes() {
+			if (lineBases <= 0) return 0;
+			return (length / lineBases) * lineWidth + (length % lineBases);
+		}
+
+		/**
+		 * Offset of base 'pos', relative to the first base
+		 */
+		long offset(long pos) {
+			return (pos / lineBases) * lineWidth + (pos % lineBases);
+		}
+
+		@Override
+		public String toString() {
+			return name + "\t" + length + "\t" + offset + "\t" + lineBases + "\t" + lineWidth;
+		}
+	}
+
+	/**
+	 * A memory mapped sequence (read-only CharSequence view)
+	 */
+	public class Sequence implements CharSequence {
+
+		Entry entry;
+		ByteBuffer buffer;
+
+		Sequence(Entry entry, ByteBuffer buffer) {
+			this.entry = entry;
+			this.buffer = buffer;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if ((index < 0) || (index >= entry.length)) throw new IndexOutOfBoundsException("Index " + index + ", sequence '" + entry.name + "' length " + entry.length);
+			return (char) buffer.get((int) entry.offset(index));
+		}
+
+		@Override
+		public int length() {
+			return (int) entry.length;
+		}
+
+		/**
+		 * Sequence between 'start' (inclusive) and 'end' (exclusive)
+		 * Note: Returns a String, bases are copied from the mapped file
+		 */
+		@Override
+		public String subSequence(int start, int end) {
+			if ((start < 0) || (end > entry.length) || (start > end)) throw new IndexOutOfBoundsException("Range [" + start + ", " + end + "), sequence '" + entry.name + "' length " + entry.length);
+
+			byte bases[] = new byte[end - start];
+			ByteBuffer buf = buffer.duplicate(); // Each query uses its own buffer position (thread safe)
+			for (int pos = start, i = 0; pos < end;) {
+				// Copy the rest of this line (or up to 'end')
+				int len = Math.min(end - pos, entry.lineBases - (pos % entry.lineBases));
+				buf.position((int) entry.offset(pos));
+				buf.get(bases, i, len);
+				pos += len;
+				i += len;
+			}
+
+			return new String(bases, StandardCharsets.US_ASCII);
+		}
+
+		@Override
+		public String toString() {
+			return subSequence(0, length());
+		}
+	}
+
+	String fastaFileName;
+	List<Entry> entries;
+	Map<String, Entry> entryByName; // Entries indexed by chromosome name (see Chromosome.simpleName)
+	Map<String, ByteBuffer> bufferByName; // Memory mapped sequences
+
+	/**
+	 * Can this file be indexed and memory mapped?
+	 */
+	public static boolean isIndexable(String fastaFileName) {
+		return Gpr.canRead(fastaFileName) && !fastaFileName.endsWith(".gz");
+	}
+
+	public FastaFileIndexed(String fastaFileName) {
+		this.fastaFileName = fastaFileName;
+		bufferByName = new ConcurrentHashMap<>();
+
+		String faidxFileName = fastaFileName + FAIDX_EXTENSION;
+		if (Gpr.isNewer(faidxFileName, fastaFileName)) load(faidxFileName);
+		if (entries == null || !isValid()) index(); // Missing or stale index
+
+		entryByName = new HashMap<>();
+		for (Entry e : entries)
+			entryByName.put(Chromosome.simpleName(e.name), e);
+	}
+
+	/**
+	 * Sequence names (in the same order as in the FASTA file)
+	 */
+	public List<String> getChromosomeNames() {
+		List<String> names = new ArrayList<>();
+		for (Entry e : entries)
+			names.add(Chromosome.simpleName(e.name));
+		return names;
+	}
+
+	Entry getEntry(String chr) {
+		Entry e = entryByName.get(Chromosome.simpleName(chr));
+		if (e == null) throw new RuntimeException("Sequence '" + chr + "' not found in FASTA file '" + fastaFileName + "'");
+		return e;
+	}
+
+	public String getFastaFileName() {
+		return fastaFileName;
+	}
+
+	public long getLength(String chr) {
+		return getEntry(chr).length;
+	}
+
+	/**
+	 * Memory mapped sequence for chromosome 'chr'
+	 */
+	public Sequence getSequence(String chr) {
+		Entry e = getEntry(chr);
+		return new Sequence(e, map(e));
+	}
+
+	/**
+	 * Sequence for chromosome 'chr' from 'start' to 'end'
+	 * (zero-based, both coordinates included)
+	 */
+	public String getSequence(String chr, int start, int end) {
+		return getSequence(chr).subSequence(start, end + 1);
+	}
+
+	public boolean hasChromosome(String chr) {
+		return entryByName.containsKey(Chromosome.simpleName(chr));
+	}
+
+	/**
+	 * Create index by scanning the FASTA file, save it (if possible)
+	 */
+	void index() {
+		entries = new ArrayList<>();
+
+		try (InputStream in = new BufferedInputStream(new FileInputStream(fastaFileName))) {
+			Entry entry = null;
+			boolean lastLine = false; // Have we seen a line shorter than 'lineBases'? (only the last line of each sequence can be shorter)
+			long offset = 0;
+			byte line[] = new byte[1024];
+
+			while (true) {
+				// Read a line
+				int len = 0, lineWidth = 0, c;
+				while (((c = in.read()) >= 0)) {
+					lineWidth++;
+					if (c == '\n') break;
+					if (len >= line.length) line = Arrays.copyOf(line, 2 * line.length);
+					line[len++] = (byte) c;
+				}
+				if (lineWidth == 0) break; // End of file
+				while ((len > 0) && (line[len - 1] <= ' ')) len--; // Trailing white spaces and Windows line endings (same as 'String.trim()' in FastaFileIterator)
+
+				if ((len > 0) && (line[0] == '>')) {
+					// Header: New sequence
+					entry = new Entry();
+					String header = new String(line, 1, len - 1, StandardCharsets.US_ASCII).trim();
+					entry.name = header.split("\\s+")[0];
+					entry.offset = offset + lineWidth;
+					entries.add(entry);
+					lastLine = false;
+				} else if (entry != null && len > 0) {
+					// Sequence line. Leading white spaces cannot be skipped by memory mapped queries
+					if (line[0] <= ' ') throw new RuntimeException("Cannot index FASTA file '" + fastaFileName + "': Leading white spaces in sequence '" + entry.name + "'");
+					if (entry.lineBases == 0) {
+						entry.lineBases = len;
+						entry.lineWidth = lineWidth;
+					} else if (lastLine || (len > entry.lineBases) || ((len == entry.lineBases) && (lineWidth != entry.lineWidth))) {
+						throw new RuntimeException("Cannot index FASTA file '" + fastaFileName + "': Different line lengths in sequence '" + entry.name + "'");
+					}
+
+					lastLine = (len < entry.lineBases);
+					entry.length += len;
+				} else if (entry != null) {
+					lastLine = true; // Empty line: Must be at the end of a sequence
+				}
+
+				offset += lineWidth;
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading FASTA file '" + fastaFileName + "'", e);
+		}
+
+		// Try to save index
+		String faidxFileName = fastaFileName + FAIDX_EXTENSION;
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (Entry e : entries)
+				sb.append(e + "\n");
+			Gpr.toFile(faidxFileName, sb);
+		} catch (RuntimeException e) {
+			// Cannot write index (e.g. read-only directory): Just use it from memory
+			System.err.println("WARNING: Cannot write FASTA index file '" + faidxFileName + "', index will be re-created next time: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Can all sequences be memory mapped?
+	 */
+	public boolean isMappable() {
+		for (Entry e : entries)
+			if ((e.lineBases <= 0 && e.length > 0) || (e.bytes() > Integer.MAX_VALUE)) return false;
+		return true;
+	}
+
+	/**
+	 * Is the index consistent with the FASTA file? All sequences must be
+	 * within the file and start right after a header line
+	 */
+	boolean isValid() {
+		try (RandomAccessFile raf = new RandomAccessFile(fastaFileName, "r")) {
+			long size = raf.length();
+			for (Entry e : entries) {
+				if ((e.offset <= 0) || (e.offset + e.bytes() > size)) return false;
+				raf.seek(e.offset - 1);
+				if (raf.read() != '\n') return false;
+			}
+			return !entries.isEmpty() || (size == 0);
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading FASTA file '" + fastaFileName + "'", e);
+		}
+	}
+
+	/**
+	 * Load index from a '.fai' file
+	 */
+	void load(String faidxFileName) {
+		entries = new ArrayList<>();
+		for (String line : Gpr.readFile(faidxFileName).split("\n")) {
+			if (line.isEmpty()) continue;
+			String fields[] = line.split("\t");
+			if (fields.length < 5) throw new RuntimeException("Invalid FASTA index file '" + faidxFileName + "', line: '" + line + "'");
+
+			Entry e = new Entry();
+			e.name = fields[0];
+			e.length = Gpr.parseLongSafe(fields[1]);
+			e.offset = Gpr.parseLongSafe(fields[2]);
+			e.lineBases = Gpr.parseIntSafe(fields[3]);
+			e.lineWidth = Gpr.parseIntSafe(fields[4]);
+			entries.add(e);
+		}
+	}
+
+	/**
+	 * Memory map a sequence
+	 */
+	ByteBuffer map(Entry e) {
+		ByteBuffer buffer = bufferByName.get(e.name);
+		if (buffer != null) return buffer;
+
+		long bytes = e.bytes();
+		if (bytes > Integer.MAX_VALUE) throw new RuntimeException("Sequence '" + e.name + "' is too large to be memory mapped (" + bytes + " bytes)");
+
+		try (RandomAccessFile raf = new RandomAccessFile(fastaFileName, "r"); FileChannel channel = raf.getChannel()) {
+			MappedByteBuffer mbb = channel.map(FileChannel.MapMode.READ_ONLY, e.offset, bytes);
+			bufferByName.put(e.name, mbb);
+			return mbb;
+		} catch (IOException ex) {
+			throw new RuntimeException("Error mapping sequence '" + e.name + "' from FASTA file '" + fastaFileName + "'", ex);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Entry e : entries)
+			sb.append(e + "\n");
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,138 @@
+package org.snpeff.fileIterator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.util.Gpr;
+
+import net.sf.samtools.tabix.TabixIterator;
+import net.sf.samtools.tabix.TabixReader;
+
+/**
+ * A reader for a bgzipped, tabix indexed file (e.g. 'file.vcf.gz' and
+ * 'file.vcf.gz.tbi') that only reads lines overlapping a set of regions.
+ *
+ * Header lines are read first, then the index is used to seek to each
+ * region, so blocks outside the regions are never read (or decompressed).
+ *
+ * Lines are returned in file order and only once, even if they overlap
+ * several regions.
+ *
+ * @author pcingola
+ */
+public class TabixRegionsReader extends BufferedReader {
+
+	public static final String TABIX_INDEX_EXTENSION = ".tbi";
+
+	String fileName;
+	BufferedReader headerReader; // Used to read header lines (null after the header is finished)
+	TabixReader tabixReader;
+	TabixIterator tabixIterator; // Iterator for current region
+	List<String> queries; // Regions to query, in file order
+	int queryIdx;
+	long lastFilePointer = -1; // File pointer after the latest line returned (used to avoid returning the same line twice)
+
+	/**
+	 * Does this file have a tabix index?
+	 */
+	public static boolean hasIndex(String fileName) {
+		return (fileName != null) //
+				&& fileName.endsWith(".gz") //
+				&& Gpr.canRead(fileName) //
+				&& Gpr.canRead(fileName + TABIX_INDEX_EXTENSION) //
+		;
+	}
+
+	public TabixRegionsReader(String fileName, Markers regions) throws IOException {
+		super(new NullReader());
+		this.fileName = fileName;
+		tabixReader = new TabixReader(fileName);
+		headerReader = Gpr.reader(fileName);
+		if (headerReader == null) throw new IOException("Cannot open file '" + fileName + "'");
+		queries = queries(regions);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (headerReader != null) headerReader.close();
+		headerReader = null;
+		if (tabixReader != null) tabixReader.close();
+		tabixReader = null;
+	}
+
+	/**
+	 * Create tabix queries: Merge overlapping regions and sort them in the
+	 * same order as in the file (i.e. the order of chromosomes in the index)
+	 */
+	List<String> queries(Markers regions) {
+		List<Marker> regionsSorted = new ArrayList<>();
+		Map<String, Integer> tidByChr = new HashMap<>();
+		for (Marker r : regions.merge()) {
+			int tid = tabixReader.parseReg(r.getChromosomeName())[0];
+			if (tid < 0) continue; // Chromosome not in file
+			tidByChr.put(r.getChromosomeName(), tid);
+			regionsSorted.add(r);
+		}
+
+		regionsSorted.sort((r1, r2) -> {
+			int cmp = tidByChr.get(r1.getChromosomeName()) - tidByChr.get(r2.getChromosomeName());
+			return cmp != 0 ? cmp : r1.getStart() - r2.getStart();
+		});
+
+		// Regions are zero-based, query strings are one-based
+		List<String> queries = new ArrayList<>();
+		for (Marker r : regionsSorted)
+			queries.add(r.getChromosomeName() + ":" + (r.getStart() + 1) + "-" + (r.getEnd() + 1));
+
+		return queries;
+	}
+
+	@Override
+	public String readLine() throws IOException {
+		if (tabixReader == null) return null; // Closed
+
+		// Header lines
+		if (headerReader != null) {
+			String line = headerReader.readLine();
+			if ((line != null) && line.startsWith("#")) return line;
+
+			// Header finished
+			headerReader.close();
+			headerReader = null;
+		}
+
+		// Lines overlapping regions
+		while (true) {
+			if (tabixIterator == null) {
+				if (queryIdx >= queries.size()) return null; // No more regions
+				tabixIterator = tabixReader.query(queries.get(queryIdx++));
+				continue;
+			}
+
+			String line = tabixIterator.next();
+			if (line == null) {
+				tabixIterator = null; // Region finished
+				continue;
+			}
+
+			// Already returned by a previous region? Skip
+			long filePointer = tabixReader.getFilePointer();
+			if (filePointer <= lastFilePointer) continue;
+			lastFilePointer = filePointer;
+
+			return line;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TabixRegionsReader('" + fileName + "', regions: " + queries.size() + ", current: " + queryIdx + ")";
+	}
+
+}
@@ -77,6 +77,11 @@ public class VcfFileIterator extends MarkerFileIterator<VcfEntry> implements Par
 		init();
 	}
 
+	public VcfFileIterator(BufferedReader reader, Genome genome) {
+		super(reader, genome, 1);
+		init();
+	}
+
 	public VcfFileIterator(String fileName) {
 		super(fileName, 1);
 		init();
@@ -102,7 +107,8 @@ public class VcfFileIterator extends MarkerFileIterator<VcfEntry> implements Par
 	}
 
 	protected void init() {
-		expandIub = (Config.get() != null ? Config.get().isExpandIub() : true);
+		Config config = genome.getConfig();
+		expandIub = (config != null ? config.isExpandIub() : true);
 	}
 
 	public boolean isExpandIub() {
@@ -0,0 +1,230 @@
+package org.snpeff.genotypes;
+
+import java.util.Arrays;
+
+/**
+ * Genotype codes for all samples in a VCF entry, packed in 2 bits per sample
+ * (32 samples per 'long').
+ *
+ * Codes are the same as 'VcfGenotype.getGenotypeCode()', i.e. the number of
+ * non-reference alleles:
+ * 		0	: Reference (e.g. 0/0)
+ * 		1	: Heterozygous (e.g. 0/1)
+ * 		2	: Homozygous ALT (e.g. 1/1, 1/2)
+ * 		3	: Missing (e.g. './.')
+ *
+ * The vector is meant to be re-used: 'parse()' decodes only the GT sub-field
+ * directly from the raw (tab separated) genotype fields, without creating
+ * any VcfGenotype objects. Counts are calculated using bit operations.
+ *
+ * @author pcingola
+ */
+public class GenotypeCodes {
+
+	public static final int REF = 0;
+	public static final int HET = 1;
+	public static final int HOM = 2;
+	public static final int MISSING = 3;
+
+	public static final int SAMPLES_PER_WORD = 32;
+	static final long LOW_BITS = 0x5555555555555555L; // Low bit of each 2-bit code
+
+	int size; // Number of samples
+	long words[];
+
+	public GenotypeCodes() {
+		words = new long[16];
+	}
+
+	/**
+	 * Add a sample's code
+	 */
+	public void add(int code) {
+		int idx = size / SAMPLES_PER_WORD;
+		if (idx >= words.length) words = Arrays.copyOf(words, 2 * words.length);
+		words[idx] |= ((long) (code & 0x03)) << ((size % SAMPLES_PER_WORD) << 1);
+		size++;
+	}
+
+	/**
+	 * Add a sample's code from 'VcfGenotype.getGenotypeCode()'
+	 * Note: Negative codes mean missing, codes higher than 2 are
+	 * stored as 'HOM' (more than two non-reference alleles)
+	 */
+	public void addGenotypeCode(int code) {
+		if (code < 0) add(MISSING);
+		else add(Math.min(code, HOM));
+	}
+
+	/**
+	 * Remove all samples
+	 */
+	public void clear() {
+		Arrays.fill(words, 0, (size + SAMPLES_PER_WORD - 1) / SAMPLES_PER_WORD, 0L);
+		size = 0;
+	}
+
+	/**
+	 * Number of samples having genotype 'code'
+	 */
+	public int count(int code) {
+		int count = 0;
+		int numWords = (size + SAMPLES_PER_WORD - 1) / SAMPLES_PER_WORD;
+		for (int i = 0; i < numWords; i++)
+			count += Long.bitCount(match(i, code));
+		return count;
+	}
+
+	public int get(int sampleNum) {
+		return (int) (words[sampleNum / SAMPLES_PER_WORD] >>> ((sampleNum % SAMPLES_PER_WORD) << 1)) & 0x03;
+	}
+
+	/**
+	 * Increment 'count[sampleNum]' for each sample having genotype 'code'
+	 * (samples beyond 'count.length' are ignored).
+	 * Only matching samples are visited, so this is fast for sparse codes
+	 * (e.g. HET, HOM or MISSING in large cohorts)
+	 */
+	public void inc(int code, int count[]) {
+		int numWords = (Math.min(size, count.length) + SAMPLES_PER_WORD - 1) / SAMPLES_PER_WORD;
+		for (int i = 0; i < numWords; i++) {
+			long bits = match(i, code);
+			int base = i * SAMPLES_PER_WORD;
+			while (bits != 0) {
+				int sampleNum = base + (Long.numberOfTrailingZeros(bits) >>> 1);
+				if (sampleNum < count.length) count[sampleNum]++;
+				bits &= bits - 1; // Clear lowest bit
+			}
+		}
+	}
+
+	/**
+	 * Bits set (at the low bit of each 2-bit code) for samples in word 'idx' having genotype 'code'
+	 */
+	long match(int idx, int code) {
+		long word = words[idx];
+		long lo = word & LOW_BITS;
+		long hi = (word >>> 1) & LOW_BITS;
+
+		long bits;
+		switch (code) {
+		case REF:
+			bits = ~(lo | hi) & LOW_BITS;
+			// Unused codes in the last word are zero (i.e. 'REF'): Remove them
+			int used = size - idx * SAMPLES_PER_WORD;
+			if (used < SAMPLES_PER_WORD) bits &= (1L << (used << 1)) - 1;
+			return bits;
+
+		case HET:
+			return lo & ~hi;
+
+		case HOM:
+			return hi & ~lo;
+
+		case MISSING:
+			return lo & hi;
+
+		default:
+			throw new RuntimeException("Unknown genotype code " + code);
+		}
+	}
+
+	/**
+	 * Parse GT sub-fields from raw genotype fields
+	 *
+	 * @param genotypeFields : Tab separated genotype fields (e.g. a VCF line)
+	 * @param start : Start of the first genotype field in 'genotypeFields'
+	 * @param gtIdx : Index of 'GT' in the FORMAT field (negative if there is no 'GT')
+	 * @param numAlts : Number of ALTs in the VCF entry
+	 *
+	 * @return false if a genotype cannot be decoded by this simple parser (e.g.
+	 * malformed GT or more than two non-reference alleles). In that case
+	 * genotypes must be parsed using VcfGenotype objects.
+	 */
+	public boolean parse(String genotypeFields, int start, int gtIdx, int numAlts) {
+		clear();
+
+		// Trailing empty fields are ignored (same as 'VcfEntry.parseGenotypes()')
+		int len = genotypeFields.length();
+		while ((len > start) && (genotypeFields.charAt(len - 1) == '\t'))
+			len--;
+		if (len == start) return true; // Only empty fields
+
+		for (int i = start; i <= len; i++) {
+			// Find GT sub-field: Skip 'gtIdx' colons
+			int gtStart = i, colons = 0;
+			char c = 0;
+			for (; (i < len) && ((c = genotypeFields.charAt(i)) != '\t'); i++) {
+				if (c == ':') {
+					if (colons == gtIdx) break;
+					colons++;
+					gtStart = i + 1;
+				}
+			}
+
+			if ((gtIdx < 0) || (colons < gtIdx)) {
+				add(MISSING); // No GT sub-field for this sample
+			} else {
+				int code = parseGt(genotypeFields, gtStart, i, numAlts);
+				if (code < 0) return false;
+				add(code);
+			}
+
+			// Skip the rest of the genotype field
+			while ((i < len) && (genotypeFields.charAt(i) != '\t'))
+				i++;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Parse a GT sub-field, return code or -1 if it cannot be decoded
+	 */
+	int parseGt(String genotypeFields, int start, int end, int numAlts) {
+		// Empty field or '.' => Missing
+		if ((start == end) || ((end - start == 1) && genotypeFields.charAt(start) == '.')) return MISSING;
+
+		// Separator: '|' if phased, '/' otherwise
+		char sep = '/';
+		for (int i = start; i < end; i++)
+			if (genotypeFields.charAt(i) == '|') {
+				sep = '|';
+				break;
+			}
+
+		int code = 0;
+		boolean missing = false;
+		for (int i = start; i <= end; i++) {
+			// Parse allele
+			int allele = 0, alleleStart = i;
+			char c = 0;
+			for (; (i < end) && ((c = genotypeFields.charAt(i)) != sep); i++) {
+				if ((c < '0') || (c > '9') || (i - alleleStart > 6)) {
+					if ((c == '.') && (i == alleleStart)) continue;
+					return -1; // Not a number (or a mixed separator)
+				}
+				allele = allele * 10 + (c - '0');
+			}
+
+			int alleleLen = i - alleleStart;
+			if (alleleLen == 0) return -1; // Empty allele (e.g. '0/')
+			if (genotypeFields.charAt(alleleStart) == '.') {
+				if (alleleLen > 1) return -1;
+				missing = true;
+			} else if (allele > numAlts) {
+				return -1; // Invalid allele number, VcfGenotype reports an error
+			} else if (allele > 0) {
+				code++;
+			}
+		}
+
+		if (missing) return MISSING;
+		return code <= HOM ? code : -1;
+	}
+
+	public int size() {
+		return size;
+	}
+
+}
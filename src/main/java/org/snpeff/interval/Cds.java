@@ -1,6 +1,5 @@
 package org.snpeff.interval;
 
-import org.snpeff.SnpEff;
 import org.snpeff.serializer.MarkerSerializer;
 import org.snpeff.snpEffect.EffectType;
 
@@ -43,7 +42,7 @@ public class Cds extends Marker implements MarkerWithFrame {
 
 		// Can correct?
 		if (size() <= frameCorrection) {
-			SnpEff.warning("CDS too short, cannot correct frame:", " frame size " + size() + ", frame correction " + frameCorrection + ", CDS: " + this);
+			config().warning("CDS too short, cannot correct frame:", " frame size " + size() + ", frame correction " + frameCorrection + ", CDS: " + this);
 			return false;
 		}
 
@@ -23,7 +23,7 @@ public class CytoBands {
 	IntervalForest forest;
 
 	public CytoBands(Genome genome) {
-		Config config = Config.get();
+		Config config = genome.getConfig();
 		this.genome = genome;
 		verbose = config.isVerbose();
 		debug = config.isDebug();
@@ -7,7 +7,6 @@ import java.util.Set;
 import org.snpeff.interval.tree.IntervalTree;
 import org.snpeff.interval.tree.Itree;
 import org.snpeff.serializer.MarkerSerializer;
-import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.VariantEffect;
 import org.snpeff.snpEffect.VariantEffect.ErrorWarningType;
@@ -105,7 +104,7 @@ public class Gene extends IntervalAndSubIntervals<Transcript> implements Seriali
 				end = newEnd;
 				changed = true;
 			}
-		} else if (Config.get().isDebug()) {
+		} else if (config().isDebug()) {
 			Gpr.debug("Gene '" + id + "' (name:'" + geneName + "') not adjusted: " + this);
 		}
 
@@ -113,10 +112,14 @@ public class Gene extends IntervalAndSubIntervals<Transcript> implements Seriali
 	}
 
 	/**
-	 * Build gene dependent interval tree
+	 * Build gene dependent interval tree and transcript coordinate maps
 	 */
 	public void buildPerGene() {
 		if (intervalTreeGene != null) intervalTreeGene.build();
+
+		// Transcript coordinate maps
+		for (Transcript tr : this)
+			tr.coordinates();
 	}
 
 	/**
@@ -195,7 +198,7 @@ public class Gene extends IntervalAndSubIntervals<Transcript> implements Seriali
 		} else throw new RuntimeException("Sanity check: This should neve happen!");
 
 		newGene.shiftCoordinates(shift);
-		if (Config.get().isVerbose()) {
+		if (config().isVerbose()) {
 			Timer.showStdErr("Gene '" + id + "' spans across coordinate zero: Assuming circular chromosome, creating mirror gene at the end." //
 					+ "\n\tGene        :" + toStr() //
 					+ "\n\tNew gene    :" + newGene.toStr() //
@@ -366,7 +369,7 @@ public class Gene extends IntervalAndSubIntervals<Transcript> implements Seriali
 			}
 		}
 
-		if (Config.get().isDebug()) Gpr.debug("Gene '', removing " + countRemoved + " / " + numChilds() + " unchecked transcript.");
+		if (config().isDebug()) Gpr.debug("Gene '', removing " + countRemoved + " / " + numChilds() + " unchecked transcript.");
 
 		// Remove
 		for (Transcript t : toDelete)
@@ -561,14 +564,15 @@ public class Gene extends IntervalAndSubIntervals<Transcript> implements Seriali
 		// This is done in order to comply with HGVS notation
 		//---
 		boolean shifted3prime = false;
-		if (Config.get().isHgvsShift()) {
+		boolean hgvsShift = config().isHgvsShift();
+		if (hgvsShift) {
 			// Keep track of the original variants, just in case it is changed
 			Variant variantOri = variant;
 			// Do we need to 'walk and roll'? I.e. align variant towards the most 3-prime
 			// end of the transcript? Note that VCF request variants to be aligned towards
 			// the 'leftmost' coordinate, so this re-alignment is only required for variants
 			// within transcripts on the positive strand.
-			if (!variant.isSnp() && Config.get().isHgvsShift() && isStrandPlus()) {
+			if (!variant.isSnp() && hgvsShift && isStrandPlus()) {
 				// Get sequence information. Might have to load sequences from database
 				variant = variant.realignLeft();
 
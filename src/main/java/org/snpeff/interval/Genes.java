@@ -9,7 +9,6 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
-import org.snpeff.snpEffect.Config;
 import org.snpeff.util.Timer;
 
 /**
@@ -58,7 +57,7 @@ public class Genes implements Iterable<Gene>, Serializable {
 		if (!newGenes.isEmpty()) {
 			for (Gene g : newGenes)
 				genome.getGenes().add(g);
-			if (Config.get().isVerbose()) Timer.showStdErr("Total: " + newGenes.size() + " added as circular mirrored genes (appended '" + Gene.CIRCULAR_GENE_ID + "' to IDs).");
+			if (genome.getConfig().isVerbose()) Timer.showStdErr("Total: " + newGenes.size() + " added as circular mirrored genes (appended '" + Gene.CIRCULAR_GENE_ID + "' to IDs).");
 		}
 
 	}
@@ -14,6 +14,7 @@ import java.util.Properties;
 import org.snpeff.binseq.GenomicSequences;
 import org.snpeff.fileIterator.FastaFileIterator;
 import org.snpeff.serializer.MarkerSerializer;
+import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.util.Gpr;
 
@@ -43,6 +44,7 @@ public class Genome extends Marker implements Serializable, Iterable<Chromosome>
 	Boolean transcriptSupportLevelInfo = null; // Do we have 'TranscriptSupportLevel' info in transcripts?
 	GenomicSequences genomicSequences; // Store all genomic sequences (of interest) here
 	CytoBands cytoBands;
+	transient Config config; // Configuration used for this genome (annotations options, file names, etc.)
 
 	/**
 	 * Create a genome from a faidx file.
@@ -202,6 +204,14 @@ public class Genome extends Marker implements Serializable, Iterable<Chromosome>
 		return chrs;
 	}
 
+	/**
+	 * Configuration for this genome.
+	 * If no configuration was set, use the default one
+	 */
+	public Config getConfig() {
+		return config != null ? config : Config.get();
+	}
+
 	public synchronized CytoBands getCytoBands() {
 		if (cytoBands == null) cytoBands = new CytoBands(this);
 		return cytoBands;
@@ -434,6 +444,17 @@ public class Genome extends Marker implements Serializable, Iterable<Chromosome>
 		;
 	}
 
+	/**
+	 * Set coding info (e.g. when only some genes are loaded, see Genome.hasCodingInfo())
+	 */
+	public void setCodingInfo(boolean codingInfo) {
+		this.codingInfo = codingInfo;
+	}
+
+	public void setConfig(Config config) {
+		this.config = config;
+	}
+
 	private void setGenomeId() {
 		genomeId = genomeIdCounter++;
 	}
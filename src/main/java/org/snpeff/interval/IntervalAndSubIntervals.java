@@ -20,8 +20,8 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 
 	private static final long serialVersionUID = 1636197649250882952L;
 	Map<String, T> subIntervals;
-	List<T> sorted;
-	List<T> sortedStrand;
+	volatile List<T> sorted; // Sorted lists are created before they are published, so readers do not need to lock
+	volatile List<T> sortedStrand;
 
 	public IntervalAndSubIntervals() {
 		super();
@@ -253,9 +253,10 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 	/**
 	 * Return a collection of sub intervals sorted by natural order
 	 */
-	public synchronized List<T> sorted() {
+	public List<T> sorted() {
+		List<T> sorted = this.sorted;
 		if (sorted != null) return sorted;
-		ArrayList<T> sorted = new ArrayList<>();
+		sorted = new ArrayList<>();
 		sorted.addAll(subIntervals());
 		Collections.sort(sorted);
 
@@ -267,10 +268,11 @@ public class IntervalAndSubIntervals<T extends Marker> extends Marker implements
 	 * Return a collection of sub intervals sorted by start position (if strand is >= 0) or
 	 * by reverse end position (if strans < 0)
 	 */
-	public synchronized List<T> sortedStrand() {
+	public List<T> sortedStrand() {
+		List<T> sortedStrand = this.sortedStrand;
 		if (sortedStrand != null) return sortedStrand;
 
-		ArrayList<T> sortedStrand = new ArrayList<>();
+		sortedStrand = new ArrayList<>();
 		sortedStrand.addAll(subIntervals());
 
 		if (isStrandPlus()) Collections.sort(sortedStrand, new IntervalComparatorByStart()); // Sort by start position
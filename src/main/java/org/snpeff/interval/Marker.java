@@ -10,6 +10,7 @@ import org.snpeff.codons.CodonTables;
 import org.snpeff.interval.tree.IntervalForest;
 import org.snpeff.serializer.MarkerSerializer;
 import org.snpeff.serializer.TxtSerializable;
+import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.VariantEffect;
 import org.snpeff.snpEffect.VariantEffects;
@@ -271,6 +272,14 @@ public class Marker extends Interval implements TxtSerializable {
 		return CodonTables.getInstance().getTable(getGenome(), getChromosomeName());
 	}
 
+	/**
+	 * Get configuration (from genome)
+	 */
+	public Config config() {
+		Genome genome = getGenome();
+		return genome != null ? genome.getConfig() : Config.get();
+	}
+
 	/**
 	 * Compare by start and end
 	 */
@@ -532,6 +541,13 @@ public class Marker extends Interval implements TxtSerializable {
 		return intervalForest.query(this);
 	}
 
+	/**
+	 * Query intervals that intersect this marker, add them to 'results'
+	 */
+	public void query(IntervalForest intervalForest, Markers results) {
+		intervalForest.query(this, results);
+	}
+
 	/**
 	 * Query all genomic regions that intersect 'marker' (this makes sense in Gene, Transcript, Exon, etc.)
 	 */
@@ -90,8 +90,7 @@ public class MarkerSeq extends Marker {
 	 * Apply a change type deletion (update sequence)
 	 */
 	protected void applyDel(Variant variant, MarkerSeq markerSeq) {
-		// Get sequence in positive strand direction
-		String seq = isStrandPlus() ? sequence.getSequence() : sequence.reverseWc().getSequence();
+		String seq = sequencePlusStrand();
 
 		// Apply change to sequence
 		int idxStart = variant.getStart() - start;
@@ -110,8 +109,7 @@ public class MarkerSeq extends Marker {
 	 * Apply a change type duplication (update sequence)
 	 */
 	protected void applyDup(Variant variant, MarkerSeq markerSeq) {
-		// Get sequence in positive strand direction
-		String seq = isStrandPlus() ? sequence.getSequence() : sequence.reverseWc().getSequence();
+		String seq = sequencePlusStrand();
 
 		// Apply duplication to sequence
 		String dupSeq = getSequence(intersect(variant));
@@ -127,8 +125,7 @@ public class MarkerSeq extends Marker {
 	 * Apply a change type insertion (update sequence)
 	 */
 	protected void applyIns(Variant variant, MarkerSeq markerSeq) {
-		// Get sequence in positive strand direction
-		String seq = isStrandPlus() ? sequence.getSequence() : sequence.reverseWc().getSequence();
+		String seq = sequencePlusStrand();
 
 		// Apply change to sequence
 		String netChange = variant.netChange(this);
@@ -158,7 +155,7 @@ public class MarkerSeq extends Marker {
 		int idxEnd = idxStart + changeSize;
 
 		// Apply variant to sequence
-		String seq = isStrandPlus() ? sequence.getSequence() : sequence.reverseWc().getSequence(); // Get sequence in positive strand direction
+		String seq = sequencePlusStrand();
 		StringBuilder seqsb = new StringBuilder();
 		seqsb.append(seq.substring(0, idxStart).toLowerCase());
 		String seqAlt = variant.getAlt().substring(idxAlt, idxAlt + changeSize).toUpperCase();
@@ -174,8 +171,7 @@ public class MarkerSeq extends Marker {
 	 * Apply a change type SNP (update sequence)
 	 */
 	protected void applySnp(Variant variant, MarkerSeq markerSeq) {
-		// Get sequence in positive strand direction
-		String seq = isStrandPlus() ? sequence.getSequence() : sequence.reverseWc().getSequence();
+		String seq = sequencePlusStrand();
 
 		// Apply change to sequence
 		int idx = variant.getStart() - start;
@@ -188,13 +184,29 @@ public class MarkerSeq extends Marker {
 	/**
 	 * Base in this marker at position 'index' (relative to marker start)
 	 */
+	public char baseAt(int index) {
+		if (isStrandMinus()) return GprSeq.wc(sequence.getBase(sequence.length() - index - 1)); // Minus strand => Sequence has been reversed and WC-complemented
+		return sequence.getBase(index);
+	}
+
+	/**
+	 * Bases in this marker at position 'index' (relative to marker start)
+	 */
 	public String basesAt(int index, int len) {
+		char bases[] = new char[len];
+		basesAt(index, len, bases, 0);
+		return new String(bases);
+	}
+
+	/**
+	 * Copy 'len' bases at position 'index' (relative to marker start) into 'bases[offset]'
+	 * Note: No objects are created, so 'bases' can be reused by the caller
+	 */
+	public void basesAt(int index, int len, char bases[], int offset) {
 		if (isStrandMinus()) {
 			int idx = sequence.length() - index - len;
-			return GprSeq.reverseWc(sequence.getBases(idx, len)); // Minus strand => Sequence has been reversed and WC-complemented
-		}
-
-		return sequence.getBases(index, len);
+			sequence.getBasesReverseWc(idx, len, bases, offset); // Minus strand => Sequence has been reversed and WC-complemented
+		} else sequence.getBases(index, len, bases, offset);
 	}
 
 	/**
@@ -214,6 +226,13 @@ public class MarkerSeq extends Marker {
 		return clone;
 	}
 
+	/**
+	 * Packed sequence (as stored, no decoding is performed)
+	 */
+	public DnaSequence getDnaSequence() {
+		return sequence;
+	}
+
 	/**
 	 * Get sequence
 	 *
@@ -247,6 +266,23 @@ public class MarkerSeq extends Marker {
 		return (sequence != null) && (!sequence.isEmpty());
 	}
 
+	/**
+	 * Sequence in positive strand direction
+	 */
+	protected String sequencePlusStrand() {
+		char bases[] = new char[sequence.length()];
+		if (isStrandPlus()) sequence.getBases(0, bases.length, bases, 0);
+		else sequence.getBasesReverseWc(0, bases.length, bases, 0);
+		return new String(bases);
+	}
+
+	/**
+	 * Sequence length
+	 */
+	public int sequenceLength() {
+		return sequence.length();
+	}
+
 	/**
 	 * Parse a line from a serialized file
 	 */
@@ -294,6 +330,13 @@ public class MarkerSeq extends Marker {
 		else this.sequence = new DnaSequence(sequence); // Use DnaSequence
 	}
 
+	/**
+	 * Set packed sequence (e.g. a memory mapped sequence)
+	 */
+	public void setSequence(DnaSequence sequence) {
+		this.sequence = sequence;
+	}
+
 	@Override
 	public String toString() {
 		return getChromosomeName() + ":" + start + "-" + end //
@@ -55,24 +55,9 @@ public class Motif extends Marker {
 
 		// Do we have PWM?
 		if (pwm != null) {
-			// Step 1:
-			//     Create a MarkerSeq (we can 'apply' a change to it and see what the resulting sequence is
-			MarkerSeq mseq = new MarkerSeq((Marker) parent, start, end, false, id); // Notice: We use positive strand
-			String seqBest = pwm.getBestSequenceStr();
-			mseq.setSequence(isStrandPlus() ? seqBest : GprSeq.reverseWc(seqBest));
-
-			// Step 2:
-			//     Calculate new sequence, by 'applying' variant to mseq.
 			if (variant.isSnp() || variant.isMnp()) {
-				MarkerSeq mseqNew = mseq.apply(variant);
-				String variantd = mseqNew.getSequence();
-				if (isStrandMinus()) variantd = GprSeq.reverseWc(variantd);
-
 				// Calculate score difference
-				double scoreBest = pwm.score(seqBest);
-				double scoreNew = pwm.score(variantd);
-				double diff = scoreBest - scoreNew;
-				if (debug) Gpr.debug("Sequences: " + seqBest + "\t" + variantd + "\tScores: " + scoreBest + " + " + scoreNew + " = " + diff);
+				double diff = size() == pwm.length() ? scoreDelta(variant) : scoreDeltaMarkerSeq(variant);
 
 				// Over threshold?
 				if (Math.abs(diff) > SCORE_THRESHOLD) effectImpact = EffectImpact.LOW;
@@ -94,6 +79,49 @@ public class Motif extends Marker {
 		return pwmName;
 	}
 
+	/**
+	 * Score difference between the BEST sequence and the BEST sequence changed by
+	 * this (SNP or MNP) variant. Only PWM columns at changed positions are used
+	 */
+	double scoreDelta(Variant variant) {
+		int vstart = Math.max(start, variant.getStart());
+		int vend = Math.min(end, variant.getEnd());
+		String alt = variant.getAlt();
+
+		double diff = 0;
+		for (int pos = vstart; pos <= vend; pos++) {
+			char base = alt.charAt(pos - variant.getStart());
+			if (isStrandPlus()) diff += pwm.scoreDelta(base, pos - start);
+			else diff += pwm.scoreDelta(GprSeq.wc(base), end - pos);
+		}
+
+		if (debug) Gpr.debug("Variant: " + variant + "\tBest sequence: " + pwm.getBestSequenceStr() + "\tScore: " + pwm.getBestScore() + "\tDiff: " + diff);
+		return diff;
+	}
+
+	/**
+	 * Score difference between the BEST sequence and the BEST sequence changed by
+	 * this (SNP or MNP) variant, by applying the variant to a MarkerSeq.
+	 * Used when motif and PWM lengths differ (the sequence is trimmed or padded)
+	 */
+	double scoreDeltaMarkerSeq(Variant variant) {
+		// Create a MarkerSeq (we can 'apply' a change to it and see what the resulting sequence is
+		MarkerSeq mseq = new MarkerSeq((Marker) parent, start, end, false, id); // Notice: We use positive strand
+		String seqBest = pwm.getBestSequenceStr();
+		mseq.setSequence(isStrandPlus() ? seqBest : GprSeq.reverseWc(seqBest));
+
+		// Calculate new sequence, by 'applying' variant to mseq.
+		MarkerSeq mseqNew = mseq.apply(variant);
+		String variantd = mseqNew.getSequence();
+		if (isStrandMinus()) variantd = GprSeq.reverseWc(variantd);
+
+		// Calculate score difference
+		double scoreNew = pwm.score(variantd);
+		double diff = pwm.getBestScore() - scoreNew;
+		if (debug) Gpr.debug("Sequences: " + seqBest + "\t" + variantd + "\tScores: " + pwm.getBestScore() + " + " + scoreNew + " = " + diff);
+		return diff;
+	}
+
 	@Override
 	public void serializeParse(MarkerSerializer markerSerializer) {
 		super.serializeParse(markerSerializer);
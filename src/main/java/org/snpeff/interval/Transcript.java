@@ -43,21 +43,23 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	boolean dnaCheck; // Has this transcript been checked against a CDS/cDNA sequence?
 	boolean proteinCoding; // Is this a protein-coding transcript?
 	boolean ribosomalSlippage; // Ribosomal slippage causes changes in reading frames. This might be represented as negative length introns (overlapping exons).
+	volatile boolean cdsStartEndReady; // Have cdsStart and cdsEnd been calculated?
 	int cdsStart, cdsEnd; // CDS start and end coordinates. Note: If the transcript is in reverse strand, then cdsStart > cdsEnd
 	int spliceSiteSize, spliceRegionExonSize, spliceRegionIntronMin, spliceRegionIntronMax; // Splice sizes
 	int upDownLength; // Upstream and downstream size
 	BioType bioType; // Transcript biotype
-	String cds; // Coding sequence
-	String mRna; // mRna sequence (includes 5'UTR and 3'UTR)
-	String protein; // Protein sequence
+	volatile String cds; // Coding sequence
+	volatile String mRna; // mRna sequence (includes 5'UTR and 3'UTR)
+	volatile String protein; // Protein sequence
 	String version = ""; // Transcript version
 	List<Utr> utrs; // UTRs
 	List<Cds> cdss; // CDS information
-	List<Intron> introns; // Intron markers
+	volatile List<Intron> introns; // Intron markers
 	Upstream upstream; // Upstream interval
 	Downstream downstream; // Downstream interval
-	Exon firstCodingExon; // First coding exon. I.e. where transcription start site (TSS) is.
-	int cds2pos[], aa2pos[];
+	volatile Exon firstCodingExon; // First coding exon. I.e. where transcription start site (TSS) is.
+	volatile int cds2pos[], aa2pos[];
+	volatile TranscriptCoordinates coordinates; // Coordinate map. Immutable, so it can be read by many threads without locking
 	TranscriptSupportLevel transcriptSupportLevel = null;
 
 	public Transcript() {
@@ -77,7 +79,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 *
 	 * @returns An array mapping 'pos[aaNumber] = chromosmalPos'
 	 */
-	public synchronized int[] aaNumber2Pos() {
+	public int[] aaNumber2Pos() {
+		int aa2pos[] = this.aa2pos;
 		if (aa2pos != null) return aa2pos;
 
 		calcCdsStartEnd();
@@ -120,16 +123,17 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 			if (aaIdxStart >= 0) exon.setAaIdx(aaIdxStart, aaIdxEnd);
 		}
 
+		this.aa2pos = aa2pos;
 		return aa2pos;
 	}
 
 	/**
 	 * Find a genomic position of the first base in a Amino Acid 'aaNum'
+	 * @return Genomic position or -1 if 'aaNum' is out of range
 	 */
 	public int aaNumber2Pos(int aaNum) {
-		aaNumber2Pos();
-
-		return -1;
+		if (aaNum < 0) return -1;
+		return coordinates().cdsBaseNumber2Pos(aaNum * CodonChange.CODON_SIZE);
 	}
 
 	/**
@@ -303,7 +307,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 				} else {
 					// This might happen when a duplication affecting part of an exon
 					// E.g. If the duplication affects the coding part and NOT the 3'UTR then the UTR doesn't have a
-					if (Config.get().isDebug()) Gpr.debug("WARNING: applying variant: Could not find 'new' parent exon for 'new' UTR" //
+					if (config().isDebug()) Gpr.debug("WARNING: applying variant: Could not find 'new' parent exon for 'new' UTR" //
 							+ "\n\t\tVariant           : " + variant //
 							+ "\n" //
 							+ "\n\t\tUTR        (ori) :" + utr //
@@ -340,7 +344,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 		calcCdsStartEnd();
 		Exon ex = findExon(pos);
 		if (ex == null) return null;
-		return ex.basesAt(pos - ex.getStart(), 1);
+		return String.valueOf(ex.baseAt(pos - ex.getStart()));
 	}
 
 	/**
@@ -348,24 +352,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * mRNA is roughly the same than cDNA. Strictly speaking mRNA
 	 * has a poly-A tail and 5'cap.
 	 */
-	public synchronized int baseNumber2MRnaPos(int pos) {
-		int count = 0;
-		for (Exon eint : sortedStrand()) {
-			if (eint.intersects(pos)) {
-				// Intersect this exon? Calculate the number of bases from the beginning
-				int dist = 0;
-				if (isStrandPlus()) dist = pos - eint.getStart();
-				else dist = eint.getEnd() - pos;
-
-				// Sanity check
-				if (dist < 0) throw new RuntimeException("Negative distance for position " + pos + ". This should never happen!\n" + this);
-
-				return count + dist;
-			}
-
-			count += eint.size();
-		}
-		return -1;
+	public int baseNumber2MRnaPos(int pos) {
+		return coordinates().mRnaPos(pos);
 	}
 
 	/**
@@ -377,39 +365,14 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 *
 	 * @returns Base number or '-1' if it does not map to a coding base
 	 */
-	public synchronized int baseNumberCds(int pos, boolean usePrevBaseIntron) {
+	public int baseNumberCds(int pos, boolean usePrevBaseIntron) {
 		// Doesn't hit this transcript?
 		if (!intersects(pos)) return -1;
 
 		// Is it in UTR instead of CDS?
 		if (isUtr(pos)) return -1;
 
-		// Calculate cdsStart and cdsEnd (if not already done)
-		calcCdsStartEnd();
-
-		// All exons..
-		int firstCdsBaseInExon = 0; // Where the exon maps to the CDS (i.e. which CDS base number does the first base in this exon maps to).
-		for (Exon eint : sortedStrand()) {
-			if (eint.intersects(pos)) {
-				int cdsBaseInExon; // cdsBaseInExon: base number relative to the beginning of the coding part of this exon (i.e. excluding 5'UTRs)
-				if (isStrandPlus()) cdsBaseInExon = pos - Math.max(eint.getStart(), cdsStart);
-				else cdsBaseInExon = Math.min(eint.getEnd(), cdsStart) - pos;
-
-				cdsBaseInExon = Math.max(0, cdsBaseInExon);
-
-				return firstCdsBaseInExon + cdsBaseInExon;
-			} else {
-				// Before exon begins?
-				if ((isStrandPlus() && (pos < eint.getStart())) // Before exon begins (positive strand)?
-						|| (isStrandMinus() && (pos > eint.getEnd()))) // Before exon begins (negative strand)?
-					return firstCdsBaseInExon - (usePrevBaseIntron ? 1 : 0);
-			}
-
-			if (isStrandPlus()) firstCdsBaseInExon += Math.max(0, eint.getEnd() - Math.max(eint.getStart(), cdsStart) + 1);
-			else firstCdsBaseInExon += Math.max(0, Math.min(cdsStart, eint.getEnd()) - eint.getStart() + 1);
-		}
-
-		return firstCdsBaseInExon - 1;
+		return coordinates().cdsBaseNumber(pos, usePrevBaseIntron);
 	}
 
 	/**
@@ -426,9 +389,13 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	/**
 	 * Calculate chromosome position as function of CDS number
 	 *
+	 * Note: This creates an array as large as the CDS, use
+	 *       'baseNumberCds2Pos(int)' to map a few bases
+	 *
 	 * @returns An array mapping 'cds2pos[cdsBaseNumber] = chromosmalPos'
 	 */
-	public synchronized int[] baseNumberCds2Pos() {
+	public int[] baseNumberCds2Pos() {
+		int cds2pos[] = this.cds2pos;
 		if (cds2pos != null) return cds2pos;
 
 		calcCdsStartEnd();
@@ -449,70 +416,85 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 				if ((cdsMin <= pos) && (pos <= cdsMax)) cds2pos[cdsBaseNum++] = pos;
 		}
 
+		this.cds2pos = cds2pos;
 		return cds2pos;
 	}
 
+	/**
+	 * Chromosome position of CDS base number 'cdsBaseNumber'
+	 * @return Chromosome position or -1 if out of range
+	 */
+	public int baseNumberCds2Pos(int cdsBaseNumber) {
+		return coordinates().cdsBaseNumber2Pos(cdsBaseNumber);
+	}
+
 	/**
 	 * Calculate CDS start and CDS end
+	 *
+	 * Note: Values are calculated in local variables and published at the end,
+	 *       so readers never lock (several threads might calculate the same values)
 	 */
-	synchronized void calcCdsStartEnd() {
-		// Do we need to calculate these values?
-		// Note: In circular genomes, one of cdsStart / cdsEnd might be less
-		//       than zero (we must check both)
-		if ((cdsStart < 0) && (cdsEnd < 0)) {
-			// Calculate coding start (after 5 prime UTR)
+	void calcCdsStartEnd() {
+		if (cdsStartEndReady) return; // Already calculated
 
-			if (utrs.isEmpty()) {
-				// No UTRs => Use all exons
-				cdsStart = (isStrandPlus() ? end : start); // cdsStart is the position of the first base in the CDS (i.e. the first base after all 5'UTR)
-				cdsEnd = (isStrandPlus() ? start : end); // cdsEnd is the position of the last base in the CDS (i.e. the first base before all 3'UTR)
+		// Calculate coding start (after 5 prime UTR)
+		// Note: In circular genomes, one of cdsStart / cdsEnd might be less than zero
+		int cdsStart, cdsEnd;
+		if (utrs.isEmpty()) {
+			// No UTRs => Use all exons
+			cdsStart = (isStrandPlus() ? end : start); // cdsStart is the position of the first base in the CDS (i.e. the first base after all 5'UTR)
+			cdsEnd = (isStrandPlus() ? start : end); // cdsEnd is the position of the last base in the CDS (i.e. the first base before all 3'UTR)
 
-				for (Exon ex : this) {
-					if (isStrandPlus()) {
-						cdsStart = Math.min(cdsStart, ex.getStart());
-						cdsEnd = Math.max(cdsEnd, ex.getEnd());
-					} else {
-						cdsStart = Math.max(cdsStart, ex.getEnd());
-						cdsEnd = Math.min(cdsEnd, ex.getStart());
-					}
-				}
-			} else {
-				// We have to take into account UTRs
-				cdsStart = (isStrandPlus() ? start : end); // cdsStart is the position of the first base in the CDS (i.e. the first base after all 5'UTR)
-				cdsEnd = (isStrandPlus() ? end : start); // cdsEnd is the position of the last base in the CDS (i.e. the first base before all 3'UTR)
-				int cdsStartNotExon = cdsStart;
-
-				for (Utr utr : utrs) {
-					if (utr instanceof Utr5prime) {
-						if (isStrandPlus()) cdsStart = Math.max(cdsStart, utr.getEnd() + 1);
-						else cdsStart = Math.min(cdsStart, utr.getStart() - 1);
-					} else if (utr instanceof Utr3prime) {
-						if (isStrandPlus()) cdsEnd = Math.min(cdsEnd, utr.getStart() - 1);
-						else cdsEnd = Math.max(cdsEnd, utr.getEnd() + 1);
-					}
-				}
-
-				// Make sure cdsStart and cdsEnd lie within an exon
+			for (Exon ex : this) {
 				if (isStrandPlus()) {
-					cdsStart = firstExonPositionAfter(cdsStart);
-					cdsEnd = lastExonPositionBefore(cdsEnd);
+					cdsStart = Math.min(cdsStart, ex.getStart());
+					cdsEnd = Math.max(cdsEnd, ex.getEnd());
 				} else {
-					cdsStart = lastExonPositionBefore(cdsStart);
-					cdsEnd = firstExonPositionAfter(cdsEnd);
+					cdsStart = Math.max(cdsStart, ex.getEnd());
+					cdsEnd = Math.min(cdsEnd, ex.getStart());
+				}
+			}
+		} else {
+			// We have to take into account UTRs
+			cdsStart = (isStrandPlus() ? start : end); // cdsStart is the position of the first base in the CDS (i.e. the first base after all 5'UTR)
+			cdsEnd = (isStrandPlus() ? end : start); // cdsEnd is the position of the last base in the CDS (i.e. the first base before all 3'UTR)
+			int cdsStartNotExon = cdsStart;
+
+			for (Utr utr : utrs) {
+				if (utr instanceof Utr5prime) {
+					if (isStrandPlus()) cdsStart = Math.max(cdsStart, utr.getEnd() + 1);
+					else cdsStart = Math.min(cdsStart, utr.getStart() - 1);
+				} else if (utr instanceof Utr3prime) {
+					if (isStrandPlus()) cdsEnd = Math.min(cdsEnd, utr.getStart() - 1);
+					else cdsEnd = Math.max(cdsEnd, utr.getEnd() + 1);
 				}
+			}
 
-				// We were not able to find cdsStart & cdsEnd within exon limits.
-				// Probably there is something wrong with the database and the transcript does
-				// not have a single coding base (e.g. all of it is UTR).
-				if (cdsStart < 0 || cdsEnd < 0) cdsStart = cdsEnd = cdsStartNotExon;
+			// Make sure cdsStart and cdsEnd lie within an exon
+			if (isStrandPlus()) {
+				cdsStart = firstExonPositionAfter(cdsStart);
+				cdsEnd = lastExonPositionBefore(cdsEnd);
+			} else {
+				cdsStart = lastExonPositionBefore(cdsStart);
+				cdsEnd = firstExonPositionAfter(cdsEnd);
 			}
+
+			// We were not able to find cdsStart & cdsEnd within exon limits.
+			// Probably there is something wrong with the database and the transcript does
+			// not have a single coding base (e.g. all of it is UTR).
+			if (cdsStart < 0 || cdsEnd < 0) cdsStart = cdsEnd = cdsStartNotExon;
 		}
+
+		this.cdsStart = cdsStart;
+		this.cdsEnd = cdsEnd;
+		cdsStartEndReady = true;
 	}
 
 	/**
 	 * Retrieve coding sequence
 	 */
-	public synchronized String cds() {
+	public String cds() {
+		String cds = this.cds;
 		if (cds != null) return cds;
 
 		// Concatenate all exons
@@ -546,6 +528,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 			else cds = sequence.substring(utr5len, subEnd);
 		}
 
+		this.cds = cds;
 		return cds;
 	}
 
@@ -582,19 +565,31 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 *         it could a base in the codon could not be mapped.
 	 */
 	public int[] codonNumber2Pos(int codonNum) {
-		if (cds2pos == null) baseNumberCds2Pos();
+		TranscriptCoordinates coordinates = coordinates();
 
-		// Initialize
 		int codon[] = new int[3];
 		int step = isStrandPlus() ? 1 : -1;
 		int idxStart = isStrandPlus() ? 0 : 2;
-		for (int i = idxStart, j = 3 * codonNum; (i < codon.length) && (i >= 0) && j < cds2pos.length; i += step, j++) {
-			codon[i] = cds2pos[j];
-		}
+		for (int i = idxStart, j = 3 * codonNum; (i < codon.length) && (i >= 0); i += step, j++)
+			codon[i] = coordinates.cdsBaseNumber2Pos(j);
 
 		return codon;
 	}
 
+	/**
+	 * Coordinate map: Converts genomic, mRNA and CDS coordinates without walking all exons.
+	 * It is created on first use (or when genes are built, see 'Gene.buildPerGene')
+	 */
+	public TranscriptCoordinates coordinates() {
+		TranscriptCoordinates coordinates = this.coordinates;
+		if (coordinates == null) {
+			// Note: Several threads might create the same coordinate map, which is harmless
+			coordinates = new TranscriptCoordinates(this);
+			this.coordinates = coordinates;
+		}
+		return coordinates;
+	}
+
 	/**
 	 * Collapses exons having gaps of zero (i.e. exons that followed by other exons).
 	 * Does the same for CDSs and UTRs.
@@ -625,7 +620,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 				ret = true;
 
 				// Show debugging information
-				if (Config.get().isDebug()) System.err.println("\t\t\tTranscript " + getId() + ": Collapsing exon " + exon.getId() + "\t[ " + exon.getStart() + " - " + exon.getEnd() + " ]\t=>\t[ " + collapsedExon.getStart() + " - " + collapsedExon.getEnd() + " ]");
+				if (config().isDebug()) System.err.println("\t\t\tTranscript " + getId() + ": Collapsing exon " + exon.getId() + "\t[ " + exon.getStart() + " - " + exon.getEnd() + " ]\t=>\t[ " + collapsedExon.getStart() + " - " + collapsedExon.getEnd() + " ]");
 
 				// Replace exon
 				remove((Exon) exon);
@@ -1006,7 +1001,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 								+ "\n\t" + this //
 						);
 					} else {
-						if (Config.get().isDebug()) {
+						if (config().isDebug()) {
 							System.err.println("\t\tFrame correction: " //
 									+ "Position " + toStr() //
 									+ "Transcript '" + getId() + "'" //
@@ -1123,7 +1118,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	/**
 	 * Get first coding exon
 	 */
-	public synchronized Exon getFirstCodingExon() {
+	public Exon getFirstCodingExon() {
+		Exon firstCodingExon = this.firstCodingExon;
 		if (firstCodingExon == null) {
 			// Get transcription start position
 			long cstart = getCdsStart();
@@ -1134,6 +1130,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 
 			// Sanity check
 			if (firstCodingExon == null) throw new RuntimeException("Error: Cannot find first coding exon for transcript:\n" + this);
+			this.firstCodingExon = firstCodingExon;
 		}
 		return firstCodingExon;
 	}
@@ -1195,7 +1192,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	/**
 	 * Get all introns (lazy init)
 	 */
-	public synchronized List<Intron> introns() {
+	public List<Intron> introns() {
+		List<Intron> introns = this.introns;
 		if (introns == null) {
 			introns = new ArrayList<>();
 
@@ -1228,10 +1226,18 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 
 				exBefore = ex;
 			}
+
+			this.introns = introns;
 		}
 		return introns;
 	}
 
+	@Override
+	protected void invalidateSorted() {
+		super.invalidateSorted();
+		coordinates = null; // Exons changed
+	}
+
 	public boolean isAaCheck() {
 		return aaCheck;
 	}
@@ -1286,7 +1292,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * @return true on Error
 	 */
 	public boolean isErrorProteinLength() {
-		if (!Config.get().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
+		if (!config().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
 		return (cds().length() % 3) != 0;
 	}
 
@@ -1294,7 +1300,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * Is the first codon a START codon?
 	 */
 	public boolean isErrorStartCodon() {
-		if (!Config.get().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
+		if (!config().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
 
 		// Not even one codon in this protein? Error
 		String cds = cds();
@@ -1309,7 +1315,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * @return true on Error
 	 */
 	public boolean isErrorStopCodonsInCds() {
-		if (!Config.get().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
+		if (!config().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
 
 		// Get protein sequence
 		String prot = protein();
@@ -1369,7 +1375,7 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * Is the last codon a STOP codon?
 	 */
 	public boolean isWarningStopCodon() {
-		if (!Config.get().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
+		if (!config().isTreatAllAsProteinCoding() && !isProteinCoding()) return false;
 
 		// Not even one codon in this protein? Error
 		String cds = cds();
@@ -1419,7 +1425,8 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	 * Retrieve coding sequence AND the UTRs (mRNA = 5'UTR + CDS + 3'UTR)
 	 * I.e. Concatenate all exon sequences
 	 */
-	public synchronized String mRna() {
+	public String mRna() {
+		String mRna = this.mRna;
 		if (mRna != null) return mRna;
 
 		List<Exon> exons = sortedStrand();
@@ -1430,16 +1437,34 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 			sequence.append(ex.getSequence());
 
 		mRna = sequence.toString();
+		this.mRna = mRna;
 		return mRna;
 	}
 
+	/**
+	 * Precompute values that are otherwise lazily calculated (CDS start / end,
+	 * coordinate map, introns, UTRs, protein sequence), so that annotations
+	 * only read them
+	 */
+	public void precompute() {
+		calcCdsStartEnd();
+		coordinates();
+		introns();
+		for (Utr5prime utr : get5primeUtrs())
+			utr.get5primeUtrs();
+		protein(); // Also calculates CDS sequence (protein coding transcripts)
+	}
+
 	/**
 	 * Protein sequence (amino acid sequence produced by this transcripts)
 	 */
 	public String protein() {
+		String protein = this.protein;
 		if (protein == null) {
-			if (!(Config.get() != null && Config.get().isTreatAllAsProteinCoding()) && !isProteinCoding()) protein = "";
+			Config config = config();
+			if (!(config != null && config.isTreatAllAsProteinCoding()) && !isProteinCoding()) protein = "";
 			else protein = codonTable().aa(cds(), true);
+			this.protein = protein;
 		}
 		return protein;
 	}
@@ -1524,12 +1549,14 @@ public class Transcript extends IntervalAndSubIntervals<Exon> {
 	}
 
 	public void resetCache() {
+		cdsStartEndReady = false;
 		cdsStart = -1;
 		cdsEnd = -1;
 		firstCodingExon = null;
 		cds = null;
 		cds2pos = null;
 		aa2pos = null;
+		coordinates = null;
 		mRna = null;
 		protein = null;
 	}
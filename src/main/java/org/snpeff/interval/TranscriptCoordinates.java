@@ -0,0 +1,261 @@
+package org.snpeff.interval;
+
+import java.util.List;
+
+import org.snpeff.snpEffect.LossOfFunction;
+
+/**
+ * Precomputed coordinate map of a transcript: Exon coordinates (in strand
+ * order), cumulative spliced lengths (mRNA offsets) and cumulative coding
+ * lengths (CDS offsets).
+ *
+ * Conversions between genomic, mRNA and CDS coordinates use a binary search
+ * over exons, so they are O(log(exons)) and do not allocate memory.
+ *
+ * Loss of function geometry (number of coding exons, last coding exon and
+ * nonsense mediated decay boundary) is also calculated here, once per transcript.
+ *
+ * Coordinate maps are created lazily, the first time a transcript is used
+ * (see 'Transcript.coordinates()'), or for all transcripts right after the
+ * database is loaded when running with '-precompute' (see 'Transcript.precompute()').
+ *
+ * Note: Objects are immutable (built once per transcript), so they can be
+ *       read by many threads without locking. If exons overlap (e.g.
+ *       ribosomal slippage), lookups fall back to a linear scan.
+ *
+ * @author pcingola
+ */
+public class TranscriptCoordinates {
+
+	final boolean strandPlus;
+	final boolean sorted; // Are exons sorted and non-overlapping? (binary search can be used)
+	final int cdsStart, cdsEnd; // Same as transcript's cdsStart and cdsEnd
+	final int cdsMin, cdsMax;
+	final int exonStart[], exonEnd[]; // Exon coordinates, in strand order
+	final int mRnaOffset[]; // mRnaOffset[i]: Number of mRNA bases before exon 'i' (last entry is mRNA length)
+	final int cdsOffset[]; // cdsOffset[i]: Number of bases from cdsStart to the beginning of exon 'i', not capped at cdsEnd (same as 'Transcript.baseNumberCds')
+	final int codingOffset[]; // codingOffset[i]: Number of coding bases before exon 'i' (last entry is CDS length)
+	final int numCodingExons; // Number of exons intersecting the CDS
+	final int lastCodingExon; // Index of the last exon (in strand order) intersecting 'cdsEnd' (-1 if none)
+	final int lastNmdPos; // Last position where a nonsense mediated decay is supposed to occur (see 'getLastNmdPos')
+
+	public static final int NMD_ERROR = Integer.MIN_VALUE; // Last NMD position could not be calculated
+
+	public TranscriptCoordinates(Transcript tr) {
+		strandPlus = tr.isStrandPlus();
+		cdsStart = tr.getCdsStart();
+		cdsEnd = tr.getCdsEnd();
+		cdsMin = Math.min(cdsStart, cdsEnd);
+		cdsMax = Math.max(cdsStart, cdsEnd);
+
+		List<Exon> exons = tr.sortedStrand();
+		int len = exons.size();
+		exonStart = new int[len];
+		exonEnd = new int[len];
+		mRnaOffset = new int[len + 1];
+		cdsOffset = new int[len + 1];
+		codingOffset = new int[len + 1];
+
+		boolean sorted = true;
+		for (int i = 0; i < len; i++) {
+			Exon exon = exons.get(i);
+			int start = exon.getStart(), end = exon.getEnd();
+			exonStart[i] = start;
+			exonEnd[i] = end;
+
+			// Exons in strand order must not overlap for binary search to work
+			if (i > 0) sorted &= strandPlus ? (exonEnd[i - 1] < start) : (end < exonStart[i - 1]);
+
+			mRnaOffset[i + 1] = mRnaOffset[i] + exon.size();
+
+			int cdsBases = strandPlus ? end - Math.max(start, cdsStart) + 1 : Math.min(cdsStart, end) - start + 1;
+			cdsOffset[i + 1] = cdsOffset[i] + Math.max(0, cdsBases);
+
+			int codingBases = Math.min(end, cdsMax) - Math.max(start, cdsMin) + 1;
+			codingOffset[i + 1] = codingOffset[i] + Math.max(0, codingBases);
+		}
+		this.sorted = sorted;
+
+		// Coding exons
+		int numCodingExons = 0, lastCodingExon = -1;
+		for (int i = 0; i < len; i++) {
+			if ((exonStart[i] <= cdsMax) && (cdsMin <= exonEnd[i])) numCodingExons++;
+			if (intersects(i, cdsEnd)) lastCodingExon = i;
+		}
+		this.numCodingExons = numCodingExons;
+		this.lastCodingExon = lastCodingExon;
+		lastNmdPos = calcLastNmdPos();
+	}
+
+	/**
+	 * Find the last position where a nonsense mediated decay is supposed to occur
+	 * This is 50 bases (MND_BASES_BEFORE_LAST_JUNCTION bases) before the last exon-exon junction.
+	 */
+	int calcLastNmdPos() {
+		// Only one coding exon? => No NMD
+		// Note: We assume that a splice event in a coding part of the transcript is required for NMD to happen.
+		if (numCodingExons <= 1) return -1;
+		if (lastCodingExon < 0) return NMD_ERROR;
+
+		// Find CDS base number of the last exon-exon junction (last one, if exons overlap)
+		int lastExonJunction = strandPlus ? exonStart[lastCodingExon] : exonEnd[lastCodingExon];
+		for (int i = exonStart.length - 1; i >= 0; i--) {
+			int min = Math.max(exonStart[i], cdsMin), max = Math.min(exonEnd[i], cdsMax);
+			if ((min <= lastExonJunction) && (lastExonJunction <= max)) {
+				int cdsi = codingOffset[i] + (strandPlus ? lastExonJunction - min : max - lastExonJunction);
+				if (cdsi <= LossOfFunction.MND_BASES_BEFORE_LAST_JUNCTION) return strandPlus ? 0 : Integer.MAX_VALUE; // Out of CDS range
+				return cdsBaseNumber2Pos(cdsi - LossOfFunction.MND_BASES_BEFORE_LAST_JUNCTION - 1);
+			}
+		}
+
+		return NMD_ERROR;
+	}
+
+	/**
+	 * Base number in the CDS where 'pos' maps (same as 'Transcript.baseNumberCds',
+	 * assuming that 'pos' intersects the transcript and it is not in a UTR)
+	 *
+	 * @param usePrevBaseIntron: When 'pos' is intronic this method returns:
+	 * 			- if( usePrevBaseIntron== false)  => The first base in the exon after 'pos' (i.e. first coding base after intron)
+	 * 			- if( usePrevBaseIntron== true)   => The last base in the  exon before 'pos'  (i.e. last coding base before intron)
+	 */
+	public int cdsBaseNumber(int pos, boolean usePrevBaseIntron) {
+		int idx = sorted ? exonIndex(pos) : exonIndexLinear(pos);
+		if (idx >= exonStart.length) return cdsOffset[idx] - 1; // After last exon
+
+		// Before exon begins (i.e. intron)?
+		if (!intersects(idx, pos)) return cdsOffset[idx] - (usePrevBaseIntron ? 1 : 0);
+
+		// cdsBaseInExon: base number relative to the beginning of the coding part of this exon (i.e. excluding 5'UTRs)
+		int cdsBaseInExon = strandPlus ? pos - Math.max(exonStart[idx], cdsStart) : Math.min(exonEnd[idx], cdsStart) - pos;
+		return cdsOffset[idx] + Math.max(0, cdsBaseInExon);
+	}
+
+	/**
+	 * Number of coding bases in exons intersecting [start, end]
+	 */
+	public int codingBases(int start, int end) {
+		int min = Math.max(start, cdsMin), max = Math.min(end, cdsMax);
+		int count = 0;
+		for (int i = 0; i < exonStart.length; i++)
+			count += Math.max(0, Math.min(max, exonEnd[i]) - Math.max(min, exonStart[i]) + 1);
+		return count;
+	}
+
+	/**
+	 * Genomic position of CDS base number 'cdsBaseNum'
+	 * @return Genomic position or -1 if out of range
+	 */
+	public int cdsBaseNumber2Pos(int cdsBaseNum) {
+		int idx = offsetIndex(codingOffset, cdsBaseNum);
+		if (idx < 0) return -1;
+
+		int delta = cdsBaseNum - codingOffset[idx];
+		return strandPlus ? Math.max(exonStart[idx], cdsMin) + delta : Math.min(exonEnd[idx], cdsMax) - delta;
+	}
+
+	/**
+	 * Find the first exon (in strand order) that either intersects 'pos'
+	 * or is after 'pos' (also in strand order)
+	 *
+	 * @return Exon index or number of exons if 'pos' is after all exons
+	 */
+	int exonIndex(int pos) {
+		int lo = 0, hi = exonStart.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			boolean after = strandPlus ? pos > exonEnd[mid] : pos < exonStart[mid];
+			if (after) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Same as 'exonIndex', linear scan (exons might overlap)
+	 */
+	int exonIndexLinear(int pos) {
+		for (int i = 0; i < exonStart.length; i++) {
+			if (intersects(i, pos)) return i;
+			if (strandPlus ? pos < exonStart[i] : pos > exonEnd[i]) return i;
+		}
+		return exonStart.length;
+	}
+
+	public int getCdsLength() {
+		return codingOffset[codingOffset.length - 1];
+	}
+
+	/**
+	 * Last position where a nonsense mediated decay is supposed to occur:
+	 * Variants before this position (in strand order) are assumed to trigger NMD
+	 *
+	 * @return Position, -1 if there is no NMD (e.g. only one coding exon) or NMD_ERROR
+	 */
+	public int getLastNmdPos() {
+		return lastNmdPos;
+	}
+
+	public int getmRnaLength() {
+		return mRnaOffset[mRnaOffset.length - 1];
+	}
+
+	public int getNumCodingExons() {
+		return numCodingExons;
+	}
+
+	boolean intersects(int idx, int pos) {
+		return (exonStart[idx] <= pos) && (pos <= exonEnd[idx]);
+	}
+
+	/**
+	 * Distance (in mRNA bases) from transcript start to 'pos'
+	 * (same as 'Transcript.baseNumber2MRnaPos')
+	 *
+	 * @return mRNA position or -1 if 'pos' is not in an exon
+	 */
+	public int mRnaPos(int pos) {
+		int idx = -1;
+		if (sorted) {
+			idx = exonIndex(pos);
+			if ((idx >= exonStart.length) || !intersects(idx, pos)) return -1;
+		} else {
+			// Exons might overlap: First exon (in strand order) intersecting 'pos'
+			for (int i = 0; (i < exonStart.length) && (idx < 0); i++)
+				if (intersects(i, pos)) idx = i;
+			if (idx < 0) return -1;
+		}
+
+		int dist = strandPlus ? pos - exonStart[idx] : exonEnd[idx] - pos;
+		return mRnaOffset[idx] + dist;
+	}
+
+	/**
+	 * Find index 'i' such that offset[i] <= num < offset[i+1]
+	 * (the last one, if several exons have the same offset)
+	 *
+	 * @return Index or -1 if 'num' is out of range
+	 */
+	int offsetIndex(int offset[], int num) {
+		if ((num < 0) || (num >= offset[offset.length - 1])) return -1;
+
+		// Find the last 'i' such that offset[i] <= num
+		int lo = 0, hi = offset.length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (offset[mid] <= num) lo = mid;
+			else hi = mid - 1;
+		}
+		return lo;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("cdsStart: " + cdsStart + ", cdsEnd: " + cdsEnd + ", sorted: " + sorted + ", codingExons: " + numCodingExons + ", lastNmdPos: " + lastNmdPos);
+		for (int i = 0; i < exonStart.length; i++)
+			sb.append("\n\t" + i + "\t[" + exonStart[i] + ", " + exonEnd[i] + "]\tmRNA: " + mRnaOffset[i] + "\tCDS: " + cdsOffset[i] + "\tcoding: " + codingOffset[i]);
+		return sb.toString();
+	}
+
+}
@@ -20,7 +20,7 @@ import org.snpeff.util.GprSeq;
 public class Utr5prime extends Utr {
 
 	private static final long serialVersionUID = 3710420226746056364L;
-	List<Utr5prime> utrs;
+	volatile List<Utr5prime> utrs;
 
 	public Utr5prime() {
 		super();
@@ -32,14 +32,17 @@ public class Utr5prime extends Utr {
 		type = EffectType.UTR_5_PRIME;
 	}
 
-	synchronized List<Utr5prime> get5primeUtrs() {
+	List<Utr5prime> get5primeUtrs() {
+		List<Utr5prime> utrs = this.utrs;
 		if (utrs == null) {
 			Transcript tr = (Transcript) findParent(Transcript.class);
 
 			// Get UTRs and sort them
+			// Note: The list is sorted before it is published, so readers do not need to lock
 			utrs = tr.get5primeUtrs();
 			if (isStrandPlus()) Collections.sort(utrs, new IntervalComparatorByStart()); // Sort by start position
 			else Collections.sort(utrs, new IntervalComparatorByEnd(true)); // Sort by end position (reversed)
+			this.utrs = utrs;
 		}
 
 		return utrs;
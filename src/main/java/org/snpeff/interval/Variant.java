@@ -5,7 +5,6 @@ import java.util.List;
 
 import org.snpeff.align.VariantRealign;
 import org.snpeff.binseq.GenomicSequences;
-import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.util.GprSeq;
 import org.snpeff.util.IubString;
@@ -447,7 +446,7 @@ public class Variant extends Marker {
 		if (gs == null) return this;
 
 		VariantRealign vr = new VariantRealign(this);
-		vr.setDebug(Config.get().isDebug());
+		vr.setDebug(config().isDebug());
 		if (!vr.realign()) return this;
 		return vr.getVariantRealigned();
 	}
@@ -60,6 +60,15 @@ public class VariantBnd extends Variant {
 		return res1;
 	}
 
+	/**
+	 * Add intervals that intersect both ends of this variant to 'results'
+	 */
+	@Override
+	public void query(IntervalForest intervalForest, Markers results) {
+		intervalForest.query(this, results);
+		intervalForest.query(endPoint, results);
+	}
+
 	@Override
 	public Variant realignLeft() {
 		// Do not realign translocations
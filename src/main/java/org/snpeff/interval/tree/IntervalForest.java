@@ -161,14 +161,26 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 	 * In oder to change the implementation, only this method should be changed.
 	 */
 	protected Itree newItree() {
-		return new IntervalTree();
+		return new IntervalTreeFlat();
 	}
 
 	/**
 	 * Query all intervals that intersect with 'interval'
 	 */
 	public Markers query(Marker marker) {
-		return getOrCreateTreeChromo(marker.getChromosomeName()).query(marker);
+		Markers results = new Markers();
+		query(marker, results);
+		return results;
+	}
+
+	/**
+	 * Query all intervals that intersect with 'interval', add them to 'results'
+	 * Note: Chromosomes not in the forest do not create new (empty) trees, so
+	 *       concurrent queries do not modify the forest.
+	 */
+	public void query(Marker marker, Markers results) {
+		Itree tree = getTreeChromo(marker.getChromosomeName());
+		if (tree != null) tree.query(marker, results);
 	}
 
 	/**
@@ -234,7 +246,10 @@ public class IntervalForest implements Serializable, Iterable<Itree> {
 	 * Obtain all intervals that intersect with 'point'
 	 */
 	public Markers stab(String chromo, int point) {
-		return getOrCreateTreeChromo(chromo).stab(point);
+		Markers results = new Markers();
+		Itree tree = getTreeChromo(chromo);
+		if (tree != null) tree.stab(point, results);
+		return results;
 	}
 
 	@Override
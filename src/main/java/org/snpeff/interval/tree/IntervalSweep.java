@@ -0,0 +1,138 @@
+package org.snpeff.interval.tree;
+
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+
+/**
+ * Sweep-line queries for coordinate-sorted input (e.g. a sorted VCF file)
+ *
+ * Keeps an 'active set' of intervals, for the current chromosome,
+ * that may intersect the current query. As query positions increase,
+ * the active set is advanced: intervals ending before the query are
+ * removed and intervals starting before the query's end are added.
+ *
+ * Queries that are out of order (i.e. start before a previous
+ * query's start) fall back to regular interval tree queries.
+ * Changing chromosome restarts the sweep.
+ *
+ * Note: Only trees using IntervalTreeFlat can be swept, other
+ *       trees always use regular queries.
+ *
+ * Note: This object keeps state, so it should not be shared between threads.
+ *
+ * @author pcingola
+ */
+public class IntervalSweep {
+
+	public static final int INITIAL_CAPACITY = 64;
+
+	IntervalForest intervalForest;
+	String chrName; // Current chromosome name (as in query markers)
+	IntervalTreeFlat tree; // Current chromosome's tree (null if not available)
+	Marker treeMarkers[]; // Tree's markers (used to detect changes in the tree)
+	int next; // Next interval (index in 'tree') to be added to the active set
+	int active[]; // Active set (indexes in 'tree', sorted)
+	int activeSize;
+	int lastStart; // Last query's start
+	long countSweep, countTree; // Number of queries by sweep / by regular interval tree queries
+
+	public IntervalSweep(IntervalForest intervalForest) {
+		this.intervalForest = intervalForest;
+		active = new int[INITIAL_CAPACITY];
+	}
+
+	public long getCountSweep() {
+		return countSweep;
+	}
+
+	public long getCountTree() {
+		return countTree;
+	}
+
+	/**
+	 * Add counters from another sweep
+	 */
+	public void merge(IntervalSweep intervalSweep) {
+		if (intervalSweep == null) return;
+		countSweep += intervalSweep.countSweep;
+		countTree += intervalSweep.countTree;
+	}
+
+	/**
+	 * Query all intervals that intersect with 'marker'
+	 */
+	public Markers query(Marker marker) {
+		Markers results = new Markers();
+		query(marker, results);
+		return results;
+	}
+
+	/**
+	 * Query all intervals that intersect with 'marker', add them to 'results'
+	 * Results are the same (and in the same order) as an IntervalTreeFlat query
+	 */
+	public void query(Marker marker, Markers results) {
+		// New chromosome or tree has changed? Start a new sweep
+		String chr = marker.getChromosomeName();
+		if (!chr.equals(chrName) || (tree != null && tree.markers != treeMarkers)) reset(chr);
+
+		// Cannot sweep (tree not available or out of order query)? Use interval tree
+		int qstart = marker.getStart(), qend = marker.getEnd();
+		if (tree == null || !tree.isInSync() || qstart < lastStart) {
+			countTree++;
+			intervalForest.query(marker, results);
+			return;
+		}
+		countSweep++;
+		lastStart = qstart;
+
+		// Remove intervals ending before this query (they cannot intersect any further query)
+		int j = 0;
+		for (int i = 0; i < activeSize; i++) {
+			int idx = active[i];
+			if (tree.end[idx] >= qstart) active[j++] = idx;
+		}
+		activeSize = j;
+
+		// Add intervals starting before query's end
+		for (; next < tree.size && tree.start[next] <= qend; next++)
+			if (tree.end[next] >= qstart) add(next);
+
+		// Report intersecting intervals
+		for (int i = 0; i < activeSize; i++) {
+			int idx = active[i];
+			if (tree.start[idx] <= qend) results.add(tree.markers[idx]);
+		}
+	}
+
+	/**
+	 * Add an interval to the active set
+	 */
+	void add(int idx) {
+		if (activeSize >= active.length) {
+			int newActive[] = new int[2 * active.length];
+			System.arraycopy(active, 0, newActive, 0, activeSize);
+			active = newActive;
+		}
+		active[activeSize++] = idx;
+	}
+
+	/**
+	 * Start a new sweep on chromosome 'chr'
+	 */
+	void reset(String chr) {
+		chrName = chr;
+		Itree itree = intervalForest.getTreeChromo(chr);
+		tree = (itree instanceof IntervalTreeFlat ? (IntervalTreeFlat) itree : null);
+		treeMarkers = (tree != null ? tree.markers : null);
+		next = 0;
+		activeSize = 0;
+		lastStart = Integer.MIN_VALUE;
+	}
+
+	@Override
+	public String toString() {
+		return "Queries: " + (countSweep + countTree) + ", sweep: " + countSweep + ", interval tree: " + countTree;
+	}
+
+}
@@ -167,6 +167,11 @@ public class IntervalTreeArray implements Itree {
 		return results;
 	}
 
+	@Override
+	public void query(Interval marker, Markers results) {
+		query(marker, 0, results);
+	}
+
 	/**
 	 * Query index to find all VCF entries intersecting 'marker', starting from node 'idx'
 	 * Store VCF entries in 'results'
@@ -259,6 +264,11 @@ public class IntervalTreeArray implements Itree {
 		return results;
 	}
 
+	@Override
+	public void stab(int point, Markers results) {
+		stab(point, 0, results);
+	}
+
 	protected void stab(int point, int idx, Markers results) {
 		if (debug) Gpr.debug("stab( " + point + ", " + idx + " )\t" + toString(idx));
 
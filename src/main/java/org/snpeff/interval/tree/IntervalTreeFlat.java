@@ -0,0 +1,214 @@
+package org.snpeff.interval.tree;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Interval;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+
+/**
+ * Interval tree using flat primitive arrays
+ *
+ * Intervals are sorted by start position and stored in arrays. The
+ * tree is implicit: the sorted array is seen as an in-order layout of
+ * a balanced binary tree, where node 'i' at level 'k' has its lowest
+ * 'k' bits set to one (leafs are even indexes). Each node stores the
+ * maximum 'end' of its subtree (augmented interval tree).
+ *
+ * Queries add results to a caller supplied buffer, so they do not
+ * allocate any objects. Results are sorted by start position.
+ *
+ * Reference: Heng Li's 'cgranges' (implicit interval tree)
+ *
+ * @author pcingola
+ */
+public class IntervalTreeFlat implements Itree, Serializable {
+
+	private static final long serialVersionUID = -1863045734612063405L;
+
+	public static final int MAX_LEVEL_LINEAR_SCAN = 3; // Small subtrees are scanned linearly
+
+	protected boolean inSync;
+	protected Markers intervals; // Markers added
+	protected int size; // Number of intervals in arrays
+	protected int maxLevel; // Root node level
+	protected int start[], end[]; // Interval coordinates, sorted by start
+	protected int maxEnd[]; // Maximum 'end' in each subtree
+	protected Marker markers[]; // Markers, sorted by start
+
+	public IntervalTreeFlat() {
+		this(null);
+	}
+
+	/**
+	 * Instantiate an interval tree with a list of intervals
+	 */
+	public IntervalTreeFlat(Markers markers) {
+		intervals = new Markers();
+		if (markers != null) intervals.add(markers);
+		inSync = false;
+	}
+
+	@Override
+	public void add(Marker interval) {
+		intervals.add(interval);
+		inSync = false;
+	}
+
+	@Override
+	public void add(Markers markers) {
+		intervals.add(markers);
+		inSync = false;
+	}
+
+	/**
+	 * Build arrays and implicit tree
+	 */
+	@Override
+	public void build() {
+		if (inSync) return;
+
+		Markers sorted = new Markers();
+		sorted.add(intervals);
+		sorted.sort();
+
+		size = sorted.size();
+		markers = sorted.toArray();
+		start = new int[size];
+		end = new int[size];
+		maxEnd = new int[size];
+		for (int i = 0; i < size; i++) {
+			start[i] = markers[i].getStart();
+			end[i] = markers[i].getEnd();
+		}
+
+		buildMaxEnd();
+		inSync = true;
+	}
+
+	/**
+	 * Calculate maximum 'end' for each subtree
+	 */
+	void buildMaxEnd() {
+		if (size <= 0) {
+			maxLevel = -1;
+			return;
+		}
+
+		// Leafs
+		int lastIdx = 0, last = 0;
+		for (int i = 0; i < size; i += 2) {
+			lastIdx = i;
+			maxEnd[i] = last = end[i];
+		}
+
+		// Internal nodes, one level at a time
+		int k;
+		for (k = 1; (1 << k) <= size; k++) {
+			int x = 1 << (k - 1);
+			int i0 = (x << 1) - 1;
+			int step = x << 2;
+			for (int i = i0; i < size; i += step) {
+				int maxLeft = maxEnd[i - x];
+				int maxRight = (i + x < size ? maxEnd[i + x] : last);
+				maxEnd[i] = Math.max(end[i], Math.max(maxLeft, maxRight));
+			}
+
+			// Update 'last' (maximum of the right-most, incomplete, subtree)
+			lastIdx = ((lastIdx >> k) & 1) != 0 ? lastIdx - x : lastIdx + x;
+			if (lastIdx < size && maxEnd[lastIdx] > last) last = maxEnd[lastIdx];
+		}
+
+		maxLevel = k - 1;
+	}
+
+	@Override
+	public Markers getIntervals() {
+		return intervals;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return intervals.isEmpty();
+	}
+
+	@Override
+	public boolean isInSync() {
+		return inSync;
+	}
+
+	@Override
+	public Iterator<Marker> iterator() {
+		return intervals.iterator();
+	}
+
+	@Override
+	public void load(String fileName, Genome genome) {
+		intervals.load(fileName, genome);
+		inSync = false;
+	}
+
+	@Override
+	public Markers query(Interval interval) {
+		Markers results = new Markers();
+		query(interval, results);
+		return results;
+	}
+
+	@Override
+	public void query(Interval interval, Markers results) {
+		if (!inSync) throw new RuntimeException("Interval tree needs to be updated!");
+		if (size > 0) query(interval.getStart(), interval.getEnd(), maxLevel, (1 << maxLevel) - 1, results);
+	}
+
+	/**
+	 * Add all intervals intersecting [qstart, qend] in the subtree rooted at node 'idx' (level 'k')
+	 */
+	protected void query(int qstart, int qend, int k, int idx, Markers results) {
+		// Small subtree: Linear scan
+		if (k <= MAX_LEVEL_LINEAR_SCAN) {
+			int i0 = (idx >> k) << k;
+			int i1 = Math.min(i0 + (1 << (k + 1)) - 1, size);
+			for (int i = i0; i < i1 && start[i] <= qend; i++)
+				if (end[i] >= qstart) results.add(markers[i]);
+			return;
+		}
+
+		// Left subtree (subtree may be incomplete if 'left' is out of range)
+		int x = 1 << (k - 1);
+		int left = idx - x;
+		if (left >= size || maxEnd[left] >= qstart) query(qstart, qend, k - 1, left, results);
+
+		// This node and right subtree
+		if (idx < size && start[idx] <= qend) {
+			if (end[idx] >= qstart) results.add(markers[idx]);
+			query(qstart, qend, k - 1, idx + x, results);
+		}
+	}
+
+	@Override
+	public int size() {
+		return intervals.size();
+	}
+
+	@Override
+	public Markers stab(int point) {
+		Markers results = new Markers();
+		stab(point, results);
+		return results;
+	}
+
+	@Override
+	public void stab(int point, Markers results) {
+		if (!inSync) throw new RuntimeException("Interval tree needs to be updated!");
+		if (size > 0) query(point, point, maxLevel, (1 << maxLevel) - 1, results);
+	}
+
+	@Override
+	public String toString() {
+		return "Size: " + size + ", levels: " + (maxLevel + 1) + ", in sync: " + inSync;
+	}
+
+}
@@ -129,6 +129,11 @@ public class IntervalTreeOri implements Itree, Serializable {
 		return head.query(interval);
 	}
 
+	@Override
+	public void query(Interval interval, Markers results) {
+		results.add(query(interval));
+	}
+
 	/**
 	 * Size: number of entries in the interval list
 	 */
@@ -147,6 +152,11 @@ public class IntervalTreeOri implements Itree, Serializable {
 		return head.stab(point);
 	}
 
+	@Override
+	public void stab(int point, Markers results) {
+		results.add(stab(point));
+	}
+
 	@Override
 	public String toString() {
 		return nodeString(head, 0);
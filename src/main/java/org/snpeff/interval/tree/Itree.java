@@ -49,6 +49,12 @@ public interface Itree extends Iterable<Marker> {
 	 */
 	public Markers query(Interval interval);
 
+	/**
+	 * Perform an interval query, adding the intervals that
+	 * intersect with 'interval' to 'results'
+	 */
+	public void query(Interval interval, Markers results);
+
 	/**
 	 * Size: number of entries in this tree
 	 */
@@ -60,4 +66,10 @@ public interface Itree extends Iterable<Marker> {
 	 */
 	public Markers stab(int point);
 
+	/**
+	 * Perform a stabbing query, adding the intervals
+	 * intersecting 'point' to 'results'
+	 */
+	public void stab(int point, Markers results);
+
 }
@@ -17,11 +17,13 @@ public class Pwm {
 	public static final char BASES[] = { 'A', 'C', 'G', 'T' };
 	int countMatrix[][]; // Keep counts for each base and position: countMatrix[base][position]
 	int count[]; // Keep counts for each base
-	double logOdds[][];
+	volatile double logOdds[][];
 	int length;
 	int totalCount;
 	String name, id;
-	char bestSequence[];
+	volatile char bestSequence[]; // Cached values are created before they are published, so threads never see partial results
+	volatile String bestSequenceStr;
+	volatile double bestScore = Double.NaN;
 
 	public Pwm(int length) {
 		this.length = length;
@@ -75,7 +77,7 @@ public class Pwm {
 	 * Reference: http://en.wikipedia.org/wiki/Position-specific_scoring_matrix
 	 */
 	public void calcLogOddsWeight() {
-		logOdds = new double[BASES.length][length];
+		double logOdds[][] = new double[BASES.length][length];
 		double b[] = new double[BASES.length];
 
 		// Update counts
@@ -98,6 +100,8 @@ public class Pwm {
 				logOdds[baseNum][i] = -p * Math.log(p / b[baseNum]) / LOG2;
 			}
 		}
+
+		this.logOdds = logOdds;
 	}
 
 	/**
@@ -105,6 +109,7 @@ public class Pwm {
 	 * @return
 	 */
 	public char[] getBestSequence() {
+		char bestSequence[] = this.bestSequence;
 		if (bestSequence == null) {
 			bestSequence = new char[length];
 
@@ -118,13 +123,32 @@ public class Pwm {
 				}
 				bestSequence[i] = BASES[maxb];
 			}
+
+			this.bestSequence = bestSequence;
 		}
 
 		return bestSequence;
 	}
 
+	/**
+	 * Score of the best matching sequence (cached)
+	 */
+	public double getBestScore() {
+		double bestScore = this.bestScore;
+		if (Double.isNaN(bestScore)) {
+			bestScore = score(getBestSequenceStr());
+			this.bestScore = bestScore;
+		}
+		return bestScore;
+	}
+
 	public String getBestSequenceStr() {
-		return new String(getBestSequence());
+		String bestSequenceStr = this.bestSequenceStr;
+		if (bestSequenceStr == null) {
+			bestSequenceStr = new String(getBestSequence());
+			this.bestSequenceStr = bestSequenceStr;
+		}
+		return bestSequenceStr;
 	}
 
 	/**
@@ -167,6 +191,15 @@ public class Pwm {
 		return length;
 	}
 
+	/**
+	 * Best sequence and score are cached: Reset them when counts change
+	 */
+	void resetBest() {
+		bestSequence = null;
+		bestSequenceStr = null;
+		bestScore = Double.NaN;
+	}
+
 	/**
 	 * Calculate PWM score for a string
 	 */
@@ -181,10 +214,21 @@ public class Pwm {
 		return score / length;
 	}
 
+	/**
+	 * Score difference when the best sequence has 'base' at 'position', i.e.
+	 * 'score(bestSequence) - score(bestSequenceChanged)'. Only the log-odds
+	 * matrix column at 'position' is used (no sequences are created)
+	 */
+	public double scoreDelta(char base, int position) {
+		if (logOdds == null) calcLogOddsWeight();
+		return (getLogOdds(getBestSequence()[position], position) - getLogOdds(base, position)) / length;
+	}
+
 	/**
 	 * Set PWM as a perfect match to a dna sequence
 	 */
 	public void set(String dna) {
+		resetBest();
 		char bases[] = dna.toCharArray();
 		for (int i = 0; i < bases.length; i++) {
 			// Fake count
@@ -199,6 +243,7 @@ public class Pwm {
 	 * Set counts for one base
 	 */
 	public void setCounts(char base, int counts[]) {
+		resetBest();
 		int rowIdx = base2int(base);
 		for (int i = 0; i < counts.length; i++)
 			countMatrix[rowIdx][i] = counts[i];
@@ -276,6 +321,7 @@ public class Pwm {
 	 * Update counts matrix.
 	 */
 	public void updateCounts(String dna, int inc) {
+		resetBest();
 		totalCount += inc;
 		char bases[] = dna.toCharArray();
 
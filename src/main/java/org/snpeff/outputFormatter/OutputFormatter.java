@@ -10,6 +10,11 @@ import org.snpeff.filter.VariantEffectFilter;
 import org.snpeff.interval.Marker;
 import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.stats.AnnotationMetrics;
+import org.snpeff.stats.AnnotationMetrics.Stage;
+import org.snpeff.util.BgzfOutputStream;
+
+import net.sf.samtools.tabix.TabixIndexWriter;
 
 /**
  * Formats output
@@ -23,6 +28,7 @@ import org.snpeff.snpEffect.VariantEffect;
 public abstract class OutputFormatter {
 
 	boolean supressOutput = false; // Do not print anything (used for testCases)
+	boolean bgzip; // Write output file compressed (BGZF) and create a tabix index (if possible)
 	boolean showHeader = true; // Show header information
 	boolean useHgvs; // Use HGVS notation
 	boolean useGeneId; // Use Gene ID instead of gene name
@@ -30,11 +36,15 @@ public abstract class OutputFormatter {
 	boolean useOicr; // Use OICR tag
 	int sectionNum = 0;
 	int outOffset = 1;
+	int bgzipThreads = 1; // Number of threads used to compress output blocks
 	String commandLineStr;
 	String version;
 	String chrStr;
 	String outputFile = null;
 	BufferedWriter out;
+	BgzfOutputStream bgzfOut; // Compressed output (only if 'bgzip' is set)
+	TabixIndexWriter tabixIndexWriter; // Index created while writing compressed output
+	StringBuilder outBuffer; // Buffer output instead of printing it (used in multi-threaded mode)
 	Marker section;
 	VariantEffectFilter variantEffectResutFilter = null; // Filter prediction results
 	List<VariantEffect> variantEffects;
@@ -91,6 +101,20 @@ public abstract class OutputFormatter {
 				throw new RuntimeException(e);
 			}
 		}
+
+		if (bgzfOut != null) {
+			try {
+				bgzfOut.close();
+
+				// Write tabix index
+				if (tabixIndexWriter != null) {
+					if (tabixIndexWriter.isSorted()) tabixIndexWriter.write(outputFile + ".tbi", bgzfOut);
+					else System.err.println("WARNING: Cannot create tabix index for file '" + outputFile + "', file is not sorted: " + tabixIndexWriter.getUnsortedMessage());
+				}
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
 	}
 
 	/**
@@ -117,32 +141,129 @@ public abstract class OutputFormatter {
 		return supressOutput ? null : sb.toString();
 	}
 
+	/**
+	 * Get buffered output and reset buffer
+	 */
+	public String getBufferedOutput() {
+		String outStr = outBuffer.toString();
+		outBuffer.setLength(0);
+		return outStr;
+	}
+
+	/**
+	 * Can the output be indexed using tabix?
+	 */
+	protected boolean isTabixIndexable() {
+		return false;
+	}
+
+	/**
+	 * Annotation metrics (null if disabled)
+	 */
+	protected AnnotationMetrics metrics() {
+		return config != null ? config.getMetrics() : null;
+	}
+
 	/**
 	 * Print a "raw" string to a file
 	 */
 	public void print(String outStr) {
+		// Buffered output? Don't print, just append to buffer
+		if (outBuffer != null) {
+			if ((outStr != null) && (!outStr.isEmpty())) {
+				if (outBuffer.length() > 0) outBuffer.append('\n');
+				outBuffer.append(outStr);
+			}
+			return;
+		}
+
+		AnnotationMetrics metrics = metrics();
+		long start = (metrics != null ? System.nanoTime() : 0);
 		try {
 			// Open output file?
-			if ((outputFile != null) && (out == null)) out = new BufferedWriter(new FileWriter(outputFile));
+			if ((outputFile != null) && (out == null) && (bgzfOut == null)) {
+				if (bgzip) {
+					bgzfOut = new BgzfOutputStream(outputFile, bgzipThreads);
+					if (isTabixIndexable()) tabixIndexWriter = new TabixIndexWriter();
+				} else out = new BufferedWriter(new FileWriter(outputFile));
+			}
 
 			// Write something?
 			if ((outStr != null) && (!outStr.isEmpty())) {
 				// Write to file?
-				if (out != null) {
+				if (bgzfOut != null) {
+					printBgzf(outStr);
+				} else if (out != null) {
 					out.write(outStr);
 					out.write("\n");
 				} else if (!supressOutput) System.out.println(outStr); // Show on STDOUT
+
+				if (metrics != null) metrics.add(Stage.WRITE, start);
 			}
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * Write to compressed output, adding each line to the tabix index
+	 */
+	void printBgzf(String outStr) throws IOException {
+		if (tabixIndexWriter == null) {
+			bgzfOut.write(outStr.getBytes());
+			bgzfOut.write('\n');
+			return;
+		}
+
+		for (String line : outStr.split("\n", -1)) {
+			long start = bgzfOut.getPosition();
+			bgzfOut.write(line.getBytes());
+			bgzfOut.write('\n');
+			tabixIndexWriter.add(line, start, bgzfOut.getPosition());
+		}
+	}
+
+	/**
+	 * Print header (if needed), without printing any section.
+	 * This is used when sections are formatted by other
+	 * output formatters (e.g. worker threads).
+	 */
+	public void printHeader(Marker marker) {
+		startSection(marker);
+		if (showHeader && (sectionNum == 0)) {
+			if (!supressOutput) print(toStringHeader());
+			sectionNum++;
+		}
+	}
+
 	/**
 	 * End this section and print results
 	 */
 	public void printSection(Marker marker) {
-		print(endSection(marker));
+		AnnotationMetrics metrics = metrics();
+		long start = (metrics != null ? System.nanoTime() : 0);
+		String outStr = endSection(marker);
+		if (metrics != null) {
+			if (outStr != null) metrics.add(Stage.FORMAT, start);
+			else metrics.addTime(Stage.FORMAT, start); // Nothing formatted (e.g. section ignored by this formatter)
+		}
+		print(outStr);
+	}
+
+	public void setBgzip(boolean bgzip) {
+		this.bgzip = bgzip;
+	}
+
+	public void setBgzipThreads(int bgzipThreads) {
+		this.bgzipThreads = bgzipThreads;
+	}
+
+	/**
+	 * Buffer output instead of printing it.
+	 * Buffered output is retrieved using 'getBufferedOutput()'
+	 */
+	public void setBufferOutput(boolean bufferOutput) {
+		outBuffer = bufferOutput ? new StringBuilder() : null;
 	}
 
 	public void setChrStr(String chrStr) {
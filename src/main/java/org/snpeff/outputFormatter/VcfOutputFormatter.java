@@ -13,6 +13,8 @@ import org.snpeff.interval.Transcript;
 import org.snpeff.interval.Variant;
 import org.snpeff.snpEffect.LossOfFunction;
 import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.stats.AnnotationMetrics;
+import org.snpeff.stats.AnnotationMetrics.Stage;
 import org.snpeff.util.Gpr;
 import org.snpeff.util.KeyValue;
 import org.snpeff.vcf.EffFormatVersion;
@@ -167,9 +169,12 @@ public class VcfOutputFormatter extends OutputFormatter {
 		// Add LOF info?
 		if (lossOfFunction) {
 			// Perform LOF analysis and add annotations
+			AnnotationMetrics metrics = metrics();
+			long start = (metrics != null ? System.nanoTime() : 0);
 			LossOfFunction lof = new LossOfFunction(config, variantEffects);
 			if (lof.isLof()) vcfEntry.addInfo(LossOfFunction.VCF_INFO_LOF_NAME, lof.toStringVcfLof());
 			if (lof.isNmd()) vcfEntry.addInfo(LossOfFunction.VCF_INFO_NMD_NAME, lof.toStringVcfNmd());
+			if (metrics != null) metrics.add(Stage.LOF, start);
 		}
 
 		// Add custom markers info fields
@@ -254,6 +259,11 @@ public class VcfOutputFormatter extends OutputFormatter {
 		return newLines;
 	}
 
+	@Override
+	protected boolean isTabixIndexable() {
+		return true;
+	}
+
 	public void setFormatVersion(EffFormatVersion formatVersion) {
 		this.formatVersion = formatVersion;
 	}
@@ -267,6 +277,13 @@ public class VcfOutputFormatter extends OutputFormatter {
 		this.lossOfFunction = lossOfFunction;
 	}
 
+	/**
+	 * Add all vcf entries to a list (used only for debugging and test-cases)
+	 */
+	public void setVcfEntries(List<VcfEntry> vcfEntries) {
+		this.vcfEntries = vcfEntries;
+	}
+
 	@Override
 	public void setOutOffset(int outOffset) {
 		throw new RuntimeException("Cannot set output offset on '" + this.getClass().getSimpleName() + "' formatter!");
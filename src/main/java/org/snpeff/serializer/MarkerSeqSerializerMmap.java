@@ -0,0 +1,193 @@
+package org.snpeff.serializer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.snpeff.SnpEff;
+import org.snpeff.binseq.DnaSequence;
+import org.snpeff.binseq.DnaSequenceMmap;
+import org.snpeff.binseq.coder.DnaCoder;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.MarkerSeq;
+import org.snpeff.interval.Markers;
+
+/**
+ * Serialize genomic sequences (MarkerSeq) to (and from) a binary, memory-mappable, file
+ *
+ * File layout (all numbers are big endian):
+ * 		- Header: software name and version (length + UTF-8 bytes), format version, number of sequences
+ * 		- One entry per sequence:
+ * 			- Chromosome name and ID (length + UTF-8 bytes)
+ * 			- Start, end, strand, sequence length
+ * 			- Number of 'N' runs, followed by runs (start, end) relative to sequence start
+ * 			- Sequence: 2 bits per base, packed in 'long' words (same as DnaSequence)
+ *
+ * Note: Sequences are not loaded to memory, they are decoded from the
+ * 		mapped file on each access (see DnaSequenceMmap)
+ *
+ * @author pcingola
+ */
+public class MarkerSeqSerializerMmap {
+
+	public static final int FORMAT_VERSION = 1;
+
+	Genome genome;
+	ByteBuffer buffer;
+	int pos;
+
+	public MarkerSeqSerializerMmap(Genome genome) {
+		this.genome = genome;
+	}
+
+	/**
+	 * Load all sequences from file
+	 */
+	public Markers load(String fileName) {
+		Markers markers = new Markers();
+		open(fileName);
+
+		int numSeqs = buffer.getInt(pos);
+		pos += 4;
+		for (int i = 0; i < numSeqs; i++) {
+			String chr = readString();
+			String id = readString();
+			int start = buffer.getInt(pos);
+			int end = buffer.getInt(pos + 4);
+			boolean strandMinus = buffer.get(pos + 8) != 0;
+			int length = buffer.getInt(pos + 9);
+			int numRuns = buffer.getInt(pos + 13);
+			pos += 17;
+
+			// 'N' runs
+			int nStart[] = new int[numRuns], nEnd[] = new int[numRuns];
+			for (int r = 0; r < numRuns; r++, pos += 8) {
+				nStart[r] = buffer.getInt(pos);
+				nEnd[r] = buffer.getInt(pos + 4);
+			}
+
+			// Sequence (not copied, just referenced)
+			MarkerSeq ms = new MarkerSeq(genome.getOrCreateChromosome(chr), start, end, strandMinus, id);
+			ms.setSequence(new DnaSequenceMmap(buffer, pos, length, nStart, nEnd));
+			markers.add(ms);
+			pos += 8 * DnaCoder.get().length2words(length);
+		}
+
+		return markers;
+	}
+
+	/**
+	 * Map file to memory and read header
+	 */
+	void open(String fileName) {
+		try (RandomAccessFile raf = new RandomAccessFile(fileName, "r"); FileChannel channel = raf.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) throw new RuntimeException("Sequence file '" + fileName + "' is too large to be memory mapped (" + channel.size() + " bytes)");
+			MappedByteBuffer mbb = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer = mbb;
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading sequence file '" + fileName + "'", e);
+		}
+
+		// Header
+		pos = 0;
+		String soft = readString();
+		String versionNumber = readString();
+		int formatVersion = buffer.getInt(pos);
+		pos += 4;
+		if (!soft.equals(SnpEff.SOFTWARE_NAME)) throw new RuntimeException("Sequence file '" + fileName + "' is not compatible with this program version. Try installing the appropriate database.");
+		if (!versionNumber.equals(SnpEff.VERSION_MAJOR) || (formatVersion != FORMAT_VERSION)) throw new RuntimeException("Sequence file '" + fileName + "' is not compatible with this program version:"//
+				+ "\n\tDatabase version : '" + versionNumber + "', format " + formatVersion //
+				+ "\n\tProgram version  : '" + SnpEff.VERSION_MAJOR + "', format " + FORMAT_VERSION //
+				+ "\nTry installing the appropriate database." //
+		);
+	}
+
+	/**
+	 * Read a string (length and UTF-8 bytes)
+	 */
+	String readString() {
+		byte bytes[] = new byte[buffer.getInt(pos)];
+		pos += 4;
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = buffer.get(pos++);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Save all sequences (i.e. MarkerSeq) in 'markers' to a file
+	 */
+	public void save(String fileName, Markers markers) {
+		List<MarkerSeq> seqs = new ArrayList<>();
+		for (Marker m : markers)
+			if (m instanceof MarkerSeq) seqs.add((MarkerSeq) m);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+			writeString(out, SnpEff.SOFTWARE_NAME);
+			writeString(out, SnpEff.VERSION_MAJOR);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(seqs.size());
+
+			for (MarkerSeq ms : seqs)
+				write(out, ms);
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing sequence file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Write a sequence
+	 */
+	void write(DataOutputStream out, MarkerSeq ms) throws IOException {
+		writeString(out, ms.getChromosomeName());
+		writeString(out, ms.getId() != null ? ms.getId() : "");
+		out.writeInt(ms.getStart());
+		out.writeInt(ms.getEnd());
+		out.writeByte(ms.isStrandMinus() ? 1 : 0);
+
+		// Find 'N' runs
+		DnaSequence seq = ms.getDnaSequence();
+		int len = seq.length();
+		char bases[] = new char[len];
+		seq.getBases(0, len, bases, 0);
+		List<Integer> runs = new ArrayList<>();
+		for (int i = 0; i < len; i++) {
+			if (bases[i] != 'N') continue;
+			int j = i;
+			while (j < len && bases[j] == 'N')
+				j++;
+			runs.add(i);
+			runs.add(j);
+			i = j;
+		}
+
+		out.writeInt(len);
+		out.writeInt(runs.size() / 2);
+		for (int r : runs)
+			out.writeInt(r);
+
+		// Packed sequence
+		long codes[] = seq.getCodes();
+		int numWords = DnaCoder.get().length2words(len);
+		for (int i = 0; i < numWords; i++)
+			out.writeLong(codes != null && i < codes.length ? codes[i] : 0);
+	}
+
+	/**
+	 * Write a string (length and UTF-8 bytes)
+	 */
+	void writeString(DataOutputStream out, String str) throws IOException {
+		byte bytes[] = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+}
@@ -175,64 +175,7 @@ public class MarkerSerializer {
 				String idStr = fields[1];
 				int id = Gpr.parseIntSafe(idStr);
 
-				Marker m = null;
-				switch (type) {
-				case GENOME:
-					if (genome == null) m = new Genome();
-					else m = genome;
-					break;
-				case CHROMOSOME:
-					m = new Chromosome();
-					break;
-				case SEQUENCE:
-					m = new MarkerSeq();
-					break;
-				case GENE:
-					m = new Gene();
-					break;
-				case TRANSCRIPT:
-					m = new Transcript();
-					break;
-				case CDS:
-					m = new Cds();
-					break;
-				case EXON:
-					m = new Exon();
-					break;
-				case UTR_3_PRIME:
-					m = new Utr3prime();
-					break;
-				case UTR_5_PRIME:
-					m = new Utr5prime();
-					break;
-				case RARE_AMINO_ACID:
-					m = new RareAminoAcid();
-					break;
-				case SPLICE_SITE_ACCEPTOR:
-					m = new SpliceSiteAcceptor();
-					break;
-				case SPLICE_SITE_BRANCH:
-					m = new SpliceSiteBranch();
-					break;
-				case SPLICE_SITE_BRANCH_U12:
-					m = new SpliceSiteBranchU12();
-					break;
-				case SPLICE_SITE_DONOR:
-					m = new SpliceSiteDonor();
-					break;
-				case NEXT_PROT:
-					m = new NextProt();
-					break;
-				case MOTIF:
-					m = new Motif();
-					break;
-				case REGULATION:
-					m = new Regulation();
-					break;
-
-				default:
-					throw new RuntimeException("Unimplemented for type '" + type + "'");
-				}
+				Marker m = newMarker(type);
 
 				try {
 					// Parse line
@@ -276,6 +219,51 @@ public class MarkerSerializer {
 		return markers;
 	}
 
+	/**
+	 * Create a new (empty) marker of a given type
+	 */
+	protected Marker newMarker(EffectType type) {
+		switch (type) {
+		case GENOME:
+			return genome != null ? genome : new Genome();
+		case CHROMOSOME:
+			return new Chromosome();
+		case SEQUENCE:
+			return new MarkerSeq();
+		case GENE:
+			return new Gene();
+		case TRANSCRIPT:
+			return new Transcript();
+		case CDS:
+			return new Cds();
+		case EXON:
+			return new Exon();
+		case UTR_3_PRIME:
+			return new Utr3prime();
+		case UTR_5_PRIME:
+			return new Utr5prime();
+		case RARE_AMINO_ACID:
+			return new RareAminoAcid();
+		case SPLICE_SITE_ACCEPTOR:
+			return new SpliceSiteAcceptor();
+		case SPLICE_SITE_BRANCH:
+			return new SpliceSiteBranch();
+		case SPLICE_SITE_BRANCH_U12:
+			return new SpliceSiteBranchU12();
+		case SPLICE_SITE_DONOR:
+			return new SpliceSiteDonor();
+		case NEXT_PROT:
+			return new NextProt();
+		case MOTIF:
+			return new Motif();
+		case REGULATION:
+			return new Regulation();
+
+		default:
+			throw new RuntimeException("Unimplemented for type '" + type + "'");
+		}
+	}
+
 	/**
 	 * Save all markers
 	 */
@@ -302,12 +290,19 @@ public class MarkerSerializer {
 
 		// Print line
 		String line = m.serializeSave(this);
-		outFile.print(line + "\n");
-		lineNum++;
+		saveLine(m, id, line);
 
 		return id;
 	}
 
+	/**
+	 * Save a marker's serialized line
+	 */
+	protected void saveLine(Marker m, int id, String line) {
+		outFile.print(line + "\n");
+		lineNum++;
+	}
+
 	/**
 	 * Save data to file
 	 */
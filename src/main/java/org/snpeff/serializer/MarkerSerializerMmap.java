@@ -0,0 +1,756 @@
+package org.snpeff.serializer;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.snpeff.SnpEff;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.MarkerParentId;
+import org.snpeff.interval.Markers;
+import org.snpeff.snpEffect.EffectType;
+import org.snpeff.util.Gpr;
+
+/**
+ * Serialize markers to (and from) a binary, memory-mappable, file
+ *
+ * File layout (all numbers are big endian):
+ * 		- Header: software name and version (length + UTF-8 bytes), format version, flags
+ * 		- Counts: number of markers, strings, chromosomes and tables
+ * 		- Marker columns (one entry per marker): table, row, strand, start, end, parent ID, marker ID string
+ * 		- Tables (one per marker type): type name, number of rows and fields, one typed column per field
+ * 		- Chromosome index: chromosome name and IDs of all markers in each chromosome
+ * 		- String pool: offsets and UTF-8 bytes
+ *
+ * Note: Type specific fields (e.g. a transcript's exon IDs, a gene's biotype) are stored
+ * 		in one table per marker type. Each field is a column and the column type is chosen
+ * 		when saving: int, boolean, string (index in the string pool) or list of ints (e.g.
+ * 		marker IDs). Markers read the columns directly when they are materialized (i.e.
+ * 		'getNextFieldInt()' does not parse a string). Column values are always converted
+ * 		back to exactly the same strings as the text format (MarkerSerializer).
+ *
+ * Note: Marker types are stored by name (string pool), so the format does not depend
+ * 		on the order of EffectType values.
+ *
+ * Note: Serialization IDs are the same as in MarkerSerializer (i.e. marker 'id' is stored
+ * 		at index 'id - 1').
+ *
+ * Note: Markers are materialized lazily: 'load(fileName, chrNames)' only creates the
+ * 		markers of the requested chromosomes (and their parents / children).
+ *
+ * @author pcingola
+ */
+public class MarkerSerializerMmap extends MarkerSerializer {
+
+	public static final int FORMAT_VERSION = 2;
+	public static final int NUM_COMMON_FIELDS = 7; // Fields serialized by Marker.serializeSave()
+	public static final int FLAG_CODING_INFO = 1; // Genome has protein coding info (see Genome.hasCodingInfo())
+
+	// Column types
+	static final int COLUMN_INT = 0;
+	static final int COLUMN_BOOLEAN = 1;
+	static final int COLUMN_STRING = 2;
+	static final int COLUMN_INT_LIST = 3;
+
+	/**
+	 * Type specific fields for all markers of one type
+	 */
+	static class Table {
+		EffectType type;
+		int typeName; // Type name (index in string pool)
+		int numRows, numFields;
+		int columnType[];
+		int posColumn[]; // Column start. For 'int list' columns: Offsets ('numRows + 1' ints), followed by values
+	}
+
+	// Saving
+	String lines[];
+	String chrNames[];
+
+	// Loading
+	String fileName;
+	ByteBuffer buffer;
+	int flags;
+	int numMarkers, numStrings, numChromosomes;
+	int posTable, posRow, posStrand, posStart, posEnd, posParent, posIdStr;
+	int posChrName, posChrOffset, posChrMarkers;
+	int posStrOffset, posStrBytes;
+	Table tables[];
+	Marker markers[];
+	List<Marker> pendingParent;
+	int parsedIdx; // Marker being parsed (index)
+
+	public MarkerSerializerMmap() {
+		this(null);
+	}
+
+	public MarkerSerializerMmap(Genome genome) {
+		super(genome);
+	}
+
+	/**
+	 * Chromosome names available in the file
+	 */
+	public List<String> chromosomeNames() {
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < numChromosomes; i++)
+			names.add(string(buffer.getInt(posChrName + 4 * i)));
+		return names;
+	}
+
+	/**
+	 * Boolean value of field number 'fieldNum' for marker being parsed
+	 */
+	boolean fieldBoolean(int fieldNum) {
+		if (fieldNum == 6) return buffer.get(posStrand + parsedIdx) != 0;
+
+		Table table = fieldTable(fieldNum);
+		if (table != null && table.columnType[fieldNum - NUM_COMMON_FIELDS] == COLUMN_BOOLEAN) {
+			return buffer.get(table.posColumn[fieldNum - NUM_COMMON_FIELDS] + buffer.getInt(posRow + 4 * parsedIdx)) != 0;
+		}
+
+		return Gpr.parseBoolSafe(fieldString(fieldNum));
+	}
+
+	/**
+	 * Int value of field number 'fieldNum' for marker being parsed
+	 */
+	int fieldInt(int fieldNum) {
+		switch (fieldNum) {
+		case 1:
+			return parsedIdx + 1;
+		case 2:
+			return buffer.getInt(posParent + 4 * parsedIdx);
+		case 3:
+			return buffer.getInt(posStart + 4 * parsedIdx);
+		case 4:
+			return buffer.getInt(posEnd + 4 * parsedIdx);
+		default:
+			Table table = fieldTable(fieldNum);
+			if (table != null && table.columnType[fieldNum - NUM_COMMON_FIELDS] == COLUMN_INT) {
+				return buffer.getInt(table.posColumn[fieldNum - NUM_COMMON_FIELDS] + 4 * buffer.getInt(posRow + 4 * parsedIdx));
+			}
+			return Gpr.parseIntSafe(fieldString(fieldNum));
+		}
+	}
+
+	/**
+	 * String value of field number 'fieldNum' for marker being parsed
+	 * Note: This is exactly the same string as in the text format
+	 */
+	String fieldString(int fieldNum) {
+		switch (fieldNum) {
+		case 0:
+			return tables[buffer.getInt(posTable + 4 * parsedIdx)].type.name();
+		case 1:
+		case 2:
+		case 3:
+		case 4:
+			return Integer.toString(fieldInt(fieldNum));
+		case 5:
+			return string(buffer.getInt(posIdStr + 4 * parsedIdx));
+		case 6:
+			return Boolean.toString(fieldBoolean(fieldNum));
+		default:
+			Table table = fieldTable(fieldNum);
+			if (table == null) return "";
+
+			int col = fieldNum - NUM_COMMON_FIELDS;
+			int pos = table.posColumn[col];
+			int row = buffer.getInt(posRow + 4 * parsedIdx);
+			switch (table.columnType[col]) {
+			case COLUMN_INT:
+				return Integer.toString(buffer.getInt(pos + 4 * row));
+
+			case COLUMN_BOOLEAN:
+				return Boolean.toString(buffer.get(pos + row) != 0);
+
+			case COLUMN_STRING:
+				return string(buffer.getInt(pos + 4 * row));
+
+			case COLUMN_INT_LIST:
+				StringBuilder sb = new StringBuilder();
+				int posValues = pos + 4 * (table.numRows + 1);
+				int end = buffer.getInt(pos + 4 * (row + 1));
+				for (int i = buffer.getInt(pos + 4 * row); i < end; i++)
+					sb.append(sb.length() > 0 ? "," : "").append(buffer.getInt(posValues + 4 * i));
+				return sb.toString();
+
+			default:
+				throw new RuntimeException("Unknown column type " + table.columnType[col] + " in file '" + fileName + "'");
+			}
+		}
+	}
+
+	/**
+	 * Table for a type specific field of the marker being parsed (null if the field does not exist)
+	 */
+	Table fieldTable(int fieldNum) {
+		Table table = tables[buffer.getInt(posTable + 4 * parsedIdx)];
+		return fieldNum - NUM_COMMON_FIELDS < table.numFields ? table : null;
+	}
+
+	@Override
+	protected TxtSerializable getById(int id) {
+		if (id <= 0 || id > numMarkers) return null;
+		Marker m = markers[id - 1];
+		if (m == null) m = materialize(id);
+		return m;
+	}
+
+	@Override
+	public String getNextField() {
+		return fieldString(parsedField++);
+	}
+
+	@Override
+	public boolean getNextFieldBoolean() {
+		return fieldBoolean(parsedField++);
+	}
+
+	@Override
+	public int getNextFieldInt() {
+		return fieldInt(parsedField++);
+	}
+
+	@Override
+	public Markers getNextFieldMarkers() {
+		int fieldNum = parsedField;
+		Table table = fieldTable(fieldNum);
+		if (table == null || table.columnType[fieldNum - NUM_COMMON_FIELDS] != COLUMN_INT_LIST) return super.getNextFieldMarkers();
+		parsedField++;
+
+		// Read IDs directly from the column
+		int pos = table.posColumn[fieldNum - NUM_COMMON_FIELDS];
+		int posValues = pos + 4 * (table.numRows + 1);
+		int row = buffer.getInt(posRow + 4 * parsedIdx);
+		int start = buffer.getInt(pos + 4 * row);
+		int end = buffer.getInt(pos + 4 * (row + 1));
+
+		Markers markers = new Markers();
+		for (int i = start; i < end; i++) {
+			int id = buffer.getInt(posValues + 4 * i);
+			Marker m = getMarkerById(id); // Note: This might materialize the marker (parsing state is restored)
+			if (m != null) markers.add(m);
+			else throw new RuntimeException("Marker '" + id + "' not found. This should never happen!");
+		}
+		return markers;
+	}
+
+	/**
+	 * Does the genome have protein coding info?
+	 * Note: This refers to all genes in the file, not only the ones loaded
+	 */
+	public boolean isCodingInfo() {
+		return (flags & FLAG_CODING_INFO) != 0;
+	}
+
+	/**
+	 * Load all markers from file
+	 */
+	@Override
+	public Markers load(String fileName) {
+		return load(fileName, null);
+	}
+
+	/**
+	 * Load markers from file, only materializing markers for chromosomes in 'chrNames'
+	 * Note: If 'chrNames' is null, all markers are loaded
+	 */
+	public Markers load(String fileName, Collection<String> chrNames) {
+		open(fileName);
+
+		if (chrNames == null) {
+			// Load all markers
+			for (int id = 1; id <= numMarkers; id++)
+				getById(id);
+		} else {
+			// Markers not belonging to any chromosome (e.g. genome) are always loaded
+			Set<String> chrs = new HashSet<>();
+			for (String chr : chrNames)
+				chrs.add(Chromosome.simpleName(chr));
+
+			for (int i = 0; i < numChromosomes; i++) {
+				String chr = string(buffer.getInt(posChrName + 4 * i));
+				if (chr.isEmpty() || chrs.contains(chr)) {
+					int start = buffer.getInt(posChrOffset + 4 * i);
+					int end = buffer.getInt(posChrOffset + 4 * (i + 1));
+					for (int j = start; j < end; j++)
+						getById(buffer.getInt(posChrMarkers + 4 * j));
+				}
+			}
+		}
+
+		// Assign parents
+		for (int i = 0; i < pendingParent.size(); i++) {
+			Marker m = pendingParent.get(i);
+			if (m.getParent() instanceof MarkerParentId) {
+				MarkerParentId mpid = (MarkerParentId) m.getParent();
+				m.setParent(getMarkerById(mpid.getParentId())); // Note: This might materialize more markers, which are appended to 'pendingParent'
+			}
+		}
+		pendingParent.clear();
+
+		// Collect all materialized markers
+		Markers markersLoaded = new Markers();
+		for (Marker m : markers)
+			if (m != null) markersLoaded.add(m);
+
+		return markersLoaded;
+	}
+
+	/**
+	 * Create a marker (from the mapped file)
+	 */
+	Marker materialize(int id) {
+		int idx = id - 1;
+		EffectType type = tables[buffer.getInt(posTable + 4 * idx)].type;
+		Marker m = newMarker(type);
+		markers[idx] = m;
+
+		// Parse. Note: Parsing may materialize other markers (e.g. a
+		// transcript's exons), so we save and restore the parsing state
+		int parsedIdxOri = parsedIdx;
+		int parsedFieldOri = parsedField;
+		parsedIdx = idx;
+		parsedField = 0;
+		try {
+			m.serializeParse(this);
+		} catch (Throwable t) {
+			int fieldNum = parsedField;
+			Table table = tables[buffer.getInt(posTable + 4 * idx)];
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < NUM_COMMON_FIELDS + table.numFields; i++)
+				sb.append(i > 0 ? "\t" : "").append(fieldString(i));
+			throw new RuntimeException("Error parsing marker ID " + id + " from file '" + fileName + "'\n\t" + sb + "\n\tField [" + fieldNum + "] : '" + (fieldNum < NUM_COMMON_FIELDS + table.numFields ? fieldString(fieldNum) : "-") + "'", t);
+		} finally {
+			parsedIdx = parsedIdxOri;
+			parsedField = parsedFieldOri;
+		}
+
+		pendingParent.add(m);
+		return m;
+	}
+
+	/**
+	 * Map file to memory and read header
+	 */
+	void open(String fileName) {
+		this.fileName = fileName;
+
+		try (RandomAccessFile raf = new RandomAccessFile(fileName, "r"); FileChannel channel = raf.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) throw new RuntimeException("Database file '" + fileName + "' is too large to be memory mapped (" + channel.size() + " bytes)");
+			MappedByteBuffer mbb = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			// Header
+			buffer = mbb;
+			String soft = readString(0);
+			int pos = 4 + buffer.getInt(0);
+			String versionNumber = readString(pos);
+			pos += 4 + buffer.getInt(pos);
+			int formatVersion = buffer.getInt(pos);
+			if (!soft.equals(SnpEff.SOFTWARE_NAME)) throw new RuntimeException("Database file '" + fileName + "' is not compatible with this program version. Try installing the appropriate database.");
+			if (!versionNumber.equals(SnpEff.VERSION_MAJOR) || (formatVersion != FORMAT_VERSION)) throw new RuntimeException("Database file '" + fileName + "' is not compatible with this program version:"//
+					+ "\n\tDatabase version : '" + versionNumber + "', format " + formatVersion //
+					+ "\n\tProgram version  : '" + SnpEff.VERSION_MAJOR + "', format " + FORMAT_VERSION //
+					+ "\nTry installing the appropriate database." //
+			);
+			flags = buffer.getInt(pos + 4);
+			numMarkers = buffer.getInt(pos + 8);
+			numStrings = buffer.getInt(pos + 12);
+			numChromosomes = buffer.getInt(pos + 16);
+			int numTables = buffer.getInt(pos + 20);
+			pos += 24;
+
+			// Marker columns
+			posTable = pos;
+			posRow = posTable + 4 * numMarkers;
+			posStrand = posRow + 4 * numMarkers;
+			posStart = posStrand + numMarkers;
+			posEnd = posStart + 4 * numMarkers;
+			posParent = posEnd + 4 * numMarkers;
+			posIdStr = posParent + 4 * numMarkers;
+			pos = posIdStr + 4 * numMarkers;
+
+			// Tables
+			pos = openTables(pos, numTables);
+
+			// Chromosome index
+			posChrName = pos;
+			posChrOffset = posChrName + 4 * numChromosomes;
+			posChrMarkers = posChrOffset + 4 * (numChromosomes + 1);
+
+			// String pool
+			posStrOffset = posChrMarkers + 4 * buffer.getInt(posChrOffset + 4 * numChromosomes);
+			posStrBytes = posStrOffset + 4 * (numStrings + 1);
+
+			// Marker types are stored by name
+			for (Table table : tables) {
+				String typeName = string(table.typeName);
+				try {
+					table.type = EffectType.valueOf(typeName);
+				} catch (IllegalArgumentException e) {
+					throw new RuntimeException("Unknown marker type '" + typeName + "' in database file '" + fileName + "'. Try installing the appropriate database.", e);
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading database file '" + fileName + "'", e);
+		}
+
+		markers = new Marker[numMarkers];
+		pendingParent = new ArrayList<>();
+	}
+
+	/**
+	 * Read tables starting at 'pos'. Returns the position after the last table
+	 */
+	int openTables(int pos, int numTables) {
+		tables = new Table[numTables];
+		for (int t = 0; t < numTables; t++) {
+			Table table = new Table();
+			tables[t] = table;
+			table.typeName = buffer.getInt(pos);
+			table.numRows = buffer.getInt(pos + 4);
+			table.numFields = buffer.getInt(pos + 8);
+			table.columnType = new int[table.numFields];
+			table.posColumn = new int[table.numFields];
+			pos += 12;
+
+			for (int f = 0; f < table.numFields; f++)
+				table.columnType[f] = buffer.getInt(pos + 4 * f);
+			pos += 4 * table.numFields;
+
+			for (int f = 0; f < table.numFields; f++) {
+				table.posColumn[f] = pos;
+				switch (table.columnType[f]) {
+				case COLUMN_INT:
+				case COLUMN_STRING:
+					pos += 4 * table.numRows;
+					break;
+
+				case COLUMN_BOOLEAN:
+					pos += table.numRows;
+					break;
+
+				case COLUMN_INT_LIST:
+					pos += 4 * (table.numRows + 1) + 4 * buffer.getInt(pos + 4 * table.numRows);
+					break;
+
+				default:
+					throw new RuntimeException("Unknown column type " + table.columnType[f] + " in file '" + fileName + "'");
+				}
+			}
+		}
+		return pos;
+	}
+
+	/**
+	 * Save data to file
+	 */
+	@Override
+	public void save(String fileName, Markers markersToSave) {
+		lines = new String[1024];
+		chrNames = new String[1024];
+		currId = 0;
+
+		// Serialize all markers
+		int flags = 0;
+		for (Marker m : markersToSave) {
+			save(m);
+			if ((m instanceof Genome) && ((Genome) m).hasCodingInfo()) flags |= FLAG_CODING_INFO;
+		}
+
+		write(fileName, flags);
+		lines = chrNames = null;
+	}
+
+	@Override
+	protected void saveLine(Marker m, int id, String line) {
+		if (id > lines.length) {
+			int len = Math.max(id, 2 * lines.length);
+			lines = Arrays.copyOf(lines, len);
+			chrNames = Arrays.copyOf(chrNames, len);
+		}
+		lines[id - 1] = line;
+		chrNames[id - 1] = (m instanceof Genome ? "" : m.getChromosomeName());
+	}
+
+	/**
+	 * Read a string (length and UTF-8 bytes) starting at 'pos'
+	 */
+	String readString(int pos) {
+		return string(pos + 4, pos + 4 + buffer.getInt(pos));
+	}
+
+	/**
+	 * Get a string from the pool
+	 */
+	String string(int idx) {
+		int start = buffer.getInt(posStrOffset + 4 * idx);
+		int end = buffer.getInt(posStrOffset + 4 * (idx + 1));
+		return string(posStrBytes + start, posStrBytes + end);
+	}
+
+	/**
+	 * Decode UTF-8 bytes in [start, end)
+	 */
+	String string(int start, int end) {
+		byte bytes[] = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = buffer.get(start + i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Column type for field number 'fieldNum' in 'rows'
+	 * Note: Values must be converted back to exactly the same strings, so
+	 * 		that markers parse them in the same way as in the text format
+	 */
+	int columnType(List<String[]> rows, int fieldNum) {
+		boolean isBoolean = true, isInt = true, isIntList = true, isEmpty = true;
+		for (String row[] : rows) {
+			String value = value(row, fieldNum);
+			isBoolean &= value.equals("true") || value.equals("false");
+			isInt &= isInt(value);
+			isEmpty &= value.isEmpty();
+			if (isIntList && !value.isEmpty()) {
+				for (String v : value.split(",", -1))
+					isIntList &= isInt(v);
+			}
+		}
+
+		if (isBoolean) return COLUMN_BOOLEAN;
+		if (isInt) return COLUMN_INT;
+		if (isIntList && !isEmpty) return COLUMN_INT_LIST;
+		return COLUMN_STRING;
+	}
+
+	/**
+	 * Is this an int that is converted back to the same string?
+	 */
+	boolean isInt(String value) {
+		return !value.isEmpty() && value.equals(Integer.toString(Gpr.parseIntSafe(value)));
+	}
+
+	/**
+	 * Value of field number 'fieldNum' (empty if the row has less fields)
+	 */
+	String value(String row[], int fieldNum) {
+		return fieldNum < row.length ? row[fieldNum] : "";
+	}
+
+	/**
+	 * Write all saved lines to a binary file
+	 */
+	void write(String fileName, int flags) {
+		int n = currId;
+		byte strand[] = new byte[n];
+		int table[] = new int[n], row[] = new int[n], start[] = new int[n], end[] = new int[n], parent[] = new int[n], idStr[] = new int[n];
+
+		// String pool
+		Map<String, Integer> strIdx = new HashMap<>();
+		List<byte[]> strs = new ArrayList<>();
+
+		// Tables: Type specific fields, by marker type
+		Map<String, Integer> tableByType = new HashMap<>();
+		List<String> tableTypes = new ArrayList<>();
+		List<List<String[]>> tableRows = new ArrayList<>();
+
+		// Chromosome index
+		Map<String, List<Integer>> idsByChr = new HashMap<>();
+		List<String> chrs = new ArrayList<>();
+
+		for (int i = 0; i < n; i++) {
+			String fields[] = lines[i].split("\t", -1);
+			parent[i] = Integer.parseInt(fields[2]);
+			start[i] = Integer.parseInt(fields[3]);
+			end[i] = Integer.parseInt(fields[4]);
+			idStr[i] = stringIdx(fields[5], strIdx, strs);
+			strand[i] = (byte) (Boolean.parseBoolean(fields[6]) ? 1 : 0);
+
+			// Add type specific fields to table
+			Integer t = tableByType.get(fields[0]);
+			if (t == null) {
+				t = tableTypes.size();
+				tableByType.put(fields[0], t);
+				tableTypes.add(fields[0]);
+				tableRows.add(new ArrayList<>());
+			}
+			List<String[]> rows = tableRows.get(t);
+			table[i] = t;
+			row[i] = rows.size();
+			rows.add(Arrays.copyOfRange(fields, Math.min(NUM_COMMON_FIELDS, fields.length), fields.length));
+
+			List<Integer> ids = idsByChr.get(chrNames[i]);
+			if (ids == null) {
+				ids = new ArrayList<>();
+				idsByChr.put(chrNames[i], ids);
+				chrs.add(chrNames[i]);
+			}
+			ids.add(i + 1);
+		}
+
+		// Column types. Note: All strings must be in the pool before writing it
+		int numFields[] = new int[tableTypes.size()];
+		int columnTypes[][] = new int[tableTypes.size()][];
+		for (int t = 0; t < numFields.length; t++) {
+			stringIdx(tableTypes.get(t), strIdx, strs);
+			List<String[]> rows = tableRows.get(t);
+			for (String r[] : rows)
+				numFields[t] = Math.max(numFields[t], r.length);
+
+			columnTypes[t] = new int[numFields[t]];
+			for (int f = 0; f < numFields[t]; f++) {
+				columnTypes[t][f] = columnType(rows, f);
+				if (columnTypes[t][f] == COLUMN_STRING) {
+					for (String r[] : rows)
+						stringIdx(value(r, f), strIdx, strs);
+				}
+			}
+		}
+
+		int chrName[] = new int[chrs.size()];
+		for (int i = 0; i < chrName.length; i++)
+			chrName[i] = stringIdx(chrs.get(i), strIdx, strs);
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+			// Header
+			writeString(out, SnpEff.SOFTWARE_NAME);
+			writeString(out, SnpEff.VERSION_MAJOR);
+			out.writeInt(FORMAT_VERSION);
+			out.writeInt(flags);
+			out.writeInt(n);
+			out.writeInt(strs.size());
+			out.writeInt(chrs.size());
+			out.writeInt(tableTypes.size());
+
+			// Marker columns
+			writeInts(out, table);
+			writeInts(out, row);
+			out.write(strand);
+			writeInts(out, start);
+			writeInts(out, end);
+			writeInts(out, parent);
+			writeInts(out, idStr);
+
+			// Tables
+			for (int t = 0; t < numFields.length; t++) {
+				out.writeInt(strIdx.get(tableTypes.get(t)));
+				out.writeInt(tableRows.get(t).size());
+				out.writeInt(numFields[t]);
+				writeInts(out, columnTypes[t]);
+				for (int f = 0; f < numFields[t]; f++)
+					writeColumn(out, tableRows.get(t), f, columnTypes[t][f], strIdx);
+			}
+
+			// Chromosome index
+			writeInts(out, chrName);
+			int offset = 0;
+			for (String chr : chrs) {
+				out.writeInt(offset);
+				offset += idsByChr.get(chr).size();
+			}
+			out.writeInt(offset);
+			for (String chr : chrs)
+				for (int id : idsByChr.get(chr))
+					out.writeInt(id);
+
+			// String pool
+			offset = 0;
+			for (byte[] bytes : strs) {
+				out.writeInt(offset);
+				offset += bytes.length;
+			}
+			out.writeInt(offset);
+			for (byte[] bytes : strs)
+				out.write(bytes);
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing database file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Add a string to the pool (if not already there) and return its index
+	 */
+	int stringIdx(String str, Map<String, Integer> strIdx, List<byte[]> strs) {
+		Integer idx = strIdx.get(str);
+		if (idx == null) {
+			idx = strs.size();
+			strIdx.put(str, idx);
+			strs.add(str.getBytes(StandardCharsets.UTF_8));
+		}
+		return idx;
+	}
+
+	void writeString(DataOutputStream out, String str) throws IOException {
+		byte bytes[] = str.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Write a table's column
+	 */
+	void writeColumn(DataOutputStream out, List<String[]> rows, int fieldNum, int columnType, Map<String, Integer> strIdx) throws IOException {
+		switch (columnType) {
+		case COLUMN_INT:
+			for (String row[] : rows)
+				out.writeInt(Integer.parseInt(value(row, fieldNum)));
+			break;
+
+		case COLUMN_BOOLEAN:
+			for (String row[] : rows)
+				out.write(value(row, fieldNum).equals("true") ? 1 : 0);
+			break;
+
+		case COLUMN_STRING:
+			for (String row[] : rows)
+				out.writeInt(strIdx.get(value(row, fieldNum)));
+			break;
+
+		case COLUMN_INT_LIST:
+			// Offsets, followed by all values
+			int offset = 0;
+			for (String row[] : rows) {
+				out.writeInt(offset);
+				String value = value(row, fieldNum);
+				if (!value.isEmpty()) offset += value.split(",", -1).length;
+			}
+			out.writeInt(offset);
+
+			for (String row[] : rows) {
+				String value = value(row, fieldNum);
+				if (!value.isEmpty()) {
+					for (String v : value.split(",", -1))
+						out.writeInt(Integer.parseInt(v));
+				}
+			}
+			break;
+
+		default:
+			throw new RuntimeException("Unknown column type " + columnType);
+		}
+	}
+
+	void writeInts(DataOutputStream out, int nums[]) throws IOException {
+		for (int num : nums)
+			out.writeInt(num);
+	}
+
+}
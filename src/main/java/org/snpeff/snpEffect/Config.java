@@ -8,6 +8,7 @@ import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -21,6 +22,7 @@ import org.snpeff.codons.CodonTable;
 import org.snpeff.codons.CodonTables;
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Genome;
+import org.snpeff.stats.AnnotationMetrics;
 import org.snpeff.stats.CountByType;
 import org.snpeff.util.Gpr;
 import org.snpeff.util.Timer;
@@ -51,7 +53,7 @@ public class Config implements Serializable, Iterable<String> {
 	public static final String KEY_REFERENCE_SUFIX = ".reference";
 	public static final String KEY_VERSIONS_URL = "versions.url";
 
-	private static Config configInstance = null; // Config is some kind of singleton because we want to make it accessible from everywhere
+	private static Config configInstance = null; // Default configuration (last one created), used by genomes that don't have a configuration
 
 	boolean debug = false; // Debug mode?
 	boolean verbose = false; // Verbose
@@ -79,10 +81,17 @@ public class Config implements Serializable, Iterable<String> {
 	HashMap<String, String> nameById;
 	HashMap<String, String> bundleByGenomeId;
 	SnpEffectPredictor snpEffectPredictor;
+	transient AnnotationMetrics metrics; // Annotation pipeline metrics (null if disabled)
 	String databaseRepository = "";
 	String versionsUrl = "";
 	CountByType warningsCounter = new CountByType();
 
+	/**
+	 * Default configuration (last one created).
+	 * Note: Several configurations (genomes) can be loaded at the same
+	 * time, so 'marker.config()' or 'genome.getConfig()' should be used
+	 * when a marker or genome is available
+	 */
 	public static Config get() {
 		return configInstance;
 	}
@@ -385,10 +394,23 @@ public class Config implements Serializable, Iterable<String> {
 		return getBaseFileNameSequence() + "." + chrNameSafe + ".bin";
 	}
 
+	public String getFileNameSequenceMmap() {
+		return getBaseFileNameSequence() + ".mmap.bin";
+	}
+
+	public String getFileNameSequenceMmap(String chr) {
+		String chrNameSafe = Gpr.sanityzeFileName(chr);
+		return getBaseFileNameSequence() + "." + chrNameSafe + ".mmap.bin";
+	}
+
 	public String getFileSnpEffectPredictor() {
 		return getDirData() + "/" + genome.getVersion() + "/snpEffectPredictor.bin";
 	}
 
+	public String getFileSnpEffectPredictorMmap() {
+		return getDirData() + "/" + genome.getVersion() + "/snpEffectPredictor.mmap.bin";
+	}
+
 	public Genome getGenome() {
 		return genome;
 	}
@@ -422,6 +444,10 @@ public class Config implements Serializable, Iterable<String> {
 		return Gpr.parseLongSafe(val);
 	}
 
+	public AnnotationMetrics getMetrics() {
+		return metrics;
+	}
+
 	public String getName(String genomeVersion) {
 		return nameById.get(genomeVersion);
 	}
@@ -480,6 +506,7 @@ public class Config implements Serializable, Iterable<String> {
 		readConfig(configFileName, override); // Read config file and get a genome
 		genome = genomeById.get(genomeVersion); // Set a genome
 		if (!genomeVersion.isEmpty() && (genome == null)) throw new RuntimeException("No such genome '" + genomeVersion + "'");
+		if (genome != null) genome.setConfig(this);
 		configInstance = this;
 	}
 
@@ -576,8 +603,17 @@ public class Config implements Serializable, Iterable<String> {
 	 * WARNING: 'genome' object get replaced upon loading a snpEffectPredictor (this is a dangerous side effect)
 	 */
 	public SnpEffectPredictor loadSnpEffectPredictor() {
-		snpEffectPredictor = SnpEffectPredictor.load(this);
+		return loadSnpEffectPredictor(null);
+	}
+
+	/**
+	 * Load a snpEff predictor, only loading genes in chromosomes 'chrNames' (all chromosomes if null)
+	 * WARNING: 'genome' object get replaced upon loading a snpEffectPredictor (this is a dangerous side effect)
+	 */
+	public SnpEffectPredictor loadSnpEffectPredictor(Collection<String> chrNames) {
+		snpEffectPredictor = SnpEffectPredictor.load(this, chrNames);
 		genome = snpEffectPredictor.genome; // WARNING: 'genome' object get replaced upon loading a snpEffectPredictor (this might have dangerous side effects)
+		genome.setConfig(this);
 		snpEffectPredictor.setDebug(debug);
 		return snpEffectPredictor;
 	}
@@ -766,12 +802,17 @@ public class Config implements Serializable, Iterable<String> {
 		this.hgvsTrId = hgvsTrId;
 	}
 
+	public void setMetrics(AnnotationMetrics metrics) {
+		this.metrics = metrics;
+	}
+
 	public void setOnlyRegulation(boolean onlyRegulation) {
 		this.onlyRegulation = onlyRegulation;
 	}
 
 	public void setSnpEffectPredictor(SnpEffectPredictor snpEffectPredictor) {
 		this.snpEffectPredictor = snpEffectPredictor;
+		if ((snpEffectPredictor != null) && (snpEffectPredictor.getGenome() != null)) snpEffectPredictor.getGenome().setConfig(this);
 	}
 
 	public void setString(String propertyName, String value) {
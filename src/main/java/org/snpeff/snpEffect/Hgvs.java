@@ -22,6 +22,7 @@ public class Hgvs {
 	protected Marker marker;
 	protected Transcript tr;
 	protected Genome genome;
+	protected Config config;
 
 	protected boolean duplication;
 	protected boolean strandPlus, strandMinus;
@@ -45,7 +46,8 @@ public class Hgvs {
 		marker = variantEffect.getMarker();
 		tr = variantEffect.getTranscript();
 		genome = marker != null ? marker.getGenome() : null;
-		hgvsTrId = Config.get().isHgvsTrId();
+		config = genome != null ? genome.getConfig() : Config.get();
+		hgvsTrId = config.isHgvsTrId();
 		initStrand();
 	}
 
@@ -534,7 +534,7 @@ public class HgvsDna extends Hgvs {
 		if (pos == null) return null;
 
 		// SNPs using old HGVS notation?
-		if (Config.get().isHgvsOld() && type.isEmpty()) {
+		if (config.isHgvsOld() && type.isEmpty()) {
 			String ref, alt;
 			if (strandPlus) {
 				ref = ref();
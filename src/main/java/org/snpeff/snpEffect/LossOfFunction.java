@@ -3,11 +3,10 @@ package org.snpeff.snpEffect;
 import java.util.Collection;
 import java.util.HashSet;
 
-import org.snpeff.interval.Exon;
 import org.snpeff.interval.Gene;
-import org.snpeff.interval.Marker;
 import org.snpeff.interval.SpliceSite;
 import org.snpeff.interval.Transcript;
+import org.snpeff.interval.TranscriptCoordinates;
 import org.snpeff.interval.Variant;
 import org.snpeff.vcf.VcfEntry;
 import org.snpeff.vcf.VcfLof;
@@ -227,24 +226,21 @@ public class LossOfFunction {
 
 		// Find coding part of the transcript (i.e. no UTRs)
 		Variant variant = variantEffect.getVariant();
-		int cdsStart = tr.isStrandPlus() ? tr.getCdsStart() : tr.getCdsEnd();
-		int cdsEnd = tr.isStrandPlus() ? tr.getCdsEnd() : tr.getCdsStart();
-		Marker coding = new Marker(variant.getChromosome(), cdsStart, cdsEnd, false, "");
+		if (!variant.getChromosomeName().equals(tr.getChromosomeName())) return false;
+		int cdsMin = Math.min(tr.getCdsStart(), tr.getCdsEnd());
+		int cdsMax = Math.max(tr.getCdsStart(), tr.getCdsEnd());
 
-		// Create an interval intersecting the CDS and the deletion
-		int start = Math.max(cdsStart, variant.getStart());
-		int end = Math.min(cdsEnd, variant.getEnd());
+		// Interval intersecting the CDS and the deletion
+		int start = Math.max(cdsMin, variant.getStart());
+		int end = Math.min(cdsMax, variant.getEnd());
 		if (start >= end) return false; // No intersections with coding part of the exon? => not LOF
-		Marker codingDeleted = new Marker(variant.getChromosome(), start, end, false, "");
 
 		// Count:
 		//   - number of coding bases deleted
-		//   - number of coding bases
-		int codingBasesDeleted = 0, codingBases = 0;
-		for (Exon exon : tr) {
-			codingBasesDeleted += codingDeleted.intersectSize(exon);
-			codingBases += coding.intersectSize(exon);
-		}
+		//   - number of coding bases (precomputed)
+		TranscriptCoordinates coordinates = tr.coordinates();
+		int codingBasesDeleted = coordinates.codingBases(start, end);
+		int codingBases = coordinates.getCdsLength();
 
 		// More than a threshold? => It is a LOF
 		double percDeleted = codingBasesDeleted / ((double) codingBases);
@@ -298,44 +294,12 @@ public class LossOfFunction {
 	/**
 	 * Find the last position where a nonsense mediated decay is supposed to occurr
 	 * This is 50 bases (MND_BASES_BEFORE_LAST_JUNCTION bases) before the last exon-exon junction.
+	 * Note: It is calculated once per transcript (see TranscriptCoordinates)
 	 */
 	public int lastNmdPos(Transcript tr) {
-		//---
-		// Get last exon
-		//---
-		int cdsEnd = tr.getCdsEnd();
-		int cdsStart = tr.getCdsStart();
-		Marker cds = new Marker(tr.getChromosome(), Math.min(cdsStart, cdsEnd), Math.max(cdsStart, cdsEnd), tr.isStrandMinus(), ""); // Create a cds marker
-		Exon lastExon = null;
-		int countCodingExons = 0;
-		for (Exon exon : tr.sortedStrand()) {
-			if (exon.intersects(cdsEnd)) lastExon = exon;
-			if (cds.intersects(exon)) countCodingExons++;
-		}
-
-		// Only one coding exon? => No NMD
-		// Note: I'm assuming that we should have a splice event in a coding part of the transcript for NMD to happen.
-		if (countCodingExons <= 1) return -1;
-
-		// Sanity check
-		if (lastExon == null) throw new RuntimeException("Cannot find last coding exon for transcript '" + tr.getId() + "' (cdsEnd: " + cdsEnd + ")\n\t" + tr);
-
-		//---
-		// Find that position of MND_BASES_BEFORE_LAST_JUNCTION before the last exon-exon junction
-		//---
-		int lastExonJunction = tr.isStrandPlus() ? lastExon.getStart() : lastExon.getEnd();
-		int chrPos[] = tr.baseNumberCds2Pos();
-		int lastNmdPos = -1;
-		for (int cdsi = chrPos.length - 1; cdsi >= 0; cdsi--) {
-			if (chrPos[cdsi] == lastExonJunction) {
-				if (cdsi > MND_BASES_BEFORE_LAST_JUNCTION) lastNmdPos = chrPos[cdsi - MND_BASES_BEFORE_LAST_JUNCTION - 1];
-				else return tr.isStrandPlus() ? 0 : Integer.MAX_VALUE; // Out of CDS range
-				return lastNmdPos;
-			}
-		}
-
-		throw new RuntimeException("Cannot find last exon junction position for transcript '" + tr.getId() + "'\n\t" + tr);
-		// return -1;
+		int lastNmdPos = tr.coordinates().getLastNmdPos();
+		if (lastNmdPos == TranscriptCoordinates.NMD_ERROR) throw new RuntimeException("Cannot find last exon junction position for transcript '" + tr.getId() + "' (cdsEnd: " + tr.getCdsEnd() + ")\n\t" + tr);
+		return lastNmdPos;
 	}
 
 	/**
@@ -1,11 +1,17 @@
 package org.snpeff.snpEffect;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.snpeff.binseq.GenomicSequences;
 import org.snpeff.interval.Cds;
@@ -23,8 +29,12 @@ import org.snpeff.interval.TranscriptSupportLevel;
 import org.snpeff.interval.Utr;
 import org.snpeff.interval.Variant;
 import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.interval.tree.IntervalSweep;
 import org.snpeff.serializer.MarkerSerializer;
+import org.snpeff.serializer.MarkerSerializerMmap;
 import org.snpeff.snpEffect.VariantEffect.ErrorWarningType;
+import org.snpeff.stats.AnnotationMetrics;
+import org.snpeff.stats.AnnotationMetrics.Stage;
 import org.snpeff.util.Gpr;
 
 /**
@@ -48,31 +58,58 @@ public class SnpEffectPredictor implements Serializable {
 	int spliceRegionExonSize = SpliceSite.SPLICE_REGION_EXON_SIZE;
 	int spliceRegionIntronMin = SpliceSite.SPLICE_REGION_INTRON_MIN;
 	int spliceRegionIntronMax = SpliceSite.SPLICE_REGION_INTRON_MAX;
+	String databaseFileName; // Database file this predictor was loaded from (null if it was not loaded from a file)
 	Genome genome;
 	Markers markers; // All other markers are stored here (e.g. custom markers, intergenic, etc.)
 	IntervalForest intervalForest; // Interval forest by chromosome name
 
 	/**
 	 * Load predictor from a binary file
+	 * A memory-mapped database is used if available and not older than the (text) binary file
 	 */
 	public static SnpEffectPredictor load(Config config) {
-		String snpEffPredFile = config.getFileSnpEffectPredictor();
+		return load(config, null);
+	}
 
-		// Sanity check
-		if (!Gpr.canRead(snpEffPredFile)) throw new RuntimeException("\tERROR: Cannot read file '" + snpEffPredFile + "'.\n\tYou can try to download the database by running the following command:\n\t\tjava -jar snpEff.jar download " + config.getGenome().getVersion() + "\n");
+	/**
+	 * Load predictor from a binary file, only loading genes (and other markers)
+	 * in chromosomes 'chrNames'. If 'chrNames' is null, all chromosomes are loaded
+	 *
+	 * Note: Only memory-mapped databases are loaded lazily (per chromosome), the
+	 * 		text binary file is always loaded completely. Genome and chromosomes are
+	 * 		always loaded.
+	 */
+	public static SnpEffectPredictor load(Config config, Collection<String> chrNames) {
+		String snpEffPredFile = config.getFileSnpEffectPredictor();
+		String snpEffPredFileMmap = config.getFileSnpEffectPredictorMmap();
 
 		// Load markers from file
-		MarkerSerializer ms = new MarkerSerializer(config.getGenome());
-		Markers markers = ms.load(snpEffPredFile);
+		Markers markers;
+		String databaseFileName = snpEffPredFile;
+		Boolean codingInfo = null;
+		if (Gpr.isNewer(snpEffPredFileMmap, snpEffPredFile)) {
+			MarkerSerializerMmap ms = new MarkerSerializerMmap(config.getGenome());
+			markers = ms.load(snpEffPredFileMmap, chrNames);
+			databaseFileName = snpEffPredFileMmap;
+			if (chrNames != null) codingInfo = ms.isCodingInfo(); // Refers to all genes, not only the ones loaded
+		} else {
+			// Sanity check
+			if (!Gpr.canRead(snpEffPredFile)) throw new RuntimeException("\tERROR: Cannot read file '" + snpEffPredFile + "'.\n\tYou can try to download the database by running the following command:\n\t\tjava -jar snpEff.jar download " + config.getGenome().getVersion() + "\n");
+
+			MarkerSerializer ms = new MarkerSerializer(config.getGenome());
+			markers = ms.load(snpEffPredFile);
+		}
 
 		// Find genome
 		Genome genome = null;
 		for (Marker m : markers)
 			if (m instanceof Genome) genome = (Genome) m;
 		if (genome == null) throw new RuntimeException("Genome not found. This should never happen!");
+		if (codingInfo != null) genome.setCodingInfo(codingInfo);
 
 		// Create predictor
 		SnpEffectPredictor snpEffectPredictor = new SnpEffectPredictor(genome);
+		snpEffectPredictor.databaseFileName = databaseFileName;
 
 		// Add genes
 		for (Marker m : markers)
@@ -220,6 +257,10 @@ public class SnpEffectPredictor implements Serializable {
 			g.filterTranscriptSupportLevel(maxTsl);
 	}
 
+	public String getDatabaseFileName() {
+		return databaseFileName;
+	}
+
 	/**
 	 * Obtain a gene by geneId
 	 */
@@ -296,6 +337,46 @@ public class SnpEffectPredictor implements Serializable {
 		return total;
 	}
 
+	/**
+	 * All markers to be saved to a database file
+	 */
+	Markers markersToSave() {
+		Markers markersToSave = new Markers();
+		markersToSave.add(genome);
+
+		for (Chromosome chr : genome)
+			markersToSave.add(chr);
+
+		for (Gene g : genome.getGenes())
+			markersToSave.add(g);
+
+		markersToSave.add(getMarkers());
+		return markersToSave;
+	}
+
+	/**
+	 * Precompute transcript values that are otherwise lazily calculated
+	 * (see Transcript.precompute), processing genes in 'numThreads' threads
+	 */
+	public void precompute(int numThreads) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, numThreads));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (Gene gene : genome.getGenes())
+				futures.add(executor.submit(() -> {
+					for (Transcript tr : gene)
+						tr.precompute();
+				}));
+
+			for (Future<?> future : futures)
+				future.get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Error precomputing transcripts", e);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	/**
 	 * Dump to sdtout
 	 */
@@ -315,7 +396,36 @@ public class SnpEffectPredictor implements Serializable {
 	 * Return a collection of intervals that intersect 'marker'
 	 */
 	public Markers query(Marker marker) {
-		return marker.query(intervalForest);
+		Markers results = new Markers();
+		query(marker, results);
+		return results;
+	}
+
+	/**
+	 * Add intervals that intersect 'marker' to 'results'
+	 * Note: 'results' can be reused by the caller (query does not allocate new objects)
+	 */
+	public void query(Marker marker, Markers results) {
+		marker.query(intervalForest, results);
+	}
+
+	/**
+	 * Return a collection of intervals that intersect 'marker'
+	 * If 'sweep' is not null, it is used instead of the interval forest (coordinate-sorted queries)
+	 */
+	public Markers query(Marker marker, IntervalSweep sweep) {
+		Markers results = new Markers();
+		query(marker, sweep, results);
+		return results;
+	}
+
+	/**
+	 * Add intervals that intersect 'marker' to 'results'
+	 * If 'sweep' is not null, it is used instead of the interval forest (coordinate-sorted queries)
+	 */
+	public void query(Marker marker, IntervalSweep sweep, Markers results) {
+		if (sweep == null) query(marker, results);
+		else sweep.query(marker, results);
 	}
 
 	/**
@@ -392,11 +502,20 @@ public class SnpEffectPredictor implements Serializable {
 	 * Query resulting genes, transcripts and exons to get ALL types of intervals possible
 	 */
 	public Markers queryDeep(Marker marker) {
-		if (Config.get().isErrorOnMissingChromo() && isChromosomeMissing(marker)) throw new RuntimeException("Chromosome missing for marker: " + marker);
+		return queryDeep(marker, null);
+	}
+
+	/**
+	 * Return a collection of intervals that intersect 'marker', using 'sweep' for
+	 * coordinate-sorted queries (can be null)
+	 * Query resulting genes, transcripts and exons to get ALL types of intervals possible
+	 */
+	public Markers queryDeep(Marker marker, IntervalSweep sweep) {
+		if (genome.getConfig().isErrorOnMissingChromo() && isChromosomeMissing(marker)) throw new RuntimeException("Chromosome missing for marker: " + marker);
 
 		boolean hitChromo = false;
 		Markers hits = new Markers();
-		Markers intersects = query(marker);
+		Markers intersects = query(marker, sweep);
 
 		if (intersects.size() > 0) {
 			for (Marker m : intersects) {
@@ -412,10 +531,21 @@ public class SnpEffectPredictor implements Serializable {
 			}
 		}
 
-		if (!hitChromo && Config.get().isErrorChromoHit()) throw new RuntimeException("ERROR: Out of chromosome range. " + marker);
+		if (!hitChromo && genome.getConfig().isErrorChromoHit()) throw new RuntimeException("ERROR: Out of chromosome range. " + marker);
 		return hits;
 	}
 
+	/**
+	 * Query intervals that intersect 'marker' into 'results' (cleared first). A
+	 * new result list is created if 'results' is null
+	 */
+	Markers queryReuse(Marker marker, IntervalSweep sweep, Markers results) {
+		if (results == null) results = new Markers();
+		else results.clear();
+		query(marker, sweep, results);
+		return results;
+	}
+
 	/**
 	 * Name of the regions hit by a marker
 	 * @return A set of region names
@@ -429,7 +559,7 @@ public class SnpEffectPredictor implements Serializable {
 	 * @param id : Only use genes or transcripts matching this ID (null for any)
 	 */
 	public Set<String> regions(Marker marker, boolean showGeneDetails, boolean compareTemplate, String id) {
-		if (Config.get().isErrorOnMissingChromo() && isChromosomeMissing(marker)) throw new RuntimeException("Chromosome missing for marker: " + marker);
+		if (genome.getConfig().isErrorOnMissingChromo() && isChromosomeMissing(marker)) throw new RuntimeException("Chromosome missing for marker: " + marker);
 
 		boolean hitChromo = false;
 		HashSet<String> hits = new HashSet<>();
@@ -581,20 +711,15 @@ public class SnpEffectPredictor implements Serializable {
 	 * Save predictor to a binary file
 	 */
 	public void save(String fileName) {
-		// Add al markers
-		Markers markersToSave = new Markers();
-		markersToSave.add(genome);
-
-		for (Chromosome chr : genome)
-			markersToSave.add(chr);
-
-		for (Gene g : genome.getGenes())
-			markersToSave.add(g);
-
-		markersToSave.add(getMarkers());
+		markersToSave().save(fileName);
+	}
 
-		// Save markers to file
-		markersToSave.save(fileName);
+	/**
+	 * Save predictor to a binary, memory-mappable, file
+	 */
+	public void saveMmap(String fileName) {
+		MarkerSerializerMmap markerSerializer = new MarkerSerializerMmap(genome);
+		markerSerializer.save(fileName, markersToSave());
 	}
 
 	public void setDebug(boolean debug) {
@@ -644,10 +769,31 @@ public class SnpEffectPredictor implements Serializable {
 	 * Predict the effect of a variant
 	 */
 	public VariantEffects variantEffect(Variant variant) {
+		return variantEffect(variant, null);
+	}
+
+	/**
+	 * Predict the effect of a variant
+	 * If 'sweep' is not null, it is used to query intervals (variants
+	 * must be sorted by coordinates for the sweep to be effective)
+	 */
+	public VariantEffects variantEffect(Variant variant, IntervalSweep sweep) {
+		return variantEffect(variant, sweep, null);
+	}
+
+	/**
+	 * Predict the effect of a variant
+	 * If 'sweep' is not null, it is used to query intervals (variants
+	 * must be sorted by coordinates for the sweep to be effective)
+	 * If 'queryResults' is not null, it is cleared and used to store
+	 * interval query results, so callers can reuse it for all variants
+	 * (e.g. one per annotation thread) instead of allocating a new one
+	 */
+	public VariantEffects variantEffect(Variant variant, IntervalSweep sweep, Markers queryResults) {
 		VariantEffects variantEffects = new VariantEffects();
 
 		// Chromosome missing?
-		if (Config.get().isErrorOnMissingChromo() && isChromosomeMissing(variant)) {
+		if (genome.getConfig().isErrorOnMissingChromo() && isChromosomeMissing(variant)) {
 			variantEffects.addErrorWarning(variant, ErrorWarningType.ERROR_CHROMOSOME_NOT_FOUND);
 			return variantEffects;
 		}
@@ -655,7 +801,7 @@ public class SnpEffectPredictor implements Serializable {
 		// Translocations require special treatment
 		// (e.g. they have two intersections points instead of one)
 		if (variant.isBnd()) {
-			Markers intersects = query(variant);
+			Markers intersects = queryReuse(variant, null, queryResults);
 			variantEffectBnd(variant, variantEffects, intersects);
 			return variantEffects;
 		}
@@ -678,7 +824,10 @@ public class SnpEffectPredictor implements Serializable {
 			intersects = variantEffectStructuralLarge(variant, variantEffects);
 		} else {
 			// Query interval tree: Which intervals does variant intersect?
-			intersects = query(variant);
+			AnnotationMetrics metrics = genome.getConfig().getMetrics();
+			long start = (metrics != null ? System.nanoTime() : 0);
+			intersects = queryReuse(variant, sweep, queryResults);
+			if (metrics != null) metrics.add(Stage.QUERY, start);
 		}
 
 		// In case of large structural variants, we need to check the number of genes
@@ -719,11 +868,11 @@ public class SnpEffectPredictor implements Serializable {
 			if (variant.isIns() && variant.getStart() == (chr.getEnd() + 1)) {
 				// This is a chromosome extension
 				variantEffects.add(variant, null, EffectType.CHROMOSOME_ELONGATION, "");
-			} else if (Config.get().isErrorChromoHit()) {
+			} else if (genome.getConfig().isErrorChromoHit()) {
 				variantEffects.addErrorWarning(variant, ErrorWarningType.ERROR_OUT_OF_CHROMOSOME_RANGE);
 			}
 		} else if (!hitSomething) {
-			if (Config.get().isOnlyRegulation()) {
+			if (genome.getConfig().isOnlyRegulation()) {
 				variantEffects.add(variant, null, EffectType.NONE, "");
 			} else {
 				variantEffects.add(variant, null, EffectType.INTERGENIC, "");
@@ -19,6 +19,8 @@ import org.snpeff.interval.Regulation;
 import org.snpeff.interval.Transcript;
 import org.snpeff.interval.TranscriptSupportLevel;
 import org.snpeff.interval.Variant;
+import org.snpeff.stats.AnnotationMetrics;
+import org.snpeff.stats.AnnotationMetrics.Stage;
 import org.snpeff.util.Gpr;
 import org.snpeff.vcf.EffFormatVersion;
 import org.snpeff.vcf.VcfEffect;
@@ -91,6 +93,8 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 	protected int codonDegeneracy = -1; // Codon degeneracy (negative number mens 'information not available')
 	protected String aaRef = "", aaAlt = ""; // Amino acid changes
 	protected String aasAroundOld = "", aasAroundNew = ""; // Amino acids around
+	protected boolean cacheHgvs; // Keep HGVS strings once calculated (see VariantEffectCache)
+	protected String hgvsDna, hgvsProt; // Cached HGVS strings
 
 	public VariantEffect(Variant variant) {
 		this.variant = variant;
@@ -297,6 +301,14 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 		return variant.compareTo(varEffOther.getVariant());
 	}
 
+	/**
+	 * Configuration (from marker's or variant's genome)
+	 */
+	Config config() {
+		Marker m = marker != null ? marker : variant;
+		return m != null ? m.config() : Config.get();
+	}
+
 	/**
 	 * Show a string with overall effect
 	 */
@@ -574,9 +586,16 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 	}
 
 	public String getGeneRegion() {
+		return getGeneRegionType().toString();
+	}
+
+	/**
+	 * Gene region as an effect type (e.g. EXON, INTRON, UPSTREAM, etc.)
+	 */
+	public EffectType getGeneRegionType() {
 		EffectType eff = getEffectType().getGeneRegion();
 		if (eff == EffectType.TRANSCRIPT && isExon()) eff = EffectType.EXON;
-		return eff.toString();
+		return eff;
 	}
 
 	public List<Gene> getGenes() {
@@ -595,7 +614,7 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 	 * Change in HGVS notation
 	 */
 	public String getHgvs() {
-		if (!Config.get().isHgvs()) return "";
+		if (!config().isHgvs()) return "";
 
 		// Calculate protein level and dna level changes
 		String hgvsProt = getHgvsProt();
@@ -616,22 +635,36 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 	 * Change in HGVS (Dna) notation
 	 */
 	public String getHgvsDna() {
-		if (!Config.get().isHgvs()) return "";
+		Config config = config();
+		if (!config.isHgvs()) return "";
+		if (hgvsDna != null) return hgvsDna;
 
+		AnnotationMetrics metrics = config.getMetrics();
+		long start = (metrics != null ? System.nanoTime() : 0);
 		HgvsDna hgvsDna = new HgvsDna(this);
 		String hgvs = hgvsDna.toString();
-		return hgvs != null ? hgvs : "";
+		if (metrics != null) metrics.add(Stage.HGVS, start);
+		hgvs = (hgvs != null ? hgvs : "");
+		if (cacheHgvs) this.hgvsDna = hgvs;
+		return hgvs;
 	}
 
 	/**
 	 * Change in HGVS (Protein) notation
 	 */
 	public String getHgvsProt() {
-		if (!Config.get().isHgvs()) return "";
+		Config config = config();
+		if (!config.isHgvs()) return "";
+		if (hgvsProt != null) return hgvsProt;
 
+		AnnotationMetrics metrics = config.getMetrics();
+		long start = (metrics != null ? System.nanoTime() : 0);
 		HgvsProtein hgvsProtein = new HgvsProtein(this);
 		String hgvs = hgvsProtein.toString();
-		return hgvs != null ? hgvs : "";
+		if (metrics != null) metrics.add(Stage.HGVS, start);
+		hgvs = (hgvs != null ? hgvs : "");
+		if (cacheHgvs) hgvsProt = hgvs;
+		return hgvs;
 	}
 
 	/**
@@ -761,6 +794,15 @@ public class VariantEffect implements Cloneable, Comparable<VariantEffect> {
 		this.message = message;
 	}
 
+	/**
+	 * Keep HGVS strings once they are calculated, so they are not
+	 * re-calculated every time this effect is shown.
+	 * Note: Only for effects that are not modified afterwards (e.g. cached effects)
+	 */
+	public void setCacheHgvs(boolean cacheHgvs) {
+		this.cacheHgvs = cacheHgvs;
+	}
+
 	/**
 	 * Set codon change. Calculate effect type based on codon changes (for SNPs & MNPs)
 	 */
@@ -0,0 +1,126 @@
+package org.snpeff.snpEffect;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.snpeff.interval.Variant;
+
+/**
+ * A bounded LRU cache of variant effects, keyed by variant
+ * (chromosome, start, end, REF, ALT, genotype and type).
+ *
+ * Cached effects are only valid for one database and set of
+ * annotation options, identified by a 'fingerprint'. Changing
+ * the fingerprint invalidates all cached entries.
+ *
+ * Note: This object is thread safe, so it can be shared between threads.
+ *       Cached VariantEffects should not be modified.
+ *
+ * Note: HGVS strings are calculated when effects are shown, so cached effects
+ *       keep them once calculated (see VariantEffect.setCacheHgvs)
+ *
+ * @author pcingola
+ */
+public class VariantEffectCache {
+
+	int maxSize;
+	String fingerprint;
+	LinkedHashMap<String, VariantEffects> cache;
+	long countHits, countMisses, countEvictions;
+
+	public VariantEffectCache(int maxSize) {
+		this.maxSize = maxSize;
+		cache = new LinkedHashMap<String, VariantEffects>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, VariantEffects> eldest) {
+				if (size() <= VariantEffectCache.this.maxSize) return false;
+				countEvictions++;
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Can effects for this variant be cached?
+	 * Only 'plain' variants are cached (e.g. translocations and cancer variants have additional fields)
+	 */
+	public static boolean isCacheable(Variant variant) {
+		return variant.getClass() == Variant.class;
+	}
+
+	/**
+	 * Variant's key
+	 */
+	public static String key(Variant variant) {
+		return variant.getChromosomeName() //
+				+ ":" + variant.getStart() //
+				+ "-" + variant.getEnd() //
+				+ "_" + variant.getReference() //
+				+ "/" + variant.getAlt() //
+				+ "/" + variant.getGenotype() //
+				+ "/" + variant.getVariantType() //
+		;
+	}
+
+	/**
+	 * Set fingerprint: If it is different than the current one, all entries are removed
+	 */
+	public synchronized void fingerprint(String fingerprint) {
+		if (fingerprint.equals(this.fingerprint)) return;
+		cache.clear();
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Get cached effects
+	 * @return Cached effects or null if not found
+	 */
+	public synchronized VariantEffects get(Variant variant) {
+		VariantEffects variantEffects = cache.get(key(variant));
+		if (variantEffects != null) countHits++;
+		else countMisses++;
+		return variantEffects;
+	}
+
+	public synchronized long getCountEvictions() {
+		return countEvictions;
+	}
+
+	public synchronized long getCountHits() {
+		return countHits;
+	}
+
+	public synchronized long getCountMisses() {
+		return countMisses;
+	}
+
+	public synchronized String getFingerprint() {
+		return fingerprint;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized void put(Variant variant, VariantEffects variantEffects) {
+		for (VariantEffect variantEffect : variantEffects)
+			variantEffect.setCacheHgvs(true);
+		cache.put(key(variant), variantEffects);
+	}
+
+	public synchronized int size() {
+		return cache.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Variant effect cache: size " + cache.size() + " / " + maxSize //
+				+ ", hits: " + countHits //
+				+ ", misses: " + countMisses //
+				+ ", evictions: " + countEvictions //
+		;
+	}
+
+}
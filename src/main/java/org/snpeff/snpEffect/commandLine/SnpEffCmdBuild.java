@@ -8,6 +8,7 @@ import org.snpeff.RegulationConsensusMultipleBed;
 import org.snpeff.RegulationFileConsensus;
 import org.snpeff.RegulationFileSplitBytType;
 import org.snpeff.SnpEff;
+import org.snpeff.binseq.GenomicSequences;
 import org.snpeff.codons.FindRareAaIntervals;
 import org.snpeff.fileIterator.MotifFileIterator;
 import org.snpeff.fileIterator.RegulationFileIterator;
@@ -42,6 +43,7 @@ public class SnpEffCmdBuild extends SnpEff {
 	boolean storeAlignments; // Store alignments (used for some test cases)
 	boolean storeSequences = false; // Store full sequences
 	boolean regSortedByType = false;
+	boolean saveMmap = false; // Also save database in memory-mappable format
 	String cellType = null;
 	SnpEffCmdProtein snpEffCmdProtein;
 	SnpEffCmdCds snpEffCmdCds;
@@ -121,6 +123,7 @@ public class SnpEffCmdBuild extends SnpEff {
 		factory.setVerbose(verbose);
 		factory.setDebug(debug);
 		factory.setStoreSequences(storeSequences);
+		factory.setNumThreads(multiThreaded ? numWorkers : 1);
 		return factory;
 	}
 
@@ -225,6 +228,10 @@ public class SnpEffCmdBuild extends SnpEff {
 					regSortedByType = true;
 					break;
 
+				case "-mmap":
+					saveMmap = true;
+					break;
+
 				default:
 					usage("Unknown option '" + arg + "'");
 				}
@@ -382,7 +389,9 @@ public class SnpEffCmdBuild extends SnpEff {
 
 			// Save database
 			if (verbose) Timer.showStdErr("Saving database");
+			snpEffectPredictor.getGenome().getGenomicSequences().setNumThreads(multiThreaded ? numWorkers : 1);
 			snpEffectPredictor.save(config);
+			saveMmap(snpEffectPredictor);
 		}
 
 		// Read regulation elements
@@ -395,6 +404,26 @@ public class SnpEffCmdBuild extends SnpEff {
 		return true;
 	}
 
+	/**
+	 * Save database and genomic sequences in memory-mappable format.
+	 * Otherwise, remove any old memory-mappable database (it would be used instead of the one we just saved)
+	 */
+	void saveMmap(SnpEffectPredictor snpEffectPredictor) {
+		String mmapFile = config.getFileSnpEffectPredictorMmap();
+		GenomicSequences genomicSequences = snpEffectPredictor.getGenome().getGenomicSequences();
+		if (saveMmap) {
+			if (verbose) Timer.showStdErr("Saving memory-mappable database: " + mmapFile);
+			snpEffectPredictor.saveMmap(mmapFile);
+			genomicSequences.saveMmap(config);
+		} else {
+			if (Gpr.exists(mmapFile)) {
+				if (verbose) Timer.showStdErr("Removing old memory-mappable database: " + mmapFile);
+				(new File(mmapFile)).delete();
+			}
+			genomicSequences.deleteMmap(config);
+		}
+	}
+
 	public void setCheckNumOk(boolean checkNumOk) {
 		this.checkNumOk = checkNumOk;
 	}
@@ -422,6 +451,7 @@ public class SnpEffCmdBuild extends SnpEff {
 		System.err.println("\t-refseq                      : Use RefSeq table from UCSC.");
 		System.err.println("\nDatabase build options:");
 		System.err.println("\t-cellType <type>             : Only build regulation tracks for cellType <type>.");
+		System.err.println("\t-mmap                        : Also save database and genomic sequences in memory-mappable format (faster loading). Default: " + saveMmap);
 		System.err.println("\t-noStoreSeqs                 : Do not store sequence in binary files. Default: " + !storeSequences);
 		System.err.println("\t-onlyReg                     : Only build regulation tracks.");
 		System.err.println("\t-regSortedByType             : The 'regulation.gff' file is sorted by 'regulation type' instead of sorted by chromosome:pos. Default: " + regSortedByType);
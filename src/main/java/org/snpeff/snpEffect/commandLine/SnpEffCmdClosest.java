@@ -12,6 +12,7 @@ import org.snpeff.interval.Marker;
 import org.snpeff.interval.Markers;
 import org.snpeff.interval.Transcript;
 import org.snpeff.interval.Variant;
+import org.snpeff.interval.tree.IntervalSweep;
 import org.snpeff.snpEffect.Config;
 import org.snpeff.snpEffect.SnpEffectPredictor;
 import org.snpeff.util.Timer;
@@ -28,9 +29,11 @@ public class SnpEffCmdClosest extends SnpEff {
 	public static final String INFO_LINE = "##INFO=<ID=" + CLOSEST + ",Number=4,Type=String,Description=\"Closest exon: Distance (bases), exons Id, transcript Id, gene name\">";
 
 	boolean bedFormat = false;
+	boolean sortedInput = false; // Input is sorted by coordinates: Use sweep-line queries
 	boolean tss = false;
 	String inFile;
 	SnpEffectPredictor snpEffectPredictor;
+	IntervalSweep intervalSweep;
 
 	public SnpEffCmdClosest() {
 		super();
@@ -119,7 +122,7 @@ public class SnpEffCmdClosest extends SnpEff {
 				Marker extended = new Marker(chr, start, end, false, "");
 
 				// Find all markers that intersect with 'extended interval'
-				Markers markers = snpEffectPredictor.queryDeep(extended);
+				Markers markers = snpEffectPredictor.queryDeep(extended, intervalSweep);
 
 				// Find minimum distance
 				int minDistance = minDistance(queryMarker, markers);
@@ -201,6 +204,10 @@ public class SnpEffCmdClosest extends SnpEff {
 					bedFormat = true;
 					break;
 
+				case "-sorted":
+					sortedInput = true;
+					break;
+
 				case "-tss":
 					tss = true;
 					break;
@@ -247,6 +254,7 @@ public class SnpEffCmdClosest extends SnpEff {
 		if (verbose) Timer.showStdErr("Building interval forest...");
 		snpEffectPredictor = config.getSnpEffectPredictor();
 		snpEffectPredictor.buildForest();
+		intervalSweep = sortedInput ? new IntervalSweep(snpEffectPredictor.getIntervalForest()) : null;
 		if (verbose) Timer.showStdErr("done");
 
 		// Annotate
@@ -254,6 +262,7 @@ public class SnpEffCmdClosest extends SnpEff {
 		if (bedFormat) bedIterate();
 		else vcfIterate();
 		if (verbose) Timer.showStdErr("done");
+		if (verbose && (intervalSweep != null)) Timer.showStdErr("Sorted input, interval queries. " + intervalSweep);
 
 		return true;
 	}
@@ -272,8 +281,9 @@ public class SnpEffCmdClosest extends SnpEff {
 		System.err.println("snpEff version " + SnpEff.VERSION);
 		System.err.println("Usage: snpEff closestExon [options] genome_version file.vcf");
 		System.err.println("\nOptions:");
-		System.err.println("\t-bed : Input format is BED. Default: VCF");
-		System.err.println("\t-tss : Measure distance from TSS (transcription start site)");
+		System.err.println("\t-bed    : Input format is BED. Default: VCF");
+		System.err.println("\t-sorted : Input is sorted by chromosome and position, use sweep-line queries (faster)");
+		System.err.println("\t-tss    : Measure distance from TSS (transcription start site)");
 		System.exit(-1);
 	}
 
@@ -1,5 +1,6 @@
 package org.snpeff.snpEffect.commandLine;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -9,20 +10,31 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 
 import org.snpeff.SnpEff;
 import org.snpeff.fileIterator.BedFileIterator;
+import org.snpeff.fileIterator.TabixRegionsReader;
 import org.snpeff.fileIterator.VariantFileIterator;
 import org.snpeff.fileIterator.VcfFileIterator;
 import org.snpeff.filter.VariantEffectFilter;
+import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Marker;
 import org.snpeff.interval.Markers;
 import org.snpeff.interval.Transcript;
 import org.snpeff.interval.Variant;
 import org.snpeff.interval.VariantNonRef;
 import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.interval.tree.IntervalSweep;
 import org.snpeff.outputFormatter.BedAnnotationOutputFormatter;
 import org.snpeff.outputFormatter.BedOutputFormatter;
 import org.snpeff.outputFormatter.OutputFormatter;
@@ -31,8 +43,11 @@ import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.SnpEffectPredictor;
 import org.snpeff.snpEffect.VariantEffect;
 import org.snpeff.snpEffect.VariantEffect.EffectImpact;
+import org.snpeff.snpEffect.VariantEffectCache;
 import org.snpeff.snpEffect.VariantEffects;
 import org.snpeff.snpEffect.VcfAnnotator;
+import org.snpeff.stats.AnnotationMetrics;
+import org.snpeff.stats.AnnotationMetrics.Stage;
 import org.snpeff.stats.CountByType;
 import org.snpeff.stats.VariantEffectStats;
 import org.snpeff.stats.VariantStats;
@@ -58,13 +73,14 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 
 	public static final String SUMMARY_TEMPLATE = "snpEff_summary.ftl"; // Summary template file name
 	public static final String SUMMARY_CSV_TEMPLATE = "snpEff_csv_summary.ftl"; // Summary template file name
-	public static final String SUMMARY_GENES_TEMPLATE = "snpEff_genes.ftl"; // Genes template file name
 
 	public static final String DEFAULT_SUMMARY_HTML_FILE = "snpEff_summary.html";
 	public static final String DEFAULT_SUMMARY_CSV_FILE = "snpEff_summary.csv";
 	public static final String DEFAULT_SUMMARY_GENES_FILE = "snpEff_genes.txt";
 
 	public static final int SHOW_EVERY = 10 * 1000;
+	public static final int MULTI_THREAD_BATCH_SIZE = 1000; // Number of entries annotated by a worker in each batch
+	public static final int MULTI_THREAD_BATCHES_PER_WORKER = 4; // Maximum number of pending batches (per worker) before we wait for output
 
 	boolean anyCancerSample;
 	boolean cancer = false; // Perform cancer comparisons
@@ -72,6 +88,9 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	boolean createSummaryCsv = false;
 	boolean createSummaryHtml = true;
 	boolean lossOfFunction = true; // Create loss of function LOF tag?
+	boolean metrics = false; // Collect annotation metrics and publish them as JMX MBeans
+	boolean precompute = false; // Precompute transcript caches (CDS, protein, coordinate maps) after loading the database
+	boolean sortedInput = false; // Input is sorted by coordinates: Use sweep-line queries
 	boolean useGeneId = false; // Use gene ID instead of gene name (VCF output)
 	boolean useLocalTemplate = false; // Use template from 'local' file instead of 'jar' (this is only used for
 										// development and debugging)
@@ -79,13 +98,16 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	boolean useSequenceOntology = true; // Use Sequence Ontology terms
 	int totalErrs = 0;
 	int countVcfEntries = 0;
+	int variantEffectCacheSize = 0; // Cache variant effects (LRU cache size, zero means no cache)
 	long countInputLines = 0;
 	long countVariants = 0;
 	long countEffects = 0;
+	String bgzipFile = null; // Write output to this file, compressed (BGZF) and tabix indexed
 	String cancerSamples = null;
 	String chrStr = "";
 	String inputFile = ""; // Input file
 	String fastaProt = null;
+	String metricsJsonFile = null; // Write annotation metrics to this JSON file
 	String summaryFileCsv; // HTML Summary file name
 	String summaryFileHtml; // CSV Summary file name
 	String summaryGenesFile; // Gene table file
@@ -94,7 +116,14 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	VariantEffectFilter variantEffectResutFilter; // Filter prediction results
 	ArrayList<String> filterIntervalFiles;// Files used for filter intervals
 	ArrayList<String> inputFiles;
+	ArrayList<String> regions; // Regions to annotate: Either 'chr:start-end' or interval files (e.g. BED)
+	Markers regionMarkers; // Only annotate variants in these regions (null if not set)
+	IntervalForest regionIntervals; // Interval forest for 'regionMarkers' (null if not set)
 	IntervalForest filterIntervals; // Filter only variants that match these intervals
+	IntervalSweep intervalSweep; // Sweep-line queries (only used if input is sorted)
+	Markers queryResults = new Markers(); // Reusable interval query results (each worker has its own)
+	VariantEffectCache variantEffectCache; // Cached variant effects (shared by all workers)
+	AnnotationMetrics annotationMetrics; // Annotation metrics (shared by all workers, null if disabled)
 	VariantStats variantStats;
 	VariantEffectStats variantEffectStats;
 	SnpEffectPredictor snpEffectPredictor;
@@ -112,6 +141,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		inputFile = ""; // variant input file
 		variantEffectResutFilter = new VariantEffectFilter(); // Filter prediction results
 		filterIntervalFiles = new ArrayList<>(); // Files used for filter intervals
+		regions = new ArrayList<>(); // Regions to annotate
 		summaryFileHtml = DEFAULT_SUMMARY_HTML_FILE;
 		summaryFileCsv = DEFAULT_SUMMARY_CSV_FILE;
 		summaryGenesFile = DEFAULT_SUMMARY_GENES_FILE;
@@ -134,13 +164,12 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		// Iterate over input files
 		switch (inputFormat) {
 		case VCF:
-			// FIXME: Need to fix multithreding mode
-			// vcf = (multiThreaded ? annotateVcfMulti(inputFile, outputFormatter) : annotateVcf(inputFile));
-			vcf = annotateVcf(inputFile);
+			vcf = (multiThreaded ? annotateVcfMulti(inputFile) : annotateVcf(inputFile));
 			break;
 
 		case BED:
-			annotateBed(inputFile, outputFormatter);
+			if (multiThreaded) annotateBedMulti(inputFile);
+			else annotateBed(inputFile);
 			break;
 
 		default:
@@ -159,27 +188,37 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	 */
 	@Override
 	public boolean annotate(VcfEntry vcfEntry) {
+		VcfFileIterator vcfFile = vcfEntry.getVcfFileIterator();
+		return annotate(vcfEntry, (vcfFile != null) && vcfFile.isHeadeSection());
+	}
+
+	/**
+	 * Annotate a VCF entry
+	 * @param headerSection : Has the VCF header just been read? (i.e. this is the first
+	 * entry). This is captured by the thread reading the VCF file, since the file iterator
+	 * is not thread safe and must not be accessed by workers (see 'annotateVcfMulti')
+	 */
+	boolean annotate(VcfEntry vcfEntry, boolean headerSection) {
 		boolean printed = false;
 		boolean filteredOut = false;
-		VcfFileIterator vcfFile = vcfEntry.getVcfFileIterator();
 
 		try {
 			countInputLines++;
 			countVcfEntries++;
 
 			// Find if there is a pedigree and if it has any 'derived' entry
-			if (vcfFile.isHeadeSection()) {
-				if (cancer) {
-					pedigree = readPedigree(vcfFile);
-					anyCancerSample = pedigree.anyDerived();
-				}
+			if (headerSection && cancer) {
+				pedigree = readPedigree(vcfEntry.getVcfFileIterator());
+				anyCancerSample = pedigree.anyDerived();
 			}
 
 			// VCF entry statistics
 			if (createSummaryHtml || createSummaryCsv) vcfStats.sample(vcfEntry);
 
-			// Skip if there are filter intervals and they are not matched
-			if ((filterIntervals != null) && (filterIntervals.query(vcfEntry).isEmpty())) {
+			// Skip if there are filter intervals or regions and they are not matched (both must match)
+			if (((filterIntervals != null) && (filterIntervals.query(vcfEntry).isEmpty())) //
+					|| ((regionIntervals != null) && (regionIntervals.query(vcfEntry).isEmpty())) //
+			) {
 				filteredOut = true;
 				return false;
 			}
@@ -193,7 +232,9 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 			// Next section deals with cancer: Somatic vs Germline comparisons
 			// ---
 			boolean impactLowOrHigher = false; // Does this entry have an impact (other than MODIFIER)?
+			long start = (annotationMetrics != null ? System.nanoTime() : 0);
 			List<Variant> variants = vcfEntry.variants();
+			if (annotationMetrics != null) annotationMetrics.addTime(Stage.PARSE, start);
 			for (Variant variant : variants) {
 				// Show progress
 				showProgress();
@@ -211,7 +252,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 			printed = true;
 		} catch (Throwable t) {
 			totalErrs++;
-			error(t, "Error while processing VCF entry (line " + vcfFile.getLineNum() + ") :\n\t" + vcfEntry + "\n" + t);
+			error(t, "Error while processing VCF entry (line " + vcfEntry.getLineNum() + ") :\n\t" + vcfEntry + "\n" + t);
 		} finally {
 			if (!printed && !filteredOut) outputFormatter.printSection(vcfEntry);
 		}
@@ -223,52 +264,76 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	 * Iterate on all inputs and calculate effects. Note: This is used for all input
 	 * formats except VCF, which has a different iteration modality
 	 */
-	void annotateBed(String inputFile, OutputFormatter outputFormatter) {
-		SnpEffectPredictor snpEffectPredictor = config.getSnpEffectPredictor();
-
+	void annotateBed(String inputFile) {
 		// Create an input file iterator
 		VariantFileIterator variantFileIterator = new BedFileIterator(inputFile, config.getGenome());
 
 		// ---
 		// Iterate over input file
 		// ---
-		for (Variant variant : variantFileIterator) {
+		for (Variant variant : timedParse(variantFileIterator)) {
 			try {
-				countInputLines++;
+				annotateBed(variant);
+			} catch (Throwable t) {
+				totalErrs++;
+				error(t, "Error while processing variant (line " + variantFileIterator.getLineNum() + ") :\n\t" + variant + "\n" + t);
+			}
+		}
+
+		// Close file iterator (not really needed, but just in case)
+		variantFileIterator.close();
+	}
 
-				countVariants++;
-				if (verbose && (countVariants % SHOW_EVERY == 0)) Timer.showStdErr("\t" + countVariants + " variants");
+	/**
+	 * Annotate a variant from a BED file
+	 */
+	void annotateBed(Variant variant) {
+		countInputLines++;
 
-				// Does it pass the filter? => Analyze
+		countVariants++;
+		if (verbose && (countVariants % SHOW_EVERY == 0)) Timer.showStdErr("\t" + countVariants + " variants");
 
-				// Skip if there are filter intervals and they are not matched
-				if ((filterIntervals != null) && (filterIntervals.stab(variant).size() <= 0)) continue;
+		// Does it pass the filter? => Analyze
 
-				// Perform basic statistics about this variant
-				if (createSummaryHtml || createSummaryCsv) variantStats.sample(variant);
+		// Skip if there are filter intervals or regions and they are not matched (both must match)
+		if ((filterIntervals != null) && (filterIntervals.stab(variant).size() <= 0)) return;
+		if ((regionIntervals != null) && (regionIntervals.stab(variant).size() <= 0)) return;
 
-				// Calculate effects
-				VariantEffects variantEffects = snpEffectPredictor.variantEffect(variant);
+		// Perform basic statistics about this variant
+		if (createSummaryHtml || createSummaryCsv) variantStats.sample(variant);
 
-				// Create new 'section'
-				outputFormatter.startSection(variant);
+		// Calculate effects
+		VariantEffects variantEffects = variantEffect(variant);
 
-				// Show results
-				for (VariantEffect variantEffect : variantEffects) {
-					variantEffectStats.sample(variantEffect); // Perform basic statistics about this result
-					outputFormatter.add(variantEffect);
-					countEffects++;
-				}
+		// Create new 'section'
+		outputFormatter.startSection(variant);
+
+		// Show results
+		for (VariantEffect variantEffect : variantEffects) {
+			variantEffectStats.sample(variantEffect); // Perform basic statistics about this result
+			outputFormatter.add(variantEffect);
+			countEffects++;
+		}
+
+		// Finish up this section
+		outputFormatter.printSection(variant);
+	}
+
+	/**
+	 * Multi-threaded version of 'annotateBed'
+	 */
+	void annotateBedMulti(String inputFile) {
+		VariantFileIterator variantFileIterator = new BedFileIterator(inputFile, config.getGenome());
 
-				// Finish up this section
-				outputFormatter.printSection(variant);
+		annotateMulti(timedParse(variantFileIterator), (worker, variant) -> {
+			try {
+				worker.annotateBed(variant);
 			} catch (Throwable t) {
-				totalErrs++;
-				error(t, "Error while processing variant (line " + variantFileIterator.getLineNum() + ") :\n\t" + variant + "\n" + t);
+				worker.totalErrs++;
+				worker.error(t, "Error while processing variant:\n\t" + variant + "\n" + t);
 			}
-		}
+		});
 
-		// Close file iterator (not really needed, but just in case)
 		variantFileIterator.close();
 	}
 
@@ -280,6 +345,9 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		boolean ok = true;
 
 		if (vcfFile != null) vcfFile.close();
+		if (verbose && (intervalSweep != null)) Timer.showStdErr("Sorted input, interval queries. " + intervalSweep);
+		if (verbose && (variantEffectCache != null)) Timer.showStdErr(variantEffectCache.toString());
+		if (annotationMetrics != null) annotateMetricsFinish();
 
 		// Creates a summary output file
 		if (createSummaryCsv) {
@@ -294,7 +362,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		// Creates genes output file
 		if (createSummaryHtml || createSummaryCsv) {
 			if (verbose) Timer.showStdErr("Creating genes file: " + summaryGenesFile);
-			ok &= summary(SUMMARY_GENES_TEMPLATE, summaryGenesFile, true);
+			ok &= summaryGenes(summaryGenesFile);
 		}
 
 		if (totalErrs > 0) System.err.println(totalErrs + " errors.");
@@ -306,22 +374,21 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	 */
 	protected void annotateInit(String outputFile) {
 		snpEffectPredictor = config.getSnpEffectPredictor();
-
-		// Reset all counters
-		totalErrs = 0;
-		countInputLines = countVariants = countEffects = 0; // = countVariantsFilteredOut = 0;
-		anyCancerSample = false;
-		pedigree = null;
-		errByType = new CountByType();
-		warnByType = new CountByType();
-		countVcfEntries = 0;
-		annotateTimer = new Timer();
-
-		// Create 'stats' objects
-		variantStats = new VariantStats(config.getGenome());
-		variantEffectStats = new VariantEffectStats(config.getGenome());
-		variantEffectStats.setUseSequenceOntology(useSequenceOntology);
-		vcfStats = new VcfStats();
+		intervalSweep = sortedInput ? new IntervalSweep(snpEffectPredictor.getIntervalForest()) : null;
+		annotateInitCounters();
+
+		// Variant effects cache: Cached effects are only valid for this database and options
+		if ((variantEffectCache == null) && (variantEffectCacheSize > 0)) variantEffectCache = new VariantEffectCache(variantEffectCacheSize);
+		if (variantEffectCache != null) variantEffectCache.fingerprint(variantEffectCacheFingerprint());
+
+		// Annotation metrics
+		if (metrics || (metricsJsonFile != null)) {
+			annotationMetrics = new AnnotationMetrics(config.getGenome().getVersion());
+			annotationMetrics.setVariantEffectCache(variantEffectCache);
+			annotationMetrics.setGenomicSequences(config.getGenome().getGenomicSequences());
+			if (metrics) annotationMetrics.register();
+			config.setMetrics(annotationMetrics);
+		}
 
 		if (fastaProt != null) {
 			if ((new File(fastaProt)).delete() && verbose) {
@@ -365,6 +432,30 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		outputFormatter.setUseHgvs(hgvs);
 		outputFormatter.setUseGeneId(useGeneId);
 		outputFormatter.setOutputFile(outputFile);
+		outputFormatter.setBgzip(bgzipFile != null);
+		outputFormatter.setBgzipThreads(numWorkers);
+		outputFormatter.setConfig(config);
+	}
+
+	/**
+	 * Reset all counters and create 'stats' objects
+	 */
+	void annotateInitCounters() {
+		// Reset all counters
+		totalErrs = 0;
+		countInputLines = countVariants = countEffects = 0; // = countVariantsFilteredOut = 0;
+		anyCancerSample = false;
+		pedigree = null;
+		errByType = new CountByType();
+		warnByType = new CountByType();
+		countVcfEntries = 0;
+		annotateTimer = new Timer();
+
+		// Create 'stats' objects
+		variantStats = new VariantStats(config.getGenome());
+		variantEffectStats = new VariantEffectStats(config.getGenome());
+		variantEffectStats.setUseSequenceOntology(useSequenceOntology);
+		vcfStats = new VcfStats();
 	}
 
 	@Override
@@ -390,7 +481,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		// Perform basic statistics about this variant
 		if (createSummaryHtml || createSummaryCsv) variantStats.sample(variant);
 
-		VariantEffects variantEffects = snpEffectPredictor.variantEffect(variant);
+		VariantEffects variantEffects = variantEffect(variant);
 
 		// Create new 'section'
 		outputFormatter.startSection(variant);
@@ -430,7 +521,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		if (!varNonRef.isVariant()) return;
 
 		// Calculate effects
-		VariantEffects variantEffects = snpEffectPredictor.variantEffect(varNonRef);
+		VariantEffects variantEffects = snpEffectPredictor.variantEffect(varNonRef, intervalSweep, queryResults);
 
 		// Create new 'section'
 		outputFormatter.startSection(varNonRef);
@@ -468,11 +559,11 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	 */
 	VcfFileIterator annotateVcf(String inputFile) {
 		// Open VCF file
-		VcfFileIterator vcfFile = new VcfFileIterator(inputFile, config.getGenome());
+		VcfFileIterator vcfFile = openVcf(inputFile);
 		vcfFile.setDebug(debug);
 
 		// Iterate over VCF entries
-		for (VcfEntry vcfEntry : vcfFile)
+		for (VcfEntry vcfEntry : timedParse(vcfFile))
 			annotate(vcfEntry);
 
 		// Empty file? Show at least the header
@@ -487,49 +578,225 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		return vcfFile;
 	}
 
-	// /**
-	// * Multi-threaded iteration on VCF inputs and calculates effects.
-	// * Note: This is used only on input format VCF, which has a different
-	// iteration modality
-	// */
-	// VcfFileIterator annotateVcfMulti(String inputFile, final OutputFormatter
-	// outputFormatter) {
-	// if (verbose) Timer.showStdErr("Running multi-threaded mode (numThreads=" +
-	// numWorkers + ").");
-	//
-	// outputFormatter.setShowHeader(false); // Master process takes care of the
-	// header (instead of outputFormatter). Otherwise you get the header printed one
-	// time per worker.
-	//
-	// // We need final variables for the inner class
-	// final SnpEffectPredictor snpEffectPredictor = config.getSnpEffectPredictor();
-	// final VcfOutputFormatter vcfOutForm = (VcfOutputFormatter) outputFormatter;
-	// final SnpEffCmdEff snpEffCmdEff = this;
-	//
-	// VcfFileIterator vcf = new VcfFileIterator(inputFile, config.getGenome());
-	//
-	// // Master factory
-	// Props props = new Props(new UntypedActorFactory() {
-	//
-	// private static final long serialVersionUID = 1L;
-	//
-	// @Override
-	// public Actor create() {
-	// MasterEff master = new MasterEff(numWorkers, snpEffCmdEff,
-	// snpEffectPredictor, outputFormatter, filterIntervals);
-	// master.setAddHeader(vcfOutForm.getNewHeaderLines().toArray(new String[0]));
-	// return master;
-	// }
-	// });
-	//
-	// // Create and run queue
-	// int batchSize = 10;
-	// VcfWorkQueue vcfWorkQueue = new VcfWorkQueue(inputFile, config, batchSize,
-	// -1, props);
-	// vcfWorkQueue.run(true);
-	//
-	// return vcf;
-	// }
+	/**
+	 * Multi-threaded version of 'annotateVcf'
+	 */
+	VcfFileIterator annotateVcfMulti(String inputFile) {
+		// Open VCF file
+		VcfFileIterator vcfFile = openVcf(inputFile);
+		vcfFile.setDebug(debug);
+
+		// Read pedigree from header before workers are created
+		if (cancer) {
+			vcfFile.readHeader();
+			pedigree = readPedigree(vcfFile);
+			anyCancerSample = pedigree.anyDerived();
+		}
+
+		// Annotate all VCF entries. Header has already been processed (in this
+		// thread), so workers never access the VCF file iterator's state
+		annotateMulti(timedParse(vcfFile), (worker, vcfEntry) -> worker.annotate(vcfEntry, false));
+
+		// Empty file? Show at least the header
+		if (countVcfEntries == 0) outputFormatter.print(vcfFile.getVcfHeader().toString());
+
+		// Show errors and warnings
+		if (verbose) {
+			if (!errByType.isEmpty()) System.err.println("\nERRORS: Some errors were detected\nError type\tNumber of errors\n" + errByType + "\n");
+			if (!warnByType.isEmpty()) System.err.println("\nWARNINGS: Some warning were detected\nWarning type\tNumber of warnings\n" + warnByType + "\n");
+		}
+
+		return vcfFile;
+	}
+
+	/**
+	 * Merge counters and statistics from a worker (see 'annotateMulti')
+	 */
+	void annotateMerge(SnpEffCmdEff worker) {
+		totalErrs += worker.totalErrs;
+		countInputLines += worker.countInputLines;
+		countVcfEntries += worker.countVcfEntries;
+		countVariants += worker.countVariants;
+		countEffects += worker.countEffects;
+		errByType.merge(worker.errByType);
+		warnByType.merge(worker.warnByType);
+
+		variantStats.merge(worker.variantStats);
+		variantEffectStats.merge(worker.variantEffectStats);
+		vcfStats.merge(worker.vcfStats);
+		if (intervalSweep != null) intervalSweep.merge(worker.intervalSweep);
+	}
+
+	/**
+	 * Report annotation metrics and stop collecting them
+	 */
+	void annotateMetricsFinish() {
+		if (verbose) Timer.showStdErr(annotationMetrics.toString());
+		if (metricsJsonFile != null) {
+			if (verbose) Timer.showStdErr("Writing annotation metrics to file '" + metricsJsonFile + "'");
+			annotationMetrics.writeJson(metricsJsonFile);
+		}
+
+		annotationMetrics.unregister();
+		if (config.getMetrics() == annotationMetrics) config.setMetrics(null);
+	}
+
+	/**
+	 * Multi-threaded annotation.
+	 *
+	 * Input entries are read (in this thread) and grouped into batches. Each batch
+	 * is annotated by a worker running on a thread pool. Batch results are written
+	 * (in this thread) in the same order as the input, so the output is identical to
+	 * the single-threaded version.
+	 *
+	 * Workers share the database, but each one has its own output formatter, counters
+	 * and statistics, which are merged after all entries have been processed.
+	 */
+	<T extends Marker> void annotateMulti(Iterable<T> inputs, BiConsumer<SnpEffCmdEff, T> annotator) {
+		if (verbose) Timer.showStdErr("Running multi-threaded mode (numThreads=" + numWorkers + ").");
+
+		ExecutorService executor = Executors.newFixedThreadPool(numWorkers);
+		BlockingQueue<SnpEffCmdEff> idleWorkers = new ArrayBlockingQueue<>(numWorkers);
+		List<SnpEffCmdEff> workers = new ArrayList<>();
+		LinkedList<Tuple<List<T>, Future<Tuple<String, List<VcfEntry>>>>> pending = new LinkedList<>();
+		int maxPending = MULTI_THREAD_BATCHES_PER_WORKER * numWorkers;
+		long countDone = 0;
+
+		try {
+			List<T> batch = new ArrayList<>(MULTI_THREAD_BATCH_SIZE);
+			for (T input : inputs) {
+				// First entry: Show header and create workers. Note that workers clone
+				// the output formatter, so this has to be done after the header is shown
+				if (workers.isEmpty()) {
+					outputFormatter.printHeader(input);
+					for (int i = 0; i < numWorkers; i++) {
+						SnpEffCmdEff worker = annotateMultiWorker();
+						workers.add(worker);
+						idleWorkers.add(worker);
+					}
+				}
+
+				// Submit batch
+				batch.add(input);
+				if (batch.size() >= MULTI_THREAD_BATCH_SIZE) {
+					pending.add(annotateMultiSubmit(executor, idleWorkers, batch, annotator));
+					batch = new ArrayList<>(MULTI_THREAD_BATCH_SIZE);
+				}
+
+				// Too many pending batches? Wait for the oldest one and show results
+				while (pending.size() >= maxPending)
+					countDone = annotateMultiOutput(pending.removeFirst(), countDone);
+			}
+
+			// Submit last batch and show all pending results
+			if (!batch.isEmpty()) pending.add(annotateMultiSubmit(executor, idleWorkers, batch, annotator));
+			while (!pending.isEmpty())
+				countDone = annotateMultiOutput(pending.removeFirst(), countDone);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Merge all workers' counters and statistics
+		for (SnpEffCmdEff worker : workers)
+			annotateMerge(worker);
+
+		if (verbose) Timer.showStdErr("Genomic sequences: threads waited for sequences to be loaded " + config.getGenome().getGenomicSequences().getCountContention() + " times.");
+	}
+
+	/**
+	 * Wait for a batch to finish and show results (in input order)
+	 * @return Number of entries processed so far
+	 */
+	<T extends Marker> long annotateMultiOutput(Tuple<List<T>, Future<Tuple<String, List<VcfEntry>>>> batch, long countDone) {
+		Tuple<String, List<VcfEntry>> result;
+		try {
+			result = batch.second.get();
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		}
+
+		// Show output
+		outputFormatter.print(result.first);
+		if (vcfEntriesDebug != null) vcfEntriesDebug.addAll(result.second);
+
+		// Show progress
+		long countDoneNew = countDone + batch.first.size();
+		if (verbose && (countDone / SHOW_EVERY != countDoneNew / SHOW_EVERY)) {
+			long millisec = annotateTimer.elapsed();
+			if (millisec > 0) Timer.showStdErr("\t" + countDoneNew + " entries (" + ((long) (countDoneNew * 1000.0 / millisec)) + " entries per second)");
+		}
+
+		return countDoneNew;
+	}
+
+	/**
+	 * Submit a batch to be annotated by the next available worker
+	 */
+	<T extends Marker> Tuple<List<T>, Future<Tuple<String, List<VcfEntry>>>> annotateMultiSubmit(ExecutorService executor, BlockingQueue<SnpEffCmdEff> idleWorkers, List<T> batch, BiConsumer<SnpEffCmdEff, T> annotator) {
+		Future<Tuple<String, List<VcfEntry>>> future = executor.submit(() -> {
+			SnpEffCmdEff worker = idleWorkers.take();
+			try {
+				for (T input : batch)
+					annotator.accept(worker, input);
+
+				// Collect results
+				List<VcfEntry> vcfEntries = new ArrayList<>();
+				if (worker.vcfEntriesDebug != null) {
+					vcfEntries.addAll(worker.vcfEntriesDebug);
+					worker.vcfEntriesDebug.clear();
+				}
+				return new Tuple<>(worker.outputFormatter.getBufferedOutput(), vcfEntries);
+			} finally {
+				idleWorkers.put(worker);
+			}
+		});
+
+		return new Tuple<>(batch, future);
+	}
+
+	/**
+	 * Create a worker for multi-threaded annotations.
+	 * Workers share configuration and database, but have their own
+	 * output formatter (buffering output), counters and statistics.
+	 */
+	SnpEffCmdEff annotateMultiWorker() {
+		SnpEffCmdEff worker = new SnpEffCmdEff();
+		worker.config = config;
+		worker.genomeVer = genomeVer;
+		worker.debug = debug;
+		worker.quiet = quiet;
+		worker.verbose = false; // Progress is shown by the master process
+		worker.createSummaryCsv = createSummaryCsv;
+		worker.createSummaryHtml = createSummaryHtml;
+		worker.useSequenceOntology = useSequenceOntology;
+		worker.filterIntervals = filterIntervals;
+		worker.regionIntervals = regionIntervals;
+		worker.snpEffectPredictor = snpEffectPredictor;
+		worker.intervalSweep = sortedInput ? new IntervalSweep(snpEffectPredictor.getIntervalForest()) : null; // Sweeps keep state, one per worker
+		worker.variantEffectCache = variantEffectCache;
+		worker.annotationMetrics = annotationMetrics;
+		worker.annotateInitCounters();
+
+		// Cancer samples have already been read by the master process
+		worker.cancer = false;
+		worker.anyCancerSample = anyCancerSample;
+		worker.pedigree = pedigree;
+
+		// Output formatter
+		worker.outputFormatter = outputFormatter.clone();
+		worker.outputFormatter.setShowHeader(false);
+		worker.outputFormatter.setBufferOutput(true);
+		if (vcfEntriesDebug != null) {
+			worker.vcfEntriesDebug = new ArrayList<>();
+			((VcfOutputFormatter) worker.outputFormatter).setVcfEntries(worker.vcfEntriesDebug);
+		}
+
+		return worker;
+	}
+
+	public AnnotationMetrics getAnnotationMetrics() {
+		return annotationMetrics;
+	}
 
 	public VariantEffectStats getChangeEffectResutStats() {
 		return variantEffectStats;
@@ -612,6 +879,11 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 					// ---
 					// Output options
 					// ---
+					case "-bgzip":
+						if ((i + 1) < args.length) bgzipFile = args[++i];
+						else usage("Missing -bgzip argument");
+						break;
+
 					case "-chr":
 						chrStr = args[++i];
 						break;
@@ -631,6 +903,15 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 						else usage("Missing -cancerSamples argument");
 						break;
 
+					case "-metrics":
+						metrics = true; // Collect annotation metrics (JMX)
+						break;
+
+					case "-metricsjson":
+						if ((i + 1) < args.length) metricsJsonFile = args[++i]; // Write annotation metrics to JSON file
+						else usage("Missing -metricsJson argument");
+						break;
+
 					case "-nochromoplots":
 						chromoPlots = false;
 						break;
@@ -685,6 +966,11 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 					// ---
 					// Annotation options
 					// ---
+					case "-cachesize":
+						if ((i + 1) < args.length) variantEffectCacheSize = Gpr.parseIntSafe(args[++i]); // Cache variant effects
+						else usage("Missing -cacheSize argument");
+						break;
+
 					case "-cancer":
 						cancer = true; // Perform cancer comparisons
 						break;
@@ -730,6 +1016,10 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 						useOicr = true; // Use OICR tag
 						break;
 
+					case "-precompute":
+						precompute = true; // Precompute transcript caches
+						break;
+
 					case "-sequenceontology":
 						useSequenceOntology = true; // Use SO temrs
 						break;
@@ -737,12 +1027,21 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 					// ---
 					// Input options
 					// ---
+					case "-sorted":
+						sortedInput = true; // Input is sorted by coordinates
+						break;
+
 					case "-fi":
 					case "-filterinterval":
 						if ((i + 1) < args.length) filterIntervalFiles.add(args[++i]);
 						else usage("Option '-fi' without config filter_interval_file argument");
 						break;
 
+					case "-region":
+						if ((i + 1) < args.length) regions.add(args[++i]);
+						else usage("Option '-region' without region argument");
+						break;
+
 					case "-i":
 						// Input format
 						if ((i + 1) < args.length) {
@@ -822,6 +1121,9 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		if (inputFile.isEmpty()) inputFile = "-"; // Use STDIN as default
 		else if (!Gpr.canRead(inputFile)) usage("Cannot read input file '" + inputFile + "'");
 
+		// Compressed output is written to a single file
+		if (isFileList && (bgzipFile != null)) usage("Option '-bgzip' cannot be used with '-fileList'");
+
 		// Read input files from file list?
 		if (isFileList) {
 			inputFiles = new ArrayList<>();
@@ -836,13 +1138,8 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		if (!isOutVcf && cancer) usage("Canccer annotation is only supported when when output is in VCF format");
 
 		// Sanity check for multi-threaded version
-		if (multiThreaded) {
-			createSummaryHtml = false; // This is implied ( '-t' => '-noStats' )
-			createSummaryCsv = false;
-		}
-		if (multiThreaded && cancer) usage("Cancer analysis is currently not supported in multi-threaded mode.");
-		if (multiThreaded && !isOutVcf) usage("Multi-threaded option is only supported when when output is in VCF format");
-		if (multiThreaded && (createSummaryHtml || createSummaryCsv)) usage("Multi-threaded option should be used with 'noStats'.");
+		if (multiThreaded && (fastaProt != null)) usage("Multi-threaded option is not supported when using '-fastaProt'");
+		if (multiThreaded && (numWorkers < 1)) usage("Invalid number of threads: " + numWorkers);
 	}
 
 	/**
@@ -876,6 +1173,52 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		}
 	}
 
+	/**
+	 * Open a VCF file. If regions are set and the file is bgzipped and tabix
+	 * indexed, only blocks overlapping the regions are read
+	 */
+	VcfFileIterator openVcf(String inputFile) {
+		if ((regionMarkers != null) && TabixRegionsReader.hasIndex(inputFile)) {
+			if (verbose) Timer.showStdErr("Reading " + regionMarkers.size() + " regions from '" + inputFile + "' using tabix index");
+			try {
+				return new VcfFileIterator(new TabixRegionsReader(inputFile, regionMarkers), config.getGenome());
+			} catch (IOException e) {
+				throw new RuntimeException("Error opening file '" + inputFile + "'", e);
+			}
+		}
+
+		return new VcfFileIterator(inputFile, config.getGenome());
+	}
+
+	/**
+	 * Parse a region in the format "chr:start-end", "chr:pos" or "chr"
+	 * (one-based coordinates, 'start' and 'end' included)
+	 */
+	Marker parseRegion(String region) {
+		String chr = parseRegionChromosome(region);
+		int start = 0, end = Integer.MAX_VALUE - 1;
+
+		int colon = region.lastIndexOf(':');
+		if (colon > 0) {
+			String coords[] = region.substring(colon + 1).replace(",", "").split("-");
+			start = Gpr.parseIntSafe(coords[0]) - 1;
+			end = (coords.length > 1 ? Gpr.parseIntSafe(coords[1]) - 1 : start);
+			if ((coords.length > 2) || (start < 0) || (end < start)) throw new RuntimeException("Invalid region '" + region + "'. Expected format: 'chr:start-end'");
+		}
+
+		Chromosome chromo = config.getGenome().getChromosome(chr);
+		if (chromo == null) throw new RuntimeException("Invalid region '" + region + "': Chromosome '" + chr + "' not found in genome '" + config.getGenome().getVersion() + "'");
+		return new Marker(chromo, start, end, false, region);
+	}
+
+	/**
+	 * Chromosome name from a region in the format "chr:start-end", "chr:pos" or "chr"
+	 */
+	String parseRegionChromosome(String region) {
+		int colon = region.lastIndexOf(':');
+		return colon > 0 ? region.substring(0, colon) : region;
+	}
+
 	/**
 	 * Read a file after checking for some common error conditions
 	 */
@@ -926,36 +1269,11 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 	 * Run according to command line options
 	 */
 	public List<VcfEntry> run(boolean createList) {
-		// ---
-		// Prepare to run
-		// ---
-
-		// Nothing to filter out => don't waste time
-		if (!variantEffectResutFilter.anythingSet()) variantEffectResutFilter = null;
-
-		filterIntervals = null;
-
-		loadConfig(); // Read config file
-		loadDb(); // Load database
+		runLoad();
 
 		// Check if we can open the input file (no need to check if it is STDIN)
 		if (!Gpr.canRead(inputFile)) usage("Cannot open input file '" + inputFile + "'");
 
-		// Read filter interval files
-		for (String filterIntFile : filterIntervalFiles) {
-			if (filterIntervals == null) filterIntervals = new IntervalForest();
-			if (verbose) Timer.showStdErr("Reading filter interval file '" + filterIntFile + "'");
-			int count = readFilterIntFile(filterIntFile);
-			if (verbose) Timer.showStdErr("done (" + count + " intervals loaded). ");
-		}
-
-		// Build interval forest for filter (if any)
-		if (filterIntervals != null) {
-			if (verbose) Timer.showStdErr("Building filter interval forest");
-			filterIntervals.build();
-			if (verbose) Timer.showStdErr("done.");
-		}
-
 		// Store VCF results in a list?
 		if (createList) vcfEntriesDebug = new ArrayList<>();
 
@@ -963,8 +1281,8 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		boolean ok = true;
 		if (verbose) Timer.showStdErr("Predicting variants");
 		if (inputFiles == null) {
-			// Single input file, output to STDOUT (typical usage)
-			ok = annotate(inputFile, null);
+			// Single input file, output to STDOUT (typical usage) or to a compressed file
+			ok = annotate(inputFile, bgzipFile);
 		} else {
 			// Multiple input and output files
 			for (String inputFile : inputFiles) {
@@ -985,10 +1303,80 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		return vcfEntriesDebug;
 	}
 
+	/**
+	 * Prepare to run: Read config file, database and filter intervals
+	 */
+	void runLoad() {
+		// Nothing to filter out => don't waste time
+		if (!variantEffectResutFilter.anythingSet()) variantEffectResutFilter = null;
+
+		filterIntervals = null;
+
+		loadConfig(); // Read config file
+
+		// Regions to annotate: Only genes in the regions' chromosomes are loaded
+		regionMarkers = null;
+		if (!regions.isEmpty()) {
+			regionMarkers = new Markers();
+			chromosomesToLoad = new HashSet<>();
+			for (String region : regions) {
+				if (Gpr.exists(region)) {
+					// Interval file (e.g. BED)
+					Markers markers = loadMarkers(region);
+					regionMarkers.add(markers);
+					for (Marker m : markers)
+						chromosomesToLoad.add(m.getChromosomeName());
+				} else chromosomesToLoad.add(parseRegionChromosome(region));
+			}
+		}
+
+		loadDb(); // Load database
+
+		// Precompute transcript caches, so annotation threads only read them
+		if (precompute) {
+			if (verbose) Timer.showStdErr("Precomputing transcripts (numThreads=" + numWorkers + ")");
+			config.getSnpEffectPredictor().precompute(numWorkers);
+			if (verbose) Timer.showStdErr("done.");
+		}
+
+		// Read filter interval files
+		for (String filterIntFile : filterIntervalFiles) {
+			if (filterIntervals == null) filterIntervals = new IntervalForest();
+			if (verbose) Timer.showStdErr("Reading filter interval file '" + filterIntFile + "'");
+			int count = readFilterIntFile(filterIntFile);
+			if (verbose) Timer.showStdErr("done (" + count + " intervals loaded). ");
+		}
+
+		// Regions to annotate: Only variants in these regions are annotated (and shown)
+		if (regionMarkers != null) {
+			for (String region : regions)
+				if (!Gpr.exists(region)) regionMarkers.add(parseRegion(region)); // Interval files were loaded before the database
+
+			// Note: Regions are kept separate from filter intervals, a variant must match both
+			regionIntervals = new IntervalForest(regionMarkers);
+			regionIntervals.build();
+			if (verbose) Timer.showStdErr("Regions to annotate: " + regionMarkers.size());
+		} else regionIntervals = null;
+
+		// Build interval forest for filter (if any)
+		if (filterIntervals != null) {
+			if (verbose) Timer.showStdErr("Building filter interval forest");
+			filterIntervals.build();
+			if (verbose) Timer.showStdErr("done.");
+		}
+	}
+
 	public void setFormatVersion(EffFormatVersion formatVersion) {
 		this.formatVersion = formatVersion;
 	}
 
+	/**
+	 * Use a variant effects cache (e.g. to share it between several annotation runs)
+	 */
+	public void setVariantEffectCache(VariantEffectCache variantEffectCache) {
+		this.variantEffectCache = variantEffectCache;
+	}
+
 	/**
 	 * Should we annotate cancer variants?
 	 */
@@ -1077,6 +1465,27 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		return root;
 	}
 
+	/**
+	 * Creates genes output file (written line by line, no template)
+	 */
+	boolean summaryGenes(String outputFile) {
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile)))) {
+			variantEffectStats.writeGenes(out);
+		} catch (IOException e) {
+			error(e, "Error creating genes file: " + e.getMessage());
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Add input iteration time (reading and parsing entries) to annotation metrics
+	 */
+	<T> Iterable<T> timedParse(Iterable<T> inputs) {
+		return annotationMetrics != null ? annotationMetrics.timed(Stage.PARSE, inputs) : inputs;
+	}
+
 	/**
 	 * Show 'usage;' message and exit with an error code '-1'
 	 *
@@ -1095,15 +1504,20 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		System.err.println("\tvariants_file                   : Default is STDIN");
 		System.err.println("\n");
 		System.err.println("\nOptions:");
+		System.err.println("\t-bgzip <file>                   : Write output to a BGZF compressed file (same as 'bgzip'), blocks are compressed in parallel. A tabix index ('<file>.tbi') is created if the output is a sorted VCF.");
 		System.err.println("\t-chr <string>                   : Prepend 'string' to chromosome name (e.g. 'chr1' instead of '1'). Only on TXT output.");
 		System.err.println("\t-classic                        : Use old style annotations instead of Sequence Ontology and Hgvs.");
 		System.err.println("\t-csvStats <file>                : Create CSV summary file.");
 		System.err.println("\t-download                       : Download reference genome if not available. Default: " + download);
 		System.err.println("\t-i <format>                     : Input format [ vcf, bed ]. Default: VCF.");
 		System.err.println("\t-fileList                       : Input actually contains a list of files to process.");
+		System.err.println("\t-metrics                        : Collect annotation metrics (time by stage, variants per second, cache hits, etc.) and publish them as JMX MBeans. Default: " + metrics);
+		System.err.println("\t-metricsJson <file>             : Collect annotation metrics and write them to a JSON file at the end of the run.");
 		System.err.println("\t-o <format>                     : Ouput format [ vcf, gatk, bed, bedAnn ]. Default: VCF.");
+		System.err.println("\t-region <chr:start-end | file>  : Only annotate variants in this region or in the intervals from this file (e.g. BED). Bgzipped VCF files having a tabix index ('.tbi') are only read in these regions. Memory-mapped databases only load genes in these regions' chromosomes. This option can be used several times.");
 		System.err.println("\t-s , -stats, -htmlStats         : Create HTML summary file.  Default is '" + DEFAULT_SUMMARY_HTML_FILE + "'");
 		System.err.println("\t-noStats                        : Do not create stats (summary) file");
+		System.err.println("\t-sorted                         : Input is sorted by chromosome and position, use sweep-line queries (faster). Default: " + sortedInput);
 		System.err.println("\nResults filter options:");
 		System.err.println("\t-fi , -filterInterval  <file>   : Only analyze changes that intersect with the intervals specified in this file (you may use this option many times)");
 		System.err.println("\t-no-downstream                  : Do not show DOWNSTREAM changes");
@@ -1113,6 +1527,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		System.err.println("\t-no-utr                         : Do not show 5_PRIME_UTR or 3_PRIME_UTR changes");
 		System.err.println("\t-no <effectType>                : Do not show 'EffectType'. This option can be used several times.");
 		System.err.println("\nAnnotations options:");
+		System.err.println("\t-cacheSize <num>                : Cache effects of up to 'num' variants (faster when the same variants are repeated). Default: " + variantEffectCacheSize);
 		System.err.println("\t-cancer                         : Perform 'cancer' comparisons (Somatic vs Germline). Default: " + cancer);
 		System.err.println("\t-cancerSamples <file>           : Two column TXT file defining 'oringinal \\t derived' samples.");
 		System.err.println("\t-fastaProt <file>               : Create an output file containing the resulting protein sequences.");
@@ -1127,6 +1542,7 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		System.err.println("\t-noLof                          : Do not add LOF and NMD annotations.");
 		System.err.println("\t-noShiftHgvs                    : Do not shift variants according to HGVS notation (most 3prime end).");
 		System.err.println("\t-oicr                           : Add OICR tag in VCF file. Default: " + useOicr);
+		System.err.println("\t-precompute                     : Precompute transcript caches (CDS, protein, coordinate maps) after loading the database. Default: " + precompute);
 		System.err.println("\t-sequenceOntology               : Use Sequence Ontology terms. Default: " + useSequenceOntology);
 
 		usageGenericAndDb();
@@ -1155,4 +1571,60 @@ public class SnpEffCmdEff extends SnpEff implements VcfAnnotator {
 		return new VariantNonRef(variantAlt, variantRef);
 	}
 
+	/**
+	 * Calculate variant effects (use cached effects if available)
+	 */
+	VariantEffects variantEffect(Variant variant) {
+		long start = (annotationMetrics != null ? System.nanoTime() : 0);
+
+		VariantEffects variantEffects = null;
+		if ((variantEffectCache == null) || !VariantEffectCache.isCacheable(variant)) {
+			variantEffects = snpEffectPredictor.variantEffect(variant, intervalSweep, queryResults);
+		} else {
+			variantEffects = variantEffectCache.get(variant);
+			if (variantEffects == null) {
+				variantEffects = snpEffectPredictor.variantEffect(variant, intervalSweep, queryResults);
+				variantEffectCache.put(variant, variantEffects);
+			}
+		}
+
+		if (annotationMetrics != null) {
+			annotationMetrics.add(Stage.EFFECT, start);
+			annotationMetrics.addEffects(variantEffects.size());
+		}
+		return variantEffects;
+	}
+
+	/**
+	 * Database identity: File name, size and modification time
+	 * Note: Predictors not loaded from a database file (e.g. created using the API) can only be identified by instance
+	 */
+	String variantEffectCacheDatabaseId() {
+		String dbFile = snpEffectPredictor.getDatabaseFileName();
+		if (dbFile == null) return "instance:" + System.identityHashCode(snpEffectPredictor);
+
+		File file = new File(dbFile);
+		if (!file.isFile()) file = new File(dbFile + ".gz");
+		return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+	}
+
+	/**
+	 * Database and options fingerprint: Cached variant effects are only valid for the same fingerprint
+	 */
+	String variantEffectCacheFingerprint() {
+		return config.getGenome().getVersion() //
+				+ "\t" + variantEffectCacheDatabaseId() //
+				+ "\t" + snpEffectPredictor.getUpDownStreamLength() //
+				+ "\t" + snpEffectPredictor.getSpliceRegionExonSize() //
+				+ "\t" + snpEffectPredictor.getSpliceRegionIntronMin() //
+				+ "\t" + snpEffectPredictor.getSpliceRegionIntronMax() //
+				+ "\t" + config.isHgvs() //
+				+ "\t" + config.isHgvsShift() //
+				+ "\t" + config.isHgvs1LetterAA() //
+				+ "\t" + config.isHgvsOld() //
+				+ "\t" + config.isHgvsTrId() //
+				+ "\t" + config.isTreatAllAsProteinCoding() //
+		;
+	}
+
 }
@@ -0,0 +1,309 @@
+package org.snpeff.snpEffect.commandLine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.snpeff.SnpEff;
+import org.snpeff.fileIterator.VcfFileIterator;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.Timer;
+import org.snpeff.vcf.VcfEntry;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Command line: Annotation server
+ *
+ * Databases are loaded only once, then VCF files are annotated
+ * over a local HTTP connection:
+ * 		- POST /ann/genome_version : Request body is a VCF file, response is the annotated VCF file
+ * 		- POST /ann                : Same as above (only if a single genome is loaded)
+ * 		- GET  /genomes            : List of loaded genomes
+ *
+ * Requests are processed concurrently. All requests share the database,
+ * but each request has its own output formatter and counters (see
+ * SnpEffCmdEff.annotateMultiWorker)
+ *
+ * Note: Cancer comparisons ('-cancer') are not supported
+ *
+ * @author pcingola
+ */
+public class SnpEffCmdServer extends SnpEff {
+
+	public static final int DEFAULT_PORT = 8090;
+	public static final String CONTENT_TYPE = "text/plain";
+	public static final String ERROR_TRAILER = "#SNPEFF_ERROR\t"; // Last line of a response truncated by an error
+	public static final String PATH_ANN = "/ann";
+	public static final String PATH_GENOMES = "/genomes";
+
+	int port = DEFAULT_PORT;
+	String effArgs[]; // Annotation options (parsed by SnpEffCmdEff)
+	List<String> genomeVers;
+	Map<String, SnpEffCmdEff> annotators; // Annotators by genome version
+	AtomicLong countRequests = new AtomicLong();
+	CountDownLatch stopped;
+	ExecutorService executor;
+	HttpServer server;
+
+	public SnpEffCmdServer() {
+		super();
+		command = "server";
+	}
+
+	/**
+	 * Annotate a VCF file (request body) and stream results
+	 *
+	 * The VCF header and first entry are parsed before responding, so invalid
+	 * requests get an error status code. Once the response is streaming, the
+	 * status code cannot be changed: errors are reported by appending an
+	 * ERROR_TRAILER line to the (truncated) output
+	 */
+	void annotate(HttpExchange exchange) throws IOException {
+		boolean responseSent = false;
+		try {
+			// Find annotator
+			String genomeVer = exchange.getRequestURI().getPath().substring(PATH_ANN.length());
+			if (genomeVer.startsWith("/")) genomeVer = genomeVer.substring(1);
+			if (genomeVer.isEmpty() && (genomeVers.size() == 1)) genomeVer = genomeVers.get(0);
+
+			SnpEffCmdEff eff = annotators.get(genomeVer);
+			if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+				send(exchange, 405, "Method not allowed, use 'POST'");
+				return;
+			}
+			if (eff == null) {
+				send(exchange, 404, "Genome '" + genomeVer + "' not loaded");
+				return;
+			}
+
+			// Each request has its own output formatter and counters
+			long reqNum = countRequests.incrementAndGet();
+			SnpEffCmdEff worker = eff.annotateMultiWorker();
+			worker.outputFormatter.setShowHeader(true);
+
+			VcfFileIterator vcf = new VcfFileIterator(new BufferedReader(new InputStreamReader(exchange.getRequestBody())), eff.getConfig().getGenome());
+			vcf.setDebug(debug);
+			try {
+				// Parse header and first entry
+				VcfEntry vcfEntry;
+				try {
+					vcfEntry = vcf.next();
+				} catch (Throwable t) {
+					send(exchange, 400, "Error parsing VCF: " + t.getMessage());
+					responseSent = true;
+					throw t;
+				}
+
+				// Response length is unknown: Stream results as entries are annotated
+				exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+				exchange.sendResponseHeaders(200, 0);
+				responseSent = true;
+
+				try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody()))) {
+					try {
+						for (; vcfEntry != null; vcfEntry = vcf.next()) {
+							worker.annotate(vcfEntry);
+							print(out, worker.outputFormatter.getBufferedOutput());
+						}
+
+						// Empty file? Show at least the header
+						if (worker.countVcfEntries == 0) print(out, vcf.getVcfHeader().toString());
+					} catch (Throwable t) {
+						print(out, ERROR_TRAILER + String.valueOf(t.getMessage()).replaceAll("\\s+", " ")); // Single line
+						throw t;
+					}
+				}
+			} finally {
+				vcf.close();
+			}
+
+			if (verbose) Timer.showStdErr("Request " + reqNum + ": Genome '" + genomeVer + "', " + worker.countVcfEntries + " VCF entries, " + worker.totalErrs + " errors.");
+		} catch (Throwable t) {
+			error(t, "Error processing request '" + exchange.getRequestURI() + "': " + t);
+			if (!responseSent) send(exchange, 500, "Error processing request: " + t.getMessage());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Show loaded genomes
+	 */
+	void genomes(HttpExchange exchange) throws IOException {
+		try {
+			StringBuilder sb = new StringBuilder();
+			for (String genomeVer : genomeVers)
+				sb.append(genomeVer + "\n");
+			send(exchange, 200, sb.toString());
+		} finally {
+			exchange.close();
+		}
+	}
+
+	public long getCountRequests() {
+		return countRequests.get();
+	}
+
+	public int getPort() {
+		return server != null ? server.getAddress().getPort() : port;
+	}
+
+	/**
+	 * Create an annotator for a genome: Load configuration and database
+	 */
+	SnpEffCmdEff loadGenome(String genomeVer) {
+		if (verbose) Timer.showStdErr("Loading genome '" + genomeVer + "'");
+
+		SnpEffCmdEff eff = new SnpEffCmdEff();
+		copyValues(eff);
+		eff.parseArgs(effArgs);
+		eff.setGenomeVer(genomeVer);
+
+		// Re-use configuration (e.g. when invoked from API)
+		if ((config != null) && genomeVer.equals(config.getGenome().getVersion())) eff.setConfig(config);
+
+		eff.runLoad();
+		eff.createSummaryCsv = eff.createSummaryHtml = false; // Summaries are not created for requests
+		eff.annotateInit((String) null);
+
+		return eff;
+	}
+
+	/**
+	 * Parse command line arguments
+	 */
+	@Override
+	public void parseArgs(String[] args) {
+		this.args = args;
+
+		// Server options. Other options are annotation options
+		List<String> effArgsList = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+
+			if (arg.equalsIgnoreCase("-port")) {
+				if ((i + 1) < args.length) port = Gpr.parseIntSafe(args[++i]);
+				else usage("Missing port number");
+			} else effArgsList.add(arg);
+		}
+		effArgs = effArgsList.toArray(new String[0]);
+
+		// Parse annotation options, genome versions are comma separated
+		SnpEffCmdEff eff = new SnpEffCmdEff();
+		copyValues(eff);
+		eff.parseArgs(effArgs);
+
+		genomeVers = new ArrayList<>();
+		for (String genomeVer : eff.getGenomeVer().split(","))
+			if (!genomeVer.isEmpty() && !genomeVers.contains(genomeVer)) genomeVers.add(genomeVer);
+
+		// Sanity checks
+		if (genomeVers.isEmpty()) usage("Missing genome_version parameter");
+		if (port < 0 || port > 65535) usage("Invalid port number: " + port);
+		if (numWorkers < 1) usage("Invalid number of threads: " + numWorkers);
+		if (eff.cancer) usage("Option '-cancer' is not supported by the server (cancer samples are not available for each request)");
+	}
+
+	/**
+	 * Print a string (if not empty) and a newline
+	 */
+	void print(Writer out, String str) throws IOException {
+		if (str.isEmpty()) return;
+		out.write(str);
+		out.write('\n');
+	}
+
+	/**
+	 * Start server and wait until it is stopped
+	 */
+	@Override
+	public boolean run() {
+		start();
+
+		try {
+			stopped.await();
+		} catch (InterruptedException e) {
+			stop();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Send a (short) text response
+	 */
+	void send(HttpExchange exchange, int code, String msg) throws IOException {
+		byte bytes[] = msg.getBytes();
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+		exchange.sendResponseHeaders(code, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Load databases and start server (only local connections are accepted)
+	 */
+	public void start() {
+		annotators = new LinkedHashMap<>();
+		for (String genomeVer : genomeVers)
+			annotators.put(genomeVer, loadGenome(genomeVer));
+
+		try {
+			server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot start server on port " + port, e);
+		}
+
+		server.createContext(PATH_ANN, this::annotate);
+		server.createContext(PATH_GENOMES, this::genomes);
+		executor = Executors.newFixedThreadPool(numWorkers); // Concurrent requests
+		server.setExecutor(executor);
+		stopped = new CountDownLatch(1);
+		server.start();
+
+		if (verbose) Timer.showStdErr("Server listening on 'http://" + server.getAddress().getHostString() + ":" + getPort() + PATH_ANN + "/genome_version' (numThreads=" + numWorkers + ").");
+	}
+
+	/**
+	 * Stop server
+	 */
+	public void stop() {
+		if (server != null) server.stop(0);
+		if (executor != null) executor.shutdownNow();
+		if (stopped != null) stopped.countDown();
+	}
+
+	@Override
+	public void usage(String message) {
+		if (message != null) System.err.println("Error: " + message + "\n");
+		System.err.println("snpEff version " + SnpEff.VERSION);
+		System.err.println("Usage: snpEff server [options] genome_version[,genome_version_2,...]");
+		System.err.println("\nAnnotation server: Databases are loaded once, then VCF files are annotated using local HTTP requests:");
+		System.err.println("\tPOST /ann/genome_version : Annotate a VCF file (request body), respond with the annotated VCF file.");
+		System.err.println("\tPOST /ann                : Same as above, only when a single genome is loaded.");
+		System.err.println("\tGET  /genomes            : Show loaded genomes.");
+		System.err.println("\nOptions:");
+		System.err.println("\t-port <num> : Port number (only local connections are accepted). Default: " + DEFAULT_PORT);
+		System.err.println("\t-t <num>    : Maximum number of concurrent requests. Default: " + numWorkers);
+		System.err.println("\nAnnotation options are the same as in 'ann' command (see 'snpEff ann -h'), except '-cancer' which is not supported.");
+		System.exit(-1);
+	}
+
+}
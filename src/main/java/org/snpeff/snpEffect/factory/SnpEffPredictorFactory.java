@@ -8,7 +8,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import org.snpeff.fileIterator.FastaFileIndexed;
 import org.snpeff.fileIterator.FastaFileIterator;
 import org.snpeff.interval.Cds;
 import org.snpeff.interval.Chromosome;
@@ -48,6 +55,7 @@ public abstract class SnpEffPredictorFactory {
 	boolean verbose = false;
 	int lineNum;
 	int inOffset; // This amount is subtracted to all position coordinates
+	int numThreads = 1; // Number of threads used to process chromosomes and genes (1 means single threaded)
 	int totalSeqsAdded = 0, totalSeqsIgnored = 0; // Number of sequences added and ignored
 	String fileName;
 	String fastaFile; // Only used for debugging or testing
@@ -62,6 +70,8 @@ public abstract class SnpEffPredictorFactory {
 	Map<String, Gene> genesById;
 	Map<String, Transcript> transcriptsById;
 	Random random = new Random(20140410); // Note: we want consistent results in our test cases, so we always initialize the random generator in the same way
+	ExecutorService sequenceExecutor; // Add sequences in parallel (one task per chromosome)
+	List<Future<?>> sequenceTasks; // Pending 'add sequences' tasks
 
 	public SnpEffPredictorFactory(Config config, int inOffset) {
 		this.config = config;
@@ -158,23 +168,25 @@ public abstract class SnpEffPredictorFactory {
 	/**
 	 * Add genomic reference sequences
 	 */
-	protected void addSequences(String chr, String chrSeq) {
-		// Update chromosome length
+	protected void addSequences(String chr, CharSequence chrSeq) {
+		Chromosome chromo = addSequencesChromo(chr, chrSeq);
+		addSequences(chromo, chr, chrSeq);
+	}
+
+	/**
+	 * Add genomic reference sequences for chromosome 'chr'
+	 *
+	 * Note: This method only modifies genes in chromosome 'chr', so
+	 *       different chromosomes can be processed in parallel
+	 */
+	void addSequences(Chromosome chromo, String chr, CharSequence chrSeq) {
 		int chrLen = chrSeq.length();
-		Chromosome chromo = getOrCreateChromosome(chr);
-		chromo.setLength(chrLen);
-		chromo.detectCircular();
 
 		// Add sequences for each gene
 		int seqsAdded = 0, seqsIgnored = 0;
 
-		if (storeSequences) {
-			if (verbose) System.out.print("\t\tAdding genomic sequences to genes: ");
-			int count = genome.getGenomicSequences().addGeneSequences(chr, chrSeq);
-			if (verbose) System.out.println("\tDone (" + count + " sequences added).");
-		}
-
-		if (verbose) System.out.print("\t\tAdding genomic sequences to exons: ");
+		int geneSeqsAdded = 0;
+		if (storeSequences) geneSeqsAdded = genome.getGenomicSequences().addGeneSequences(chr, chrSeq);
 
 		// Find and add sequences for all exons in this chromosome
 		for (Gene gene : genome.getGenes()) {
@@ -196,7 +208,7 @@ public abstract class SnpEffPredictorFactory {
 					if ((ssStart >= 0) && (ssEnd <= chrLen)) {
 						// Regular coordinates
 						try {
-							seq = chrSeq.substring(ssStart, ssEnd);
+							seq = chrSeq.subSequence(ssStart, ssEnd).toString();
 						} catch (Throwable t) {
 							t.printStackTrace();
 							throw new RuntimeException("Error trying to add sequence to exon:\n\tChromosome sequence length: " + chrSeq.length() + "\n\tExon: " + exon);
@@ -212,7 +224,7 @@ public abstract class SnpEffPredictorFactory {
 							//     ii) Interval after zero: This are "normal" coordinates
 							// Then we concatenate both sequences
 							ssStart += chrLen;
-							seq = chrSeq.substring(ssStart, chrLen) + chrSeq.substring(0, ssEnd);
+							seq = chrSeq.subSequence(ssStart, chrLen).toString() + chrSeq.subSequence(0, ssEnd);
 						} else if ((ssStart < 0) && (ssEnd < 0)) {
 							// Negative start coordinates? This is probably a circular genome
 							// Convert to 2 intervals:
@@ -221,7 +233,7 @@ public abstract class SnpEffPredictorFactory {
 							// Then we concatenate both sequences
 							ssStart += chrLen;
 							ssEnd += chrLen;
-							seq = chrSeq.substring(ssStart, ssEnd);
+							seq = chrSeq.subSequence(ssStart, ssEnd).toString();
 						}
 					}
 
@@ -240,9 +252,61 @@ public abstract class SnpEffPredictorFactory {
 			}
 		}
 
-		if (verbose) System.out.println("\tDone (" + seqsAdded + " sequences added, " + seqsIgnored + " ignored).");
-		totalSeqsAdded += seqsAdded;
-		totalSeqsIgnored += seqsIgnored;
+		if (verbose) System.out.println("\t\tAdding genomic sequences '" + chr + "': " //
+				+ (storeSequences ? geneSeqsAdded + " gene sequences, " : "") //
+				+ seqsAdded + " exon sequences added, " + seqsIgnored + " ignored." //
+		);
+
+		synchronized (this) {
+			totalSeqsAdded += seqsAdded;
+			totalSeqsIgnored += seqsIgnored;
+		}
+	}
+
+	/**
+	 * Add genomic reference sequences in a background thread (if numThreads > 1).
+	 * Call 'addSequencesWait()' to make sure that all sequences have been added
+	 */
+	protected void addSequencesAsync(String chr, CharSequence chrSeq) {
+		Chromosome chromo = addSequencesChromo(chr, chrSeq);
+		if (numThreads <= 1) {
+			addSequences(chromo, chr, chrSeq);
+			return;
+		}
+
+		if (sequenceExecutor == null) {
+			sequenceExecutor = Executors.newFixedThreadPool(numThreads);
+			sequenceTasks = new ArrayList<>();
+		}
+
+		// Limit the number of chromosome sequences in memory: Wait for the oldest task
+		if (sequenceTasks.size() >= numThreads) waitTask(sequenceTasks.remove(0));
+		sequenceTasks.add(sequenceExecutor.submit(() -> addSequences(chromo, chr, chrSeq)));
+	}
+
+	/**
+	 * Update chromosome length, create chromosome if it doesn't exist
+	 */
+	Chromosome addSequencesChromo(String chr, CharSequence chrSeq) {
+		Chromosome chromo = getOrCreateChromosome(chr);
+		chromo.setLength(chrSeq.length());
+		chromo.detectCircular();
+		return chromo;
+	}
+
+	/**
+	 * Wait until all sequences added by 'addSequencesAsync' are finished
+	 */
+	protected void addSequencesWait() {
+		if (sequenceExecutor == null) return;
+		try {
+			for (Future<?> task : sequenceTasks)
+				waitTask(task);
+		} finally {
+			sequenceExecutor.shutdown();
+			sequenceExecutor = null;
+			sequenceTasks = null;
+		}
 	}
 
 	/**
@@ -290,12 +354,8 @@ public abstract class SnpEffPredictorFactory {
 	 * Adjust transcripts: recalculate start, end, strand, etc.
 	 */
 	protected void adjustTranscripts() {
-		int i = 1;
 		if (verbose) System.out.print("\n\tAdjusting transcripts: ");
-		for (Gene gene : genome.getGenes())
-			for (Transcript tr : gene)
-				if (tr.adjust()) mark(i++);
-
+		forEachTranscript(tr -> tr.adjust());
 	}
 
 	/**
@@ -601,20 +661,44 @@ public abstract class SnpEffPredictorFactory {
 		//---
 		// Perform exon frame adjustment
 		//---
-		int i = 1;
-		for (Gene gene : genome.getGenes())
-			for (Transcript tr : gene) {
-				boolean corrected = tr.frameCorrection();
-
-				if (corrected) {
-					if (debug) System.err.println("\tTranscript " + tr.getId() + " corrected using frame (exons: " + tr.numChilds() + ").");
-					else if (verbose) Gpr.showMark(i++, 1);
+		forEachTranscript(tr -> {
+			boolean corrected = tr.frameCorrection();
+			if (corrected && debug) System.err.println("\tTranscript " + tr.getId() + " corrected using frame (exons: " + tr.numChilds() + ").");
+			return corrected;
+		});
+	}
 
-				}
-			}
+	/**
+	 * Apply 'op' to all transcripts. Genes are processed in parallel if numThreads > 1
+	 * (transcripts from different genes must not share any data modified by 'op')
+	 *
+	 * @return Number of transcripts where 'op' returned true
+	 */
+	int forEachTranscript(Predicate<Transcript> op) {
+		AtomicInteger count = new AtomicInteger();
+		if (numThreads <= 1) {
+			for (Gene gene : genome.getGenes())
+				for (Transcript tr : gene)
+					if (op.test(tr)) mark(count.incrementAndGet());
+			return count.get();
+		}
 
-		if (verbose) System.out.print("");
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<?>> tasks = new ArrayList<>();
+			for (Gene gene : genome.getGenes())
+				tasks.add(executor.submit(() -> {
+					for (Transcript tr : gene)
+						if (op.test(tr)) mark(count.incrementAndGet());
+				}));
+
+			for (Future<?> task : tasks)
+				waitTask(task);
+		} finally {
+			executor.shutdown();
+		}
 
+		return count.get();
 	}
 
 	/**
@@ -663,11 +747,8 @@ public abstract class SnpEffPredictorFactory {
 	 * Rank exons
 	 */
 	void rankExons() {
-		int i = 1;
 		if (verbose) System.out.print("\n\tRanking exons: ");
-		for (Gene gene : genome.getGenes())
-			for (Transcript tr : gene)
-				if (tr.rankExons()) mark(i++);
+		forEachTranscript(tr -> tr.rankExons());
 	}
 
 	/**
@@ -688,13 +769,30 @@ public abstract class SnpEffPredictorFactory {
 			if (Gpr.canRead(file)) {
 				if (verbose) System.out.println("\tReading FASTA file: '" + file + "'");
 
+				// Use an indexed (memory mapped) FASTA file, if possible
+				FastaFileIndexed ffidx = readExonSequencesIndex(file);
+
 				// Read fasta sequence
-				FastaFileIterator ffi = new FastaFileIterator(file);
-				for (String seq : ffi) {
-					String chromo = ffi.getName();
-					chromoNamesReference.add(chromo);
-					if (verbose) System.out.println("\t\tReading sequence '" + chromo + "', length: " + seq.length());
-					addSequences(chromo, seq); // Add all sequences
+				// Note: Sequences are read sequentially, but added to exons in parallel (one task per chromosome)
+				try {
+					if (ffidx != null) {
+						for (String chromo : ffidx.getChromosomeNames()) {
+							CharSequence seq = ffidx.getSequence(chromo);
+							chromoNamesReference.add(chromo);
+							if (verbose) System.out.println("\t\tReading sequence '" + chromo + "', length: " + seq.length());
+							addSequencesAsync(chromo, seq); // Add all sequences
+						}
+					} else {
+						FastaFileIterator ffi = new FastaFileIterator(file);
+						for (String seq : ffi) {
+							String chromo = ffi.getName();
+							chromoNamesReference.add(chromo);
+							if (verbose) System.out.println("\t\tReading sequence '" + chromo + "', length: " + seq.length());
+							addSequencesAsync(chromo, seq); // Add all sequences
+						}
+					}
+				} finally {
+					addSequencesWait();
 				}
 				return;
 			} else if (verbose) System.out.println("\tFASTA file: '" + file + "' not found.");
@@ -703,6 +801,24 @@ public abstract class SnpEffPredictorFactory {
 		throw new RuntimeException("Cannot find reference sequence.");
 	}
 
+	/**
+	 * Open an indexed FASTA file (the index is created if missing)
+	 * @return A FastaFileIndexed or null if the file cannot be indexed (e.g. compressed file or inconsistent line lengths)
+	 */
+	FastaFileIndexed readExonSequencesIndex(String file) {
+		if (!FastaFileIndexed.isIndexable(file)) return null;
+
+		try {
+			FastaFileIndexed ffidx = new FastaFileIndexed(file);
+			if (!ffidx.isMappable()) return null;
+			if (verbose) System.out.println("\tUsing FASTA index: " + ffidx.getChromosomeNames().size() + " sequences");
+			return ffidx;
+		} catch (Throwable t) {
+			if (verbose) System.out.println("\tCannot index FASTA file '" + file + "', reading it sequentially: " + t.getMessage());
+			return null;
+		}
+	}
+
 	/**
 	 * Remove empty chromosomes
 	 */
@@ -753,6 +869,14 @@ public abstract class SnpEffPredictorFactory {
 		this.fileName = fileName;
 	}
 
+	/**
+	 * Number of threads used to add sequences and process genes
+	 * Note: The database is the same regardless of the number of threads
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
 	public void setRandom(Random random) {
 		this.random = random;
 	}
@@ -853,4 +977,19 @@ public abstract class SnpEffPredictorFactory {
 		if (verbose) System.err.println("WARNING: " + msg + ". File '" + fileName + "' line " + lineNum + "\t'" + line + "'");
 	}
 
+	/**
+	 * Wait for a task to finish, propagate exceptions
+	 */
+	void waitTask(Future<?> task) {
+		try {
+			task.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			throw new RuntimeException(cause);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 }
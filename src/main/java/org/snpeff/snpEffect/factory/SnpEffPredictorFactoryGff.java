@@ -455,7 +455,7 @@ public abstract class SnpEffPredictorFactoryGff extends SnpEffPredictorFactory {
 				line = reader.readLine();
 				if (line.startsWith(">")) { // New fasta sequence
 					// Set chromosome sequences and length (create it if it doesn't exist)
-					if (chromoName != null) addSequences(chromoName, chromoSb.toString()); // Add all sequences
+					if (chromoName != null) addSequencesAsync(chromoName, chromoSb.toString()); // Add all sequences
 
 					// Get sequence name
 					int idxSpace = line.indexOf(' ');
@@ -471,12 +471,14 @@ public abstract class SnpEffPredictorFactoryGff extends SnpEffPredictorFactory {
 
 			// Last chromosome
 			// Set chromosome sequneces and length (create it if it doesn't exist)
-			if (chromoName != null) addSequences(chromoName, chromoSb.toString()); // Add all sequences
+			if (chromoName != null) addSequencesAsync(chromoName, chromoSb.toString()); // Add all sequences
 			else warning("Ignoring sequences for '" + chromoName + "'. Cannot find chromosome"); // Chromosome not found
 
 			reader.close();
 		} catch (Exception e) {
 			throw new RuntimeException(e);
+		} finally {
+			addSequencesWait();
 		}
 	}
 
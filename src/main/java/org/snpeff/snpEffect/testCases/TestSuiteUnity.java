@@ -5,6 +5,7 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 import org.snpeff.snpEffect.testCases.unity.TestCasesAlign;
 import org.snpeff.snpEffect.testCases.unity.TestCasesAnnParse;
+import org.snpeff.snpEffect.testCases.unity.TestCasesAnnotationMetrics;
 import org.snpeff.snpEffect.testCases.unity.TestCasesApplyDel;
 import org.snpeff.snpEffect.testCases.unity.TestCasesApplyIns;
 import org.snpeff.snpEffect.testCases.unity.TestCasesApplyMixed;
@@ -42,21 +43,27 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesHypergeometric;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIns;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntStats;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntergenic;
+import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalSweep;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalTree;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalTreeArray;
+import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalTreeFlat;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalTreeOri;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntervalVariant;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIntervals;
 import org.snpeff.snpEffect.testCases.unity.TestCasesIubString;
 import org.snpeff.snpEffect.testCases.unity.TestCasesJaspar;
+import org.snpeff.snpEffect.testCases.unity.TestCasesMarkerSeqMmap;
+import org.snpeff.snpEffect.testCases.unity.TestCasesMarkerSerializerMmap;
 import org.snpeff.snpEffect.testCases.unity.TestCasesMarkerUtils;
 import org.snpeff.snpEffect.testCases.unity.TestCasesMnps;
+import org.snpeff.snpEffect.testCases.unity.TestCasesMultipleConfigs;
 import org.snpeff.snpEffect.testCases.unity.TestCasesNmers;
 import org.snpeff.snpEffect.testCases.unity.TestCasesOverlap;
 import org.snpeff.snpEffect.testCases.unity.TestCasesProteinInteraction;
 import org.snpeff.snpEffect.testCases.unity.TestCasesReactome;
 import org.snpeff.snpEffect.testCases.unity.TestCasesSeekableReader;
 import org.snpeff.snpEffect.testCases.unity.TestCasesSequenceIndexer;
+import org.snpeff.snpEffect.testCases.unity.TestCasesServer;
 import org.snpeff.snpEffect.testCases.unity.TestCasesSnps;
 import org.snpeff.snpEffect.testCases.unity.TestCasesSpliceRegion;
 import org.snpeff.snpEffect.testCases.unity.TestCasesSpliceSite;
@@ -64,9 +71,13 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesStructuralDel;
 import org.snpeff.snpEffect.testCases.unity.TestCasesStructuralDup;
 import org.snpeff.snpEffect.testCases.unity.TestCasesStructuralInv;
 import org.snpeff.snpEffect.testCases.unity.TestCasesStructuralTranslocations;
+import org.snpeff.snpEffect.testCases.unity.TestCasesTabixRegions;
 import org.snpeff.snpEffect.testCases.unity.TestCasesVariantDecompose;
+import org.snpeff.snpEffect.testCases.unity.TestCasesVariantEffectCache;
+import org.snpeff.snpEffect.testCases.unity.TestCasesVariantEffectStats;
 import org.snpeff.snpEffect.testCases.unity.TestCasesVariantRealignment;
 import org.snpeff.snpEffect.testCases.unity.TestCasesVcf;
+import org.snpeff.snpEffect.testCases.unity.TestCasesVcfTokenizer;
 
 /**
  * Invoke all test cases for SnpEff
@@ -76,6 +87,7 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesVcf;
 @RunWith(Suite.class)
 @SuiteClasses({ TestCasesAlign.class, //
 		TestCasesAnnParse.class, //
+		TestCasesAnnotationMetrics.class, //
 		TestCasesApplyDel.class, //
 		TestCasesApplyIns.class, //
 		TestCasesApplyMixed.class, //
@@ -107,6 +119,8 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesVcf;
 		TestCasesIntervalTree.class, //
 		TestCasesIntervalTreeOri.class, //
 		TestCasesIntervalTreeArray.class, //
+		TestCasesIntervalTreeFlat.class, //
+		TestCasesIntervalSweep.class, //
 		TestCasesIubString.class, //
 		TestCasesHgvs.class, //
 		TestCasesHgvsExon.class, //
@@ -120,14 +134,18 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesVcf;
 		TestCasesIns.class, //
 		TestCasesIntStats.class, //
 		TestCasesJaspar.class, //
+		TestCasesMarkerSeqMmap.class, //
+		TestCasesMarkerSerializerMmap.class, //
 		TestCasesMarkerUtils.class, //
 		TestCasesMnps.class, //
+		TestCasesMultipleConfigs.class, //
 		TestCasesNmers.class, //
 		TestCasesOverlap.class, //
 		TestCasesProteinInteraction.class, //
 		TestCasesReactome.class, //
 		TestCasesSeekableReader.class, //
 		TestCasesSequenceIndexer.class, //
+		TestCasesServer.class, //
 		TestCasesSnps.class, //
 		TestCasesSpliceSite.class, //
 		TestCasesSpliceRegion.class, //
@@ -135,9 +153,13 @@ import org.snpeff.snpEffect.testCases.unity.TestCasesVcf;
 		TestCasesStructuralDup.class, //
 		TestCasesStructuralInv.class, //
 		TestCasesStructuralTranslocations.class, //
+		TestCasesTabixRegions.class, //
 		TestCasesVariantDecompose.class, //
+		TestCasesVariantEffectCache.class, //
+		TestCasesVariantEffectStats.class, //
 		TestCasesVariantRealignment.class, //
-		TestCasesVcf.class //
+		TestCasesVcf.class, //
+		TestCasesVcfTokenizer.class //
 
 })
 
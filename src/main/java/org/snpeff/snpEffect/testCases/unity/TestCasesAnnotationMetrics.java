@@ -0,0 +1,106 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdEff;
+import org.snpeff.stats.AnnotationMetrics;
+import org.snpeff.stats.AnnotationMetrics.Stage;
+import org.snpeff.util.Gpr;
+
+/**
+ * Test annotation metrics (per stage timing and counters)
+ *
+ * @author pcingola
+ */
+public class TestCasesAnnotationMetrics extends TestCasesBase {
+
+	public static int NUM_VARIANTS = 100;
+	public static int NUM_REPEATS = 2;
+
+	public TestCasesAnnotationMetrics() {
+		super();
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		randSeed = 20181021;
+		maxTranscripts = 3;
+		initRand();
+	}
+
+	/**
+	 * Collect metrics while annotating, write JSON report
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+
+		String vcfFile = randVcfFile(NUM_VARIANTS, NUM_REPEATS, false);
+		String jsonFile = vcfFile + ".json";
+		new File(jsonFile).deleteOnExit();
+
+		SnpEffCmdEff cmdEff = new SnpEffCmdEff();
+		cmdEff.setConfig(config);
+		cmdEff.setVerbose(verbose);
+		cmdEff.setSupressOutput(!verbose);
+		String args[] = { "-noStats", "-cacheSize", "" + NUM_VARIANTS, "-metricsJson", jsonFile, genomeName, vcfFile };
+		cmdEff.parseArgs(args);
+		cmdEff.run(true);
+
+		AnnotationMetrics metrics = cmdEff.getAnnotationMetrics();
+		if (verbose) Gpr.debug(metrics);
+
+		int numEntries = NUM_VARIANTS * NUM_REPEATS;
+		Assert.assertEquals(numEntries, metrics.getEntries());
+		Assert.assertEquals(numEntries, metrics.getVariants());
+		Assert.assertTrue(metrics.getEffects() >= numEntries);
+		Assert.assertEquals(numEntries - NUM_VARIANTS, metrics.getCacheHits());
+		Assert.assertEquals(NUM_VARIANTS, metrics.getCacheMisses());
+		Assert.assertEquals(NUM_VARIANTS, metrics.getCount(Stage.QUERY)); // Cached variants are not queried
+		Assert.assertTrue(metrics.getTimeEffectMs() >= metrics.getTimeQueryMs());
+
+		// Metrics are no longer collected after annotations finish
+		Assert.assertNull(config.getMetrics());
+
+		// JSON report
+		String json = Gpr.readFile(jsonFile);
+		if (verbose) Gpr.debug(json);
+		Assert.assertTrue(json.contains("\"variants\": " + numEntries + ","));
+		Assert.assertTrue(json.contains("\"cache\": { \"hits\": " + (numEntries - NUM_VARIANTS) + ", \"misses\": " + NUM_VARIANTS + " }"));
+	}
+
+	/**
+	 * Metrics published as JMX MBean
+	 */
+	@Test
+	public void test_02() throws Exception {
+		Gpr.debug("Test");
+
+		AnnotationMetrics metrics = new AnnotationMetrics("test_02");
+		metrics.add(Stage.EFFECT, System.nanoTime());
+		metrics.add(Stage.EFFECT, System.nanoTime());
+
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = metrics.objectName();
+
+		metrics.register();
+		Assert.assertTrue(mbeanServer.isRegistered(objectName));
+		Assert.assertEquals(2L, mbeanServer.getAttribute(objectName, "Variants"));
+
+		// Registering a new object with the same name replaces the old one
+		AnnotationMetrics metricsNew = new AnnotationMetrics("test_02");
+		metricsNew.register();
+		Assert.assertEquals(0L, mbeanServer.getAttribute(objectName, "Variants"));
+
+		metricsNew.unregister();
+		Assert.assertFalse(mbeanServer.isRegistered(objectName));
+	}
+
+}
@@ -389,6 +389,45 @@ public class TestCasesBase {
 		gs.build();
 	}
 
+	/**
+	 * Create a VCF (sorted by position) with 'numVariants' random variants in the
+	 * test chromosome, each variant is repeated 'numRepeats' times.
+	 * Variants are SNPs or, if 'deletions' is set, deletions of up to 4 bases
+	 */
+	protected String randVcf(int numVariants, int numRepeats, boolean deletions) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("##fileformat=VCFv4.1\n");
+		sb.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+
+		int step = chromoSequence.length() / numVariants;
+		for (int i = 0; i < numVariants; i++) {
+			int pos = i * step + rand.nextInt(step);
+			int len = deletions ? Math.min(1 + rand.nextInt(5), chromoSequence.length() - pos) : 1;
+			String ref = chromoSequence.substring(pos, pos + len).toUpperCase();
+			String alt = ref.substring(0, 1); // Deletion (or SNP if length is 1)
+			if (len == 1) alt = "" + "ACGT".replace(ref, "").charAt(rand.nextInt(3));
+
+			for (int j = 0; j < numRepeats; j++)
+				sb.append(chromosome.getId() + "\t" + (pos + 1) + "\t.\t" + ref + "\t" + alt + "\t.\t.\t.\n");
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Create a temporary VCF file with random variants (see 'randVcf'), return file name
+	 */
+	protected String randVcfFile(int numVariants, int numRepeats, boolean deletions) {
+		try {
+			File file = File.createTempFile("test_rand_", ".vcf");
+			file.deleteOnExit();
+			Gpr.toFile(file.getPath(), randVcf(numVariants, numRepeats, deletions));
+			return file.getPath();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	/**
 	 * Show a genome in a 'standard' way
 	 */
@@ -1,8 +1,15 @@
 package org.snpeff.snpEffect.testCases.unity;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
 import org.junit.Test;
 import org.snpeff.snpEffect.Config;
+import org.snpeff.snpEffect.SnpEffectPredictor;
 import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryGff3;
+import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryGtf22;
 import org.snpeff.util.Gpr;
 
 import junit.framework.Assert;
@@ -87,4 +94,80 @@ public class TestCasesBuild extends TestCasesBase {
 		throw new RuntimeException("Expected error not found!");
 	}
 
+	/**
+	 * Build a database from GTF and FASTA files using 'numThreads', return serialized predictor
+	 */
+	String build(String gtf, String fasta, int numThreads, File dir) {
+		Config config = new Config("testCase", Config.DEFAULT_CONFIG_FILE);
+		SnpEffPredictorFactoryGtf22 sef = new SnpEffPredictorFactoryGtf22(config);
+		sef.setFileName(gtf);
+		sef.setFastaFile(fasta);
+		sef.setNumThreads(numThreads);
+		sef.setVerbose(verbose);
+		SnpEffectPredictor sep = sef.create();
+
+		String fileName = new File(dir, "snpEffectPredictor." + numThreads + ".bin.gz").getPath();
+		sep.save(fileName);
+		return Gpr.readFile(fileName);
+	}
+
+	/**
+	 * Create random GTF and FASTA files (several chromosomes, genes on both strands)
+	 */
+	void randGenome(Random rand, String gtf, String fasta) {
+		int numChromos = 4, chrLen = 20000, numGenes = 10, numExons = 3;
+		StringBuilder sbGtf = new StringBuilder();
+		StringBuilder sbFasta = new StringBuilder();
+
+		for (int c = 1; c <= numChromos; c++) {
+			String chr = "" + c;
+			char seq[] = new char[chrLen];
+			for (int i = 0; i < chrLen; i++)
+				seq[i] = "ACGT".charAt(rand.nextInt(4));
+			sbFasta.append(">" + chr + "\n" + new String(seq) + "\n");
+
+			int geneLen = chrLen / numGenes;
+			for (int g = 0; g < numGenes; g++) {
+				String strand = rand.nextBoolean() ? "+" : "-";
+				String geneId = "gene_" + chr + "_" + g;
+				for (int t = 0; t <= rand.nextInt(2); t++) {
+					String attrs = "gene_id \"" + geneId + "\"; transcript_id \"tr_" + chr + "_" + g + "_" + t + "\"; gene_biotype \"protein_coding\";";
+					int exonLen = geneLen / (2 * numExons);
+					for (int e = 0; e < numExons; e++) {
+						int start = g * geneLen + 2 * e * exonLen + rand.nextInt(exonLen / 2) + 1;
+						int end = start + exonLen / 2 + rand.nextInt(exonLen / 2);
+						sbGtf.append(chr + "\ttest\texon\t" + start + "\t" + end + "\t.\t" + strand + "\t.\t" + attrs + "\n");
+						sbGtf.append(chr + "\ttest\tCDS\t" + start + "\t" + end + "\t.\t" + strand + "\t" + rand.nextInt(3) + "\t" + attrs + "\n");
+					}
+				}
+			}
+		}
+
+		Gpr.toFile(gtf, sbGtf);
+		Gpr.toFile(fasta, sbFasta);
+	}
+
+	/**
+	 * Building a database using one or many threads must produce the same database
+	 */
+	@Test
+	public void test_03_numThreads() throws IOException {
+		Gpr.debug("Test");
+
+		File dir = Files.createTempDirectory("snpEff_build").toFile();
+		String gtf = new File(dir, "genes.gtf").getPath();
+		String fasta = new File(dir, "sequences.fa").getPath();
+		randGenome(new Random(20181018), gtf, fasta);
+
+		String sep1 = build(gtf, fasta, 1, dir);
+		String sepN = build(gtf, fasta, 4, dir);
+		if (verbose) Gpr.debug("Predictor:\n" + sep1);
+		Assert.assertTrue(sep1.contains("gene_4_9"));
+		Assert.assertEquals(sep1, sepN);
+
+		for (File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
 }
@@ -1,10 +1,17 @@
 package org.snpeff.snpEffect.testCases.unity;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 import org.snpeff.interval.Exon;
 import org.snpeff.interval.Gene;
+import org.snpeff.interval.Marker;
 import org.snpeff.interval.Transcript;
+import org.snpeff.interval.TranscriptCoordinates;
 import org.snpeff.interval.Utr5prime;
+import org.snpeff.snpEffect.LossOfFunction;
 import org.snpeff.util.Gpr;
 
 import junit.framework.Assert;
@@ -22,12 +29,97 @@ public class TestCasesCds extends TestCasesBase {
 		super();
 	}
 
+	/**
+	 * Reference implementation (walk all exons) of 'Transcript.baseNumber2MRnaPos'
+	 */
+	int baseNumber2MRnaPos(Transcript tr, int pos) {
+		int count = 0;
+		for (Exon ex : tr.sortedStrand()) {
+			if (ex.intersects(pos)) return count + (tr.isStrandPlus() ? pos - ex.getStart() : ex.getEnd() - pos);
+			count += ex.size();
+		}
+		return -1;
+	}
+
+	/**
+	 * Reference implementation (walk all exons) of 'Transcript.baseNumberCds'
+	 */
+	int baseNumberCds(Transcript tr, int pos, boolean usePrevBaseIntron) {
+		if (!tr.intersects(pos) || tr.isUtr(pos)) return -1;
+
+		int cdsStart = tr.getCdsStart();
+		int firstCdsBaseInExon = 0;
+		for (Exon ex : tr.sortedStrand()) {
+			if (ex.intersects(pos)) {
+				int cdsBaseInExon = tr.isStrandPlus() ? pos - Math.max(ex.getStart(), cdsStart) : Math.min(ex.getEnd(), cdsStart) - pos;
+				return firstCdsBaseInExon + Math.max(0, cdsBaseInExon);
+			} else if ((tr.isStrandPlus() && (pos < ex.getStart())) || (tr.isStrandMinus() && (pos > ex.getEnd()))) {
+				return firstCdsBaseInExon - (usePrevBaseIntron ? 1 : 0);
+			}
+
+			if (tr.isStrandPlus()) firstCdsBaseInExon += Math.max(0, ex.getEnd() - Math.max(ex.getStart(), cdsStart) + 1);
+			else firstCdsBaseInExon += Math.max(0, Math.min(cdsStart, ex.getEnd()) - ex.getStart() + 1);
+		}
+
+		return firstCdsBaseInExon - 1;
+	}
+
+	/**
+	 * Compare coordinate conversions to reference implementations, for all transcript bases
+	 */
+	void checkCoordinates(Transcript tr) {
+		for (int pos = tr.getStart() - 1; pos <= tr.getEnd() + 1; pos++) {
+			Assert.assertEquals("Position: " + pos, baseNumber2MRnaPos(tr, pos), tr.baseNumber2MRnaPos(pos));
+			Assert.assertEquals("Position: " + pos, baseNumberCds(tr, pos, true), tr.baseNumberCds(pos, true));
+			Assert.assertEquals("Position: " + pos, baseNumberCds(tr, pos, false), tr.baseNumberCds(pos, false));
+		}
+	}
+
+	/**
+	 * Reference implementation (walk all exons) of 'TranscriptCoordinates.codingBases'
+	 */
+	int codingBases(Transcript tr, int start, int end) {
+		int cdsMin = Math.min(tr.getCdsStart(), tr.getCdsEnd()), cdsMax = Math.max(tr.getCdsStart(), tr.getCdsEnd());
+		Marker coding = new Marker(tr.getChromosome(), Math.max(cdsMin, start), Math.min(cdsMax, end), false, "");
+		int count = 0;
+		for (Exon exon : tr)
+			count += coding.intersectSize(exon);
+		return count;
+	}
+
 	@Override
 	protected void init() {
 		super.init();
 		randSeed = 20120131;
 	}
 
+	/**
+	 * Reference implementation (walk all CDS bases) of 'TranscriptCoordinates.getLastNmdPos'
+	 */
+	int lastNmdPos(Transcript tr) {
+		int cdsEnd = tr.getCdsEnd();
+		int cdsStart = tr.getCdsStart();
+		Marker cds = new Marker(tr.getChromosome(), Math.min(cdsStart, cdsEnd), Math.max(cdsStart, cdsEnd), tr.isStrandMinus(), "");
+		Exon lastExon = null;
+		int countCodingExons = 0;
+		for (Exon exon : tr.sortedStrand()) {
+			if (exon.intersects(cdsEnd)) lastExon = exon;
+			if (cds.intersects(exon)) countCodingExons++;
+		}
+		if (countCodingExons <= 1) return -1;
+		if (lastExon == null) return TranscriptCoordinates.NMD_ERROR;
+
+		int lastExonJunction = tr.isStrandPlus() ? lastExon.getStart() : lastExon.getEnd();
+		int chrPos[] = tr.baseNumberCds2Pos();
+		for (int cdsi = chrPos.length - 1; cdsi >= 0; cdsi--) {
+			if (chrPos[cdsi] == lastExonJunction) {
+				if (cdsi > LossOfFunction.MND_BASES_BEFORE_LAST_JUNCTION) return chrPos[cdsi - LossOfFunction.MND_BASES_BEFORE_LAST_JUNCTION - 1];
+				return tr.isStrandPlus() ? 0 : Integer.MAX_VALUE;
+			}
+		}
+		return TranscriptCoordinates.NMD_ERROR;
+	}
+
 	@Test
 	public void test_CdsPos() {
 		Gpr.debug("Test");
@@ -116,4 +208,146 @@ public class TestCasesCds extends TestCasesBase {
 		if (verbose) System.out.println("CDS.start: " + tr.getCdsStart() + "\tCDS.end: " + tr.getCdsEnd());
 	}
 
+	/**
+	 * Coordinate maps: Compare to 'walk all exons' implementations
+	 */
+	@Test
+	public void test_coordinates_01() {
+		Gpr.debug("Test");
+
+		addUtrs = true;
+		onlyPlusStrand = false;
+		maxExons = 10;
+		for (int iter = 0; iter < N / 10; iter++) {
+			initSnpEffPredictor();
+			if (verbose) System.err.println("Test coordinates iteration: " + iter + "\n" + transcript + "\n" + transcript.coordinates());
+
+			checkCoordinates(transcript);
+
+			// CDS base to genomic position
+			int cds2pos[] = transcript.baseNumberCds2Pos();
+			for (int i = 0; i < cds2pos.length; i++)
+				Assert.assertEquals(cds2pos[i], transcript.baseNumberCds2Pos(i));
+			Assert.assertEquals(-1, transcript.baseNumberCds2Pos(-1));
+			Assert.assertEquals(-1, transcript.baseNumberCds2Pos(transcript.coordinates().getCdsLength()));
+
+			// Amino acid to genomic position
+			int aa2pos[] = transcript.aaNumber2Pos();
+			for (int i = 0; i < aa2pos.length; i++)
+				Assert.assertEquals(aa2pos[i], transcript.aaNumber2Pos(i));
+		}
+	}
+
+	/**
+	 * Coordinate maps: Overlapping exons (e.g. ribosomal slippage) and exons changes
+	 */
+	@Test
+	public void test_coordinates_02() {
+		Gpr.debug("Test");
+
+		for (boolean strandMinus : new boolean[] { false, true }) {
+			Gene g = new Gene(chromosome, 10, 100, strandMinus, "g1", "g1", null);
+			Transcript tr = new Transcript(g, 10, 100, strandMinus, "tr1");
+			tr.add(new Exon(tr, 10, 30, strandMinus, "e1", 1));
+			tr.add(new Exon(tr, 28, 60, strandMinus, "e2", 2)); // Overlaps 'e1'
+			tr.add(new Exon(tr, 70, 100, strandMinus, "e3", 3));
+			if (verbose) System.out.println("Transcript : " + tr + "\n" + tr.coordinates());
+			checkCoordinates(tr);
+
+			// Adding an exon invalidates coordinate map
+			TranscriptCoordinates coordinates = tr.coordinates();
+			tr.add(new Exon(tr, 80, 90, strandMinus, "e4", 4));
+			Assert.assertNotSame(coordinates, tr.coordinates());
+			checkCoordinates(tr);
+		}
+	}
+
+	/**
+	 * Loss of function geometry (NMD boundary, coding bases): Compare to 'walk all bases' implementations
+	 */
+	@Test
+	public void test_coordinates_03() {
+		Gpr.debug("Test");
+
+		addUtrs = true;
+		onlyPlusStrand = false;
+		maxExons = 10;
+		int countNmd = 0;
+		for (int iter = 0; iter < N / 10; iter++) {
+			initSnpEffPredictor();
+			TranscriptCoordinates coordinates = transcript.coordinates();
+			if (verbose) System.err.println("Test LOF geometry iteration: " + iter + "\n" + transcript + "\n" + coordinates);
+
+			int lastNmdPos = lastNmdPos(transcript);
+			Assert.assertEquals(lastNmdPos, coordinates.getLastNmdPos());
+			if (lastNmdPos >= 0) countNmd++;
+
+			for (int i = 0; i < 10; i++) {
+				int start = transcript.getStart() - 10 + rand.nextInt(transcript.size() + 20);
+				int end = start + rand.nextInt(transcript.size());
+				Assert.assertEquals(codingBases(transcript, start, end), coordinates.codingBases(start, end));
+			}
+			Assert.assertEquals(transcript.cds().length(), coordinates.getCdsLength());
+		}
+		Assert.assertTrue(countNmd > 0);
+	}
+
+	/**
+	 * Lazily calculated values are the same when precomputed and when
+	 * calculated concurrently by several threads
+	 */
+	@Test
+	public void test_precompute() throws Exception {
+		Gpr.debug("Test");
+
+		addUtrs = true;
+		onlyPlusStrand = false;
+		maxExons = 10;
+		int numThreads = 4;
+		for (int iter = 0; iter < N / 10; iter++) {
+			initSnpEffPredictor();
+
+			// Values calculated lazily
+			int cdsStart = transcript.getCdsStart(), cdsEnd = transcript.getCdsEnd();
+			String cds = transcript.cds();
+			String protein = transcript.protein();
+			int aa2pos[] = transcript.aaNumber2Pos();
+			int introns = transcript.introns().size();
+
+			// Precomputed
+			transcript.resetCache();
+			snpEffectPredictor.precompute(numThreads);
+			Assert.assertEquals(cdsStart, transcript.getCdsStart());
+			Assert.assertEquals(cdsEnd, transcript.getCdsEnd());
+			Assert.assertEquals(cds, transcript.cds());
+			Assert.assertEquals(protein, transcript.protein());
+			Assert.assertEquals(introns, transcript.introns().size());
+
+			// Calculated concurrently
+			transcript.resetCache();
+			List<Thread> threads = new ArrayList<>();
+			List<Throwable> errors = new ArrayList<>();
+			for (int i = 0; i < numThreads; i++) {
+				Thread thread = new Thread(() -> {
+					try {
+						Assert.assertEquals(protein, transcript.protein());
+						Assert.assertTrue(Arrays.equals(aa2pos, transcript.aaNumber2Pos()));
+						Assert.assertEquals(cdsStart, transcript.getCdsStart());
+						Assert.assertEquals(cdsEnd, transcript.getCdsEnd());
+					} catch (Throwable t) {
+						synchronized (errors) {
+							errors.add(t);
+						}
+					}
+				});
+				threads.add(thread);
+				thread.start();
+			}
+
+			for (Thread thread : threads)
+				thread.join();
+			if (!errors.isEmpty()) throw new RuntimeException(errors.get(0));
+		}
+	}
+
 }
@@ -1,5 +1,7 @@
 package org.snpeff.snpEffect.testCases.unity;
 
+import java.util.Random;
+
 import org.junit.Test;
 import org.snpeff.codons.CodonTable;
 import org.snpeff.codons.CodonTables;
@@ -7,6 +9,7 @@ import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Genome;
 import org.snpeff.snpEffect.Config;
 import org.snpeff.util.Gpr;
+import org.snpeff.util.GprSeq;
 
 import junit.framework.Assert;
 
@@ -72,4 +75,68 @@ public class TestCasesCodonTable {
 		Assert.assertEquals("Vertebrate_Mitochondrial", chrMt.getCodonTable().getName());
 	}
 
+	/**
+	 * Codon indexed translation must be the same as hash based translation
+	 * (random sequences, including lower case, unknown bases and incomplete codons)
+	 */
+	@Test
+	public void test_03() {
+		Gpr.debug("Test");
+		String table = CodonTables.STANDARD_TABLE.replace("TTG/L", "TTG/L+").replace("CTG/L", "CTG/L+"); // Add some alternative start codons
+		CodonTable codonTable = new CodonTable("test_03", table);
+		CodonTable codonTableMap = new CodonTable("test_03_map", table + ", NNN/?"); // Codon 'NNN' cannot be indexed
+		Assert.assertTrue(codonTable.isIndexed());
+		Assert.assertFalse(codonTableMap.isIndexed());
+
+		Random rand = new Random(20181022);
+		for (int i = 0; i < 10000; i++) {
+			char bases[] = GprSeq.randSequence(rand, rand.nextInt(30)).toCharArray();
+			for (int j = 0; j < bases.length; j++) {
+				int r = rand.nextInt(20);
+				if (r == 0) bases[j] = 'N';
+				else if (r < 5) bases[j] = Character.toLowerCase(bases[j]);
+			}
+			String seq = new String(bases);
+
+			for (boolean full : new boolean[] { false, true }) {
+				String aa = codonTable.aa(seq, full);
+				if (debug) Gpr.debug(seq + "\t" + aa);
+				Assert.assertEquals(codonTableMap.aa(seq, full), aa);
+				Assert.assertEquals((seq.length() + 2) / 3, aa.length());
+			}
+
+			if (seq.length() == 3) {
+				Assert.assertEquals(codonTableMap.isStart(seq), codonTable.isStart(seq));
+				Assert.assertEquals(codonTableMap.isStop(seq), codonTable.isStop(seq));
+			}
+		}
+	}
+
+	/**
+	 * Translate into a buffer, translate packed DNA sequences
+	 */
+	@Test
+	public void test_04() {
+		Gpr.debug("Test");
+		CodonTable codonTable = CodonTables.getInstance().getTable(CodonTables.STANDARD_TABLE_NAME);
+
+		// Codon indexes
+		Assert.assertEquals(0, CodonTable.codonIndex('A', 'A', 'A'));
+		Assert.assertEquals(63, CodonTable.codonIndex('t', 't', 'T'));
+		Assert.assertEquals(-1, CodonTable.codonIndex('A', 'N', 'A'));
+		Assert.assertEquals('M', codonTable.aa(CodonTable.codonIndex("ATG")));
+		Assert.assertEquals('*', codonTable.aa(CodonTable.codonIndex("tga")));
+
+		// Translate part of a sequence into a buffer
+		char bases[] = "xxATGTGGTAAGCxx".toCharArray();
+		char aas[] = new char[10];
+		int len = codonTable.aa(bases, 2, bases.length - 4, aas, 1, false);
+		Assert.assertEquals(4, len);
+		Assert.assertEquals("MW*?", new String(aas, 1, len));
+
+		// Unknown bases are translated as '?'
+		Assert.assertEquals("M?W", codonTable.aa("ATGANATGG"));
+		Assert.assertEquals("?W", codonTable.aa("NNNTGG", true));
+	}
+
 }
@@ -1,8 +1,15 @@
 package org.snpeff.snpEffect.testCases.unity;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
 import org.junit.Test;
+import org.snpeff.fileIterator.FastaFileIndexed;
 import org.snpeff.fileIterator.FastaFileIterator;
 import org.snpeff.util.Gpr;
+import org.snpeff.util.GprSeq;
 
 /**
  * Test case for FASTA file parsing
@@ -27,4 +34,148 @@ public class TestCasesFasta extends TestCasesBase {
 			if (verbose) System.out.println("SeqName: " + ffi.getName() + "\tSize: " + seq.length());
 		}
 	}
+
+	/**
+	 * Indexed FASTA file: Random access queries must match sequences read sequentially
+	 */
+	@Test
+	public void test_02() {
+		Gpr.debug("Test");
+
+		// Create a FASTA file with different line lengths for each sequence
+		String fastaFileName = "/tmp/test_fasta_indexed.fa";
+		String faidxFileName = fastaFileName + FastaFileIndexed.FAIDX_EXTENSION;
+		new File(faidxFileName).delete();
+
+		List<String> names = new ArrayList<>();
+		List<String> seqs = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5; i++) {
+			String name = "chr" + (i + 1);
+			String seq = GprSeq.randSequence(rand, 1000 + rand.nextInt(10000));
+			if (i == 2) seq = seq.toLowerCase();
+			names.add(name.substring(3)); // Chromosome names are simplified (e.g. 'chr1' => '1')
+			seqs.add(seq);
+
+			sb.append(">" + name + " sequence number " + i + "\n");
+			int lineLen = 50 + 10 * i;
+			for (int j = 0; j < seq.length(); j += lineLen)
+				sb.append(seq.substring(j, Math.min(j + lineLen, seq.length())) + "\n");
+		}
+		Gpr.toFile(fastaFileName, sb);
+
+		// Index is created and saved
+		FastaFileIndexed ffidx = new FastaFileIndexed(fastaFileName);
+		Assert.assertTrue(Gpr.canRead(faidxFileName));
+		Assert.assertTrue(ffidx.isMappable());
+		Assert.assertEquals(names, ffidx.getChromosomeNames());
+
+		// Load index from file
+		for (FastaFileIndexed ff : new FastaFileIndexed[] { ffidx, new FastaFileIndexed(fastaFileName) }) {
+			for (int i = 0; i < names.size(); i++) {
+				String chr = names.get(i);
+				String seq = seqs.get(i);
+				Assert.assertEquals(seq.length(), ff.getLength(chr));
+				Assert.assertEquals(seq, ff.getSequence(chr).toString());
+
+				for (int j = 0; j < 100; j++) {
+					int start = rand.nextInt(seq.length());
+					int end = start + rand.nextInt(seq.length() - start);
+					Assert.assertEquals(seq.substring(start, end + 1), ff.getSequence(chr, start, end));
+					Assert.assertEquals(seq.charAt(start), ff.getSequence(chr).charAt(start));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create a FASTA file with random sequences, return sequence names
+	 */
+	List<String> randFasta(String fastaFileName, int numSeqs, int lineLen) {
+		List<String> names = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < numSeqs; i++) {
+			String name = "seq" + rand.nextInt(1000) + "_" + i;
+			names.add(name);
+			String seq = GprSeq.randSequence(rand, 100 + rand.nextInt(1000));
+			sb.append(">" + name + "\n");
+			for (int j = 0; j < seq.length(); j += lineLen)
+				sb.append(seq.substring(j, Math.min(j + lineLen, seq.length())) + "\n");
+		}
+		Gpr.toFile(fastaFileName, sb);
+		return names;
+	}
+
+	/**
+	 * Stale index: The FASTA file changed after the index was created
+	 */
+	@Test
+	public void test_03() {
+		Gpr.debug("Test");
+
+		String fastaFileName = "/tmp/test_fasta_indexed_stale.fa";
+		File faidxFile = new File(fastaFileName + FastaFileIndexed.FAIDX_EXTENSION);
+		faidxFile.delete();
+		long now = System.currentTimeMillis();
+
+		randFasta(fastaFileName, 2, 60);
+		new FastaFileIndexed(fastaFileName);
+		Assert.assertTrue(faidxFile.exists());
+
+		// FASTA file is newer than the index
+		List<String> names = randFasta(fastaFileName, 3, 70);
+		faidxFile.setLastModified(now - 60 * 1000);
+		new File(fastaFileName).setLastModified(now);
+		Assert.assertEquals(names, new FastaFileIndexed(fastaFileName).getChromosomeNames());
+		Assert.assertTrue(faidxFile.lastModified() >= new File(fastaFileName).lastModified()); // Index was re-written
+
+		// Index is newer, but it does not match the FASTA file
+		names = randFasta(fastaFileName, 4, 80);
+		new File(fastaFileName).setLastModified(now - 60 * 1000);
+		faidxFile.setLastModified(now);
+		FastaFileIndexed ffidx = new FastaFileIndexed(fastaFileName);
+		Assert.assertEquals(names, ffidx.getChromosomeNames());
+		for (String chr : names)
+			Assert.assertEquals(ffidx.getLength(chr), ffidx.getSequence(chr).toString().replaceAll("[^ACGTacgt]", "").length());
+	}
+
+	/**
+	 * Indexed FASTA file: Lines are trimmed the same way as FastaFileIterator
+	 * (Windows line endings and trailing white spaces)
+	 */
+	@Test
+	public void test_04() {
+		Gpr.debug("Test");
+
+		String fastaFileName = "/tmp/test_fasta_indexed_trim.fa";
+		new File(fastaFileName + FastaFileIndexed.FAIDX_EXTENSION).delete();
+		String seq = GprSeq.randSequence(rand, 1000);
+		StringBuilder sb = new StringBuilder();
+		sb.append(">chr1 \r\n");
+		for (int j = 0; j < seq.length(); j += 60)
+			sb.append(seq.substring(j, Math.min(j + 60, seq.length())) + " \r\n");
+		sb.append(">chr2\n");
+		for (int j = 0; j < seq.length(); j += 70)
+			sb.append(seq.substring(j, Math.min(j + 70, seq.length())) + "\t\n");
+		Gpr.toFile(fastaFileName, sb);
+
+		FastaFileIterator ffi = new FastaFileIterator(fastaFileName);
+		FastaFileIndexed ffidx = new FastaFileIndexed(fastaFileName);
+		for (String s : ffi) {
+			Assert.assertEquals(seq, s);
+			Assert.assertEquals(s, ffidx.getSequence(ffi.getName()).toString());
+			Assert.assertEquals(s.substring(55, 125), ffidx.getSequence(ffi.getName(), 55, 124));
+		}
+
+		// Leading white spaces cannot be indexed
+		new File(fastaFileName + FastaFileIndexed.FAIDX_EXTENSION).delete();
+		Gpr.toFile(fastaFileName, ">chr1\n ACGT\n ACGT\n");
+		try {
+			new FastaFileIndexed(fastaFileName);
+			Assert.fail("Leading white spaces should not be indexed");
+		} catch (RuntimeException e) {
+			// OK
+		}
+	}
+
 }
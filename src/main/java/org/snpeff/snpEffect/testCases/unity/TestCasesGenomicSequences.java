@@ -1,7 +1,12 @@
 package org.snpeff.snpEffect.testCases.unity;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -174,4 +179,126 @@ public class TestCasesGenomicSequences {
 		}
 	}
 
+	/**
+	 * Query sequences from many threads (sequences are loaded lazily from file)
+	 * Once all sequences have been loaded, threads should not wait for each other
+	 */
+	@Test
+	public void test_03() throws Exception {
+		Gpr.debug("Test");
+		int numberOfChromos = 100;
+		int numThreads = 8;
+
+		//---
+		// Initialize
+		//---
+		String genomeVer = "test_too_many_chrs";
+		Config config = new Config(genomeVer);
+		Genome genome = config.getGenome();
+		GenomicSequences gs = new GenomicSequences(genome);
+		gs.setVerbose(verbose);
+
+		String dir = config.getDirDataGenomeVersion();
+		deleteAllBinFiles(dir);
+
+		String chrSeqs[] = new String[numberOfChromos];
+		Random random = new Random(20181017);
+		for (int i = 0; i < numberOfChromos; i++) {
+			chrSeqs[i] = GprSeq.randSequence(random, 1000);
+			gs.addChromosomeSequence("chr" + i, chrSeqs[i]);
+		}
+		gs.save(config);
+
+		//---
+		// Query sequences from many threads
+		//---
+		Config configRead = new Config(genomeVer);
+		GenomicSequences gsRead = new GenomicSequences(configRead.getGenome());
+		for (int round = 0; round < 2; round++) {
+			long countContention = gsRead.getCountContention();
+
+			ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int t = 0; t < numThreads; t++) {
+				Random rand = new Random(t);
+				futures.add(executor.submit(() -> {
+					int count = 0;
+					for (int i = 0; i < 10 * numberOfChromos; i++) {
+						int chrNum = rand.nextInt(numberOfChromos);
+						int start = rand.nextInt(chrSeqs[chrNum].length() - 10);
+						Marker marker = new Marker(genome.getChromosome("chr" + chrNum), start, start + 9);
+						String seqRead = gsRead.querySequence(marker);
+						Assert.assertEquals("Sequences do not match", chrSeqs[chrNum].substring(start, start + 10).toUpperCase(), seqRead.toUpperCase());
+						count++;
+					}
+					return count;
+				}));
+			}
+
+			for (Future<Integer> f : futures)
+				Assert.assertEquals(10 * numberOfChromos, f.get().intValue());
+			executor.shutdown();
+
+			// Second round: All sequences have been loaded, so there should be no contention
+			if (verbose) Gpr.debug("Round: " + round + ", contention: " + gsRead.getCountContention());
+			if (round > 0) Assert.assertEquals("Threads waiting after all sequences were loaded", countContention, gsRead.getCountContention());
+		}
+	}
+
+	/**
+	 * Large chromosomes (separate files) loaded lazily from many threads:
+	 * Different chromosomes are loaded concurrently, each one only once
+	 */
+	@Test
+	public void test_04() throws Exception {
+		Gpr.debug("Test");
+		int numberOfChromos = 4;
+		int numThreads = 8;
+
+		String genomeVer = "test_too_many_chrs";
+		Config config = new Config(genomeVer);
+		Genome genome = config.getGenome();
+		GenomicSequences gs = new GenomicSequences(genome);
+		gs.setVerbose(verbose);
+
+		String dir = config.getDirDataGenomeVersion();
+		deleteAllBinFiles(dir);
+
+		String chrSeqs[] = new String[numberOfChromos];
+		Random random = new Random(20181024);
+		for (int i = 0; i < numberOfChromos; i++) {
+			chrSeqs[i] = GprSeq.randSequence(random, GenomicSequences.CHR_LEN_SEPARATE_FILE + 1);
+			gs.addChromosomeSequence("chr" + i, chrSeqs[i]);
+		}
+		gs.save(config);
+
+		// Query sequences from many threads
+		Config configRead = new Config(genomeVer);
+		GenomicSequences gsRead = new GenomicSequences(configRead.getGenome());
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		List<Future<Integer>> futures = new ArrayList<>();
+		for (int t = 0; t < numThreads; t++) {
+			Random rand = new Random(t);
+			int chrFirst = t % numberOfChromos;
+			futures.add(executor.submit(() -> {
+				int count = 0;
+				for (int i = 0; i < 100; i++) {
+					int chrNum = (i == 0 ? chrFirst : rand.nextInt(numberOfChromos));
+					int start = rand.nextInt(chrSeqs[chrNum].length() - 10);
+					Marker marker = new Marker(genome.getChromosome("chr" + chrNum), start, start + 9);
+					String seqRead = gsRead.querySequence(marker);
+					Assert.assertEquals("Sequences do not match", chrSeqs[chrNum].substring(start, start + 10).toUpperCase(), seqRead.toUpperCase());
+					count++;
+				}
+				return count;
+			}));
+		}
+
+		for (Future<Integer> f : futures)
+			Assert.assertEquals(100, f.get().intValue());
+		executor.shutdown();
+
+		Assert.assertEquals("Each chromosome file should be loaded once", numberOfChromos, gsRead.getCountLoads());
+	}
+
 }
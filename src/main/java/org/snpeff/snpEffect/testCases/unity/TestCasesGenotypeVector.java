@@ -5,11 +5,16 @@ import java.util.Random;
 import junit.framework.Assert;
 
 import org.junit.Test;
+import org.snpeff.fileIterator.VcfFileIterator;
+import org.snpeff.genotypes.GenotypeCodes;
 import org.snpeff.genotypes.GenotypeVector;
+import org.snpeff.stats.GenotypeStats;
 import org.snpeff.util.Gpr;
+import org.snpeff.vcf.VcfEntry;
+import org.snpeff.vcf.VcfGenotype;
 
 /**
- * Test cases for GenotypeVector class
+ * Test cases for GenotypeVector and GenotypeCodes classes
  *
  * @author pcingola
  */
@@ -61,4 +66,118 @@ public class TestCasesGenotypeVector {
 			Assert.assertEquals(codes[i], gv.get(i));
 		}
 	}
+
+	/**
+	 * Create a VCF file having random genotypes (including missing, phased,
+	 * multi-allelic, haploid / triploid and genotypes that are not the first FORMAT field)
+	 */
+	String randVcf(Random rand, int numSamples, int numLines) {
+		String vcfFile = "/tmp/test_genotype_codes.vcf";
+		String gts[] = { "0/0", "0/0", "0/0", "0|0", "0/1", "1|0", "1/1", "./.", ".", ".|1", "0/2", "2/1", "1", "0", "0/1/1", "1/1/1", "" };
+		String formats[] = { "GT", "GT:DP", "DP:GT", "DP" };
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("##fileformat=VCFv4.1\n");
+		sb.append("#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT");
+		for (int i = 0; i < numSamples; i++)
+			sb.append("\tS" + i);
+		sb.append("\n");
+
+		for (int l = 0; l < numLines; l++) {
+			String format = formats[rand.nextInt(formats.length)];
+			sb.append("1\t" + (l + 1) + "\t.\tA\tC,G\t.\t.\t.\t" + format);
+			for (int i = 0; i < numSamples; i++) {
+				String gt = gts[rand.nextInt(gts.length)];
+				if (format.equals("GT:DP")) gt = gt + ":" + rand.nextInt(10);
+				else if (format.equals("DP:GT")) gt = rand.nextInt(10) + (gt.isEmpty() ? "" : ":" + gt);
+				else if (format.equals("DP")) gt = "" + rand.nextInt(10);
+				sb.append("\t" + (gt.isEmpty() ? "." : gt));
+			}
+			sb.append("\n");
+		}
+
+		Gpr.toFile(vcfFile, sb);
+		return vcfFile;
+	}
+
+	/**
+	 * Genotype codes: Compare to VcfGenotype codes
+	 */
+	@Test
+	public void test_03() {
+		Gpr.debug("Test");
+		Random rand = new Random(20181112);
+		String vcfFile = randVcf(rand, 100, 300);
+
+		GenotypeCodes codes = new GenotypeCodes();
+		int countParsed = 0, countNotParsed = 0;
+		for (VcfEntry ve : new VcfFileIterator(vcfFile)) {
+			// Read only genotypes (parsed from raw fields)
+			for (int i = 0; i < 100; i++) {
+				VcfGenotype gtRo = ve.getVcfGenotypeReadOnly(i);
+				Assert.assertEquals(ve.getVcfGenotype(i).toString(), gtRo.toString());
+				Assert.assertEquals(ve.getVcfGenotype(i).getGenotypeCode(), gtRo.getGenotypeCode());
+			}
+			break;
+		}
+
+		for (VcfEntry ve : new VcfFileIterator(vcfFile)) {
+			if (ve.getGenotypeCodes(codes)) {
+				countParsed++;
+				int countHet = 0;
+				for (int i = 0; i < codes.size(); i++) {
+					int code = ve.getVcfGenotype(i).getGenotypeCode();
+					Assert.assertEquals(code < 0 ? GenotypeCodes.MISSING : code, codes.get(i));
+					if (code == 1) countHet++;
+				}
+				Assert.assertEquals(ve.getVcfGenotypes().size(), codes.size());
+				Assert.assertEquals(countHet, codes.count(GenotypeCodes.HET));
+
+				// Genotypes are parsed: Codes are not available any more
+				Assert.assertFalse(ve.getGenotypeCodes(codes));
+			} else {
+				countNotParsed++;
+			}
+		}
+
+		// Triploid genotypes having 3 non-reference alleles cannot be decoded into codes
+		Assert.assertTrue(countParsed > 0);
+		Assert.assertTrue(countNotParsed > 0);
+	}
+
+	/**
+	 * Genotype statistics: Decoding GT fields into genotype codes should be
+	 * the same as using VcfGenotypes
+	 */
+	@Test
+	public void test_04() {
+		Gpr.debug("Test");
+		Random rand = new Random(20181113);
+		String vcfFile = randVcf(rand, 70, 1000);
+
+		GenotypeStats statsCodes = new GenotypeStats();
+		GenotypeStats statsVcfGt = new GenotypeStats();
+		GenotypeStats statsMerged = new GenotypeStats();
+		GenotypeStats statsPart[] = { new GenotypeStats(), new GenotypeStats() };
+		int lineNum = 0;
+		for (VcfEntry ve : new VcfFileIterator(vcfFile)) {
+			statsCodes.sample(ve);
+			statsPart[lineNum++ % statsPart.length].sample(ve);
+		}
+
+		for (VcfEntry ve : new VcfFileIterator(vcfFile)) {
+			ve.getVcfGenotypes(); // Parse genotypes, so VcfGenotypes are used
+			statsVcfGt.sample(ve);
+		}
+
+		for (GenotypeStats s : statsPart)
+			statsMerged.merge(s);
+
+		if (verbose) System.out.println(statsCodes.getHomHetTable());
+		for (GenotypeStats stats : new GenotypeStats[] { statsVcfGt, statsMerged }) {
+			Assert.assertEquals(stats.getHomHetTable(), statsCodes.getHomHetTable());
+			Assert.assertEquals(stats.getAlleleCount().toString(), statsCodes.getAlleleCount().toString());
+			Assert.assertEquals(stats.getAlleleFrequency().toString(), statsCodes.getAlleleFrequency().toString());
+		}
+	}
 }
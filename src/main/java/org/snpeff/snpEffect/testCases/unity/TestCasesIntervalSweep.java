@@ -0,0 +1,135 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.tree.IntervalForest;
+import org.snpeff.interval.tree.IntervalSweep;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+
+/**
+ * Test case for sweep-line queries (sorted input)
+ *
+ * @author pcingola
+ */
+public class TestCasesIntervalSweep {
+
+	public static int CHR_SIZE = 10 * 1000;
+	public static int NUM_INTERVALS = 1000;
+	public static int NUM_QUERIES = 10 * 1000;
+	public static int MAX_QUERY_SIZE = 50;
+
+	boolean debug = false;
+	boolean verbose = false || debug;
+	Random rand;
+	Genome genome;
+	Chromosome chr1, chr2;
+	IntervalForest intervalForest;
+
+	/**
+	 * Compare sweep and interval forest query results
+	 */
+	int compareQuery(Marker query, IntervalSweep sweep) {
+		Markers resultsForest = intervalForest.query(query);
+		Markers resultsSweep = sweep.query(query);
+		if (debug) Gpr.debug("Query: " + query + "\n\tResults: " + resultsSweep.size());
+
+		// Results must be the same and in the same order
+		Assert.assertEquals("Results differ for query '" + query + "'.", resultsForest.toString(), resultsSweep.toString());
+		return resultsForest.size();
+	}
+
+	/**
+	 * Create random intervals (both short and long)
+	 */
+	Markers createRandomMarkers(Chromosome chr, int num, int maxSize) {
+		Markers markers = new Markers();
+		for (int i = 0; i < num; i++) {
+			int start = rand.nextInt(chr.size());
+			int end = Math.min(start + rand.nextInt(maxSize), chr.getEnd());
+			markers.add(new Marker(chr, start, end, false, chr.getId() + "_" + i));
+		}
+		return markers;
+	}
+
+	@Before
+	public void init() {
+		rand = new Random(20181015);
+		genome = new Genome();
+		chr1 = new Chromosome(genome, 0, CHR_SIZE, "1");
+		chr2 = new Chromosome(genome, 0, CHR_SIZE, "2");
+
+		intervalForest = new IntervalForest();
+		for (Chromosome chr : new Chromosome[] { chr1, chr2 }) {
+			intervalForest.add(createRandomMarkers(chr, NUM_INTERVALS, 10));
+			intervalForest.add(createRandomMarkers(chr, NUM_INTERVALS / 10, CHR_SIZE / 4));
+		}
+		intervalForest.build();
+	}
+
+	/**
+	 * Sorted queries: Results should be the same as interval forest queries
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+
+		Markers queries = new Markers();
+		queries.add(createRandomMarkers(chr1, NUM_QUERIES, MAX_QUERY_SIZE));
+		queries.add(createRandomMarkers(chr2, NUM_QUERIES, MAX_QUERY_SIZE));
+		queries.sort();
+
+		IntervalSweep sweep = new IntervalSweep(intervalForest);
+		int totalResults = 0;
+		for (Marker query : queries)
+			totalResults += compareQuery(query, sweep);
+
+		if (verbose) Gpr.debug("Sweep: " + sweep);
+		Assert.assertTrue("Not a single result found in all queries!", totalResults > 0);
+		Assert.assertEquals(2 * NUM_QUERIES, sweep.getCountSweep());
+		Assert.assertEquals(0, sweep.getCountTree());
+	}
+
+	/**
+	 * Unsorted queries: Out of order queries fall back to interval forest
+	 */
+	@Test
+	public void test_02() {
+		Gpr.debug("Test");
+
+		Markers queries = new Markers();
+		queries.add(createRandomMarkers(chr1, NUM_QUERIES, MAX_QUERY_SIZE));
+		queries.add(createRandomMarkers(chr2, NUM_QUERIES, MAX_QUERY_SIZE));
+
+		IntervalSweep sweep = new IntervalSweep(intervalForest);
+		int totalResults = 0;
+		for (Marker query : queries)
+			totalResults += compareQuery(query, sweep);
+
+		if (verbose) Gpr.debug("Sweep: " + sweep);
+		Assert.assertTrue("Not a single result found in all queries!", totalResults > 0);
+		Assert.assertTrue("No query used the interval forest", sweep.getCountTree() > 0);
+		Assert.assertEquals(2 * NUM_QUERIES, sweep.getCountSweep() + sweep.getCountTree());
+	}
+
+	/**
+	 * Queries on chromosomes not in the forest return no results
+	 */
+	@Test
+	public void test_03() {
+		Gpr.debug("Test");
+
+		Chromosome chr3 = new Chromosome(genome, 0, CHR_SIZE, "3");
+		IntervalSweep sweep = new IntervalSweep(intervalForest);
+		for (Marker query : createRandomMarkers(chr3, 100, MAX_QUERY_SIZE))
+			Assert.assertEquals(0, sweep.query(query).size());
+	}
+
+}
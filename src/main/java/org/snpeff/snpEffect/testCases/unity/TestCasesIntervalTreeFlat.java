@@ -0,0 +1,46 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import org.junit.Test;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.tree.IntervalTreeFlat;
+import org.snpeff.interval.tree.Itree;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+
+/**
+ * Test case for interval tree structure
+ */
+public class TestCasesIntervalTreeFlat extends TestCasesIntervalTree {
+
+	@Override
+	protected Itree newItree(Markers markers) {
+		return new IntervalTreeFlat(markers);
+	}
+
+	/**
+	 * Stabbing queries, reusing the same results buffer
+	 */
+	@Test
+	public void test_03() {
+		Gpr.debug("Test");
+
+		Itree intTree = newItree(markers);
+		intTree.build();
+
+		Markers results = new Markers();
+		int totalResults = 0;
+		for (int pos = 0; pos < CHR_SIZE; pos++) {
+			results.clear();
+			intTree.stab(pos, results);
+
+			Marker query = new Marker(chromosome, pos, pos, false, "");
+			Assert.assertEquals("Results differ for position " + pos, queryNaive(query).sort().toString(), results.sort().toString());
+			totalResults += results.size();
+		}
+
+		Assert.assertTrue("Not a signle result found in all queries!", totalResults > 0);
+	}
+
+}
@@ -3,6 +3,7 @@ package org.snpeff.snpEffect.testCases.unity;
 import org.junit.Test;
 import org.snpeff.interval.Exon;
 import org.snpeff.interval.Intron;
+import org.snpeff.interval.Markers;
 import org.snpeff.interval.Variant;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.VariantEffect;
@@ -112,4 +113,25 @@ public class TestCasesIntervalVariant extends TestCasesBase {
 			}
 		}
 	}
+
+	/**
+	 * Reusing the same query results buffer for all variants gives the same effects
+	 */
+	@Test
+	public void test_02() {
+		Gpr.debug("Test");
+
+		Markers queryResults = new Markers();
+		for (int i = 0; i < 10; i++) {
+			initSnpEffPredictor();
+			for (int pos = 0; pos < chromosome.size(); pos++) {
+				int end = Math.min(pos + rand.nextInt(100) + 1, chromosome.getEnd());
+				Variant variant = new Variant(chromosome, pos, end, "");
+
+				VariantEffects effects = snpEffectPredictor.variantEffect(variant);
+				VariantEffects effectsReuse = snpEffectPredictor.variantEffect(variant, null, queryResults);
+				Assert.assertEquals("Variant: " + variant, effects.toString(), effectsReuse.toString());
+			}
+		}
+	}
 }
@@ -1,13 +1,25 @@
 package org.snpeff.snpEffect.testCases.unity;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Test;
+import org.snpeff.interval.Motif;
+import org.snpeff.interval.Variant;
 import org.snpeff.motif.Jaspar;
+import org.snpeff.motif.Pwm;
+import org.snpeff.snpEffect.VariantEffect.EffectImpact;
+import org.snpeff.snpEffect.VariantEffects;
 import org.snpeff.util.Gpr;
+import org.snpeff.util.GprSeq;
 
 import junit.framework.Assert;
 
 /**
- * Test case for Jaspar parsing
+ * Test case for Jaspar parsing and motif (PWM) scoring
  *
  * @author pcingola
  */
@@ -85,4 +97,116 @@ public class TestCasesJaspar extends TestCasesBase {
 		Assert.assertEquals(expected, actual);
 	}
 
+	/**
+	 * Reference implementation (score whole sequences) of motif score difference:
+	 * Score of the BEST sequence minus score of the BEST sequence changed by the variant
+	 */
+	double scoreDiff(Motif motif, Pwm pwm, Variant variant) {
+		String seqBest = pwm.getBestSequenceStr();
+		char seq[] = (motif.isStrandPlus() ? seqBest : GprSeq.reverseWc(seqBest)).toCharArray();
+		for (int pos = Math.max(motif.getStart(), variant.getStart()); pos <= Math.min(motif.getEnd(), variant.getEnd()); pos++)
+			seq[pos - motif.getStart()] = variant.getAlt().charAt(pos - variant.getStart());
+
+		String seqNew = new String(seq);
+		if (motif.isStrandMinus()) seqNew = GprSeq.reverseWc(seqNew);
+		return pwm.score(seqBest) - pwm.score(seqNew);
+	}
+
+	/**
+	 * Score differences calculated using PWM columns (delta scoring) should be
+	 * the same as scoring whole sequences
+	 */
+	@Test
+	public void test_03() {
+		Gpr.debug("Test");
+		Jaspar jaspar = new Jaspar();
+		jaspar.load(path("jaspar_2013.txt.gz"));
+
+		int countLow = 0, countModifier = 0;
+		for (Pwm pwm : jaspar) {
+			// Best score is cached
+			Assert.assertEquals(pwm.score(pwm.getBestSequenceStr()), pwm.getBestScore(), 0.0);
+
+			// Single column delta
+			char best[] = pwm.getBestSequence();
+			for (int i = 0; i < pwm.length(); i++) {
+				for (char base : Pwm.BASES) {
+					char seq[] = best.clone();
+					seq[i] = base;
+					double diff = pwm.getBestScore() - pwm.score(new String(seq));
+					Assert.assertEquals(diff, pwm.scoreDelta(base, i), 1e-12);
+				}
+			}
+
+			// Motifs on both strands, SNPs and MNPs (some of them partially overlapping the motif)
+			for (boolean strandMinus : new boolean[] { false, true }) {
+				int start = 10 + rand.nextInt(10);
+				Motif motif = new Motif(chromosome, start, start + pwm.length() - 1, strandMinus, pwm.getId(), pwm.getName(), pwm.getId());
+				motif.setPwm(pwm);
+
+				for (int i = 0; i < 20; i++) {
+					int len = 1 + (rand.nextBoolean() ? 0 : rand.nextInt(3));
+					int pos = start - len + 1 + rand.nextInt(pwm.length() + len - 1);
+					String ref = chromoSequence.substring(pos, pos + len).toUpperCase();
+					StringBuilder alt = new StringBuilder();
+					for (int j = 0; j < len; j++) {
+						String bases = "ACGT".replace(ref.substring(j, j + 1), "");
+						alt.append(bases.charAt(rand.nextInt(bases.length())));
+					}
+					Variant variant = new Variant(chromosome, pos, ref, alt.toString(), "");
+
+					VariantEffects variantEffects = new VariantEffects();
+					Assert.assertTrue(motif.variantEffect(variant, variantEffects));
+					EffectImpact expected = Math.abs(scoreDiff(motif, pwm, variant)) > Motif.SCORE_THRESHOLD ? EffectImpact.LOW : EffectImpact.MODIFIER;
+					Assert.assertEquals("Variant: " + variant + "\tMotif: " + motif, expected, variantEffects.get(0).getEffectImpact());
+
+					if (expected == EffectImpact.LOW) countLow++;
+					else countModifier++;
+				}
+			}
+		}
+
+		Assert.assertTrue(countLow > 0);
+		Assert.assertTrue(countModifier > 0);
+	}
+
+	/**
+	 * Delta scoring from several threads, starting with empty caches (best
+	 * sequence and score), should give the same results as a single thread
+	 */
+	@Test
+	public void test_04() throws Exception {
+		Gpr.debug("Test");
+		Jaspar jaspar = new Jaspar();
+		jaspar.load(path("jaspar_2013.txt.gz"));
+		Jaspar jasparThreads = new Jaspar();
+		jasparThreads.load(path("jaspar_2013.txt.gz"));
+
+		int numThreads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int t = 0; t < numThreads; t++) {
+				futures.add(executor.submit(() -> {
+					int count = 0;
+					for (Pwm pwmThreads : jasparThreads) {
+						Pwm pwm = jaspar.getPwm(pwmThreads.getId());
+						for (int i = 0; i < pwm.length(); i++)
+							for (char base : Pwm.BASES) {
+								Assert.assertEquals(pwm.scoreDelta(base, i), pwmThreads.scoreDelta(base, i), 0.0);
+								count++;
+							}
+						Assert.assertEquals(pwm.getBestScore(), pwmThreads.getBestScore(), 0.0);
+					}
+					return count;
+				}));
+			}
+
+			for (Future<Integer> future : futures)
+				Assert.assertTrue(future.get() > 0);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 }
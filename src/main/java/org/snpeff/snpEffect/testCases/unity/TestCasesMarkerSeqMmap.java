@@ -0,0 +1,169 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.snpeff.binseq.DnaNSequence;
+import org.snpeff.binseq.DnaSequence;
+import org.snpeff.binseq.DnaSequenceMmap;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.MarkerSeq;
+import org.snpeff.interval.Markers;
+import org.snpeff.serializer.MarkerSeqSerializerMmap;
+import org.snpeff.util.Gpr;
+import org.snpeff.util.GprSeq;
+
+import junit.framework.Assert;
+
+/**
+ * Test memory mapped genomic sequences and String-free base access
+ *
+ * @author pcingola
+ */
+public class TestCasesMarkerSeqMmap {
+
+	public static int CHR_SIZE = 100 * 1000;
+	public static int NUM_SEQUENCES = 20;
+	public static int NUM_QUERIES = 1000;
+
+	boolean verbose = false;
+	Random rand;
+	Genome genome;
+	Chromosome chromosome;
+
+	@Before
+	public void init() {
+		rand = new Random(20181016);
+		genome = new Genome("test");
+		chromosome = new Chromosome(genome, 0, CHR_SIZE, "1");
+		genome.add(chromosome);
+	}
+
+	/**
+	 * Compare all bases (using the different access methods)
+	 */
+	void compare(MarkerSeq ms, MarkerSeq msLoad) {
+		Assert.assertEquals(ms.getSequence(), msLoad.getSequence());
+		Assert.assertEquals(ms.sequenceLength(), msLoad.sequenceLength());
+
+		String seq = ms.getSequence();
+		char bases[] = new char[100];
+		for (int i = 0; i < NUM_QUERIES; i++) {
+			int idx = rand.nextInt(seq.length());
+			int len = Math.min(1 + rand.nextInt(bases.length), seq.length() - idx);
+
+			String expected = ms.basesAt(idx, len);
+			Assert.assertEquals(expected, msLoad.basesAt(idx, len));
+			Assert.assertEquals(expected.charAt(0), msLoad.baseAt(idx));
+
+			msLoad.basesAt(idx, len, bases, 0);
+			Assert.assertEquals(expected, new String(bases, 0, len));
+		}
+	}
+
+	/**
+	 * Create a random sequence, including some runs of 'N'
+	 */
+	String randSeq(int len) {
+		char seq[] = new char[len];
+		for (int i = 0; i < len; i++)
+			seq[i] = "ACGT".charAt(rand.nextInt(4));
+
+		for (int n = rand.nextInt(4); n > 0; n--) {
+			int start = rand.nextInt(len);
+			int end = Math.min(len, start + 1 + rand.nextInt(100));
+			for (int i = start; i < end; i++)
+				seq[i] = 'N';
+		}
+		return new String(seq);
+	}
+
+	/**
+	 * Bulk and reverse complement decoding: Same results as String based methods
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+
+		for (int i = 0; i < NUM_SEQUENCES; i++) {
+			String seqStr = randSeq(10 + rand.nextInt(1000));
+			DnaSequence seqs[] = { new DnaNSequence(seqStr), new DnaSequence(seqStr.replace('N', 'A')) };
+
+			for (DnaSequence seq : seqs) {
+				for (int j = 0; j < NUM_QUERIES; j++) {
+					int idx = rand.nextInt(seq.length());
+					int len = 1 + rand.nextInt(seq.length() - idx);
+					int offset = rand.nextInt(10);
+					char bases[] = new char[offset + len];
+
+					String expected = seq.getBases(idx, len);
+					seq.getBases(idx, len, bases, offset);
+					Assert.assertEquals(expected, new String(bases, offset, len));
+
+					seq.getBasesReverseWc(idx, len, bases, offset);
+					Assert.assertEquals(GprSeq.reverseWc(expected), new String(bases, offset, len));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Save and load memory mapped sequences: Same bases on both strands
+	 */
+	@Test
+	public void test_02() {
+		Gpr.debug("Test");
+
+		Markers markers = new Markers();
+		for (int i = 0; i < NUM_SEQUENCES; i++) {
+			int start = rand.nextInt(CHR_SIZE / 2);
+			int end = start + rand.nextInt(5000);
+			MarkerSeq ms = new MarkerSeq(chromosome, start, end, rand.nextBoolean(), "seq_" + i);
+			ms.setSequence(randSeq(ms.size()));
+			markers.add(ms);
+		}
+
+		String fileName = "/tmp/sequence.mmap.bin";
+		new MarkerSeqSerializerMmap(genome).save(fileName, markers);
+		Markers markersLoad = new MarkerSeqSerializerMmap(genome).load(fileName);
+		Assert.assertEquals(markers.size(), markersLoad.size());
+
+		for (int i = 0; i < markers.size(); i++) {
+			MarkerSeq ms = (MarkerSeq) markers.get(i);
+			MarkerSeq msLoad = (MarkerSeq) markersLoad.get(i);
+			if (verbose) Gpr.debug("Sequence: " + ms.getId() + "\n\t" + ms.getSequence() + "\n\t" + msLoad.getSequence());
+
+			Assert.assertTrue(msLoad.getDnaSequence() instanceof DnaSequenceMmap);
+			Assert.assertEquals(ms.getId(), msLoad.getId());
+			Assert.assertEquals(ms.getStart(), msLoad.getStart());
+			Assert.assertEquals(ms.getEnd(), msLoad.getEnd());
+			Assert.assertEquals(ms.isStrandMinus(), msLoad.isStrandMinus());
+			compare(ms, msLoad);
+		}
+	}
+
+	/**
+	 * Sub-sequences and reverse complement of memory mapped sequences
+	 */
+	@Test
+	public void test_03() {
+		Gpr.debug("Test");
+
+		Markers markers = new Markers();
+		MarkerSeq ms = new MarkerSeq(chromosome, 100, 199, true, "seq");
+		ms.setSequence(randSeq(ms.size()));
+		markers.add(ms);
+
+		String fileName = "/tmp/sequence.mmap.bin";
+		new MarkerSeqSerializerMmap(genome).save(fileName, markers);
+		MarkerSeq msLoad = (MarkerSeq) new MarkerSeqSerializerMmap(genome).load(fileName).get(0);
+
+		Marker m = new Marker(chromosome, 150, 159, false, "");
+		Assert.assertEquals(ms.getSequence(m), msLoad.getSequence(m));
+		Assert.assertEquals(ms.getDnaSequence().reverseWc().toString(), msLoad.getDnaSequence().reverseWc().toString());
+	}
+
+}
@@ -0,0 +1,175 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.snpeff.interval.Exon;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Genome;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.interval.Transcript;
+import org.snpeff.serializer.MarkerSerializerMmap;
+import org.snpeff.snpEffect.SnpEffectPredictor;
+import org.snpeff.util.Gpr;
+
+import junit.framework.Assert;
+
+/**
+ * Test binary (memory-mappable) database serialization
+ *
+ * @author pcingola
+ */
+public class TestCasesMarkerSerializerMmap extends TestCasesBase {
+
+	public TestCasesMarkerSerializerMmap() {
+		super();
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		randSeed = 20181012;
+		numGenes = 2;
+		maxTranscripts = 3;
+		addUtrs = true;
+		initRand();
+	}
+
+	/**
+	 * Save and load all markers: Transcripts should be the same
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+		String fileName = "/tmp/snpEffectPredictor.mmap.bin";
+		new SnpEffectPredictor(genome).saveMmap(fileName); // Only genome and genes (no up/downstream, intergenic, etc.)
+
+		Markers markers = new MarkerSerializerMmap().load(fileName);
+
+		// Index transcripts
+		Map<String, Transcript> trById = new HashMap<>();
+		int countGenes = 0;
+		for (Marker m : markers) {
+			if (m instanceof Transcript) trById.put(m.getId(), (Transcript) m);
+			else if (m instanceof Gene) countGenes++;
+		}
+		Assert.assertEquals(genome.getGenes().size(), countGenes);
+
+		// Compare transcripts
+		for (Gene g : genome.getGenes())
+			for (Transcript tr : g) {
+				Transcript trLoad = trById.get(tr.getId());
+				if (verbose) Gpr.debug("Transcript:\n" + tr + "\nLoaded:\n" + trLoad);
+				Assert.assertNotNull("Transcript '" + tr.getId() + "' not found", trLoad);
+				Assert.assertEquals(tr.toString(), trLoad.toString());
+				Assert.assertEquals(tr.getChromosomeName(), trLoad.getChromosomeName());
+				Assert.assertEquals(tr.getParent().getId(), trLoad.getParent().getId());
+			}
+	}
+
+	/**
+	 * Load a subset of chromosomes: Genome and chromosomes are loaded, genes are not
+	 */
+	@Test
+	public void test_02() {
+		Gpr.debug("Test");
+		String fileName = "/tmp/snpEffectPredictor.mmap.bin";
+		new SnpEffectPredictor(genome).saveMmap(fileName); // Only genome and genes (no up/downstream, intergenic, etc.)
+
+		Markers markers = new MarkerSerializerMmap().load(fileName, new ArrayList<String>());
+
+		int countGenomes = 0;
+		for (Marker m : markers) {
+			if (m instanceof Genome) countGenomes++;
+			Assert.assertFalse("Unexpected marker loaded: " + m, m instanceof Gene || m instanceof Transcript);
+		}
+		Assert.assertEquals(1, countGenomes);
+
+		// Load chromosome
+		ArrayList<String> chrNames = new ArrayList<>();
+		chrNames.add(chromosome.getId());
+		markers = new MarkerSerializerMmap().load(fileName, chrNames);
+		int countGenes = 0;
+		for (Marker m : markers)
+			if (m instanceof Gene) countGenes++;
+		Assert.assertEquals(genome.getGenes().size(), countGenes);
+	}
+
+	/**
+	 * A memory-mapped database older than the binary database is stale (e.g. after re-downloading the database)
+	 */
+	@Test
+	public void test_03() throws IOException {
+		Gpr.debug("Test");
+		File fileBin = File.createTempFile("snpEffectPredictor", ".bin");
+		File fileMmap = File.createTempFile("snpEffectPredictor", ".mmap.bin");
+		fileBin.deleteOnExit();
+		fileMmap.deleteOnExit();
+
+		SnpEffectPredictor sep = new SnpEffectPredictor(genome);
+		sep.save(fileBin.getPath());
+		sep.saveMmap(fileMmap.getPath());
+
+		long now = System.currentTimeMillis();
+		fileBin.setLastModified(now);
+		fileMmap.setLastModified(now - 60 * 1000);
+		Assert.assertFalse("Stale memory-mapped file should not be used", Gpr.isNewer(fileMmap.getPath(), fileBin.getPath()));
+
+		fileMmap.setLastModified(now + 1000);
+		Assert.assertTrue(Gpr.isNewer(fileMmap.getPath(), fileBin.getPath()));
+
+		// No binary file: memory-mapped file is used
+		fileBin.delete();
+		Assert.assertTrue(Gpr.isNewer(fileMmap.getPath(), fileBin.getPath()));
+
+		// No memory-mapped file
+		fileMmap.delete();
+		Assert.assertFalse(Gpr.isNewer(fileMmap.getPath(), fileBin.getPath()));
+	}
+
+	/**
+	 * Type specific fields (stored as typed columns) are the same as in the original markers
+	 */
+	@Test
+	public void test_04() {
+		Gpr.debug("Test");
+		String fileName = "/tmp/snpEffectPredictor.mmap.bin";
+		new SnpEffectPredictor(genome).saveMmap(fileName);
+
+		MarkerSerializerMmap ms = new MarkerSerializerMmap();
+		Markers markers = ms.load(fileName);
+		Assert.assertEquals(genome.hasCodingInfo(), ms.isCodingInfo());
+
+		// Index genes and exons
+		Map<String, Gene> geneById = new HashMap<>();
+		Map<String, Exon> exonById = new HashMap<>();
+		for (Marker m : markers) {
+			if (m instanceof Gene) geneById.put(m.getId(), (Gene) m);
+			else if (m instanceof Exon) exonById.put(m.getParent().getId() + "\t" + m.getId(), (Exon) m);
+		}
+
+		for (Gene g : genome.getGenes()) {
+			Gene gLoad = geneById.get(g.getId());
+			Assert.assertEquals(g.getGeneName(), gLoad.getGeneName());
+			Assert.assertEquals(g.getBioType(), gLoad.getBioType());
+			Assert.assertEquals(g.isStrandMinus(), gLoad.isStrandMinus());
+
+			for (Transcript tr : g) {
+				for (Exon ex : tr) {
+					Exon exLoad = exonById.get(tr.getId() + "\t" + ex.getId());
+					Assert.assertNotNull("Exon '" + ex.getId() + "' not found", exLoad);
+					Assert.assertEquals(ex.getFrame(), exLoad.getFrame());
+					Assert.assertEquals(ex.getRank(), exLoad.getRank());
+					Assert.assertEquals(ex.getSequence(), exLoad.getSequence());
+					Assert.assertEquals(ex.getSpliceType(), exLoad.getSpliceType());
+				}
+			}
+		}
+	}
+
+}
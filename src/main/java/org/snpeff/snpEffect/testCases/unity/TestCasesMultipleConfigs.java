@@ -0,0 +1,136 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snpeff.interval.Chromosome;
+import org.snpeff.interval.Exon;
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.Config;
+import org.snpeff.snpEffect.SnpEffectPredictor;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.factory.SnpEffPredictorFactoryRand;
+import org.snpeff.util.Gpr;
+
+/**
+ * Test several configurations (and predictors) used at the same time
+ *
+ * @author pcingola
+ */
+public class TestCasesMultipleConfigs extends TestCasesBase {
+
+	public static int NUM_THREADS = 4;
+
+	Config config2;
+	SnpEffectPredictor snpEffectPredictor2;
+
+	public TestCasesMultipleConfigs() {
+		super();
+	}
+
+	/**
+	 * Annotate a variant at 'pos' using a predictor, return HGVS strings
+	 */
+	String annotate(SnpEffectPredictor sep, int pos) {
+		Chromosome chr = sep.getGenome().getChromosome(chromosome.getId());
+		String ref = chromoSequence.substring(pos, pos + 1).toUpperCase();
+		String alt = ref.equals("A") ? "C" : "A";
+		Variant variant = new Variant(chr, pos, ref, alt, "");
+
+		StringBuilder sb = new StringBuilder();
+		for (VariantEffect varEff : sep.variantEffect(variant))
+			sb.append(varEff.getHgvs() + ";");
+		return sb.toString();
+	}
+
+	/**
+	 * Create a second configuration and predictor (same genome, different options)
+	 * Note: Creating a new configuration changes the default configuration (Config.get())
+	 */
+	void initConfig2() {
+		config2 = new Config(genomeName, Config.DEFAULT_CONFIG_FILE);
+		SnpEffPredictorFactoryRand sepf = new SnpEffPredictorFactoryRand(config2, new Random(randSeed), maxGeneLen, maxTranscripts, maxExons);
+		sepf.setNumGenes(numGenes);
+		sepf.setForcePositiveStrand(onlyPlusStrand);
+		sepf.setMinExons(minExons);
+		snpEffectPredictor2 = sepf.create();
+		snpEffectPredictor2.setUpDownStreamLength(0);
+		snpEffectPredictor2.buildForest();
+		config2.setSnpEffectPredictor(snpEffectPredictor2);
+
+		// Different options
+		config.setUseHgvs(true);
+		config2.setUseHgvs(false);
+		Assert.assertSame(config2, Config.get());
+	}
+
+	/**
+	 * Each predictor uses its own configuration, regardless of the default one
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+		initConfig2();
+
+		Assert.assertSame(config, snpEffectPredictor.getGenome().getConfig());
+		Assert.assertSame(config2, snpEffectPredictor2.getGenome().getConfig());
+		Assert.assertSame(config, transcript.config());
+
+		for (Exon ex : transcript) {
+			for (int pos = ex.getStart(); pos <= ex.getEnd(); pos++) {
+				String hgvs1 = annotate(snpEffectPredictor, pos);
+				String hgvs2 = annotate(snpEffectPredictor2, pos);
+				if (verbose) Gpr.debug("Position: " + pos + "\tHGVS: '" + hgvs1 + "'\t'" + hgvs2 + "'");
+
+				Assert.assertTrue("Missing HGVS annotation at position " + pos, hgvs1.contains("c."));
+				Assert.assertFalse("Unexpected HGVS annotation at position " + pos, hgvs2.contains("c."));
+			}
+		}
+	}
+
+	/**
+	 * Annotate concurrently using both predictors
+	 */
+	@Test
+	public void test_02() throws Exception {
+		Gpr.debug("Test");
+		initConfig2();
+
+		// Expected results (single thread)
+		List<Integer> positions = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		for (Exon ex : transcript) {
+			for (int pos = ex.getStart(); pos <= ex.getEnd(); pos++) {
+				positions.add(pos);
+				expected.add(annotate(snpEffectPredictor, pos) + "\t" + annotate(snpEffectPredictor2, pos));
+			}
+		}
+
+		// Annotate in several threads, alternating predictors
+		ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			for (int i = 0; i < NUM_THREADS; i++) {
+				futures.add(executor.submit(() -> {
+					StringBuilder sb = new StringBuilder();
+					for (int pos : positions)
+						sb.append(annotate(snpEffectPredictor, pos) + "\t" + annotate(snpEffectPredictor2, pos) + "\n");
+					return sb.toString();
+				}));
+			}
+
+			String expectedStr = String.join("\n", expected) + "\n";
+			for (Future<String> f : futures)
+				Assert.assertEquals(expectedStr, f.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
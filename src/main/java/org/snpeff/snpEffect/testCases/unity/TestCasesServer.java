@@ -0,0 +1,171 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdEff;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdServer;
+import org.snpeff.util.Gpr;
+import org.snpeff.vcf.VcfEntry;
+
+/**
+ * Test annotation server ('server' command)
+ *
+ * @author pcingola
+ */
+public class TestCasesServer extends TestCasesBase {
+
+	public static int NUM_VARIANTS = 200;
+
+	public TestCasesServer() {
+		super();
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		randSeed = 20181017;
+		maxTranscripts = 3;
+		initRand();
+	}
+
+	/**
+	 * Send a request, return response code and body
+	 */
+	int request(SnpEffCmdServer server, String method, String path, String body, StringBuilder response) throws IOException {
+		URL url = new URL("http://localhost:" + server.getPort() + path);
+		HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+		conn.setRequestMethod(method);
+
+		if (body != null) {
+			conn.setDoOutput(true);
+			try (OutputStream out = conn.getOutputStream()) {
+				out.write(body.getBytes());
+			}
+		}
+
+		int code = conn.getResponseCode();
+		try (InputStream in = (code == 200 ? conn.getInputStream() : conn.getErrorStream())) {
+			byte buffer[] = new byte[8192];
+			for (int len; (len = in.read(buffer)) > 0;)
+				response.append(new String(buffer, 0, len));
+		}
+
+		return code;
+	}
+
+	/**
+	 * Server annotations should be the same as 'ann' command annotations
+	 */
+	@Test
+	public void test_01() throws IOException {
+		Gpr.debug("Test");
+
+		String vcfFile = randVcfFile(NUM_VARIANTS, 1, false);
+		String vcf = Gpr.readFile(vcfFile);
+
+		// Annotate using 'ann' command
+		SnpEffCmdEff cmdEff = new SnpEffCmdEff();
+		cmdEff.setConfig(config);
+		cmdEff.setVerbose(verbose);
+		cmdEff.setSupressOutput(!verbose);
+		cmdEff.parseArgs(new String[] { "-noStats", genomeName, vcfFile });
+		List<VcfEntry> vcfEntries = cmdEff.run(true);
+		Assert.assertEquals(NUM_VARIANTS, vcfEntries.size());
+
+		// Annotate using server
+		SnpEffCmdServer server = new SnpEffCmdServer();
+		server.setConfig(config);
+		server.setVerbose(verbose);
+		server.parseArgs(new String[] { "-port", "0", "-noStats", genomeName });
+		server.start();
+		try {
+			for (String path : new String[] { "/ann/" + genomeName, "/ann" }) {
+				StringBuilder response = new StringBuilder();
+				Assert.assertEquals(200, request(server, "POST", path, vcf, response));
+
+				// Compare VCF entries
+				List<String> lines = new ArrayList<>();
+				for (String line : response.toString().split("\n"))
+					if (!line.startsWith("#")) lines.add(line);
+
+				if (verbose) Gpr.debug("Response:\n" + response);
+				Assert.assertEquals(vcfEntries.size(), lines.size());
+				for (int i = 0; i < lines.size(); i++)
+					Assert.assertEquals(vcfEntries.get(i).toString(), lines.get(i));
+
+				Assert.assertTrue(response.toString().contains("##INFO=<ID=ANN,"));
+			}
+			Assert.assertEquals(2, server.getCountRequests());
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Unknown genomes and invalid methods
+	 */
+	@Test
+	public void test_02() throws IOException {
+		Gpr.debug("Test");
+
+		SnpEffCmdServer server = new SnpEffCmdServer();
+		server.setConfig(config);
+		server.setVerbose(verbose);
+		server.parseArgs(new String[] { "-port", "0", "-noStats", genomeName });
+		server.start();
+		try {
+			StringBuilder response = new StringBuilder();
+			Assert.assertEquals(200, request(server, "GET", "/genomes", null, response));
+			Assert.assertEquals(genomeName, response.toString().trim());
+
+			Assert.assertEquals(404, request(server, "POST", "/ann/no_such_genome", randVcf(NUM_VARIANTS, 1, false), new StringBuilder()));
+			Assert.assertEquals(405, request(server, "GET", "/ann", null, new StringBuilder()));
+			Assert.assertEquals(0, server.getCountRequests());
+		} finally {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Invalid VCF: Error status code if the first entry cannot be parsed,
+	 * error trailer line if the response is already being streamed
+	 */
+	@Test
+	public void test_03() throws IOException {
+		Gpr.debug("Test");
+
+		String vcf = randVcf(NUM_VARIANTS, 1, false);
+		String badLine = chromosome.getId() + "\t100\n"; // Not enough fields
+		int headerEnd = vcf.indexOf("\n", vcf.indexOf("#CHROM")) + 1;
+		String vcfBadFirst = vcf.substring(0, headerEnd) + badLine + vcf.substring(headerEnd);
+		String vcfBadLast = vcf + badLine;
+
+		SnpEffCmdServer server = new SnpEffCmdServer();
+		server.setConfig(config);
+		server.setVerbose(verbose);
+		server.parseArgs(new String[] { "-port", "0", "-noStats", genomeName });
+		server.start();
+		try {
+			StringBuilder response = new StringBuilder();
+			Assert.assertEquals(400, request(server, "POST", "/ann", vcfBadFirst, response));
+			if (verbose) Gpr.debug("Response:\n" + response);
+
+			response = new StringBuilder();
+			Assert.assertEquals(200, request(server, "POST", "/ann", vcfBadLast, response));
+			if (verbose) Gpr.debug("Response:\n" + response);
+			String lines[] = response.toString().split("\n");
+			Assert.assertTrue("Missing error trailer: " + lines[lines.length - 1], lines[lines.length - 1].startsWith(SnpEffCmdServer.ERROR_TRAILER));
+		} finally {
+			server.stop();
+		}
+	}
+
+}
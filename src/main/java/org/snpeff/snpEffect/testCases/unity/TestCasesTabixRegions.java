@@ -0,0 +1,313 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snpeff.fileIterator.TabixRegionsReader;
+import org.snpeff.fileIterator.VcfFileIterator;
+import org.snpeff.interval.Marker;
+import org.snpeff.interval.Markers;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdEff;
+import org.snpeff.util.BgzfOutputStream;
+import org.snpeff.util.Gpr;
+import org.snpeff.vcf.VcfEntry;
+
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.tribble.index.IndexFactory;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.tribble.readers.TabixReader;
+import htsjdk.variant.vcf.VCFCodec;
+
+/**
+ * Test region restricted annotations (tabix indexed VCF files)
+ *
+ * @author pcingola
+ */
+public class TestCasesTabixRegions extends TestCasesBase {
+
+	public static int NUM_VARIANTS = 1000;
+
+	String vcfFile, vcfGzFile;
+
+	public TestCasesTabixRegions() {
+		super();
+	}
+
+	/**
+	 * Annotate a VCF file, return positions of all entries in the output
+	 */
+	List<String> annotate(String vcfFile, String... regions) {
+		return annotateFilter(vcfFile, null, regions);
+	}
+
+	/**
+	 * Annotate a VCF file using a filter interval file ('-fi') and regions,
+	 * return positions of all entries in the output
+	 */
+	List<String> annotateFilter(String vcfFile, String filterFile, String... regions) {
+		List<String> args = new ArrayList<>();
+		if (filterFile != null) {
+			args.add("-fi");
+			args.add(filterFile);
+		}
+		for (String region : regions) {
+			args.add("-region");
+			args.add(region);
+		}
+		args.add("-noStats");
+		args.add(genomeName);
+		args.add(vcfFile);
+
+		SnpEffCmdEff cmdEff = new SnpEffCmdEff();
+		cmdEff.setConfig(config);
+		cmdEff.setVerbose(verbose);
+		cmdEff.setSupressOutput(!verbose);
+		cmdEff.parseArgs(args.toArray(new String[0]));
+
+		List<String> positions = new ArrayList<>();
+		for (VcfEntry ve : cmdEff.run(true))
+			positions.add(ve.getChromosomeName() + ":" + (ve.getStart() + 1));
+		return positions;
+	}
+
+	/**
+	 * Positions of entries in 'vcfFile' overlapping any of the regions
+	 */
+	List<String> expected(Markers regions) {
+		return expected(regions, null);
+	}
+
+	/**
+	 * Positions of entries in 'vcfFile' overlapping any of the regions and
+	 * any of the filter intervals (if not null)
+	 */
+	List<String> expected(Markers regions, Markers filterIntervals) {
+		List<String> positions = new ArrayList<>();
+		for (VcfEntry ve : new VcfFileIterator(vcfFile)) {
+			if (overlaps(ve, regions) && (filterIntervals == null || overlaps(ve, filterIntervals))) positions.add(ve.getChromosomeName() + ":" + (ve.getStart() + 1));
+		}
+		return positions;
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		randSeed = 20181023;
+		initRand();
+	}
+
+	boolean overlaps(VcfEntry ve, Markers markers) {
+		for (Marker m : markers)
+			if ((m.getStart() <= ve.getEnd()) && (ve.getStart() <= m.getEnd())) return true;
+		return false;
+	}
+
+	/**
+	 * Create a sorted VCF file with random variants, a bgzipped copy and its tabix index
+	 */
+	void randVcf() throws Exception {
+		vcfFile = randVcfFile(NUM_VARIANTS, 1, true);
+		vcfGzFile = vcfFile + ".gz";
+		String tbiFile = vcfGzFile + TabixRegionsReader.TABIX_INDEX_EXTENSION;
+		new File(vcfGzFile).deleteOnExit();
+		new File(tbiFile).deleteOnExit();
+
+		// Bgzip and index
+		try (Writer writer = new OutputStreamWriter(new BlockCompressedOutputStream(vcfGzFile))) {
+			writer.write(Gpr.readFile(vcfFile));
+		}
+		IndexFactory.createTabixIndex(new File(vcfGzFile), new VCFCodec(), TabixFormat.VCF, null).write(new File(tbiFile));
+	}
+
+	/**
+	 * Annotate regions: Tabix indexed file and plain file should produce the same
+	 * entries, each entry reported once (even if it overlaps several regions)
+	 */
+	@Test
+	public void test_01() throws Exception {
+		Gpr.debug("Test");
+		randVcf();
+		Assert.assertTrue(TabixRegionsReader.hasIndex(vcfGzFile));
+		Assert.assertFalse(TabixRegionsReader.hasIndex(vcfFile));
+
+		// Two overlapping regions and a separate one (not sorted)
+		int len = chromoSequence.length();
+		int regs[][] = { { len / 2, len / 2 + len / 10 }, { len / 10, len / 5 }, { len / 5 - 100, len / 4 } };
+		String regions[] = new String[regs.length];
+		Markers regionMarkers = new Markers();
+		for (int i = 0; i < regs.length; i++) {
+			regions[i] = chromosome.getId() + ":" + (regs[i][0] + 1) + "-" + (regs[i][1] + 1);
+			regionMarkers.add(new Marker(chromosome, regs[i][0], regs[i][1], false, regions[i]));
+		}
+
+		List<String> expected = expected(regionMarkers);
+		Assert.assertTrue(expected.size() > 0);
+		Assert.assertTrue(expected.size() < NUM_VARIANTS / 2);
+
+		// Read directly from tabix reader
+		List<String> tabix = new ArrayList<>();
+		for (VcfEntry ve : new VcfFileIterator(new TabixRegionsReader(vcfGzFile, regionMarkers), genome))
+			tabix.add(ve.getChromosomeName() + ":" + (ve.getStart() + 1));
+		Assert.assertEquals(expected, tabix);
+
+		// Annotate using tabix index and using a plain file
+		Assert.assertEquals(expected, annotate(vcfGzFile, regions));
+		Assert.assertEquals(expected, annotate(vcfFile, regions));
+
+		// Regions from a BED file
+		String bedFile = vcfFile + ".bed";
+		new File(bedFile).deleteOnExit();
+		StringBuilder bed = new StringBuilder();
+		for (int i = 0; i < regs.length; i++)
+			bed.append(chromosome.getId() + "\t" + regs[i][0] + "\t" + (regs[i][1] + 1) + "\n");
+		Gpr.toFile(bedFile, bed);
+		Assert.assertEquals(expected, annotate(vcfGzFile, bedFile));
+	}
+
+	/**
+	 * Whole chromosome regions and regions in unknown chromosomes (error)
+	 */
+	@Test
+	public void test_02() throws Exception {
+		Gpr.debug("Test");
+		randVcf();
+		Assert.assertEquals(NUM_VARIANTS, annotate(vcfGzFile, chromosome.getId()).size());
+
+		try {
+			annotate(vcfGzFile, "chrNotInGenome:1-1000");
+			Assert.fail("Unknown chromosome in region should fail");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().contains("chrNotInGenome"));
+		}
+	}
+
+	/**
+	 * Compressed (BGZF) output and tabix index created while writing
+	 */
+	@Test
+	public void test_03() throws Exception {
+		Gpr.debug("Test");
+		randVcf();
+
+		String outFile = vcfFile + ".out.vcf.gz";
+		new File(outFile).deleteOnExit();
+		new File(outFile + TabixRegionsReader.TABIX_INDEX_EXTENSION).deleteOnExit();
+
+		SnpEffCmdEff cmdEff = new SnpEffCmdEff();
+		cmdEff.setConfig(config);
+		cmdEff.setVerbose(verbose);
+		String args[] = { "-noStats", "-bgzip", outFile, genomeName, vcfFile };
+		cmdEff.parseArgs(args);
+		cmdEff.run();
+		Assert.assertTrue(TabixRegionsReader.hasIndex(outFile));
+
+		// Read compressed output
+		List<String> lines = new ArrayList<>();
+		for (VcfEntry ve : new VcfFileIterator(outFile))
+			lines.add(ve.toString());
+		Assert.assertEquals(NUM_VARIANTS, lines.size());
+		Assert.assertTrue(lines.get(0).contains("ANN="));
+
+		// Query using the index (htsjdk's reader), compare to plain file
+		int len = chromoSequence.length();
+		int start = len / 3, end = len / 3 + len / 10;
+		Markers regions = new Markers();
+		regions.add(new Marker(chromosome, start, end, false, ""));
+		List<String> expected = expected(regions);
+
+		TabixReader tabixReader = new TabixReader(outFile);
+		TabixReader.Iterator it = tabixReader.query(chromosome.getId(), start, end + 1); // Zero-based, half open
+		List<String> positions = new ArrayList<>();
+		for (String line = it.next(); line != null; line = it.next()) {
+			String fields[] = line.split("\t");
+			positions.add(fields[0] + ":" + fields[1]);
+		}
+		tabixReader.close();
+		Assert.assertEquals(expected, positions);
+
+		// Query using our own reader
+		Assert.assertEquals(expected, annotate(outFile, chromosome.getId() + ":" + (start + 1) + "-" + (end + 1)));
+	}
+
+	/**
+	 * BGZF stream: Output does not depend on the number of threads and can be read by other BGZF readers
+	 */
+	@Test
+	public void test_04() throws Exception {
+		Gpr.debug("Test");
+
+		// Some data, larger than several blocks
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; sb.length() < 5 * BgzfOutputStream.BLOCK_SIZE; i++)
+			sb.append(i + "\t" + rand.nextInt() + "\n");
+		byte data[] = sb.toString().getBytes();
+
+		byte out[][] = new byte[2][];
+		int numThreads[] = { 1, 4 };
+		for (int i = 0; i < numThreads.length; i++) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			BgzfOutputStream bgzf = new BgzfOutputStream(bytes, numThreads[i]);
+			bgzf.write(data);
+			bgzf.close();
+			out[i] = bytes.toByteArray();
+
+			// Virtual offsets: Block 'n' starts at uncompressed position 'n * BLOCK_SIZE'
+			Assert.assertEquals(0L, bgzf.virtualOffset(0));
+			Assert.assertEquals(1L, bgzf.virtualOffset(1) & 0xffff);
+			Assert.assertTrue((bgzf.virtualOffset(BgzfOutputStream.BLOCK_SIZE) >> 16) > 0);
+		}
+		Assert.assertArrayEquals(out[0], out[1]);
+
+		// Read using htsjdk
+		String file = "/tmp/test_bgzf.txt.gz";
+		Gpr.toFile(file, "");
+		BgzfOutputStream bgzf = new BgzfOutputStream(file, 4);
+		bgzf.write(data);
+		bgzf.close();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (BlockCompressedInputStream in = new BlockCompressedInputStream(new FileInputStream(file))) {
+			byte buf[] = new byte[1024];
+			for (int n = in.read(buf); n > 0; n = in.read(buf))
+				bytes.write(buf, 0, n);
+		}
+		Assert.assertArrayEquals(data, bytes.toByteArray());
+		Assert.assertEquals(sb.toString(), Gpr.readFile(file)); // Also readable as a plain GZIP file
+	}
+
+	/**
+	 * Filter intervals ('-fi') and regions: Only variants matching both are
+	 * annotated, both when reading a tabix indexed file and a plain file
+	 */
+	@Test
+	public void test_05() throws Exception {
+		Gpr.debug("Test");
+		randVcf();
+
+		int len = chromoSequence.length();
+		Markers regions = new Markers();
+		regions.add(new Marker(chromosome, len / 10, len / 2, false, ""));
+		Markers filterIntervals = new Markers();
+		filterIntervals.add(new Marker(chromosome, len / 3, 3 * len / 4, false, ""));
+
+		String bedFile = vcfFile + ".fi.bed";
+		new File(bedFile).deleteOnExit();
+		Gpr.toFile(bedFile, chromosome.getId() + "\t" + (len / 3) + "\t" + (3 * len / 4 + 1) + "\n");
+		String region = chromosome.getId() + ":" + (len / 10 + 1) + "-" + (len / 2 + 1);
+
+		List<String> expected = expected(regions, filterIntervals);
+		Assert.assertTrue(expected.size() > 0);
+		Assert.assertTrue(expected.size() < expected(regions).size());
+		Assert.assertEquals(expected, annotateFilter(vcfGzFile, bedFile, region));
+		Assert.assertEquals(expected, annotateFilter(vcfFile, bedFile, region));
+	}
+
+}
@@ -0,0 +1,154 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.VariantEffectCache;
+import org.snpeff.snpEffect.VariantEffects;
+import org.snpeff.snpEffect.commandLine.SnpEffCmdEff;
+import org.snpeff.util.Gpr;
+import org.snpeff.vcf.VcfEntry;
+
+/**
+ * Test variant effects cache
+ *
+ * @author pcingola
+ */
+public class TestCasesVariantEffectCache extends TestCasesBase {
+
+	public static int NUM_VARIANTS = 100;
+	public static int NUM_REPEATS = 3;
+
+	public TestCasesVariantEffectCache() {
+		super();
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		randSeed = 20181019;
+		maxTranscripts = 3;
+		initRand();
+	}
+
+	/**
+	 * Annotate a VCF file
+	 */
+	List<VcfEntry> annotate(String vcfFile, VariantEffectCache variantEffectCache, String... args) {
+		SnpEffCmdEff cmdEff = new SnpEffCmdEff();
+		cmdEff.setConfig(config);
+		cmdEff.setVerbose(verbose);
+		cmdEff.setSupressOutput(!verbose);
+		cmdEff.setVariantEffectCache(variantEffectCache);
+
+		String argsAll[] = new String[args.length + 3];
+		System.arraycopy(args, 0, argsAll, 0, args.length);
+		argsAll[args.length] = "-noStats";
+		argsAll[args.length + 1] = genomeName;
+		argsAll[args.length + 2] = vcfFile;
+		cmdEff.parseArgs(argsAll);
+
+		return cmdEff.run(true);
+	}
+
+	/**
+	 * Annotations using a cache should be the same as without cache
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+
+		String vcfFile = randVcfFile(NUM_VARIANTS, NUM_REPEATS, false);
+
+		List<VcfEntry> vcfEntries = annotate(vcfFile, null);
+		Assert.assertEquals(NUM_VARIANTS * NUM_REPEATS, vcfEntries.size());
+
+		VariantEffectCache cache = new VariantEffectCache(NUM_VARIANTS);
+		List<VcfEntry> vcfEntriesCache = annotate(vcfFile, cache);
+		if (verbose) Gpr.debug(cache);
+
+		Assert.assertEquals(vcfEntries.size(), vcfEntriesCache.size());
+		for (int i = 0; i < vcfEntries.size(); i++)
+			Assert.assertEquals(vcfEntries.get(i).toString(), vcfEntriesCache.get(i).toString());
+
+		Assert.assertEquals(NUM_VARIANTS, cache.getCountMisses());
+		Assert.assertEquals(NUM_VARIANTS * (NUM_REPEATS - 1), cache.getCountHits());
+		Assert.assertEquals(0, cache.getCountEvictions());
+
+		// Same database and options: Cache is still valid
+		annotate(vcfFile, cache);
+		Assert.assertEquals(NUM_VARIANTS, cache.getCountMisses());
+
+		// Different options: Cache is invalidated
+		List<VcfEntry> vcfEntriesNoShift = annotate(vcfFile, cache, "-noShiftHgvs");
+		Assert.assertEquals(2 * NUM_VARIANTS, cache.getCountMisses());
+		Assert.assertEquals(vcfEntries.size(), vcfEntriesNoShift.size());
+	}
+
+	/**
+	 * Least recently used entries are evicted
+	 */
+	@Test
+	public void test_02() {
+		Gpr.debug("Test");
+
+		VariantEffectCache cache = new VariantEffectCache(2);
+		cache.fingerprint("test");
+
+		Variant v1 = new Variant(chromosome, 10, "A", "C", "");
+		Variant v2 = new Variant(chromosome, 20, "A", "C", "");
+		Variant v3 = new Variant(chromosome, 30, "A", "C", "");
+		VariantEffects veffs = new VariantEffects();
+
+		cache.put(v1, veffs);
+		cache.put(v2, veffs);
+		Assert.assertSame(veffs, cache.get(v1)); // Now 'v2' is the least recently used
+		cache.put(v3, veffs);
+
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals(1, cache.getCountEvictions());
+		Assert.assertNotNull(cache.get(v1));
+		Assert.assertNull(cache.get(v2));
+		Assert.assertNotNull(cache.get(new Variant(chromosome, 30, "A", "C", "rs3"))); // IDs are not part of the key
+		Assert.assertNull(cache.get(new Variant(chromosome, 30, "A", "G", "")));
+
+		// Changing fingerprint invalidates the cache
+		cache.fingerprint("test");
+		Assert.assertEquals(2, cache.size());
+		cache.fingerprint("other");
+		Assert.assertEquals(0, cache.size());
+	}
+
+	/**
+	 * HGVS strings of cached effects are only calculated once
+	 */
+	@Test
+	public void test_03() {
+		Gpr.debug("Test");
+
+		VariantEffectCache cache = new VariantEffectCache(NUM_VARIANTS);
+		cache.fingerprint("test");
+
+		int countHgvs = 0;
+		for (int pos = 0; pos < chromoSequence.length(); pos += 10) {
+			char ref = Character.toUpperCase(chromoSequence.charAt(pos));
+			char alt = "ACGT".replace("" + ref, "").charAt(rand.nextInt(3));
+			Variant variant = new Variant(chromosome, pos, ref + "", alt + "", "");
+
+			cache.put(variant, snpEffectPredictor.variantEffect(variant));
+			for (VariantEffect veff : cache.get(variant)) { // Cached effects: Always the same strings
+				String hgvsDna = veff.getHgvsDna();
+				if (hgvsDna.isEmpty()) continue;
+				Assert.assertSame(hgvsDna, veff.getHgvsDna());
+				Assert.assertSame(veff.getHgvsProt(), veff.getHgvsProt());
+				countHgvs++;
+			}
+		}
+
+		Assert.assertTrue("No HGVS annotations found", countHgvs > 0);
+	}
+
+}
@@ -0,0 +1,212 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.snpeff.interval.BioType;
+import org.snpeff.interval.Gene;
+import org.snpeff.interval.Transcript;
+import org.snpeff.interval.Variant;
+import org.snpeff.snpEffect.EffectType;
+import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.VariantEffect.EffectImpact;
+import org.snpeff.stats.CountByIndex;
+import org.snpeff.stats.CountByType;
+import org.snpeff.stats.GeneCountByTypeTable;
+import org.snpeff.stats.VariantEffectStats;
+import org.snpeff.util.Gpr;
+
+/**
+ * Test variant effect statistics (primitive counters and merging)
+ *
+ * @author pcingola
+ */
+public class TestCasesVariantEffectStats extends TestCasesBase {
+
+	public static int NUM_VARIANTS = 1000;
+
+	public TestCasesVariantEffectStats() {
+		super();
+	}
+
+	/**
+	 * Gene table as a string
+	 */
+	String geneTable(GeneCountByTypeTable table) {
+		StringBuilder sb = new StringBuilder();
+		for (String key : table.getKeyList()) {
+			sb.append(key + "\t" + table.getBioType(key));
+			for (String type : table.getTypeList())
+				sb.append("\t" + type + ":" + table.getCounter(type).get(key) + ":" + table.getCounterSize(type).get(key));
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+	@Override
+	protected void init() {
+		super.init();
+		randSeed = 20181105;
+		numGenes = 5;
+		maxTranscripts = 3;
+		addUtrs = true;
+		onlyPlusStrand = false;
+		initRand();
+	}
+
+	/**
+	 * Effects for random SNPs, insertions and deletions
+	 */
+	List<VariantEffect> randomEffects() {
+		List<VariantEffect> effects = new ArrayList<>();
+		for (int i = 0; i < NUM_VARIANTS; i++) {
+			int pos = rand.nextInt(chromoSequence.length() - 10);
+			String ref = chromoSequence.substring(pos, pos + 1).toUpperCase();
+			int altIdx = rand.nextInt(3);
+			String alt = "ACGT".replace(ref, "").substring(altIdx, altIdx + 1);
+
+			switch (rand.nextInt(3)) {
+			case 0:
+				ref = chromoSequence.substring(pos, pos + 1 + rand.nextInt(6)).toUpperCase(); // Deletion
+				alt = "";
+				break;
+			case 1:
+				ref = ""; // Insertion
+				alt = "AC".substring(0, 1 + rand.nextInt(2));
+				break;
+			default:
+				break;
+			}
+
+			Variant variant = new Variant(chromosome, pos, ref, alt, "");
+			for (VariantEffect variantEffect : snpEffectPredictor.variantEffect(variant))
+				effects.add(variantEffect);
+		}
+		return effects;
+	}
+
+	/**
+	 * Counters indexed by enum ordinals / names, merge and conversion to CountByType
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+		CountByIndex c1 = new CountByIndex(new String[] { "a", "b" });
+		c1.inc(0);
+		c1.inc(1, 5);
+		c1.addScore(1, 0.5);
+
+		CountByIndex c2 = new CountByIndex();
+		c2.inc(c2.idx("c"));
+		c2.inc(c2.idx("b"));
+		c2.addScore(c2.idx("b"), 1.5);
+
+		c1.merge(c2); // Merge by name
+		Assert.assertEquals(1, c1.get(0));
+		Assert.assertEquals(8, c1.get(1));
+		Assert.assertEquals(2.0, c1.getScore(1), 0.0);
+		Assert.assertEquals(1, c1.get(c1.idx("c")));
+		Assert.assertFalse(c1.hasScore(0));
+
+		CountByType countByType = c1.toCountByType();
+		Assert.assertEquals(10, countByType.sum());
+		Assert.assertEquals(8, countByType.get("b"));
+		Assert.assertEquals(2.0, countByType.getScore("b"), 0.0);
+	}
+
+	/**
+	 * Effect counts must be the same as counting effect names (split by '+' or '&'),
+	 * and merging stats from several collectors must be the same as sampling all effects
+	 */
+	@Test
+	public void test_02() {
+		Gpr.debug("Test");
+		List<VariantEffect> effects = randomEffects();
+		Assert.assertFalse(effects.isEmpty());
+
+		for (boolean useSeqOnt : new boolean[] { true, false }) {
+			VariantEffectStats stats = new VariantEffectStats(genome);
+			stats.setUseSequenceOntology(useSeqOnt);
+			VariantEffectStats statsPart[] = new VariantEffectStats[3];
+			for (int i = 0; i < statsPart.length; i++) {
+				statsPart[i] = new VariantEffectStats(genome);
+				statsPart[i].setUseSequenceOntology(useSeqOnt);
+			}
+
+			CountByType countByEffect = new CountByType();
+			for (int i = 0; i < effects.size(); i++) {
+				VariantEffect variantEffect = effects.get(i);
+				stats.sample(variantEffect);
+				statsPart[i % statsPart.length].sample(variantEffect);
+
+				String effStr = variantEffect.getEffectTypeString(useSeqOnt);
+				if (!effStr.isEmpty()) {
+					for (String eff : effStr.split("[\\+&]"))
+						countByEffect.inc(eff);
+				}
+			}
+			Assert.assertEquals(countByEffect.toString(), stats.getCountByEffect().toString());
+
+			// Merge
+			VariantEffectStats merged = new VariantEffectStats(genome);
+			merged.setUseSequenceOntology(useSeqOnt);
+			for (VariantEffectStats s : statsPart)
+				merged.merge(s);
+
+			Assert.assertEquals(stats.getCountByEffect().toString(), merged.getCountByEffect().toString());
+			Assert.assertEquals(stats.getCountByGeneRegion().toString(), merged.getCountByGeneRegion().toString());
+			Assert.assertEquals(stats.getCountByImpact().toString(), merged.getCountByImpact().toString());
+			Assert.assertEquals(stats.getCountByFunctionalClass().toString(), merged.getCountByFunctionalClass().toString());
+			Assert.assertEquals(stats.getSilentRatio(), merged.getSilentRatio(), 0.0);
+			Assert.assertEquals(stats.getCountWarnings(), merged.getCountWarnings());
+
+			Assert.assertEquals(stats.getCodonList(), merged.getCodonList());
+			for (String oldCodon : stats.getCodonList())
+				for (String newCodon : stats.getCodonList())
+					Assert.assertEquals(stats.getCodonChangeCount(oldCodon, newCodon), merged.getCodonChangeCount(oldCodon, newCodon));
+
+			Assert.assertEquals(stats.getAaList(), merged.getAaList());
+			for (String oldAa : stats.getAaList())
+				for (String newAa : stats.getAaList()) {
+					Assert.assertEquals(stats.getAaChangeCount(oldAa, newAa), merged.getAaChangeCount(oldAa, newAa));
+					Assert.assertEquals(stats.getAaChangeColor(oldAa, newAa), merged.getAaChangeColor(oldAa, newAa));
+				}
+
+			Assert.assertFalse(stats.getGeneCountByEffectTable().getKeyList().isEmpty());
+			Assert.assertEquals(geneTable(stats.getGeneCountByEffectTable()), geneTable(merged.getGeneCountByEffectTable()));
+			Assert.assertEquals(geneTable(stats.getGeneCountByRegionTable()), geneTable(merged.getGeneCountByRegionTable()));
+			Assert.assertEquals(geneTable(stats.getGeneCountByImpactTable()), geneTable(merged.getGeneCountByImpactTable()));
+		}
+	}
+
+	/**
+	 * Bases affected must not overflow when they add up to more than Integer.MAX_VALUE
+	 */
+	@Test
+	public void test_03() {
+		Gpr.debug("Test");
+		int size = 1000 * 1000 * 1000;
+		Gene gene = new Gene(chromosome, 0, size - 1, false, "geneBig", "geneBig", BioType.protein_coding);
+		Transcript tr = new Transcript(gene, 0, size - 1, false, "trBig");
+		Variant variant = new Variant(chromosome, 0, size - 1, "delBig");
+		VariantEffect variantEffect = new VariantEffect(variant, tr, EffectType.TRANSCRIPT_DELETED, EffectImpact.HIGH, "", "", -1, -1, -1);
+
+		String type = EffectType.TRANSCRIPT_DELETED.toString();
+		GeneCountByTypeTable table = new GeneCountByTypeTable();
+		for (int i = 0; i < 3; i++)
+			table.sample(gene, tr, type, variantEffect);
+
+		GeneCountByTypeTable merged = new GeneCountByTypeTable();
+		merged.merge(table);
+		merged.merge(table);
+
+		String key = table.getKeyList().get(0);
+		Assert.assertEquals(3, table.getCounter(type).get(key));
+		Assert.assertEquals(3L * size, table.getCounterSize(type).get(key));
+		Assert.assertEquals(6, merged.getCounter(type).get(key));
+		Assert.assertEquals(6L * size, merged.getCounterSize(type).get(key));
+	}
+
+}
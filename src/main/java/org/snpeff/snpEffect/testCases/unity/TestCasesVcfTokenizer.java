@@ -0,0 +1,252 @@
+package org.snpeff.snpEffect.testCases.unity;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.snpeff.fileIterator.VcfFileIterator;
+import org.snpeff.util.Gpr;
+import org.snpeff.vcf.VcfEntry;
+import org.snpeff.vcf.VcfGenotype;
+import org.snpeff.vcf.VcfTokenizer;
+
+/**
+ * Test VCF tokenizer (offset based parsing, no splitting) and
+ * raw genotype fields pass-through
+ *
+ * @author pcingola
+ */
+public class TestCasesVcfTokenizer {
+
+	public static int NUM_TESTS = 1000;
+	public static String INFO_KEYS[] = { "AC", "AF", "A", "DP", "INDEL", "END", "AFR_AF", "X" };
+
+	boolean verbose = false;
+	Random rand;
+
+	@Before
+	public void init() {
+		rand = new Random(20181018);
+	}
+
+	/**
+	 * Parse INFO the 'old way' (split)
+	 */
+	Map<String, String> parseInfo(String infoStr) {
+		Map<String, String> info = new HashMap<>();
+		for (String inf : infoStr.split(";")) {
+			String vp[] = inf.split("=", 2);
+			info.put(vp[0], vp.length > 1 ? vp[1] : "true");
+		}
+		return info;
+	}
+
+	/**
+	 * Random INFO field (repeated keys, flags and empty values included)
+	 */
+	String randInfo() {
+		StringBuilder sb = new StringBuilder();
+		for (int n = rand.nextInt(6); n >= 0; n--) {
+			if (sb.length() > 0) sb.append(';');
+			sb.append(INFO_KEYS[rand.nextInt(INFO_KEYS.length)]);
+			switch (rand.nextInt(4)) {
+			case 0: // Flag
+				break;
+			case 1: // Empty value
+				sb.append('=');
+				break;
+			default:
+				sb.append('=').append(rand.nextInt(100));
+				if (rand.nextBoolean()) sb.append(',').append(rand.nextInt(100));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Random VCF line (missing fields, no genotypes or many genotypes)
+	 */
+	String randLine() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("1\t" + (1 + rand.nextInt(1000)) + "\t" + (rand.nextBoolean() ? "." : "rs" + rand.nextInt(1000)));
+		sb.append("\tA\t" + (rand.nextBoolean() ? "C" : "C,GT"));
+		sb.append("\t" + (rand.nextBoolean() ? "." : rand.nextInt(100) + ".0"));
+		sb.append("\t" + (rand.nextBoolean() ? "." : "PASS"));
+		sb.append("\t" + (rand.nextInt(5) == 0 ? "." : randInfo()));
+
+		int numSamples = rand.nextInt(4) == 0 ? 0 : rand.nextInt(20);
+		if (numSamples > 0) {
+			sb.append("\tGT:DP");
+			for (int i = 0; i < numSamples; i++)
+				sb.append("\t" + (rand.nextInt(10) == 0 ? "." : rand.nextInt(2) + "/" + rand.nextInt(2) + ":" + rand.nextInt(50)));
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Field boundaries should match 'split'
+	 */
+	@Test
+	public void test_01() {
+		Gpr.debug("Test");
+
+		VcfTokenizer tokenizer = new VcfTokenizer(VcfEntry.MAX_PARSE_FIELDS);
+		for (int i = 0; i < NUM_TESTS; i++) {
+			String line = randLine();
+			if (rand.nextInt(10) == 0) line += "\t"; // Trailing tab
+			if (verbose) Gpr.debug("Line: " + line);
+
+			String fields[] = line.split("\t", VcfEntry.MAX_PARSE_FIELDS);
+			tokenizer.tokenize(line);
+			Assert.assertEquals(fields.length, tokenizer.size());
+
+			for (int j = 0; j < VcfEntry.MAX_PARSE_FIELDS; j++) {
+				String expected = (j < fields.length && !fields[j].equals(".") ? fields[j] : "");
+				Assert.assertEquals(expected, tokenizer.field(j));
+			}
+		}
+	}
+
+	/**
+	 * INFO lookups without parsing should match parsed INFO fields
+	 */
+	@Test
+	public void test_02() {
+		Gpr.debug("Test");
+
+		for (int i = 0; i < NUM_TESTS; i++) {
+			String infoStr = randInfo();
+			Map<String, String> info = parseInfo(infoStr);
+			if (verbose) Gpr.debug("INFO: " + infoStr + "\t" + info);
+
+			for (String key : INFO_KEYS)
+				Assert.assertEquals("INFO: '" + infoStr + "', key: '" + key + "'", info.get(key), VcfTokenizer.infoValue(infoStr, key));
+		}
+	}
+
+	/**
+	 * Parse VCF entries: Same values before and after parsing INFO fields, genotypes are not modified
+	 */
+	@Test
+	public void test_03() {
+		Gpr.debug("Test");
+
+		StringBuilder vcfStr = new StringBuilder("##fileformat=VCFv4.1\n#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n");
+		for (int i = 0; i < NUM_TESTS; i++)
+			vcfStr.append(randLine() + "\n");
+
+		VcfFileIterator vcf = new VcfFileIterator(new BufferedReader(new StringReader(vcfStr.toString())));
+		for (VcfEntry ve : vcf) {
+			String line = ve.getLine();
+			if (verbose) Gpr.debug("Line: " + line);
+
+			// Not parsed INFO
+			String fields[] = line.split("\t");
+			Map<String, String> info = parseInfo(fields[7].equals(".") ? "" : fields[7]);
+			for (String key : INFO_KEYS) {
+				Assert.assertEquals(info.get(key), ve.getInfo(key));
+				Assert.assertEquals(info.containsKey(key), ve.hasInfo(key));
+			}
+
+			// Genotypes are not modified
+			Assert.assertEquals(line, ve.toString());
+			Assert.assertEquals(Math.max(0, fields.length - 9), ve.getVcfGenotypes().size());
+			Assert.assertEquals(line, ve.toString());
+
+			// Parsed INFO
+			ve.getInfoKeys();
+			for (String key : INFO_KEYS)
+				Assert.assertEquals(info.get(key), ve.getInfo(key));
+		}
+	}
+
+	/**
+	 * Raw genotype fields are written 'as is', unless genotypes are modified
+	 */
+	@Test
+	public void test_04() {
+		Gpr.debug("Test");
+
+		String vcfStr = "##fileformat=VCFv4.1\n" //
+				+ "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\tS2\tS3\n" //
+				+ "1\t100\t.\tA\tC\t.\t.\tAC=1\tGT:DP\t0/1:10\t.\t1/1:3\t\n" // Trailing tab: Only kept in raw genotypes
+				+ "1\t200\t.\tA\tC\t.\t.\tAC=1\tGT:DP\t0/1:10\t.\t1/1:3\t\n" //
+		;
+
+		VcfFileIterator vcf = new VcfFileIterator(new BufferedReader(new StringReader(vcfStr)));
+		int count = 0;
+		for (VcfEntry ve : vcf) {
+			String line = ve.getLine();
+
+			// Parse genotypes and add INFO: Genotypes are not modified
+			Assert.assertEquals(3, ve.getVcfGenotypes().size());
+			ve.addInfo("ANN", "test");
+			String expected = line.replace("AC=1", "AC=1;ANN=test");
+			Assert.assertEquals(expected, ve.toString());
+
+			// Modify a genotype: Genotypes are formatted
+			if (ve.getStart() == 199) {
+				ve.getVcfGenotype(1).setGenotype("0/1");
+				expected = expected.replace("\t.\t1/1:3\t", "\t0/1:.\t1/1:3");
+				Assert.assertEquals(expected, ve.toString());
+			} else {
+				// Changing FORMAT: Genotypes are formatted
+				ve.setFormat("GT:DP:GQ");
+				expected = expected.replace("\tGT:DP\t", "\tGT:DP:GQ\t").replaceAll("\t$", "");
+				Assert.assertEquals(expected, ve.toString());
+			}
+
+			Assert.assertEquals("VcfEntry_1:" + (ve.getStart() + 1) + "_A/C", ve.toStr());
+			count++;
+		}
+		Assert.assertEquals(2, count);
+	}
+
+	/**
+	 * Changes to genotypes list are written, read-only genotypes cannot be changed
+	 */
+	@Test
+	public void test_05() {
+		Gpr.debug("Test");
+
+		String vcfStr = "##fileformat=VCFv4.1\n" //
+				+ "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\tS2\tS3\n" //
+				+ "1\t100\t.\tA\tC\t.\t.\tAC=1\tGT:DP\t0/1:10\t./.\t1/1:3\n" //
+				+ "1\t200\t.\tA\tC\t.\t.\tAC=1\tGT:DP\t0/1:10\t./.\t1/1:3\n" //
+		;
+
+		VcfFileIterator vcf = new VcfFileIterator(new BufferedReader(new StringReader(vcfStr)));
+		int count = 0;
+		for (VcfEntry ve : vcf) {
+			String line = ve.getLine();
+
+			if (ve.getStart() == 99) {
+				// Read-only genotype: Changes are not allowed
+				VcfGenotype vg = ve.getVcfGenotypeReadOnly(0);
+				Assert.assertEquals("0/1", vg.get("GT"));
+				try {
+					vg.setGenotype("1/1");
+					Assert.fail("Read-only genotype should not be modifiable");
+				} catch (RuntimeException e) {
+					// OK
+				}
+				Assert.assertEquals(line, ve.toString());
+			} else {
+				// Remove a genotype from the list: Genotypes are formatted
+				ve.getVcfGenotypes().remove(2);
+				Assert.assertEquals(2, ve.getVcfGenotypes().size());
+				Assert.assertEquals(line.replace("\t1/1:3", ""), ve.toString());
+			}
+
+			count++;
+		}
+		Assert.assertEquals(2, count);
+	}
+
+}
@@ -0,0 +1,339 @@
+package org.snpeff.stats;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.snpeff.binseq.GenomicSequences;
+import org.snpeff.snpEffect.VariantEffectCache;
+import org.snpeff.util.Gpr;
+
+/**
+ * Annotation pipeline metrics: Time spent and number of items processed
+ * in each annotation stage, throughput, cache hits, sequence loads and
+ * garbage collection activity.
+ *
+ * Metrics can be inspected while annotating (JMX, e.g. using 'jconsole')
+ * or reported at the end of the run (JSON).
+ *
+ * Note: Stage times are accumulated over all threads, so in multi-threaded
+ *       mode they can add up to more than the elapsed (wall clock) time.
+ *       Some stages are nested: EFFECT includes QUERY and FORMAT includes
+ *       HGVS and LOF.
+ *
+ * Note: This object is thread safe, so it can be shared between threads.
+ *
+ * @author pcingola
+ */
+public class AnnotationMetrics implements AnnotationMetricsMBean {
+
+	public static final String JMX_DOMAIN = "org.snpeff";
+	public static final double NANOS_TO_MS = 1.0 / (1000.0 * 1000.0);
+
+	/**
+	 * Annotation stages
+	 */
+	public enum Stage {
+		PARSE, // Read and parse input entries
+		QUERY, // Interval queries
+		EFFECT, // Calculate variant effects (includes QUERY)
+		HGVS, // HGVS notation
+		LOF, // Loss of function and nonsense mediated decay
+		FORMAT, // Format output (includes HGVS and LOF)
+		WRITE // Write output
+	}
+
+	String name;
+	long startNanos;
+	long gcCountStart, gcTimeStart;
+	LongAdder count[]; // Number of items processed, by stage
+	LongAdder time[]; // Time in nanoseconds, by stage
+	LongAdder countEffects;
+	VariantEffectCache variantEffectCache;
+	GenomicSequences genomicSequences;
+	ObjectName objectName;
+
+	/**
+	 * Total number of garbage collections (all collectors)
+	 */
+	static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			count += Math.max(0, gc.getCollectionCount());
+		return count;
+	}
+
+	/**
+	 * Total garbage collection time in milliseconds (all collectors)
+	 */
+	static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+			time += Math.max(0, gc.getCollectionTime());
+		return time;
+	}
+
+	public AnnotationMetrics(String name) {
+		this.name = name;
+		int len = Stage.values().length;
+		count = new LongAdder[len];
+		time = new LongAdder[len];
+		for (int i = 0; i < len; i++) {
+			count[i] = new LongAdder();
+			time[i] = new LongAdder();
+		}
+		countEffects = new LongAdder();
+
+		startNanos = System.nanoTime();
+		gcCountStart = gcCount();
+		gcTimeStart = gcTime();
+	}
+
+	/**
+	 * Add one item processed in 'stage', started at 'start' (System.nanoTime())
+	 */
+	public void add(Stage stage, long start) {
+		time[stage.ordinal()].add(System.nanoTime() - start);
+		count[stage.ordinal()].increment();
+	}
+
+	public void addEffects(int numEffects) {
+		countEffects.add(numEffects);
+	}
+
+	/**
+	 * Add time spent in 'stage', started at 'start' (System.nanoTime()), without counting items
+	 */
+	public void addTime(Stage stage, long start) {
+		time[stage.ordinal()].add(System.nanoTime() - start);
+	}
+
+	@Override
+	public long getCacheHits() {
+		return variantEffectCache != null ? variantEffectCache.getCountHits() : 0;
+	}
+
+	@Override
+	public long getCacheMisses() {
+		return variantEffectCache != null ? variantEffectCache.getCountMisses() : 0;
+	}
+
+	public long getCount(Stage stage) {
+		return count[stage.ordinal()].sum();
+	}
+
+	@Override
+	public long getEffects() {
+		return countEffects.sum();
+	}
+
+	@Override
+	public double getElapsedSeconds() {
+		return (System.nanoTime() - startNanos) / 1.0e9;
+	}
+
+	@Override
+	public long getEntries() {
+		return getCount(Stage.PARSE);
+	}
+
+	@Override
+	public long getGcCount() {
+		return gcCount() - gcCountStart;
+	}
+
+	@Override
+	public long getGcTimeMs() {
+		return gcTime() - gcTimeStart;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getSequenceLoads() {
+		return genomicSequences != null ? genomicSequences.getCountLoads() : 0;
+	}
+
+	@Override
+	public double getTimeEffectMs() {
+		return getTimeMs(Stage.EFFECT);
+	}
+
+	@Override
+	public double getTimeFormatMs() {
+		return getTimeMs(Stage.FORMAT);
+	}
+
+	@Override
+	public double getTimeHgvsMs() {
+		return getTimeMs(Stage.HGVS);
+	}
+
+	@Override
+	public double getTimeLofMs() {
+		return getTimeMs(Stage.LOF);
+	}
+
+	public double getTimeMs(Stage stage) {
+		return time[stage.ordinal()].sum() * NANOS_TO_MS;
+	}
+
+	@Override
+	public double getTimeParseMs() {
+		return getTimeMs(Stage.PARSE);
+	}
+
+	@Override
+	public double getTimeQueryMs() {
+		return getTimeMs(Stage.QUERY);
+	}
+
+	@Override
+	public double getTimeWriteMs() {
+		return getTimeMs(Stage.WRITE);
+	}
+
+	@Override
+	public long getVariants() {
+		return getCount(Stage.EFFECT);
+	}
+
+	@Override
+	public double getVariantsPerSecond() {
+		double elapsed = getElapsedSeconds();
+		return elapsed > 0 ? getVariants() / elapsed : 0;
+	}
+
+	/**
+	 * JMX object name
+	 */
+	public ObjectName objectName() {
+		try {
+			return new ObjectName(JMX_DOMAIN + ":type=AnnotationMetrics,name=" + ObjectName.quote(name));
+		} catch (JMException e) {
+			throw new RuntimeException("Cannot create JMX object name for '" + name + "'", e);
+		}
+	}
+
+	/**
+	 * Register as a JMX MBean (replaces any previous MBean having the same name)
+	 */
+	public synchronized void register() {
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		objectName = objectName();
+		try {
+			if (mbeanServer.isRegistered(objectName)) mbeanServer.unregisterMBean(objectName);
+			mbeanServer.registerMBean(this, objectName);
+		} catch (JMException e) {
+			throw new RuntimeException("Cannot register JMX MBean '" + objectName + "'", e);
+		}
+	}
+
+	public void setGenomicSequences(GenomicSequences genomicSequences) {
+		this.genomicSequences = genomicSequences;
+	}
+
+	public void setVariantEffectCache(VariantEffectCache variantEffectCache) {
+		this.variantEffectCache = variantEffectCache;
+	}
+
+	/**
+	 * Iterate over 'iterable', adding iteration time (e.g. reading and parsing
+	 * input entries) to 'stage'
+	 */
+	public <T> Iterable<T> timed(Stage stage, Iterable<T> iterable) {
+		return () -> {
+			Iterator<T> it = iterable.iterator();
+			return new Iterator<T>() {
+
+				@Override
+				public boolean hasNext() {
+					long start = System.nanoTime();
+					boolean hasNext = it.hasNext();
+					addTime(stage, start);
+					return hasNext;
+				}
+
+				@Override
+				public T next() {
+					long start = System.nanoTime();
+					T next = it.next();
+					add(stage, start);
+					return next;
+				}
+			};
+		};
+	}
+
+	/**
+	 * Metrics in JSON format
+	 */
+	@Override
+	public String toJson() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\n");
+		sb.append("\t\"name\": \"" + name.replace("\\", "\\\\").replace("\"", "\\\"") + "\",\n");
+		sb.append("\t\"elapsedSeconds\": " + getElapsedSeconds() + ",\n");
+		sb.append("\t\"entries\": " + getEntries() + ",\n");
+		sb.append("\t\"variants\": " + getVariants() + ",\n");
+		sb.append("\t\"effects\": " + getEffects() + ",\n");
+		sb.append("\t\"variantsPerSecond\": " + getVariantsPerSecond() + ",\n");
+
+		sb.append("\t\"stages\": {\n");
+		for (Stage stage : Stage.values()) {
+			sb.append("\t\t\"" + stage.toString().toLowerCase() + "\": { \"count\": " + getCount(stage) + ", \"timeMs\": " + getTimeMs(stage) + " }");
+			sb.append(stage.ordinal() < Stage.values().length - 1 ? ",\n" : "\n");
+		}
+		sb.append("\t},\n");
+
+		sb.append("\t\"cache\": { \"hits\": " + getCacheHits() + ", \"misses\": " + getCacheMisses() + " },\n");
+		sb.append("\t\"sequenceLoads\": " + getSequenceLoads() + ",\n");
+		sb.append("\t\"gc\": { \"count\": " + getGcCount() + ", \"timeMs\": " + getGcTimeMs() + " }\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Annotation metrics '" + name + "': " //
+				+ getVariants() + " variants, " //
+				+ String.format("%.1f", getVariantsPerSecond()) + " variants per second" //
+				+ ", cache hits: " + getCacheHits() //
+				+ ", sequence loads: " + getSequenceLoads() //
+				+ ", GC: " + getGcCount() + " collections, " + getGcTimeMs() + " ms" //
+		);
+		for (Stage stage : Stage.values())
+			sb.append(String.format("\n\t%-8s\tcount: %10d\ttime: %12.1f ms", stage, getCount(stage), getTimeMs(stage)));
+		return sb.toString();
+	}
+
+	/**
+	 * Unregister JMX MBean
+	 */
+	public synchronized void unregister() {
+		if (objectName == null) return;
+		MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (mbeanServer.isRegistered(objectName)) mbeanServer.unregisterMBean(objectName);
+		} catch (JMException e) {
+			throw new RuntimeException("Cannot unregister JMX MBean '" + objectName + "'", e);
+		}
+		objectName = null;
+	}
+
+	/**
+	 * Write metrics to a JSON file
+	 */
+	public void writeJson(String fileName) {
+		Gpr.toFile(fileName, toJson());
+	}
+
+}
@@ -0,0 +1,48 @@
+package org.snpeff.stats;
+
+/**
+ * JMX interface for annotation metrics (see AnnotationMetrics)
+ *
+ * Times are in milliseconds, accumulated over all threads
+ *
+ * @author pcingola
+ */
+public interface AnnotationMetricsMBean {
+
+	public long getCacheHits();
+
+	public long getCacheMisses();
+
+	public double getElapsedSeconds();
+
+	public long getEffects();
+
+	public long getEntries();
+
+	public long getGcCount();
+
+	public long getGcTimeMs();
+
+	public long getSequenceLoads();
+
+	public double getTimeEffectMs();
+
+	public double getTimeFormatMs();
+
+	public double getTimeHgvsMs();
+
+	public double getTimeLofMs();
+
+	public double getTimeParseMs();
+
+	public double getTimeQueryMs();
+
+	public double getTimeWriteMs();
+
+	public long getVariants();
+
+	public double getVariantsPerSecond();
+
+	public String toJson();
+
+}
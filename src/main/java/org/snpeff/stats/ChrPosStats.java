@@ -55,6 +55,17 @@ public class ChrPosStats {
 			count[i] = 0;
 	}
 
+	/**
+	 * Add all counts from 'chrPosStats' (must be created using the same chromosome length)
+	 */
+	public void merge(ChrPosStats chrPosStats) {
+		if (chrPosStats.count.length != count.length) throw new RuntimeException("Cannot merge stats for chromosome '" + name + "': Different number of bins (" + count.length + " vs " + chrPosStats.count.length + ")");
+
+		for (int i = 0; i < count.length; i++)
+			count[i] += chrPosStats.count[i];
+		total += chrPosStats.total;
+	}
+
 	public int[] posArray() {
 		int pos[] = new int[count.length];
 		for (int i = 0; i < pos.length; i++)
@@ -0,0 +1,188 @@
+package org.snpeff.stats;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Counters indexed by a (small, non-negative) integer, e.g. an enum's
+ * ordinal or the index of an interned name.
+ *
+ * Counts are stored in primitive arrays, so incrementing a counter does
+ * not create any objects. Use 'toCountByType()' to get a CountByType
+ * (e.g. to create summaries).
+ *
+ * Names are optional: If they are used, 'merge' matches counters by name,
+ * otherwise by index.
+ *
+ * @author pcingola
+ */
+public class CountByIndex implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	long counts[];
+	double scores[]; // Scores (NaN if no score has been added). Created only when needed
+	int size; // Number of indexes used
+	List<String> names; // Name for each index
+	HashMap<String, Integer> idxByName;
+
+	public CountByIndex() {
+		counts = new long[16];
+		names = new ArrayList<>();
+		idxByName = new HashMap<>();
+	}
+
+	/**
+	 * Create counters for a set of names: Name 'names[i]' has index 'i'
+	 * (e.g. enum names in ordinal order)
+	 */
+	public CountByIndex(String names[]) {
+		this();
+		for (String name : names)
+			idx(name);
+	}
+
+	/**
+	 * Add score for an index. Note: Also increments the counter (same as CountByType)
+	 */
+	public long addScore(int idx, double score) {
+		score(idx, score);
+		return inc(idx);
+	}
+
+	/**
+	 * Make sure index 'idx' can be used
+	 */
+	void ensure(int idx) {
+		if (idx >= counts.length) {
+			int len = counts.length;
+			counts = Arrays.copyOf(counts, Math.max(idx + 1, 2 * len));
+			if (scores != null) {
+				scores = Arrays.copyOf(scores, counts.length);
+				Arrays.fill(scores, len, scores.length, Double.NaN);
+			}
+		}
+		if (idx >= size) size = idx + 1;
+	}
+
+	public long get(int idx) {
+		return idx < size ? counts[idx] : 0;
+	}
+
+	public String getName(int idx) {
+		return idx < names.size() ? names.get(idx) : null;
+	}
+
+	public double getScore(int idx) {
+		return hasScore(idx) ? scores[idx] : 0.0;
+	}
+
+	public boolean hasData() {
+		for (int i = 0; i < size; i++)
+			if (counts[i] != 0) return true;
+		return false;
+	}
+
+	public boolean hasScore(int idx) {
+		return (scores != null) && (idx < size) && !Double.isNaN(scores[idx]);
+	}
+
+	/**
+	 * Index for a name (a new index is assigned if the name is not found)
+	 */
+	public int idx(String name) {
+		Integer idx = idxByName.get(name);
+		if (idx != null) return idx;
+
+		idx = names.size();
+		names.add(name);
+		idxByName.put(name, idx);
+		ensure(idx);
+		return idx;
+	}
+
+	public long inc(int idx) {
+		ensure(idx);
+		return ++counts[idx];
+	}
+
+	public long inc(int idx, long increment) {
+		ensure(idx);
+		counts[idx] += increment;
+		return counts[idx];
+	}
+
+	/**
+	 * Add all counts and scores from 'countByIndex'.
+	 * Counters are matched by name (if available) or by index
+	 */
+	public void merge(CountByIndex countByIndex) {
+		int idxMap[] = new int[countByIndex.size];
+		for (int i = 0; i < countByIndex.size; i++) {
+			String name = countByIndex.getName(i);
+			idxMap[i] = (name != null ? idx(name) : i);
+		}
+		merge(countByIndex, idxMap);
+	}
+
+	/**
+	 * Add all counts and scores from 'countByIndex': Index 'i' is added to index 'idxMap[i]'
+	 */
+	public void merge(CountByIndex countByIndex, int idxMap[]) {
+		for (int i = 0; i < countByIndex.size; i++) {
+			inc(idxMap[i], countByIndex.counts[i]);
+			if (countByIndex.hasScore(i)) score(idxMap[i], countByIndex.scores[i]);
+		}
+	}
+
+	/**
+	 * Add to score (without incrementing the counter)
+	 */
+	void score(int idx, double score) {
+		ensure(idx);
+		if (scores == null) {
+			scores = new double[counts.length];
+			Arrays.fill(scores, Double.NaN);
+		}
+		scores[idx] = Double.isNaN(scores[idx]) ? score : scores[idx] + score;
+	}
+
+	/**
+	 * Set counter value
+	 */
+	public void set(int idx, long value) {
+		ensure(idx);
+		counts[idx] = value;
+	}
+
+	/**
+	 * Number of indexes used
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Create a CountByType using names as types.
+	 * Only types having non-zero counts are added.
+	 */
+	public CountByType toCountByType() {
+		CountByType countByType = new CountByType();
+		for (int i = 0; i < size; i++) {
+			if (counts[i] == 0) continue;
+			String name = getName(i);
+			countByType.inc(name, counts[i]);
+			if (hasScore(i)) countByType.setScore(name, scores[i]);
+		}
+		return countByType;
+	}
+
+	@Override
+	public String toString() {
+		return toCountByType().toString();
+	}
+
+}
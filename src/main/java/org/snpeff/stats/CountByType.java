@@ -127,7 +127,7 @@ public class CountByType implements Serializable {
 	/**
 	 * Increment counter in a hash
 	 */
-	long inc(HashMap<String, Long> hash, String type, int toAdd) {
+	long inc(HashMap<String, Long> hash, String type, long toAdd) {
 		Long count = hash.get(type);
 		if (count == null) count = 0L;
 		count += toAdd;
@@ -142,7 +142,7 @@ public class CountByType implements Serializable {
 	/**
 	 * Increment counter for a given type
 	 */
-	public long inc(String type, int increment) {
+	public long inc(String type, long increment) {
 		return inc(countByType, type, increment);
 	}
 
@@ -186,6 +186,21 @@ public class CountByType implements Serializable {
 		return list;
 	}
 
+	/**
+	 * Add all counts and scores from 'countByType' to this counter
+	 */
+	public void merge(CountByType countByType) {
+		for (Map.Entry<String, Long> e : countByType.countByType.entrySet()) {
+			Long count = this.countByType.get(e.getKey());
+			this.countByType.put(e.getKey(), (count != null ? count : 0L) + e.getValue());
+		}
+
+		for (Map.Entry<String, Double> e : countByType.scoreByType.entrySet()) {
+			Double currScore = scoreByType.get(e.getKey());
+			scoreByType.put(e.getKey(), (currScore != null ? currScore : 0.0) + e.getValue());
+		}
+	}
+
 	/**
 	 * Maximum count
 	 */
@@ -2,9 +2,10 @@ package org.snpeff.stats;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 
@@ -21,6 +22,12 @@ import org.snpeff.snpEffect.VariantEffect;
  * Tries to avoid multiple counting by comparing to latest variants.
  * WARNING: This strategy does not work if changeEffect are out of order.
  *
+ * Keys (i.e. 'geneName \t geneId \t transcriptId') and types are interned,
+ * counts are stored in dense '[keys][types]' matrices (bases affected are
+ * 'long', since they can overflow an 'int' on large inputs). Memory usage is
+ * proportional to the number of genes (transcripts) having variants.
+ * CountByType objects are only created when requested.
+ *
  * @author pcingola
  */
 public class GeneCountByTypeTable implements Iterable<String>, Serializable {
@@ -29,55 +36,82 @@ public class GeneCountByTypeTable implements Iterable<String>, Serializable {
 	public static int GENE_CPG_NUM_BINS = 30;
 	public static boolean debug = false;
 
-	HashSet<String> keys;
-	HashSet<String> types;
-	HashMap<String, CountByType> countersByType;
-	HashMap<String, CountByType> counterSizeByType;
-	HashMap<String, String> bioType;
-	HashMap<String, Integer> sizeByType;
+	CountByIndex keys; // Interned keys
+	List<String> bioTypes; // Biotype for each key
+	CountByIndex types; // Interned types. Counts: Number of samples for each type
+	int counts[][]; // Counts, indexed by key and type
+	long countSizes[][]; // Bases affected, indexed by key and type
+	int sizes[][]; // Marker size, indexed by key and type
+	double scores[][]; // Scores, indexed by key and type (null if there are no scores)
+	transient IdentityHashMap<Transcript, Integer> keyIdxByTr; // Key index for each transcript
+	transient HashMap<String, CountByType> counters, counterSizes; // CountByType created from counts
+
+	/**
+	 * Get value from a matrix (zero if not available)
+	 */
+	static double get(double matrix[][], int key, int type) {
+		if (matrix == null || key >= matrix.length || matrix[key] == null || type >= matrix[key].length) return 0;
+		return matrix[key][type];
+	}
+
+	static int get(int matrix[][], int key, int type) {
+		if (key >= matrix.length || matrix[key] == null || type >= matrix[key].length) return 0;
+		return matrix[key][type];
+	}
+
+	static long get(long matrix[][], int key, int type) {
+		if (key >= matrix.length || matrix[key] == null || type >= matrix[key].length) return 0;
+		return matrix[key][type];
+	}
 
 	public GeneCountByTypeTable() {
-		keys = new HashSet<>();
-		types = new HashSet<>();
-		countersByType = new HashMap<>();
-		counterSizeByType = new HashMap<>();
-		bioType = new HashMap<>();
-		sizeByType = new HashMap<>();
+		this(new String[0]);
+	}
+
+	/**
+	 * Create a table for a set of types: Type 'types[i]' has index 'i'
+	 * (e.g. enum names in ordinal order)
+	 */
+	public GeneCountByTypeTable(String types[]) {
+		keys = new CountByIndex();
+		bioTypes = new ArrayList<>();
+		this.types = new CountByIndex();
+		counts = new int[16][];
+		countSizes = new long[16][];
+		sizes = new int[16][];
+		for (String type : types)
+			typeIdx(type);
 	}
 
 	public String getBioType(String key) {
-		String bio = bioType.get(key);
-		return bio != null ? bio : "";
+		Integer idx = keys.idxByName.get(key);
+		return idx != null ? bioTypes.get(idx) : "";
+	}
+
+	/**
+	 * Count for a key and type
+	 */
+	public long getCount(String key, String type) {
+		Integer keyIdx = keys.idxByName.get(key);
+		Integer typeIdx = types.idxByName.get(type);
+		if (keyIdx == null || typeIdx == null) return 0;
+		return get(counts, keyIdx, typeIdx);
 	}
 
 	/**
 	 * Get counter for this type
 	 */
 	public CountByType getCounter(String type) {
-		CountByType counter = countersByType.get(type);
-
-		// Lazy init counters
-		if (counter == null) {
-			counter = new CountByType();
-			countersByType.put(type, counter);
-		}
-
-		return counter;
+		if (counters == null) counters = new HashMap<>();
+		return counters.computeIfAbsent(type, t -> toCountByType(t, false));
 	}
 
 	/**
 	 * Get size counter for this type
 	 */
 	public CountByType getCounterSize(String type) {
-		CountByType counter = counterSizeByType.get(type);
-
-		// Lazy init counters
-		if (counter == null) {
-			counter = new CountByType();
-			counterSizeByType.put(type, counter);
-		}
-
-		return counter;
+		if (counterSizes == null) counterSizes = new HashMap<>();
+		return counterSizes.computeIfAbsent(type, t -> toCountByType(t, true));
 	}
 
 	/**
@@ -85,48 +119,136 @@ public class GeneCountByTypeTable implements Iterable<String>, Serializable {
 	 */
 	public List<String> getKeyList() {
 		ArrayList<String> keyList = new ArrayList<>();
-		keyList.addAll(keys);
+		keyList.addAll(keys.names);
 		Collections.sort(keyList);
 		return keyList;
 	}
 
 	public int getSizeByType(String key, String type) {
-		Integer size = sizeByType.get(key + "\t" + type);
-		return size == null ? 0 : size;
+		Integer keyIdx = keys.idxByName.get(key);
+		Integer typeIdx = types.idxByName.get(type);
+		if (keyIdx == null || typeIdx == null) return 0;
+		return get(sizes, keyIdx, typeIdx);
 	}
 
 	/**
-	 * Get a sorted list of keys
+	 * Get a sorted list of types (only types having counts)
 	 */
 	public List<String> getTypeList() {
 		ArrayList<String> typeList = new ArrayList<>();
-		typeList.addAll(types);
+		for (int i = 0; i < types.size(); i++)
+			if (types.get(i) > 0) typeList.add(types.getName(i));
 		Collections.sort(typeList);
 		return typeList;
 	}
 
 	@Override
 	public Iterator<String> iterator() {
-		return keys.iterator();
+		return keys.names.iterator();
 	}
 
 	/**
-	 * Sample this <gene, marker, type, variant> tuple to update statistics
+	 * Index for a gene/transcript key (add a new key if not found)
 	 */
-	public void sample(Gene gene, Transcript tr, String type, VariantEffect variantEffect) {
-		String key = gene.getGeneName() + "\t" + gene.getId() + "\t" + tr.getId();
-
-		// Count
-		CountByType counter = getCounter(type);
-		counter.inc(key);
+	int keyIdx(Gene gene, Transcript tr) {
+		if (keyIdxByTr == null) keyIdxByTr = new IdentityHashMap<>();
+		Integer idx = keyIdxByTr.get(tr);
+		if (idx != null) return idx;
 
 		// Add biotype
-		if (tr.getBioType() != null) {
-			bioType.put(key, tr.getBioType().toString());
+		String bioType;
+		if (tr.getBioType() != null) bioType = tr.getBioType().toString();
+		else bioType = tr.isProteinCoding() ? BioType.protein_coding.toString() : "";
+
+		idx = keyIdx(gene.getGeneName() + "\t" + gene.getId() + "\t" + tr.getId(), bioType);
+		keyIdxByTr.put(tr, idx);
+		return idx;
+	}
+
+	int keyIdx(String key, String bioType) {
+		int idx = keys.idx(key);
+		if (idx < bioTypes.size()) {
+			bioTypes.set(idx, bioType);
 		} else {
-			bioType.put(key, tr.isProteinCoding() ? BioType.protein_coding.toString() : "");
+			bioTypes.add(bioType);
+			if (idx >= counts.length) {
+				int len = Math.max(idx + 1, 2 * counts.length);
+				counts = Arrays.copyOf(counts, len);
+				countSizes = Arrays.copyOf(countSizes, len);
+				sizes = Arrays.copyOf(sizes, len);
+				if (scores != null) scores = Arrays.copyOf(scores, len);
+			}
+		}
+		return idx;
+	}
+
+	/**
+	 * Add all counts from 'geneCountByTypeTable'
+	 */
+	public void merge(GeneCountByTypeTable geneCountByTypeTable) {
+		counters = counterSizes = null;
+
+		int typeMap[] = new int[geneCountByTypeTable.types.size()];
+		for (int t = 0; t < typeMap.length; t++) {
+			typeMap[t] = typeIdx(geneCountByTypeTable.types.getName(t));
+			types.inc(typeMap[t], geneCountByTypeTable.types.get(t));
 		}
 
+		for (int k = 0; k < geneCountByTypeTable.keys.names.size(); k++) {
+			int key = keyIdx(geneCountByTypeTable.keys.getName(k), geneCountByTypeTable.bioTypes.get(k));
+			for (int t = 0; t < typeMap.length; t++) {
+				int type = typeMap[t];
+				int count = get(geneCountByTypeTable.counts, k, t);
+				if (count == 0) continue;
+
+				row(counts, key, type)[type] += count;
+				row(countSizes, key, type)[type] += get(geneCountByTypeTable.countSizes, k, t);
+
+				// Marker sizes are replaced (not added)
+				int size = get(geneCountByTypeTable.sizes, k, t);
+				if (size > 0) row(sizes, key, type)[type] = size;
+
+				double score = get(geneCountByTypeTable.scores, k, t);
+				if (score != 0) scoreRow(key, type)[type] += score;
+			}
+		}
+	}
+
+	/**
+	 * Get a matrix row, make sure it can hold 'type'
+	 */
+	int[] row(int matrix[][], int key, int type) {
+		int row[] = matrix[key];
+		if (row == null) {
+			row = matrix[key] = new int[Math.max(type + 1, types.size())];
+		} else if (type >= row.length) {
+			row = matrix[key] = Arrays.copyOf(row, Math.max(type + 1, types.size()));
+		}
+		return row;
+	}
+
+	long[] row(long matrix[][], int key, int type) {
+		long row[] = matrix[key];
+		if (row == null) {
+			row = matrix[key] = new long[Math.max(type + 1, types.size())];
+		} else if (type >= row.length) {
+			row = matrix[key] = Arrays.copyOf(row, Math.max(type + 1, types.size()));
+		}
+		return row;
+	}
+
+	/**
+	 * Sample this <gene, marker, type, variant> tuple to update statistics
+	 * Note: 'type' is a type index (see 'typeIdx')
+	 */
+	public void sample(Gene gene, Transcript tr, int type, VariantEffect variantEffect) {
+		counters = counterSizes = null;
+		int key = keyIdx(gene, tr);
+
+		// Count
+		row(counts, key, type)[type]++;
+		types.inc(type);
+
 		// Calculate the size of the intersection
 		Marker marker = variantEffect.getMarker();
 		Variant variant = variantEffect.getVariant();
@@ -136,19 +258,66 @@ public class GeneCountByTypeTable implements Iterable<String>, Serializable {
 
 		if (size > 0) {
 			// Increment size counters (bases affected)
-			getCounterSize(type).inc(key, size);
+			row(countSizes, key, type)[type] += size;
 
 			// Set size by type
-			sizeByType.put(key + "\t" + type, marker.size());
+			row(sizes, key, type)[type] = marker.size();
 
-			// Add score (if any)
+			// Add score (if any). Note: Adding a score also increments the counter (same as CountByType)
 			if (variant instanceof VariantWithScore) {
 				double score = ((VariantWithScore) variant).getScore();
-				if (!Double.isNaN(score)) counter.addScore(key, score);
+				if (!Double.isNaN(score)) {
+					scoreRow(key, type)[type] += score;
+					counts[key][type]++;
+				}
 			}
 		}
+	}
 
-		types.add(type); // Add type
-		keys.add(key); // Add key
+	/**
+	 * Sample this <gene, marker, type, variant> tuple to update statistics
+	 */
+	public void sample(Gene gene, Transcript tr, String type, VariantEffect variantEffect) {
+		sample(gene, tr, typeIdx(type), variantEffect);
+	}
+
+	/**
+	 * Get a row from the scores matrix, make sure it can hold 'type'
+	 */
+	double[] scoreRow(int key, int type) {
+		if (scores == null) scores = new double[counts.length][];
+		double row[] = scores[key];
+		if (row == null) {
+			row = scores[key] = new double[Math.max(type + 1, types.size())];
+		} else if (type >= row.length) {
+			row = scores[key] = Arrays.copyOf(row, Math.max(type + 1, types.size()));
+		}
+		return row;
+	}
+
+	/**
+	 * Create a CountByType (indexed by key) for a type
+	 * @param bases : Count bases affected (i.e. 'countSizes') instead of number of samples
+	 */
+	CountByType toCountByType(String type, boolean bases) {
+		CountByType countByType = new CountByType();
+		Integer typeIdx = types.idxByName.get(type);
+		if (typeIdx == null) return countByType;
+
+		for (int k = 0; k < keys.names.size(); k++) {
+			long count = bases ? get(countSizes, k, typeIdx) : get(counts, k, typeIdx);
+			if (count == 0) continue;
+			String key = keys.getName(k);
+			countByType.inc(key, count);
+			if (!bases && (get(scores, k, typeIdx) != 0)) countByType.setScore(key, get(scores, k, typeIdx));
+		}
+		return countByType;
+	}
+
+	/**
+	 * Index for a type (add a new type if not found)
+	 */
+	public int typeIdx(String type) {
+		return types.idx(type);
 	}
 }
@@ -3,6 +3,7 @@ package org.snpeff.stats;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.snpeff.genotypes.GenotypeCodes;
 import org.snpeff.stats.plot.GoogleHistogram;
 import org.snpeff.util.Gpr;
 import org.snpeff.vcf.VcfEntry;
@@ -23,12 +24,15 @@ public class GenotypeStats implements SamplingStats<VcfEntry> {
 	IntStats alleleFrequency;
 	int countHom[];
 	int countHet[];
-	int countRef[];
 	int countMissing[];
+	int countOther[]; // Genotypes having more than two non-reference alleles
+	int countByNumGenotypes[]; // Number of entries, by number of genotypes. Used to calculate reference counts (see 'countRef()')
+	GenotypeCodes genotypeCodes; // Re-used for each entry
 
 	public GenotypeStats() {
 		alleleCount = new IntStats();
 		alleleFrequency = new IntStats();
+		genotypeCodes = new GenotypeCodes();
 	}
 
 	String countBySampleBarChartUrl(int count[], String title, String xlabel, String ylabel) {
@@ -42,6 +46,20 @@ public class GenotypeStats implements SamplingStats<VcfEntry> {
 		return barChart.toURLString();
 	}
 
+	/**
+	 * Reference genotypes by sample: These are not counted one by one,
+	 * they are all genotypes that are not het, hom, missing or other
+	 */
+	int[] countRef() {
+		int count[] = new int[countHet.length];
+		int numEntries = 0; // Number of entries having a genotype for sample 'i'
+		for (int i = count.length - 1; i >= 0; i--) {
+			numEntries += countByNumGenotypes[i + 1];
+			count[i] = numEntries - countHet[i] - countHom[i] - countMissing[i] - countOther[i];
+		}
+		return count;
+	}
+
 	public IntStats getAlleleCount() {
 		return alleleCount;
 	}
@@ -77,8 +95,8 @@ public class GenotypeStats implements SamplingStats<VcfEntry> {
 		sb.append("\n");
 
 		sb.append("Reference ");
-		for (int i = 0; i < countRef.length; i++)
-			sb.append(", " + countRef[i]);
+		for (int c : countRef())
+			sb.append(", " + c);
 		sb.append("\n");
 
 		sb.append("Het ");
@@ -108,6 +126,35 @@ public class GenotypeStats implements SamplingStats<VcfEntry> {
 		return true;
 	}
 
+	/**
+	 * Add counters from 'genotypeStats' (both must have been sampled from the same VCF file)
+	 */
+	public void merge(GenotypeStats genotypeStats) {
+		alleleCount.merge(genotypeStats.alleleCount);
+		alleleFrequency.merge(genotypeStats.alleleFrequency);
+
+		if (genotypeStats.sampleNames == null) return; // Nothing sampled
+		if (sampleNames == null) {
+			sampleNames = genotypeStats.sampleNames;
+			countHet = new int[genotypeStats.countHet.length];
+			countHom = new int[genotypeStats.countHom.length];
+			countMissing = new int[genotypeStats.countMissing.length];
+			countOther = new int[genotypeStats.countOther.length];
+			countByNumGenotypes = new int[genotypeStats.countByNumGenotypes.length];
+		}
+
+		merge(countHet, genotypeStats.countHet);
+		merge(countHom, genotypeStats.countHom);
+		merge(countMissing, genotypeStats.countMissing);
+		merge(countOther, genotypeStats.countOther);
+		merge(countByNumGenotypes, genotypeStats.countByNumGenotypes);
+	}
+
+	void merge(int count[], int countOther[]) {
+		for (int i = 0; (i < count.length) && (i < countOther.length); i++)
+			count[i] += countOther[i];
+	}
+
 	/**
 	 * Update counters
 	 */
@@ -123,20 +170,24 @@ public class GenotypeStats implements SamplingStats<VcfEntry> {
 
 			// Get length
 			int len = sampleNames.size();
-			int lenGts = vcfEntry.getVcfGenotypes() != null ? vcfEntry.getVcfGenotypes().size() : 0;
+			int lenGts;
+			if (vcfEntry.getGenotypeCodes(genotypeCodes)) lenGts = genotypeCodes.size();
+			else lenGts = vcfEntry.getVcfGenotypes() != null ? vcfEntry.getVcfGenotypes().size() : 0;
 			len = Math.max(len, lenGts);
 
-			countRef = new int[len];
 			countHet = new int[len];
 			countHom = new int[len];
 			countMissing = new int[len];
+			countOther = new int[len];
+			countByNumGenotypes = new int[len + 1];
 		}
 
 		// Is this a variant? (i.e. not the same as reference)
 		if (!vcfEntry.isVariant()) return;
 
-		// Are there any genotype fields?
-		if (!vcfEntry.getVcfGenotypes().isEmpty()) {
+		// Decode GT fields only, use VcfGenotypes objects if that is not possible
+		if (vcfEntry.getGenotypeCodes(genotypeCodes) && (genotypeCodes.size() <= countHet.length)) sample(genotypeCodes);
+		else if (!vcfEntry.getVcfGenotypes().isEmpty()) {
 			int ac = 0, totalAc = 0; // Allele count
 			int gtNum = 0;
 			for (VcfGenotype vcfGenotype : vcfEntry) {
@@ -150,9 +201,9 @@ public class GenotypeStats implements SamplingStats<VcfEntry> {
 						totalAc += 2;
 						if (code == 1) countHet[gtNum]++;
 						else if (code == 2) countHom[gtNum]++;
+						else countOther[gtNum]++;
 					} else if (code == 0) {
-						totalAc += 2;
-						countRef[gtNum]++; // Reference genotype
+						totalAc += 2; // Reference genotype
 					} else {
 						countMissing[gtNum]++; // Negative code means missing
 					}
@@ -160,6 +211,7 @@ public class GenotypeStats implements SamplingStats<VcfEntry> {
 
 				gtNum++;
 			}
+			countByNumGenotypes[Math.min(gtNum, countHet.length)]++;
 
 			// Allele count
 			alleleCount.sample(ac);
@@ -174,6 +226,35 @@ public class GenotypeStats implements SamplingStats<VcfEntry> {
 		}
 	}
 
+	/**
+	 * Update counters from genotype codes
+	 */
+	void sample(GenotypeCodes genotypeCodes) {
+		if (genotypeCodes.size() == 0) {
+			// Assume only one sample: REF -> ALTs
+			alleleCount.sample(1);
+			return;
+		}
+
+		// Count by sample (only non-reference and missing genotypes are visited)
+		genotypeCodes.inc(GenotypeCodes.HET, countHet);
+		genotypeCodes.inc(GenotypeCodes.HOM, countHom);
+		genotypeCodes.inc(GenotypeCodes.MISSING, countMissing);
+		countByNumGenotypes[genotypeCodes.size()]++;
+
+		// Allele count and frequency
+		int het = genotypeCodes.count(GenotypeCodes.HET);
+		int hom = genotypeCodes.count(GenotypeCodes.HOM);
+		int missing = genotypeCodes.count(GenotypeCodes.MISSING);
+		int ac = het + 2 * hom;
+		int totalAc = 2 * (genotypeCodes.size() - missing);
+		alleleCount.sample(ac);
+
+		double af = ((double) ac) / ((double) totalAc);
+		int afInt = (int) (100.0 * af);
+		alleleFrequency.sample(afInt);
+	}
+
 	/**
 	 * Show results to stdout
 	 */
@@ -152,6 +152,16 @@ public class IntStats implements Serializable {
 		needUpdate = true;
 	}
 
+	/**
+	 * Add all samples from 'intStats'
+	 */
+	public void merge(IntStats intStats) {
+		for (int key : intStats.counters.keys())
+			counters.put(key, counters.get(key) + intStats.counters.get(key));
+
+		needUpdate = true;
+	}
+
 	public void setMaxBins(int maxBins) {
 		this.maxBins = maxBins;
 	}
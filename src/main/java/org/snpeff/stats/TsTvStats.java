@@ -106,6 +106,24 @@ public class TsTvStats implements SamplingStats<VcfEntry> {
 		return false;
 	}
 
+	/**
+	 * Add counters from 'tsTvStats' (both must have been sampled from the same VCF file)
+	 */
+	public void merge(TsTvStats tsTvStats) {
+		if (sampleNames == null) sampleNames = tsTvStats.sampleNames;
+		if (tsTvStats.countTs == null) return; // Nothing sampled
+
+		if (countTs == null) {
+			countTs = new long[tsTvStats.countTs.length];
+			countTv = new long[tsTvStats.countTv.length];
+		}
+
+		for (int i = 0; (i < countTs.length) && (i < tsTvStats.countTs.length); i++) {
+			countTs[i] += tsTvStats.countTs[i];
+			countTv[i] += tsTvStats.countTv[i];
+		}
+	}
+
 	/**
 	 * Update Ts and Tv counters
 	 * Only for SNPs
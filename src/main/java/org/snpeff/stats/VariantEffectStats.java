@@ -1,5 +1,8 @@
 package org.snpeff.stats;
 
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -9,18 +12,111 @@ import org.snpeff.interval.Gene;
 import org.snpeff.interval.Genome;
 import org.snpeff.interval.Marker;
 import org.snpeff.interval.Transcript;
+import org.snpeff.interval.Variant;
 import org.snpeff.snpEffect.EffectType;
 import org.snpeff.snpEffect.VariantEffect;
+import org.snpeff.snpEffect.VariantEffect.EffectImpact;
 import org.snpeff.snpEffect.VariantEffect.FunctionalClass;
 import org.snpeff.stats.plot.GoogleGenePercentBar;
+import org.snpeff.vcf.EffFormatVersion;
 
 /**
  *
  * Variants effect statistics
+ *
+ * Counters are indexed by enum ordinals (impact, functional class, gene
+ * region) or interned names (effects, codons, amino acids), so sampling
+ * does not create strings or boxed counters. Summaries use CountByType
+ * objects created from these counters.
  */
 public class VariantEffectStats implements SamplingStats<VariantEffect> {
 
 	public static final String CHANGE_SEPARATOR = "\t";
+	static final EffectType EFFECT_TYPES[] = EffectType.values();
+
+	/**
+	 * Count changes between 'items' (e.g. codons or amino acids).
+	 * Items are interned, counts are indexed by 'old' and 'new' item indexes
+	 */
+	static class ChangeCounts implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		CountByIndex items = new CountByIndex(); // Interned items (only names are used)
+		List<CountByIndex> changes = new ArrayList<>(); // Changes from item 'i' are counted in 'changes.get(i)'
+		transient CountByType countByType; // Created from 'changes' (see 'toCountByType')
+
+		long get(String oldItem, String newItem) {
+			Integer oldIdx = items.idxByName.get(oldItem);
+			Integer newIdx = items.idxByName.get(newItem);
+			if (oldIdx == null || newIdx == null || oldIdx >= changes.size()) return 0;
+			return changes.get(oldIdx).get(newIdx);
+		}
+
+		/**
+		 * Sorted list of items
+		 */
+		List<String> getItems() {
+			ArrayList<String> list = new ArrayList<>();
+			list.addAll(items.names);
+			Collections.sort(list);
+			return list;
+		}
+
+		void inc(int oldIdx, int newIdx) {
+			row(oldIdx).inc(newIdx);
+			countByType = null;
+		}
+
+		void merge(ChangeCounts changeCounts) {
+			int idxMap[] = new int[changeCounts.items.names.size()];
+			for (int i = 0; i < idxMap.length; i++)
+				idxMap[i] = items.idx(changeCounts.items.getName(i));
+
+			for (int i = 0; i < changeCounts.changes.size(); i++)
+				row(idxMap[i]).merge(changeCounts.changes.get(i), idxMap);
+			countByType = null;
+		}
+
+		/**
+		 * Counters for changes from item 'oldIdx'
+		 */
+		CountByIndex row(int oldIdx) {
+			while (changes.size() <= oldIdx)
+				changes.add(new CountByIndex());
+			return changes.get(oldIdx);
+		}
+
+		/**
+		 * Sample changes between 'ref' and 'alt', split into items of length 'size'
+		 */
+		void sample(String ref, String alt, int size) {
+			// Note: There might be many items changing
+			int numRef = ref.length() / size, numAlt = alt.length() / size;
+			int max = Math.max(numRef, numAlt);
+
+			for (int i = 0; i < max; i++) {
+				String oldItem = "-", newItem = "-";
+				if (i < numRef) oldItem = ref.substring(i * size, (i + 1) * size).toUpperCase();
+				if (i < numAlt) newItem = alt.substring(i * size, (i + 1) * size).toUpperCase();
+				inc(items.idx(oldItem), items.idx(newItem));
+			}
+		}
+
+		/**
+		 * Change counts using 'old \t new' as type
+		 */
+		CountByType toCountByType() {
+			if (countByType == null) {
+				countByType = new CountByType();
+				for (int i = 0; i < changes.size(); i++) {
+					CountByIndex counter = changes.get(i);
+					for (int j = 0; j < counter.size(); j++)
+						if (counter.get(j) > 0) countByType.inc(changeKey(items.getName(i), items.getName(j)), counter.get(j));
+				}
+			}
+			return countByType;
+		}
+	}
 
 	boolean useSequenceOntology = false; // Use Sequence Ontology terms
 	int aaChangeCountMax = Integer.MIN_VALUE;
@@ -28,100 +124,135 @@ public class VariantEffectStats implements SamplingStats<VariantEffect> {
 	int countWarnings = 0;
 	int countErrors = 0;
 	Genome genome;
-	CountByType countByEffect;
-	CountByType countByCodon;
-	CountByType countByAa;
-	CountByType countByGeneRegion;
-	CountByType countByImpact;
-	CountByType countByFunctionalClass;
+	CountByIndex countByEffect; // Indexed by effect name
+	CountByIndex countByGeneRegion; // Indexed by EffectType ordinal
+	CountByIndex countByImpact; // Indexed by EffectImpact ordinal
+	CountByIndex countByFunctionalClass; // Indexed by FunctionalClass ordinal
 	CountByType countByBioType;
-	HashSet<String> codonSet, aaSet, geneSet;
-	GeneCountByTypeTable geneCountByRegionTable;
-	GeneCountByTypeTable geneCountByImpactTable;
+	ChangeCounts codonChanges, aaChanges;
+	HashSet<String> geneSet;
+	GeneCountByTypeTable geneCountByRegionTable; // Types indexed by EffectType ordinal
+	GeneCountByTypeTable geneCountByImpactTable; // Types indexed by EffectImpact ordinal
 	GeneCountByTypeTable geneCountByEffectTable;
+	String effectNames[]; // Effect name for each 'effect slot' (see 'effectSlot')
+	int effectIdxs[][]; // Effects (indexes in 'countByEffect') for each effect slot
+	int geneEffectIdxs[][]; // Effects (type indexes in 'geneCountByEffectTable') for each effect slot
+
+	/**
+	 * Helper function: Names of enum values (in ordinal order)
+	 */
+	static String[] names(Enum<?> values[]) {
+		String names[] = new String[values.length];
+		for (int i = 0; i < values.length; i++)
+			names[i] = values[i].toString();
+		return names;
+	}
+
+	/**
+	 * How to code an 'item' change (e.g. codon change, AA change, etc.)
+	 */
+	static String changeKey(String oldItem, String newItem) {
+		return oldItem + CHANGE_SEPARATOR + newItem;
+	}
 
 	public VariantEffectStats(Genome genome) {
 		this.genome = genome;
-		countByEffect = new CountByType();
-		countByCodon = new CountByType();
-		countByAa = new CountByType();
-		countByGeneRegion = new CountByType();
-		countByImpact = new CountByType();
-		countByFunctionalClass = new CountByType();
-		codonSet = new HashSet<>();
-		aaSet = new HashSet<>();
+		countByEffect = new CountByIndex();
+		countByGeneRegion = new CountByIndex(names(EFFECT_TYPES));
+		countByImpact = new CountByIndex(names(EffectImpact.values()));
+		countByFunctionalClass = new CountByIndex(names(FunctionalClass.values()));
+		codonChanges = new ChangeCounts();
+		aaChanges = new ChangeCounts();
 		geneSet = new HashSet<>();
-		geneCountByRegionTable = new GeneCountByTypeTable();
+		geneCountByRegionTable = new GeneCountByTypeTable(names(EFFECT_TYPES));
 		geneCountByEffectTable = new GeneCountByTypeTable();
-		geneCountByImpactTable = new GeneCountByTypeTable();
+		geneCountByImpactTable = new GeneCountByTypeTable(names(EffectImpact.values()));
+
+		effectNames = new String[2 * EFFECT_TYPES.length];
+		effectIdxs = new int[effectNames.length][];
+		geneEffectIdxs = new int[effectNames.length][];
 	}
 
 	/**
-	 * How to code an 'item' change (e.g. codon change, AA change, etc.)
+	 * Effect 'slot' for an effect type: Effect names, split into single
+	 * effects, are calculated only once for each slot.
+	 *
+	 * Note: Sequence ontology terms only depend on the variant through
+	 *       'isVariant()' and 'isInterval()' (see EffectType.toSequenceOntology),
+	 *       so there are two slots for each effect type.
 	 */
-	private String changeKey(String oldItem, String newItem) {
-		return oldItem + CHANGE_SEPARATOR + newItem;
+	int effectSlot(EffectType effectType, Variant variant) {
+		int slot = effectType.ordinal();
+		if (useSequenceOntology && (variant != null) && (!variant.isVariant() || variant.isInterval())) slot += EFFECT_TYPES.length;
+		if (effectNames[slot] != null) return slot;
+
+		// Calculate effect name and split it
+		String name = useSequenceOntology ? effectType.toSequenceOntology(EffFormatVersion.FORMAT_EFF_4, variant) : effectType.toString();
+		String effects[] = name.isEmpty() ? new String[0] : name.split("[\\+&]");
+		effectIdxs[slot] = new int[effects.length];
+		geneEffectIdxs[slot] = new int[effects.length];
+		for (int i = 0; i < effects.length; i++) {
+			effectIdxs[slot][i] = countByEffect.idx(effects[i]);
+			geneEffectIdxs[slot][i] = geneCountByEffectTable.typeIdx(effects[i]);
+		}
+		effectNames[slot] = name;
+
+		return slot;
 	}
 
 	/**
 	 * Background color used for AA change table
 	 */
 	public String getAaChangeColor(String oldAa, String newAa) {
-		return countByAa.getColorHtml(changeKey(oldAa, newAa));
+		return aaChanges.toCountByType().getColorHtml(changeKey(oldAa, newAa));
 	}
 
 	/**
 	 * How many changes from oldAa to newAa do we have?
 	 */
 	public long getAaChangeCount(String oldAa, String newAa) {
-		return countByAa.get(changeKey(oldAa, newAa));
+		return aaChanges.get(oldAa, newAa);
 	}
 
 	/**
 	 * Get list of all amino acisd involved
 	 */
 	public List<String> getAaList() {
-		ArrayList<String> aas = new ArrayList<>();
-		aas.addAll(aaSet);
-		Collections.sort(aas);
-		return aas;
+		return aaChanges.getItems();
 	}
 
 	public String getCodonChangeColor(String oldCodon, String newCodon) {
-		return countByCodon.getColorHtml(changeKey(oldCodon, newCodon));
+		return codonChanges.toCountByType().getColorHtml(changeKey(oldCodon, newCodon));
 	}
 
 	/**
 	 * How many changes from oldCodo to newCodon do we have?
 	 */
 	public long getCodonChangeCount(String oldCodon, String newCodon) {
-		return countByCodon.get(changeKey(oldCodon, newCodon));
+		return codonChanges.get(oldCodon, newCodon);
 	}
 
 	/**
 	 * Get a list of all codons involved
 	 */
 	public List<String> getCodonList() {
-		ArrayList<String> codons = new ArrayList<>();
-		codons.addAll(codonSet);
-		Collections.sort(codons);
-		return codons;
+		return codonChanges.getItems();
 	}
 
 	public CountByType getCountByEffect() {
-		return countByEffect;
+		return countByEffect.toCountByType();
 	}
 
 	public CountByType getCountByFunctionalClass() {
-		return countByFunctionalClass;
+		return countByFunctionalClass.toCountByType();
 	}
 
 	public CountByType getCountByGeneRegion() {
-		return countByGeneRegion;
+		return countByGeneRegion.toCountByType();
 	}
 
 	public CountByType getCountByImpact() {
-		return countByImpact;
+		return countByImpact.toCountByType();
 	}
 
 	public int getCountErrors() {
@@ -148,6 +279,7 @@ public class VariantEffectStats implements SamplingStats<VariantEffect> {
 	 * Barplot of different gene regions
 	 */
 	public String getPlotGene() {
+		CountByType countByGeneRegion = getCountByGeneRegion();
 		GoogleGenePercentBar gb = new GoogleGenePercentBar("Variations", "", "%" //
 				, 100 * countByGeneRegion.percent("" + EffectType.INTERGENIC) //
 				, 100 * countByGeneRegion.percent("" + EffectType.UPSTREAM) //
@@ -163,8 +295,8 @@ public class VariantEffectStats implements SamplingStats<VariantEffect> {
 	}
 
 	public double getSilentRatio() {
-		long mis = countByFunctionalClass.get(FunctionalClass.MISSENSE.toString());
-		long silent = countByFunctionalClass.get(FunctionalClass.SILENT.toString());
+		long mis = countByFunctionalClass.get(FunctionalClass.MISSENSE.ordinal());
+		long silent = countByFunctionalClass.get(FunctionalClass.SILENT.ordinal());
 		if (silent == 0) return 0.0;
 		return ((double) mis) / ((double) silent);
 	}
@@ -174,32 +306,69 @@ public class VariantEffectStats implements SamplingStats<VariantEffect> {
 		return countByEffect.hasData();
 	}
 
+	/**
+	 * Add all statistics from 'variantEffectStats' (e.g. stats calculated in another thread)
+	 */
+	public void merge(VariantEffectStats variantEffectStats) {
+		countWarnings += variantEffectStats.countWarnings;
+		countErrors += variantEffectStats.countErrors;
+
+		countByEffect.merge(variantEffectStats.countByEffect);
+		countByGeneRegion.merge(variantEffectStats.countByGeneRegion);
+		countByImpact.merge(variantEffectStats.countByImpact);
+		countByFunctionalClass.merge(variantEffectStats.countByFunctionalClass);
+
+		codonChanges.merge(variantEffectStats.codonChanges);
+		aaChanges.merge(variantEffectStats.aaChanges);
+		geneSet.addAll(variantEffectStats.geneSet);
+
+		geneCountByRegionTable.merge(variantEffectStats.geneCountByRegionTable);
+		geneCountByImpactTable.merge(variantEffectStats.geneCountByImpactTable);
+		geneCountByEffectTable.merge(variantEffectStats.geneCountByEffectTable);
+	}
+
 	@Override
 	public void sample(VariantEffect variantEffect) {
 		// Any warnings?
 		if (variantEffect.hasWarning()) countWarnings++;
 		if (variantEffect.hasError()) countErrors++;
 
-		// Count by effect
-		String effect = variantEffect.getEffectTypeString(useSequenceOntology);
-		if (effect == null || effect.isEmpty()) return; // No effect? Nothing to do
+		// Effect slots. Same effect names are only used once
+		List<EffectType> effectTypes = variantEffect.getEffectTypes();
+		if (effectTypes == null || effectTypes.isEmpty()) return; // No effect? Nothing to do
+		int slots[] = new int[effectTypes.size()];
+		int numSlots = 0;
+		boolean hasEffect = false;
+		for (EffectType et : effectTypes) {
+			int slot = effectSlot(et, variantEffect.getVariant());
+
+			boolean added = false;
+			for (int i = 0; i < numSlots && !added; i++)
+				added = effectNames[slots[i]].equals(effectNames[slot]);
+
+			if (!added) {
+				slots[numSlots++] = slot;
+				hasEffect |= (effectIdxs[slot].length > 0);
+			}
+		}
+		if (!hasEffect) return; // No effect? Nothing to do
 
-		// Split effects
-		String effects[] = effect.split("[\\+&]");
-		for (String eff : effects)
-			countByEffect.inc(eff);
+		// Count by effect
+		for (int i = 0; i < numSlots; i++)
+			for (int effIdx : effectIdxs[slots[i]])
+				countByEffect.inc(effIdx);
 
 		// Count by gene region
-		String geneRegion = variantEffect.getGeneRegion();
-		countByGeneRegion.inc(geneRegion);
+		EffectType geneRegion = variantEffect.getGeneRegionType();
+		countByGeneRegion.inc(geneRegion.ordinal());
 
 		// Count by impact
-		String impact = variantEffect.getEffectImpact().toString();
-		countByImpact.inc(impact);
+		EffectImpact impact = variantEffect.getEffectImpact();
+		countByImpact.inc(impact.ordinal());
 
 		// Count by functional class
 		FunctionalClass fc = variantEffect.getFunctionalClass();
-		if (fc != FunctionalClass.NONE) countByFunctionalClass.inc(fc.toString());
+		if (fc != FunctionalClass.NONE) countByFunctionalClass.inc(fc.ordinal());
 
 		// Count gene and gene region
 		Marker marker = variantEffect.getMarker();
@@ -208,83 +377,64 @@ public class VariantEffectStats implements SamplingStats<VariantEffect> {
 			Transcript tr = variantEffect.getTranscript();
 			if (tr != null && gene != null) {
 				// Count by effect by transcript
-				for (String eff : effects)
-					geneCountByEffectTable.sample(gene, tr, eff, variantEffect);
+				for (int i = 0; i < numSlots; i++)
+					for (int effIdx : geneEffectIdxs[slots[i]])
+						geneCountByEffectTable.sample(gene, tr, effIdx, variantEffect);
 
 				// Count by region by transcript
-				geneCountByRegionTable.sample(gene, tr, geneRegion, variantEffect);
+				geneCountByRegionTable.sample(gene, tr, geneRegion.ordinal(), variantEffect);
 
 				// Count by impact
-				geneCountByImpactTable.sample(gene, tr, variantEffect.getEffectImpact().toString(), variantEffect);
+				geneCountByImpactTable.sample(gene, tr, impact.ordinal(), variantEffect);
 			}
 		}
 
-		//---
 		// Count codon changes
-		//---
 		if ((variantEffect.getCodonsRef() != null) && (variantEffect.getCodonsRef().length() > 0)) {
-			// Note: There might be many codons changing
-			String oldCodons[] = split(variantEffect.getCodonsRef(), 3);
-			String newCodons[] = split(variantEffect.getCodonsAlt(), 3);
-			int max = Math.max(oldCodons.length, newCodons.length);
-
-			for (int i = 0; i < max; i++) {
-				String oldCodon = "-", newCodon = "-";
-
-				if (i < oldCodons.length) oldCodon = oldCodons[i].toUpperCase();
-				if (i < newCodons.length) newCodon = newCodons[i].toUpperCase();
-
-				String codonChangeKey = changeKey(oldCodon, newCodon);
-				codonSet.add(oldCodon);
-				codonSet.add(newCodon);
-				countByCodon.inc(codonChangeKey);
-			}
+			codonChanges.sample(variantEffect.getCodonsRef(), variantEffect.getCodonsAlt(), 3);
 		}
 
-		//---
 		// Count amino acid changes
-		//---
 		if ((variantEffect.getAaRef() != null) && (variantEffect.getAaRef().length() > 0)) {
-			// Note: There might be many AAs changing
-			String oldAas[] = split(variantEffect.getAaRef(), 1);
-			String newAas[] = split(variantEffect.getAaAlt(), 1);
-			int max = Math.max(oldAas.length, newAas.length);
-
-			for (int i = 0; i < max; i++) {
-				String oldAa = "-", newAa = "-";
-
-				if (i < oldAas.length) oldAa = oldAas[i].toUpperCase();
-				if (i < newAas.length) newAa = newAas[i].toUpperCase();
-
-				String aaChangeKey = changeKey(oldAa, newAa);
-				aaSet.add(oldAa);
-				aaSet.add(newAa);
-				countByAa.inc(aaChangeKey);
-			}
+			aaChanges.sample(variantEffect.getAaRef(), variantEffect.getAaAlt(), 1);
 		}
 	}
 
 	public void setUseSequenceOntology(boolean useSequenceOntology) {
 		this.useSequenceOntology = useSequenceOntology;
+		effectNames = new String[2 * EFFECT_TYPES.length]; // Effect names change: Reset slots
 	}
 
 	/**
-	 * Split a string into fixed size parts
+	 * Write counts by gene (one line per transcript): Counts by impact and by effect.
+	 * Lines are written one by one, without creating a model of the whole table
 	 */
-	String[] split(String str, int size) {
-		int numStr = str.length() / size;
-		String splitStr[] = new String[numStr];
-		char chars[] = str.toCharArray();
-
-		for (int i = 0, h = 0; (i < chars.length) && (h < splitStr.length); h++) {
-			String newStr = "";
-
-			for (int j = 0; (j < size) && (i < chars.length); j++, i++)
-				newStr += chars[i];
-
-			splitStr[h] = newStr;
+	public void writeGenes(Writer out) throws IOException {
+		List<String> impacts = geneCountByImpactTable.getTypeList();
+		List<String> effects = geneCountByEffectTable.getTypeList();
+
+		// Header
+		StringBuilder sb = new StringBuilder();
+		sb.append("# The following table is formatted as tab separated values. \n");
+		sb.append("#GeneName\tGeneId\tTranscriptId\tBioType");
+		for (String imp : impacts)
+			sb.append("\tvariants_impact_" + imp);
+		for (String eff : effects)
+			sb.append("\tvariants_effect_" + eff);
+		sb.append('\n');
+		out.write(sb.toString());
+
+		// One line per gene
+		for (String key : geneCountByRegionTable.getKeyList()) {
+			sb.setLength(0);
+			sb.append(key).append('\t').append(geneCountByRegionTable.getBioType(key));
+			for (String imp : impacts)
+				sb.append('\t').append(geneCountByImpactTable.getCount(key, imp));
+			for (String eff : effects)
+				sb.append('\t').append(geneCountByEffectTable.getCount(key, eff));
+			sb.append('\n');
+			out.write(sb.toString());
 		}
-
-		return splitStr;
 	}
+
 }
@@ -232,6 +232,28 @@ public class VariantStats implements SamplingStats<Variant> {
 		indelLen.sample(len);
 	}
 
+	/**
+	 * Add all statistics from 'variantStats' (e.g. stats calculated in another thread)
+	 */
+	public void merge(VariantStats variantStats) {
+		countVariants += variantStats.countVariants;
+		countNonVariants += variantStats.countNonVariants;
+		countNonEmptyId += variantStats.countNonEmptyId;
+		countByChangeType.merge(variantStats.countByChangeType);
+		baseChangesCount.merge(variantStats.baseChangesCount);
+		indelLen.merge(variantStats.indelLen);
+
+		for (String chrName : variantStats.chrPosStatsbyName.keySet()) {
+			ChrPosStats chrPosStats = chrPosStatsbyName.get(chrName);
+			ChrPosStats chrPosStatsOther = variantStats.chrPosStatsbyName.get(chrName);
+			if (chrPosStats == null) {
+				chrPosStats = new ChrPosStats(chrName, chrPosStatsOther.length);
+				chrPosStatsbyName.put(chrName, chrPosStats);
+			}
+			chrPosStats.merge(chrPosStatsOther);
+		}
+	}
+
 	/**
 	 * Use this sample to perform statistics
 	 */
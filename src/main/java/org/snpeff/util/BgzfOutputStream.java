@@ -0,0 +1,244 @@
+package org.snpeff.util;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * BGZF (blocked GZIP) output stream, same format as 'bgzip': A series of
+ * GZIP blocks, each one having up to 64KB of uncompressed data.
+ *
+ * Blocks are compressed in parallel (using 'numThreads' threads) and
+ * written in order.
+ *
+ * Virtual file offsets (used by tabix indexes) are only known once the
+ * blocks are compressed, so 'virtualOffset()' can be used after closing
+ * the stream.
+ *
+ * Note: Partial blocks are only written when the stream is closed (i.e.
+ *       'flush()' does not create a new block). This way block 'i' always
+ *       starts at uncompressed position 'i * BLOCK_SIZE'.
+ *
+ * @author pcingola
+ */
+public class BgzfOutputStream extends OutputStream {
+
+	public static final int BLOCK_SIZE = 0xff00; // Uncompressed bytes per block (same as 'bgzip')
+	public static final int MAX_BLOCK_SIZE = 64 * 1024; // Max compressed block size (including header and footer)
+	public static final int HEADER_SIZE = 18;
+	public static final int FOOTER_SIZE = 8;
+
+	// Empty block marking the end of file
+	public static final byte EOF_BLOCK[] = { 0x1f, (byte) 0x8b, 0x08, 0x04, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff, 0x06, 0x00, 0x42, 0x43, 0x02, 0x00, 0x1b, 0x00, 0x03, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00 };
+
+	OutputStream out;
+	int numThreads;
+	ExecutorService executor; // Compress blocks in parallel (null if single threaded)
+	LinkedList<Future<byte[]>> pending; // Blocks being compressed (in file order)
+	byte block[]; // Current (uncompressed) block
+	int blockLen;
+	long position; // Uncompressed bytes written
+	long compressedPosition; // Compressed bytes written
+	long blockOffsets[]; // File offset of each compressed block
+	int numBlocks;
+	boolean closed;
+
+	/**
+	 * Compress a block
+	 * @return A complete BGZF block (header, compressed data and footer)
+	 */
+	public static byte[] compress(byte data[], int len) {
+		byte cblock[] = new byte[MAX_BLOCK_SIZE];
+
+		// Compress data. If it doesn't fit in a block (incompressible data), store it uncompressed
+		int clen = deflate(data, len, cblock, Deflater.DEFAULT_COMPRESSION);
+		if (clen < 0) clen = deflate(data, len, cblock, Deflater.NO_COMPRESSION);
+		if (clen < 0) throw new RuntimeException("Cannot compress BGZF block: Block too large (" + len + " bytes)");
+
+		// Header
+		int blockSize = HEADER_SIZE + clen + FOOTER_SIZE;
+		cblock[0] = 0x1f; // GZIP magic number
+		cblock[1] = (byte) 0x8b;
+		cblock[2] = 0x08; // Compression method: deflate
+		cblock[3] = 0x04; // Flags: Extra field
+		cblock[9] = (byte) 0xff; // OS: Unknown
+		cblock[10] = 6; // Extra field length
+		cblock[12] = 'B'; // BGZF sub-field: Block size
+		cblock[13] = 'C';
+		cblock[14] = 2;
+		putShort(cblock, 16, blockSize - 1);
+
+		// Footer
+		CRC32 crc32 = new CRC32();
+		crc32.update(data, 0, len);
+		putInt(cblock, HEADER_SIZE + clen, (int) crc32.getValue());
+		putInt(cblock, HEADER_SIZE + clen + 4, len);
+
+		return Arrays.copyOf(cblock, blockSize);
+	}
+
+	/**
+	 * Deflate 'data' into 'cblock' (after the header)
+	 * @return Compressed length or -1 if it doesn't fit in 'cblock'
+	 */
+	static int deflate(byte data[], int len, byte cblock[], int level) {
+		Deflater deflater = new Deflater(level, true);
+		try {
+			deflater.setInput(data, 0, len);
+			deflater.finish();
+			int clen = deflater.deflate(cblock, HEADER_SIZE, MAX_BLOCK_SIZE - HEADER_SIZE - FOOTER_SIZE);
+			return deflater.finished() ? clen : -1;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	static void putInt(byte buf[], int idx, int value) {
+		buf[idx] = (byte) value;
+		buf[idx + 1] = (byte) (value >> 8);
+		buf[idx + 2] = (byte) (value >> 16);
+		buf[idx + 3] = (byte) (value >> 24);
+	}
+
+	static void putShort(byte buf[], int idx, int value) {
+		buf[idx] = (byte) value;
+		buf[idx + 1] = (byte) (value >> 8);
+	}
+
+	public BgzfOutputStream(OutputStream out, int numThreads) {
+		this.out = out;
+		this.numThreads = numThreads;
+		block = new byte[BLOCK_SIZE];
+		blockOffsets = new long[1024];
+		if (numThreads > 1) {
+			executor = Executors.newFixedThreadPool(numThreads);
+			pending = new LinkedList<>();
+		}
+	}
+
+	public BgzfOutputStream(String fileName, int numThreads) throws IOException {
+		this(new BufferedOutputStream(new FileOutputStream(fileName)), numThreads);
+	}
+
+	/**
+	 * Write all pending blocks, an EOF marker and close the stream
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+		try {
+			writeBlock();
+			if (pending != null) {
+				while (!pending.isEmpty())
+					writeCompressed(pending.removeFirst());
+			}
+			out.write(EOF_BLOCK);
+			out.close();
+		} finally {
+			if (executor != null) executor.shutdownNow();
+			closed = true;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Number of uncompressed bytes written
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Virtual file offset (i.e. compressed block offset and offset within
+	 * the uncompressed block) of uncompressed position 'pos'.
+	 *
+	 * Note: Only valid for blocks already written (e.g. after closing the stream)
+	 */
+	public long virtualOffset(long pos) {
+		int blockNum = (int) (pos / BLOCK_SIZE);
+		int blockOffset = (int) (pos % BLOCK_SIZE);
+		if (blockNum >= numBlocks) {
+			// Position after the last block (e.g. end of file)
+			if ((blockNum > numBlocks) || (blockOffset > 0)) throw new RuntimeException("Position " + pos + " is not in a block written to the file");
+			return compressedPosition << 16;
+		}
+		return (blockOffsets[blockNum] << 16) | blockOffset;
+	}
+
+	@Override
+	public void write(byte b[], int off, int len) throws IOException {
+		while (len > 0) {
+			int l = Math.min(len, BLOCK_SIZE - blockLen);
+			System.arraycopy(b, off, block, blockLen, l);
+			blockLen += l;
+			position += l;
+			off += l;
+			len -= l;
+			if (blockLen >= BLOCK_SIZE) writeBlock();
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		block[blockLen++] = (byte) b;
+		position++;
+		if (blockLen >= BLOCK_SIZE) writeBlock();
+	}
+
+	/**
+	 * Compress current block (in a background thread, if available)
+	 */
+	void writeBlock() throws IOException {
+		if (blockLen <= 0) return;
+
+		if (executor == null) {
+			writeCompressed(compress(block, blockLen));
+		} else {
+			byte data[] = block;
+			int len = blockLen;
+			pending.add(executor.submit(() -> compress(data, len)));
+			block = new byte[BLOCK_SIZE];
+
+			// Write blocks already compressed. Limit the number of pending blocks (memory usage)
+			while (!pending.isEmpty() && (pending.getFirst().isDone() || pending.size() > 2 * numThreads))
+				writeCompressed(pending.removeFirst());
+		}
+
+		blockLen = 0;
+	}
+
+	/**
+	 * Write a compressed block to the output stream
+	 */
+	void writeCompressed(byte cblock[]) throws IOException {
+		if (numBlocks >= blockOffsets.length) blockOffsets = Arrays.copyOf(blockOffsets, 2 * blockOffsets.length);
+		blockOffsets[numBlocks++] = compressedPosition;
+		out.write(cblock);
+		compressedPosition += cblock.length;
+	}
+
+	/**
+	 * Wait for a compression task to finish and write the block
+	 */
+	void writeCompressed(Future<byte[]> future) throws IOException {
+		try {
+			writeCompressed(future.get());
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Error compressing BGZF block", e);
+		}
+	}
+
+}
@@ -360,6 +360,20 @@ public class Gpr {
 		return file;
 	}
 
+	/**
+	 * Is 'fileName' up to date with respect to 'refFileName'?
+	 * I.e. 'fileName' exists and it is not older than 'refFileName' (or
+	 * 'refFileName.gz'). E.g. a derived file created from 'refFileName'
+	 * becomes stale when 'refFileName' is replaced (re-downloaded or re-built)
+	 */
+	public static boolean isNewer(String fileName, String refFileName) {
+		File file = new File(fileName);
+		if (!file.isFile()) return false;
+
+		long refTime = Math.max(new File(refFileName).lastModified(), new File(refFileName + ".gz").lastModified());
+		return file.lastModified() >= refTime;
+	}
+
 	/**
 	 * Empty or '-' means STDIN
 	 */
@@ -41,8 +41,8 @@ public class Pedigree implements Iterable<PedigreeEntry> {
 		for (PedigreeEntry pe : derived()) {
 			int numOri = pe.getOriginalNum();
 			int numDer = pe.getDerivedNum();
-			VcfGenotype gtOri = vcfEntry.getVcfGenotype(numOri);
-			VcfGenotype gtDer = vcfEntry.getVcfGenotype(numDer);
+			VcfGenotype gtOri = vcfEntry.getVcfGenotypeReadOnly(numOri);
+			VcfGenotype gtDer = vcfEntry.getVcfGenotypeReadOnly(numDer);
 
 			int gd[] = gtDer.getGenotype(); // Derived genotype
 			int go[] = gtOri.getGenotype(); // Original genotype
@@ -82,8 +82,8 @@ public class Pedigree implements Iterable<PedigreeEntry> {
 		for (PedigreeEntry pe : derived()) {
 			int numOri = pe.getOriginalNum();
 			int numDer = pe.getDerivedNum();
-			VcfGenotype gtOri = vcfEntry.getVcfGenotype(numOri);
-			VcfGenotype gtDer = vcfEntry.getVcfGenotype(numDer);
+			VcfGenotype gtOri = vcfEntry.getVcfGenotypeReadOnly(numOri);
+			VcfGenotype gtDer = vcfEntry.getVcfGenotypeReadOnly(numDer);
 
 			int gd[] = gtDer.getGenotype(); // Derived genotype
 			int go[] = gtOri.getGenotype(); // Original genotype
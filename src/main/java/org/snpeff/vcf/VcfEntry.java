@@ -1,5 +1,6 @@
 package org.snpeff.vcf;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -12,6 +13,7 @@ import java.util.regex.Pattern;
 
 import org.snpeff.align.VcfRefAltAlign;
 import org.snpeff.fileIterator.VcfFileIterator;
+import org.snpeff.genotypes.GenotypeCodes;
 import org.snpeff.interval.Cds;
 import org.snpeff.interval.Chromosome;
 import org.snpeff.interval.Marker;
@@ -45,6 +47,8 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	public static final Pattern INFO_KEY_PATTERN = Pattern.compile("[\\p{Alpha}_][\\p{Alnum}._]*");
 
 	public static final String VCF_INFO_END = "END"; // Imprecise variants
+	public static final int TO_STRING_CAPACITY = 256; // Initial capacity when formatting entries (besides INFO and genotypes)
+	public static final int MAX_PARSE_FIELDS = 10; // Fields indexed when parsing a line (the last one spans all genotype fields)
 
 	// In order to report sequencing data evidence for both variant and non-variant positions in the genome, the VCF
 	// specification allows to represent blocks of reference-only calls in a single record using the END INFO tag, an idea
@@ -89,8 +93,10 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	protected String filter;
 	protected String format;
 	protected String formatFields[];
-	protected String genotypeFields[]; // Raw fields from VCF file
-	protected String genotypeFieldsStr; // Raw fields from VCF file (one string, tab separated)
+	protected int genotypeFieldsCount = -1; // Number of raw genotype fields (-1 if not parsed)
+	protected String genotypeFieldsStr; // Raw genotype fields (tab separated), starting at 'genotypeFieldsStart'. When parsing, this is the VCF line itself (genotypes are not copied)
+	protected int genotypeFieldsStart; // Start of genotype fields in 'genotypeFieldsStr'
+	protected boolean genotypesModified; // Have genotypes been modified? If not, raw genotype fields are written 'as is'
 	protected byte genotypeScores[];
 	protected HashMap<String, String> info;
 	protected String infoStr = "";
@@ -103,6 +109,45 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	protected VcfFileIterator vcfFileIterator; // Iterator where this entry was red from
 	protected ArrayList<VcfGenotype> vcfGenotypes = null;
 
+	/**
+	 * Genotypes list returned by 'getVcfGenotypes()'. Adding, removing or
+	 * replacing genotypes marks genotypes as modified
+	 */
+	class VcfGenotypeList extends AbstractList<VcfGenotype> {
+
+		@Override
+		public void add(int index, VcfGenotype vg) {
+			vcfGenotypes.add(index, vg);
+			modCount++;
+			genotypesChanged();
+		}
+
+		@Override
+		public VcfGenotype get(int index) {
+			return vcfGenotypes.get(index);
+		}
+
+		@Override
+		public VcfGenotype remove(int index) {
+			VcfGenotype vg = vcfGenotypes.remove(index);
+			modCount++;
+			genotypesChanged();
+			return vg;
+		}
+
+		@Override
+		public VcfGenotype set(int index, VcfGenotype vg) {
+			VcfGenotype old = vcfGenotypes.set(index, vg);
+			genotypesChanged();
+			return old;
+		}
+
+		@Override
+		public int size() {
+			return vcfGenotypes.size();
+		}
+	}
+
 	/**
 	 * Does 'value' represent an EMPTY / MISSING value in a VCF field?
 	 * (or multiple MISSING comma-separated values)
@@ -249,7 +294,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		if (format == null) format = "";
 		vcfGenotypes.add(new VcfGenotype(this, format, vcfGenotypeStr));
 
-		genotypeScores = null; // Reset or invalidate scores
+		genotypesChanged();
 	}
 
 	/**
@@ -309,19 +354,13 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		Boolean isHetero = null;
 
 		// No genotype fields => Parse fields (we only parse them if there is only one GT field)
-		if (genotypeFields == null) {
-
-			// Are there more than two tabs? (i.e. more than one format field + one genotype field)
-			int countFields, fromIndex;
-			for (countFields = 0, fromIndex = 0; (fromIndex >= 0) && (countFields < 1); countFields++, fromIndex++)
-				fromIndex = genotypeFieldsStr.indexOf('\t', fromIndex);
-
-			// OK only one genotype field => Parse it in order to extract homo info.
-			if (countFields == 1) parseGenotypes();
+		if (genotypeFieldsCount < 0) {
+			// OK only one genotype field (no tabs) => Parse it in order to extract homo info.
+			if (genotypeFieldsStr.indexOf('\t', genotypeFieldsStart) < 0) parseGenotypes();
 		}
 
 		// OK only one genotype field => calculate if it is heterozygous
-		if ((genotypeFields != null) && (genotypeFields.length == 1)) isHetero = getVcfGenotype(0).isHeterozygous();
+		if (genotypeFieldsCount == 1) isHetero = getVcfGenotype(0).isHeterozygous();
 
 		return isHetero;
 	}
@@ -466,6 +505,15 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		return removed;
 	}
 
+	/**
+	 * Genotypes have been added, removed or replaced: Raw genotype fields
+	 * are no longer valid and scores must be re-calculated
+	 */
+	void genotypesChanged() {
+		genotypeScores = null; // Reset or invalidate scores
+		genotypesModified = true;
+	}
+
 	/**
 	 * Get index of matching ALT entry
 	 * @return -1 if not found
@@ -523,6 +571,32 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		return formatFields;
 	}
 
+	/**
+	 * Get genotype codes for all samples, decoding only the GT sub-field
+	 * from the raw genotype fields (no VcfGenotype objects are created)
+	 *
+	 * @return false if genotypes cannot be decoded this way (e.g. genotypes
+	 * have already been parsed, compressed genotypes or unusual GT values).
+	 * In that case, use 'getVcfGenotypes()'
+	 */
+	public boolean getGenotypeCodes(GenotypeCodes codes) {
+		codes.clear();
+		if ((vcfGenotypes != null) || isCompressedGenotypes()) return false;
+		if (genotypeFieldsStr == null) return true; // No genotypes
+
+		// Find 'GT' in FORMAT
+		int gtIdx = -1;
+		String formatFields[] = getFormatFields();
+		for (int i = 0; i < formatFields.length; i++) {
+			if (formatFields[i].equals("GT")) {
+				if (gtIdx >= 0) return false; // Duplicated 'GT'
+				gtIdx = i;
+			}
+		}
+
+		return codes.parse(genotypeFieldsStr, genotypeFieldsStart, gtIdx, getAlts().length);
+	}
+
 	/**
 	 * Return genotypes parsed as an array of codes
 	 */
@@ -565,7 +639,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 * Get info string
 	 */
 	public String getInfo(String key) {
-		if (info == null) parseInfo();
+		if (info == null) return VcfTokenizer.infoValue(infoStr, key); // Not parsed? Look up the key without parsing all INFO fields
 		return info.get(key);
 	}
 
@@ -573,10 +647,8 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 * Get info string for a specific allele
 	 */
 	public String getInfo(String key, String allele) {
-		if (info == null) parseInfo();
-
 		// Get INFO value
-		String infoStr = info.get(key);
+		String infoStr = getInfo(key);
 		if (infoStr == null) return null;
 
 		// Split INFO value and match it to allele
@@ -605,10 +677,8 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 * @returns Field value (string) or null if there is no match
 	 */
 	public String getInfo(String key, Variant var) {
-		if (info == null) parseInfo();
-
 		// Get INFO value
-		String infoStr = info.get(key);
+		String infoStr = getInfo(key);
 		if (infoStr == null) return null;
 
 		// Split INFO value and match it to allele
@@ -641,8 +711,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 * Does the entry exists?
 	 */
 	public boolean getInfoFlag(String key) {
-		if (info == null) parseInfo();
-		return info.containsKey(key);
+		return hasInfo(key);
 	}
 
 	/**
@@ -650,8 +719,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 * The norm specifies data type as 'FLOAT', that is why the name of this method might be not intuitive
 	 */
 	public double getInfoFloat(String key) {
-		if (info == null) parseInfo();
-		String f = info.get(key);
+		String f = getInfo(key);
 		if (f == null) return Double.NaN;
 		return Gpr.parseDoubleSafe(f);
 	}
@@ -661,8 +729,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 * The norm specifies data type as 'INT', that is why the name of this method might be not intuitive
 	 */
 	public long getInfoInt(String key) {
-		if (info == null) parseInfo();
-		String i = info.get(key);
+		String i = getInfo(key);
 		if (i == null) return 0;
 		return Gpr.parseLongSafe(i);
 	}
@@ -765,12 +832,45 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	}
 
 	public VcfGenotype getVcfGenotype(int index) {
-		return getVcfGenotypes().get(index);
+		if (vcfGenotypes == null) parseGenotypes();
+		return vcfGenotypes.get(index);
 	}
 
+	/**
+	 * Get a genotype without parsing all genotypes: If genotypes have not been
+	 * parsed, only this sample's field is extracted from the raw genotype fields.
+	 * In that case, the genotype is not added to this entry, so it cannot be
+	 * changed (use 'getVcfGenotype(index)' to modify genotypes)
+	 */
+	public VcfGenotype getVcfGenotypeReadOnly(int index) {
+		if ((vcfGenotypes != null) || (genotypeFieldsStr == null) || (index < 0)) return getVcfGenotype(index);
+
+		// Find genotype field
+		int start = genotypeFieldsStart;
+		for (int i = 0; (i < index) && (start >= 0); i++) {
+			start = genotypeFieldsStr.indexOf('\t', start);
+			if (start >= 0) start++;
+		}
+
+		int end = start >= 0 ? genotypeFieldsStr.indexOf('\t', start) : -1;
+		if (end < 0) end = genotypeFieldsStr.length();
+		if ((start < 0) || (start >= end)) return getVcfGenotype(index); // Not found or empty (e.g. trailing field)
+
+		String gen = genotypeFieldsStr.substring(start, end);
+		if (gen.equals(VcfFileIterator.MISSING)) gen = "";
+		VcfGenotype vg = new VcfGenotype(this, format != null ? format : "", gen);
+		vg.readOnly = true;
+		return vg;
+	}
+
+	/**
+	 * Genotypes (parsed on first use)
+	 * Note: Changes to the list (or to its genotypes) mark genotypes as
+	 * modified, so they are written by 'toString()' instead of the raw fields
+	 */
 	public List<VcfGenotype> getVcfGenotypes() {
 		if (vcfGenotypes == null) parseGenotypes();
-		return vcfGenotypes;
+		return vcfGenotypes != null ? new VcfGenotypeList() : null;
 	}
 
 	/**
@@ -798,7 +898,7 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	}
 
 	public boolean hasInfo(String infoFieldName) {
-		if (info == null) parseInfo();
+		if (info == null) return VcfTokenizer.infoValue(infoStr, infoFieldName) != null; // Not parsed? Look up the key without parsing all INFO fields
 		return info.containsKey(infoFieldName);
 	}
 
@@ -956,13 +1056,14 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 * Parse a 'line' from a 'vcfFileIterator'
 	 */
 	public void parse() {
-		// Parse line
-		String fields[] = line.split("\t", 10); // Only pare the fist 9 fields (i.e. do not parse genotypes)
+		// Index field boundaries: The 9 fixed fields (CHROM to FORMAT) and a last field spanning
+		// all genotypes (i.e. MAX_PARSE_FIELDS = 10 fields). Genotypes are not parsed
+		VcfTokenizer fields = new VcfTokenizer(MAX_PARSE_FIELDS).tokenize(line);
 
 		// Is line OK?
-		if (fields.length >= 4) {
+		if (fields.size() >= 4) {
 			// Chromosome and position. VCF files are one-base, so inOffset should be 1.
-			chromosomeName = fields[0].trim();
+			chromosomeName = line.substring(fields.start(0), fields.end(0)).trim();
 
 			// Chromosome
 			Chromosome chromo = vcfFileIterator.getChromosome(chromosomeName);
@@ -970,29 +1071,29 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 			vcfFileIterator.sanityCheckChromo(chromosomeName, chromo); // Sanity check
 
 			// Start
-			start = vcfFileIterator.parsePosition(vcfFileIterator.readField(fields, 1));
+			start = vcfFileIterator.parsePosition(fields.field(1));
 
 			// ID (e.g. might indicate dbSnp)
-			id = vcfFileIterator.readField(fields, 2);
+			id = fields.field(2);
 
 			// REF
-			ref = vcfFileIterator.readField(fields, 3).toUpperCase(); // Reference and change
+			ref = fields.field(3).toUpperCase(); // Reference and change
 			strandMinus = false; // Strand is always positive (defined in VCF spec.)
 
 			// ALT
-			altStr = vcfFileIterator.readField(fields, 4).toUpperCase();
+			altStr = fields.field(4).toUpperCase();
 			parseAlts(altStr);
 
 			// Quality
-			String qStr = vcfFileIterator.readField(fields, 5);
+			String qStr = fields.field(5);
 			if (!qStr.isEmpty()) quality = Gpr.parseDoubleSafe(qStr);
 			else quality = null;
 
 			// Filter
-			filter = vcfFileIterator.readField(fields, 6); // Filter parameters
+			filter = fields.field(6); // Filter parameters
 
-			// INFO fields
-			infoStr = vcfFileIterator.readField(fields, 7);
+			// INFO fields (lazy parse)
+			infoStr = fields.field(7);
 			info = null;
 
 			// Start & End coordinates are anchored to the reference genome, thus based on REF field (ALT is not taken into account)
@@ -1000,10 +1101,13 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 
 			// Genotype format
 			format = null;
-			if (fields.length > 8) format = vcfFileIterator.readField(fields, 8); // This field is optional, So it can be null or EMPTY ('.')
+			if (fields.size() > 8) format = fields.field(8); // This field is optional, So it can be null or EMPTY ('.')
 
-			// Add genotype fields (lazy parse)
-			if (fields.length > 9) genotypeFieldsStr = fields[9];
+			// Add genotype fields (lazy parse): Just keep a reference to the line, no copy is made
+			if (fields.size() > 9) {
+				genotypeFieldsStr = line;
+				genotypeFieldsStart = fields.start(9);
+			}
 		} else throw new RuntimeException("Impropper VCF entry: Not enough fields (missing tab separators?).\n" + line);
 	}
 
@@ -1019,10 +1123,15 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 			// Multiple fields (comma separated)
 			List<String> altsList = new ArrayList<>();
 
-			// Parse each one
-			String altsSplit[] = altsStr.split(",");
-			for (String altSingle : altsSplit) {
-				String altsTmp[] = parseAltSingle(altSingle);
+			// Parse each one (trailing empty fields are ignored, same as 'split')
+			int len = altsStr.length();
+			while ((len > 0) && (altsStr.charAt(len - 1) == ','))
+				len--;
+
+			for (int start = 0, end; (len > 0) && (start <= len); start = end + 1) {
+				end = altsStr.indexOf(',', start);
+				if ((end < 0) || (end > len)) end = len;
+				String altsTmp[] = parseAltSingle(altsStr.substring(start, end));
 
 				// Append all to list
 				if (altsTmp != null) {
@@ -1173,13 +1282,27 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 			// No genotype string? => Nothing to do
 			if (genotypeFieldsStr == null) return;
 
-			// Split genotypes and parse them
-			genotypeFields = genotypeFieldsStr.split("\t");
-			for (int i = 0; i < genotypeFields.length; i++) {
-				String gen = genotypeFields[i];
+			// Trailing empty fields are ignored (same as 'split')
+			int len = genotypeFieldsStr.length();
+			if (len > genotypeFieldsStart) {
+				while ((len > genotypeFieldsStart) && (genotypeFieldsStr.charAt(len - 1) == '\t'))
+					len--;
+				if (len == genotypeFieldsStart) len = -1; // Only empty fields
+			}
+
+			// Scan genotypes and parse them
+			genotypeFieldsCount = 0;
+			for (int start = genotypeFieldsStart, end; start <= len; start = end + 1) {
+				end = genotypeFieldsStr.indexOf('\t', start);
+				if ((end < 0) || (end > len)) end = len;
+
+				String gen = genotypeFieldsStr.substring(start, end);
 				if (gen.equals(VcfFileIterator.MISSING)) gen = "";
 				addGenotype(gen);
+				genotypeFieldsCount++;
 			}
+
+			genotypesModified = false; // Parsed genotypes are the same as raw genotype fields
 		}
 	}
 
@@ -1314,10 +1437,13 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 
 	public void setFormat(String format) {
 		this.format = format;
+		formatFields = null;
+		genotypesModified = true; // Genotypes must be formatted using the new FORMAT
 	}
 
 	public void setGenotypeStr(String genotypeFieldsStr) {
 		this.genotypeFieldsStr = genotypeFieldsStr;
+		genotypeFieldsStart = 0;
 	}
 
 	public void setLineNum(int lineNum) {
@@ -1336,29 +1462,29 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 				+ "/" + getAltsStr();
 	}
 
+	/**
+	 * VCF line. Raw genotype fields are copied 'as is', unless genotypes have been modified
+	 */
 	@Override
 	public String toString() {
-		boolean deleteLastTab = true;
+		// Genotypes not modified? Raw genotype fields are copied 'as is' (no need to format each genotype)
+		boolean rawGenotypes = (genotypeFieldsStr != null) && (!genotypesModified || (vcfGenotypes == null) || vcfGenotypes.isEmpty());
+		int rawGenotypesLen = (rawGenotypes ? genotypeFieldsStr.length() - genotypeFieldsStart : 0);
 
-		StringBuilder sb = new StringBuilder(toStringNoGt());
-		sb.append("\t");
+		StringBuilder sb = new StringBuilder(TO_STRING_CAPACITY + (infoStr != null ? infoStr.length() : 0) + rawGenotypesLen);
+		toStringNoGt(sb);
 
 		// Is there any 'format' field? It is optional, so it could be 'null'
 		if (format != null) {
-			sb.append((format.isEmpty() ? "." : format) + "\t");
+			sb.append('\t').append(format.isEmpty() ? "." : format);
 
-			// If we have vcfGenotypes parsed, use them
-			if ((vcfGenotypes != null) && !vcfGenotypes.isEmpty()) {
+			if (rawGenotypes) sb.append('\t').append(genotypeFieldsStr, genotypeFieldsStart, genotypeFieldsStr.length());
+			else if (vcfGenotypes != null) {
 				for (VcfGenotype vg : vcfGenotypes)
-					sb.append(vg + "\t");
-			} else if (genotypeFieldsStr != null) { // If vcfGenotypes have not been parsed, use raw fields
-				sb.append(genotypeFieldsStr);
-				deleteLastTab = false;
+					sb.append('\t').append(vg);
 			}
 		}
 
-		if (deleteLastTab) sb.deleteCharAt(sb.length() - 1); // Delete last tab
-
 		return sb.toString();
 	}
 
@@ -1366,6 +1492,15 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 	 * Show only first eight fields (no genotype entries)
 	 */
 	public String toStringNoGt() {
+		StringBuilder sb = new StringBuilder(TO_STRING_CAPACITY + (infoStr != null ? infoStr.length() : 0));
+		toStringNoGt(sb);
+		return sb.toString();
+	}
+
+	/**
+	 * Append first eight fields (no genotype entries)
+	 */
+	protected void toStringNoGt(StringBuilder sb) {
 		// Use original chromosome name or named from chromosome object
 		String chr = null;
 		if (chromosomeName != null) chr = chromosomeName;
@@ -1373,22 +1508,21 @@ public class VcfEntry extends Marker implements Iterable<VcfGenotype> {
 		else if (parent != null) chr = getChromosomeName();
 		else chr = ".";
 
-		StringBuilder sb = new StringBuilder(chr //
-				+ "\t" + (start + 1) //
-				+ "\t" + (id.isEmpty() ? "." : id) //
-		);
+		sb.append(chr) //
+				.append('\t').append(start + 1) //
+				.append('\t').append(id.isEmpty() ? "." : id) //
+		;
 
 		// REF and ALT
-		String refStr = (ref == null || ref.isEmpty() ? "." : ref);
-		sb.append("\t" + refStr);
-		sb.append("\t" + getAltsStr());
+		sb.append('\t').append(ref == null || ref.isEmpty() ? "." : ref);
+		sb.append('\t').append(getAltsStr());
 
 		// Quality, filter, info, format...
-		sb.append("\t" + (quality != null ? quality + "" : "."));
-		sb.append("\t" + ((filter == null) || filter.isEmpty() ? "." : filter));
-		sb.append("\t" + ((infoStr == null) || infoStr.isEmpty() ? "." : infoStr));
-
-		return sb.toString();
+		sb.append('\t');
+		if (quality != null) sb.append(quality.doubleValue());
+		else sb.append('.');
+		sb.append('\t').append((filter == null) || filter.isEmpty() ? "." : filter);
+		sb.append('\t').append((infoStr == null) || infoStr.isEmpty() ? "." : infoStr);
 	}
 
 	/**
@@ -24,6 +24,7 @@ public class VcfGenotype {
 	int genotypeLikelihoodPhred[];
 
 	HashMap<String, String> fields;
+	boolean readOnly; // Genotype not added to 'vcfEntry' (see VcfEntry.getVcfGenotypeReadOnly()), it cannot be changed
 
 	VcfEntry vcfEntry;
 
@@ -37,6 +38,8 @@ public class VcfGenotype {
 	 * WARNING: This method does NOT change the FORMAT field. Use VcfEntry.addFormat() method
 	 */
 	public void add(String name, String value) {
+		checkReadOnly();
+
 		// Sanity check value
 		if ((value.indexOf(' ') >= 0) //
 				|| (value.indexOf('\t') >= 0) //
@@ -50,6 +53,14 @@ public class VcfGenotype {
 		// Finally, add the values
 		values += (values.endsWith(":") ? "" : ":") + value; // Add to value string
 		if (fields != null) fields.put(name, value); // Add value to hash (if needed)
+		vcfEntry.genotypesModified = true;
+	}
+
+	/**
+	 * Read-only genotypes are not part of the VCF entry, so changes would be lost
+	 */
+	void checkReadOnly() {
+		if (readOnly) throw new RuntimeException("Cannot change a read-only genotype (see VcfEntry.getVcfGenotypeReadOnly()), use VcfEntry.getVcfGenotype() instead.");
 	}
 
 	/**
@@ -399,6 +410,7 @@ public class VcfGenotype {
 	 * Set a genotype field value
 	 */
 	public void set(String gtFieldName, String gtValue) {
+		checkReadOnly();
 		String ffields[] = vcfEntry.getFormatFields();
 		if (ffields.length < 1) return; // No fields, nothing to do
 
@@ -416,6 +428,7 @@ public class VcfGenotype {
 			gtsb.append((gtsb.length() > 0 ? ":" : "") + value); // Append field value
 		}
 		values = gtsb.toString();
+		vcfEntry.genotypesModified = true;
 
 		// Invalidate previous parsing
 		fields = null;
@@ -0,0 +1,126 @@
+package org.snpeff.vcf;
+
+/**
+ * Tokenize VCF lines without splitting them.
+ *
+ * Field boundaries are indexed once (character offsets), fields
+ * are only decoded (i.e. copied to a new String) when requested.
+ * This avoids creating intermediate String arrays for each line.
+ *
+ * INFO values can also be looked up directly on the (unparsed) INFO string.
+ *
+ * @author pcingola
+ */
+public class VcfTokenizer {
+
+	public static final char FIELD_SEP = '\t';
+	public static final char INFO_SEP = ';';
+	public static final char INFO_KEY_VALUE_SEP = '=';
+	public static final String INFO_FLAG_VALUE = "true"; // Value for INFO fields that are present, but have no value (e.g. "INDEL")
+
+	String line;
+	int numFields; // Number of fields indexed
+	int starts[], ends[]; // Field boundaries
+
+	/**
+	 * Find an INFO value by scanning an INFO string
+	 * Keys are matched at ';' boundaries, the last matching entry is used
+	 * (same behaviour as parsing all entries into a map).
+	 *
+	 * @return Value, INFO_FLAG_VALUE if the key is present without a value, or null if not found
+	 */
+	public static String infoValue(String infoStr, String key) {
+		if (infoStr == null) return null;
+
+		String value = null;
+		int len = infoStr.length();
+		int keyLen = key.length();
+		for (int start = 0, end; start <= len; start = end + 1) {
+			end = infoStr.indexOf(INFO_SEP, start);
+			if (end < 0) end = len;
+
+			if (infoStr.startsWith(key, start)) {
+				int keyEnd = start + keyLen;
+				if (keyEnd == end) value = INFO_FLAG_VALUE; // A property that is present, but has no value (e.g. "INDEL")
+				else if (infoStr.charAt(keyEnd) == INFO_KEY_VALUE_SEP) value = infoStr.substring(keyEnd + 1, end);
+			}
+		}
+
+		return value;
+	}
+
+	/**
+	 * @param maxFields : Maximum number of fields to index, the last field spans the rest of
+	 * 					  the line (same as 'line.split("\t", maxFields)')
+	 */
+	public VcfTokenizer(int maxFields) {
+		starts = new int[maxFields];
+		ends = new int[maxFields];
+	}
+
+	/**
+	 * End (exclusive) of field 'fieldNum'
+	 */
+	public int end(int fieldNum) {
+		return ends[fieldNum];
+	}
+
+	/**
+	 * Get field 'fieldNum' as a string.
+	 * Missing values ('.') and non-existent fields are returned as empty strings
+	 */
+	public String field(int fieldNum) {
+		if (isMissing(fieldNum)) return "";
+		return line.substring(starts[fieldNum], ends[fieldNum]);
+	}
+
+	/**
+	 * Is field 'fieldNum' missing (either '.' or not present in the line)?
+	 */
+	public boolean isMissing(int fieldNum) {
+		if (fieldNum >= numFields) return true;
+		return (ends[fieldNum] - starts[fieldNum] == 1) && (line.charAt(starts[fieldNum]) == '.');
+	}
+
+	public String getLine() {
+		return line;
+	}
+
+	/**
+	 * Number of fields indexed
+	 */
+	public int size() {
+		return numFields;
+	}
+
+	/**
+	 * Start of field 'fieldNum'
+	 */
+	public int start(int fieldNum) {
+		return starts[fieldNum];
+	}
+
+	/**
+	 * Index field boundaries in a line
+	 */
+	public VcfTokenizer tokenize(String line) {
+		this.line = line;
+
+		int len = line.length();
+		int maxFields = starts.length;
+		numFields = 0;
+		for (int start = 0, end; numFields < maxFields; start = end + 1) {
+			end = (numFields < maxFields - 1 ? line.indexOf(FIELD_SEP, start) : -1);
+			if (end < 0) end = len;
+
+			starts[numFields] = start;
+			ends[numFields] = end;
+			numFields++;
+
+			if (end >= len) break;
+		}
+
+		return this;
+	}
+
+}